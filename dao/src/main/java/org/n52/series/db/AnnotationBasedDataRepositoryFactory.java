@@ -29,10 +29,10 @@
 package org.n52.series.db;
 
 import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toSet;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -48,22 +48,56 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 
-
-public class AnnotationBasedDataRepositoryFactory implements DataRepositoryTypeFactory {
+/**
+ * Dispatches observation and value types to the {@link DataRepositoryComponent} beans. The beans are
+ * collected once into an immutable registry when the application context has been refreshed (or on first
+ * access if needed earlier), so lookups do not scan the application context.
+ */
+public class AnnotationBasedDataRepositoryFactory
+        implements DataRepositoryTypeFactory, ApplicationListener<ContextRefreshedEvent> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationBasedDataRepositoryFactory.class);
 
-    private final Map<String, ? super DataRepository<?, ?, ?, ?>> cache;
-
     private final ApplicationContext appContext;
 
+    private volatile Registry registry;
+
     @Autowired
     public AnnotationBasedDataRepositoryFactory(ApplicationContext appContext) {
-        this.cache = new HashMap<>();
         this.appContext = appContext;
     }
 
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() == appContext) {
+            registry = createRegistry();
+        }
+    }
+
+    private Registry getRegistry() {
+        Registry current = registry;
+        if (current == null) {
+            synchronized (this) {
+                current = registry;
+                if (current == null) {
+                    current = createRegistry();
+                    registry = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Registry createRegistry() {
+        Map<String, DataRepository<?, ?, ?, ?>> repositories = new LinkedHashMap<>();
+        getAllDataAssemblers().forEach(assembler -> repositories.putIfAbsent(getDataType(assembler), assembler));
+        LOGGER.debug("Registered data repositories for types: {}", repositories.keySet());
+        return new Registry(repositories);
+    }
+
     @SuppressWarnings("unchecked")
     private Stream<DataRepository<? extends DatasetEntity,
                                     ? extends DataEntity<?>,
@@ -77,8 +111,7 @@ public class AnnotationBasedDataRepositoryFactory implements DataRepositoryTypeF
 
     @Override
     public boolean isKnown(String observationType, String valueType) {
-        return hasCacheEntry(observationType, valueType) || getAllDataAssemblers().map(this::getDataType)
-                .filter(it -> it.equals(getType(observationType, valueType))).findFirst().isPresent();
+        return getRegistry().repositories.containsKey(getType(observationType, valueType));
     }
 
     private String getType(String observationType, String valueType) {
@@ -88,21 +121,12 @@ public class AnnotationBasedDataRepositoryFactory implements DataRepositoryTypeF
                         : valueType;
     }
 
-    private Optional<DataRepository<? extends DatasetEntity,
-                                    ? extends DataEntity<?>,
-                                    ? extends AbstractValue<?>, ?>> findDataAssembler(
-            String observationType, String valueType) {
-        return getAllDataAssemblers().filter(it -> getDataType(it).equals(getType(observationType, valueType)))
-                .findFirst();
-    }
-
     @Override
     public Set<String> getKnownTypes() {
-        return getAllDataAssemblers().map(this::getDataType).collect(toSet());
+        return getRegistry().repositories.keySet();
     }
 
-    private String getDataType(
-            DataRepository<? extends DatasetEntity, ? extends DataEntity<?>, ? extends AbstractValue<?>, ?> assembler) {
+    private String getDataType(DataRepository<?, ?, ?, ?> assembler) {
         return assembler.getClass().getAnnotation(DataRepositoryComponent.class).value();
     }
 
@@ -113,16 +137,11 @@ public class AnnotationBasedDataRepositoryFactory implements DataRepositoryTypeF
             V extends AbstractValue<?>, T>
             DataRepository<S, E, V, T> create(
             String observationType, String valueType, Class<S> entityType) {
-        return (DataRepository<S, E, V, T>) addToCache(observationType, valueType,
-                findDataAssembler(observationType, valueType).orElseThrow(throwException(observationType, valueType)));
-    }
-
-    private <A extends DataRepository<? extends DatasetEntity,
-                                        ? extends DataEntity<?>,
-                                        ? extends AbstractValue<?>, ?>> A addToCache(
-            String observationType, String valueType, A assembler) {
-        cache.put(getType(observationType, valueType), assembler);
-        return assembler;
+        DataRepository<?, ?, ?, ?> assembler = getRegistry().repositories.get(getType(observationType, valueType));
+        if (assembler == null) {
+            throw throwException(observationType, valueType).get();
+        }
+        return (DataRepository<S, E, V, T>) assembler;
     }
 
     private Supplier<? extends DataAccessException> throwException(String observationType, String valueType) {
@@ -131,14 +150,25 @@ public class AnnotationBasedDataRepositoryFactory implements DataRepositoryTypeF
 
     @Override
     public Class<? extends DatasetEntity> getDatasetEntityType(String observationType, String valueType) {
-        return findDataAssembler(observationType, valueType).map(Object::getClass)
+        return Optional.ofNullable(getRegistry().repositories.get(getType(observationType, valueType)))
+                .map(Object::getClass)
                 .map(it -> it.getAnnotation(DataRepositoryComponent.class))
                 .map(DataRepositoryComponent::datasetEntityType).get();
     }
 
     @Override
     public boolean hasCacheEntry(String observationType, String valueType) {
-        return cache.containsKey(getType(observationType, valueType));
+        return isKnown(observationType, valueType);
+    }
+
+    private static final class Registry {
+
+        private final Map<String, DataRepository<?, ?, ?, ?>> repositories;
+
+        Registry(Map<String, DataRepository<?, ?, ?, ?>> repositories) {
+            this.repositories = Collections.unmodifiableMap(repositories);
+        }
+
     }
 
 }
@@ -28,10 +28,7 @@
  */
 package org.n52.series.db;
 
-import java.util.stream.Collectors;
-
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.metamodel.EntityType;
 
 import org.hibernate.Criteria;
 import org.hibernate.Session;
@@ -47,20 +44,36 @@ import org.hibernate.persister.entity.OuterJoinLoadable;
 
 public final class DataModelUtil {
 
+    private static volatile Capabilities capabilities;
+
     public static boolean isPropertyNameSupported(String property, Class<?> clazz, Session session) {
-        return hasProperty(property, session.getEntityManagerFactory().getMetamodel().entity(clazz));
+        return getCapabilities(session.getEntityManagerFactory()).isPropertyNameSupported(property, clazz);
     }
 
-    private static boolean hasProperty(String property, EntityType<?> entityType) {
-        return entityType.getAttributes().stream().map(a -> a.getName()).collect(Collectors.toSet())
-                .contains(property);
+    public static boolean isNamedQuerySupported(String namedQuery, Session session) {
+        return getCapabilities(getSessionFactory(session)).isNamedQuerySupported(namedQuery);
     }
 
-    public static boolean isNamedQuerySupported(String namedQuery, Session session) {
-        SessionFactoryImplementor factory = getSessionFactory(session);
-        NamedQueryDefinition namedQueryDef = factory.getNamedQuery(namedQuery);
+    /**
+     * @param factory
+     *        the session factory
+     * @return the capabilities of the given factory, built on first access
+     */
+    public static SchemaCapabilities getCapabilities(EntityManagerFactory factory) {
+        Capabilities current = capabilities;
+        if (current == null || current.factory != factory) {
+            current = new Capabilities(factory, SchemaCapabilities.of(factory.getMetamodel(),
+                    namedQuery -> hasNamedQuery(namedQuery, factory)));
+            capabilities = current;
+        }
+        return current.capabilities;
+    }
+
+    private static boolean hasNamedQuery(String namedQuery, EntityManagerFactory factory) {
+        SessionFactoryImplementor sessionFactory = factory.unwrap(SessionFactoryImplementor.class);
+        NamedQueryDefinition namedQueryDef = sessionFactory.getNamedQuery(namedQuery);
         NamedSQLQueryDefinition namedSQLQueryDef =
-                factory.getNamedSQLQuery(namedQuery);
+                sessionFactory.getNamedSQLQuery(namedQuery);
         return namedQueryDef != null || namedSQLQueryDef != null;
     }
 
@@ -99,8 +112,7 @@ public final class DataModelUtil {
 
     private static boolean isEntitySupported(Class<?> clazz, EntityManagerFactory factory) {
         if (factory != null && clazz != null) {
-            return factory.getMetamodel().getEntities().stream().filter(e -> e.getJavaType().equals(clazz)).findFirst()
-                    .isPresent();
+            return getCapabilities(factory).isEntitySupported(clazz);
         }
         return false;
     }
@@ -139,4 +151,18 @@ public final class DataModelUtil {
         }
         return null;
     }
+
+    private static final class Capabilities {
+
+        private final EntityManagerFactory factory;
+
+        private final SchemaCapabilities capabilities;
+
+        Capabilities(EntityManagerFactory factory, SchemaCapabilities capabilities) {
+            this.factory = factory;
+            this.capabilities = capabilities;
+        }
+
+    }
+
 }
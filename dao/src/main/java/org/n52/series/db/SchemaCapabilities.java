@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+
+/**
+ * Immutable view on the capabilities of the mapped data model, i.e. which entities, properties and named
+ * queries are supported. Built once per session factory, so checks on hot paths are hash lookups instead of
+ * walking the metamodel on every call.
+ */
+public final class SchemaCapabilities {
+
+    private final Metamodel metamodel;
+
+    private final Set<Class<?>> entities;
+
+    private final Map<Class<?>, Set<String>> properties;
+
+    private final Predicate<String> namedQueryLookup;
+
+    private final Map<String, Boolean> namedQueries = new ConcurrentHashMap<>();
+
+    private SchemaCapabilities(Metamodel metamodel, Predicate<String> namedQueryLookup) {
+        Set<Class<?>> entityClasses = new HashSet<>();
+        Map<Class<?>, Set<String>> attributes = new HashMap<>();
+        for (EntityType<?> entityType : metamodel.getEntities()) {
+            Class<?> javaType = entityType.getJavaType();
+            if (javaType != null) {
+                entityClasses.add(javaType);
+                attributes.put(javaType, Collections.unmodifiableSet(entityType.getAttributes().stream()
+                        .map(Attribute::getName)
+                        .collect(Collectors.toSet())));
+            }
+        }
+        this.metamodel = metamodel;
+        this.entities = Collections.unmodifiableSet(entityClasses);
+        this.properties = Collections.unmodifiableMap(attributes);
+        this.namedQueryLookup = namedQueryLookup;
+    }
+
+    /**
+     * @param metamodel
+     *        the metamodel of the session factory
+     * @param namedQueryLookup
+     *        checks if a named query is defined (named queries are registered at startup, so each result is
+     *        kept)
+     * @return the capabilities
+     */
+    public static SchemaCapabilities of(Metamodel metamodel, Predicate<String> namedQueryLookup) {
+        return new SchemaCapabilities(metamodel, namedQueryLookup);
+    }
+
+    public boolean isEntitySupported(Class<?> clazz) {
+        return clazz != null && entities.contains(clazz);
+    }
+
+    /**
+     * @param property
+     *        the property name
+     * @param clazz
+     *        the entity class
+     * @return <code>true</code> if the entity maps the given property
+     * @throws IllegalArgumentException
+     *         if the class is not an entity
+     */
+    public boolean isPropertyNameSupported(String property, Class<?> clazz) {
+        Set<String> names = properties.get(clazz);
+        if (names == null) {
+            // fails like the metamodel itself does for unmapped classes
+            return metamodel.entity(clazz).getAttributes().stream().anyMatch(a -> a.getName().equals(property));
+        }
+        return names.contains(property);
+    }
+
+    public boolean isNamedQuerySupported(String namedQuery) {
+        return namedQueries.computeIfAbsent(namedQuery, namedQueryLookup::test);
+    }
+
+}
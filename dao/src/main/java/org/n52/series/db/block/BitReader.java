@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads values of arbitrary bit lengths from a buffer written by {@link BitWriter}. Reads the buffer in
+ * place, so memory-mapped buffers are decoded without copying.
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+
+    private final int offset;
+
+    private final long limit;
+
+    private long position;
+
+    /**
+     * @param buffer
+     *        the buffer, absolute reads do not change its state
+     * @param offset
+     *        the index of the first byte
+     * @param length
+     *        the number of bytes
+     */
+    BitReader(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.limit = (long) length << 3;
+    }
+
+    /**
+     * @param count
+     *        the number of bits to read (0 to 64)
+     * @return the bits in the lower bits of the result
+     */
+    long read(int count) {
+        if (position + count > limit) {
+            throw new IllegalStateException("Block data is truncated.");
+        }
+        long value = 0L;
+        int remaining = count;
+        while (remaining > 0) {
+            int current = buffer.get(offset + (int) (position >>> 3)) & 0xFF;
+            int used = (int) (position & 7);
+            int available = 8 - used;
+            int taken = Math.min(available, remaining);
+            int shifted = (current >>> (available - taken)) & ((1 << taken) - 1);
+            value = (value << taken) | shifted;
+            remaining -= taken;
+            position += taken;
+        }
+        return value;
+    }
+
+    boolean readBit() {
+        return read(1) == 1L;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.util.Arrays;
+
+/**
+ * Writes values of arbitrary bit lengths to a growing buffer, most significant bits first.
+ */
+final class BitWriter {
+
+    private long[] words = new long[16];
+
+    private long bits;
+
+    /**
+     * @param value
+     *        holds the bits in its lower <code>count</code> bits
+     * @param count
+     *        the number of bits to write (0 to 64)
+     */
+    void write(long value, int count) {
+        if (count == 0) {
+            return;
+        }
+        long masked = count == Long.SIZE
+                ? value
+                : value & ((1L << count) - 1);
+        ensureCapacity(bits + count);
+        int index = (int) (bits >>> 6);
+        int used = (int) (bits & 63);
+        int free = Long.SIZE - used;
+        if (count <= free) {
+            words[index] |= masked << (free - count);
+        } else {
+            int overflow = count - free;
+            words[index] |= masked >>> overflow;
+            words[index + 1] |= masked << (Long.SIZE - overflow);
+        }
+        bits += count;
+    }
+
+    void writeBit(boolean bit) {
+        write(bit
+                ? 1L
+                : 0L, 1);
+    }
+
+    private void ensureCapacity(long required) {
+        int needed = (int) ((required + 63) >>> 6) + 1;
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+        }
+    }
+
+    /**
+     * @return the written bits, padded with zeros to full bytes
+     */
+    byte[] toByteArray() {
+        byte[] bytes = new byte[(int) ((bits + 7) >>> 3)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+        }
+        return bytes;
+    }
+
+}
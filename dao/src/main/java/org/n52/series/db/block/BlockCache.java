@@ -0,0 +1,607 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Cache of time aligned {@link DataBlock}s of historical observations. Observations older than
+ * <code>immutableAfterHours</code> (and not after the dataset's last value) are assumed to be final. Range
+ * requests are assembled from cached blocks, missing blocks are loaded by a single query per gap and the
+ * still open tail of the range is always queried.
+ * <p>
+ * Blocks are invalidated if the dataset's first value time changes, if the dataset's last value time drops
+ * below the block (data have been removed) or if observations have been added to the block's range since it
+ * was loaded. For the latter each block keeps the dataset's change marker (its highest observation id) of
+ * loading, and the blocks of a request are checked by a single query for observations above the lowest
+ * marker. Observations corrected in place or deleted are not detected, {@link #invalidate(long)} has to be
+ * called for them. Datasets having observations a block cannot represent (e.g. time intervals) are
+ * remembered and always queried directly.
+ * <p>
+ * Eviction follows W-TinyLFU with weights of approximated block sizes: new blocks enter a small LRU
+ * window, blocks leaving the window compete with the eldest block of the main segment by their estimated
+ * access frequency. The main segment is a segmented LRU of probation and protected blocks.
+ * <p>
+ * If a {@link BlockStore} is available, blocks missing in memory are read from it before querying the
+ * database and loaded blocks are written through to it. Stored blocks are validated like cached ones.
+ */
+public class BlockCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockCache.class);
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private static final int TYPICAL_BLOCK_WEIGHT = 16 * 1024;
+
+    private static final double WINDOW_SHARE = 0.01d;
+
+    private static final double PROTECTED_SHARE = 0.8d;
+
+    private final Map<BlockKey, Node> nodes = new HashMap<>();
+
+    private final LinkedHashMap<BlockKey, Node> window = new LinkedHashMap<>();
+
+    private final LinkedHashMap<BlockKey, Node> probation = new LinkedHashMap<>();
+
+    private final LinkedHashMap<BlockKey, Node> protectedSegment = new LinkedHashMap<>();
+
+    private final Set<Long> unencodable = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong storeHits = new AtomicLong();
+
+    @Autowired(required = false)
+    private BlockStore store;
+
+    private FrequencySketch sketch;
+
+    private long windowWeight;
+
+    private long probationWeight;
+
+    private long protectedWeight;
+
+    private boolean enabled = true;
+
+    private long maxWeight = 64 * BYTES_PER_MB;
+
+    private long blockMillis = TimeUnit.DAYS.toMillis(1);
+
+    private long immutableAfterMillis = TimeUnit.DAYS.toMillis(3);
+
+    public BlockCache() {
+        this.sketch = createSketch();
+    }
+
+    /**
+     * Gets the observations of a dataset within a time range (bounds inclusive).
+     *
+     * @param dataset
+     *        the dataset id
+     * @param firstValueAt
+     *        the dataset's first value time
+     * @param lastValueAt
+     *        the dataset's last value time
+     * @param from
+     *        the start of the range
+     * @param to
+     *        the end of the range
+     * @param codec
+     *        converts observations to and from blocks
+     * @param loader
+     *        queries observations and changes of the dataset
+     * @param <E>
+     *        the observation type
+     * @return the observations ordered by time or <code>null</code> if the range does not touch closed blocks
+     *         or the dataset's observations cannot be held by blocks
+     */
+    public <E> List<E> getObservations(long dataset, Date firstValueAt, Date lastValueAt, long from, long to,
+            BlockCodec<E> codec, RangeLoader<E> loader) {
+        if (!enabled || lastValueAt == null || unencodable.contains(dataset)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long first = firstValueAt != null
+                ? firstValueAt.getTime()
+                : DataBlock.NO_TIME;
+        long last = lastValueAt.getTime();
+        long closedUntil = floor(Math.min(last, now - immutableAfterMillis));
+        long firstBlock = floor(from);
+        if (from > to || firstBlock + blockMillis > closedUntil) {
+            return null;
+        }
+        long closedEnd = Math.min(closedUntil, floor(to) + blockMillis);
+        DataBlock[] blocks = new DataBlock[(int) ((closedEnd - firstBlock) / blockMillis)];
+        for (int i = 0; i < blocks.length; i++) {
+            BlockKey key = new BlockKey(dataset, firstBlock + i * blockMillis);
+            DataBlock block = getValid(key, first, last);
+            blocks[i] = block != null
+                    ? block
+                    : getStored(key, first, last);
+        }
+        dropChanged(dataset, firstBlock, blocks, loader);
+        List<E> result = new ArrayList<>();
+        long gap = -1L;
+        for (int i = 0; i < blocks.length; i++) {
+            long start = firstBlock + i * blockMillis;
+            DataBlock block = blocks[i];
+            if (block == null) {
+                gap = gap < 0
+                        ? start
+                        : gap;
+                continue;
+            }
+            if (gap >= 0 && !loadBlocks(dataset, gap, start, first, from, to, codec, loader, result)) {
+                return null;
+            }
+            gap = -1L;
+            decode(block, from, to, codec, result);
+        }
+        if (gap >= 0 && !loadBlocks(dataset, gap, closedEnd, first, from, to, codec, loader, result)) {
+            return null;
+        }
+        if (to >= closedEnd) {
+            result.addAll(loader.load(Math.max(from, closedEnd), to));
+        }
+        return result;
+    }
+
+    /**
+     * Drops the blocks which miss observations added since they have been loaded.
+     */
+    private <E> void dropChanged(long dataset, long firstBlock, DataBlock[] blocks, RangeLoader<E> loader) {
+        long marker = Long.MAX_VALUE;
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < blocks.length; i++) {
+            if (blocks[i] != null) {
+                marker = Math.min(marker, blocks[i].getChangeMarker());
+                first = first < 0
+                        ? i
+                        : first;
+                last = i;
+            }
+        }
+        if (first < 0) {
+            return;
+        }
+        long from = firstBlock + first * blockMillis;
+        long to = firstBlock + (last + 1) * blockMillis - 1;
+        for (long[] change : loader.getChanges(marker, from, to)) {
+            int index = (int) ((floor(change[0]) - firstBlock) / blockMillis);
+            DataBlock block = index >= 0 && index < blocks.length
+                    ? blocks[index]
+                    : null;
+            if (block != null && change[1] > block.getChangeMarker()) {
+                LOGGER.debug("Dropping block {} of dataset {} missing added observations.", block.getStart(),
+                        dataset);
+                discard(new BlockKey(dataset, block.getStart()), block);
+                blocks[index] = null;
+            }
+        }
+    }
+
+    private <E> boolean loadBlocks(long dataset, long start, long end, long firstValueAt, long from, long to,
+            BlockCodec<E> codec, RangeLoader<E> loader, List<E> result) {
+        long begin = System.currentTimeMillis();
+        long marker = loader.getChangeMarker();
+        List<E> observations = new ArrayList<>(loader.load(start, end - 1));
+        for (E observation : observations) {
+            if (!codec.isEncodable(observation)) {
+                LOGGER.debug("Observations of dataset {} cannot be held by blocks.", dataset);
+                unencodable.add(dataset);
+                return false;
+            }
+        }
+        observations.sort(Comparator.comparingLong(codec::getTimestamp));
+        Iterator<E> iterator = observations.iterator();
+        E next = iterator.hasNext()
+                ? iterator.next()
+                : null;
+        for (long blockStart = start; blockStart < end; blockStart += blockMillis) {
+            List<E> points = new ArrayList<>();
+            while (next != null && codec.getTimestamp(next) < blockStart + blockMillis) {
+                long timestamp = codec.getTimestamp(next);
+                if (timestamp >= blockStart) {
+                    points.add(next);
+                    if (timestamp >= from && timestamp <= to) {
+                        result.add(next);
+                    }
+                }
+                next = iterator.hasNext()
+                        ? iterator.next()
+                        : null;
+            }
+            DataBlock block = codec.encode(blockStart, points, firstValueAt, marker);
+            put(new BlockKey(dataset, blockStart), block);
+            if (isStoreEnabled()) {
+                store.put(dataset, block, blockStart + blockMillis);
+            }
+        }
+        LOGGER.debug("Loading {} blocks of dataset {} takes {} ms", (end - start) / blockMillis, dataset,
+                System.currentTimeMillis() - begin);
+        return true;
+    }
+
+    private <E> void decode(DataBlock block, long from, long to, BlockCodec<E> codec, List<E> result) {
+        for (int i = block.indexOf(from); i < block.size() && block.getTimestamp(i) <= to; i++) {
+            result.add(codec.decode(block, i));
+        }
+    }
+
+    private long floor(long time) {
+        return Math.floorDiv(time, blockMillis) * blockMillis;
+    }
+
+    private synchronized DataBlock getValid(BlockKey key, long firstValueAt, long lastValueAt) {
+        DataBlock block = get(key);
+        if (block != null && !isValid(key, block, firstValueAt, lastValueAt)) {
+            detach(nodes.get(key));
+            block = null;
+        }
+        if (block != null) {
+            hits.incrementAndGet();
+        }
+        return block;
+    }
+
+    private DataBlock getStored(BlockKey key, long firstValueAt, long lastValueAt) {
+        DataBlock block = isStoreEnabled()
+                ? store.get(key.dataset, key.start, key.start + blockMillis)
+                : null;
+        if (block == null || !isValid(key, block, firstValueAt, lastValueAt)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        storeHits.incrementAndGet();
+        put(key, block);
+        return block;
+    }
+
+    private boolean isValid(BlockKey key, DataBlock block, long firstValueAt, long lastValueAt) {
+        return block.getFirstValueAt() == firstValueAt
+                && key.start + blockMillis <= lastValueAt
+                && block.getChangeMarker() != DataBlock.NO_MARKER;
+    }
+
+    private synchronized void discard(BlockKey key, DataBlock block) {
+        Node node = nodes.get(key);
+        if (node != null && node.block == block) {
+            detach(node);
+        }
+    }
+
+    private boolean isStoreEnabled() {
+        return store != null && store.isEnabled();
+    }
+
+    synchronized DataBlock get(BlockKey key) {
+        sketch.increment(key);
+        Node node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (node.segment == window) {
+            window.remove(key);
+            window.put(key, node);
+        } else if (node.segment == probation) {
+            probation.remove(key);
+            probationWeight -= node.weight;
+            protectedSegment.put(key, node);
+            protectedWeight += node.weight;
+            node.segment = protectedSegment;
+            demoteProtected();
+        } else {
+            protectedSegment.remove(key);
+            protectedSegment.put(key, node);
+        }
+        return node.block;
+    }
+
+    synchronized void put(BlockKey key, DataBlock block) {
+        int weight = block.getWeight();
+        if (weight > maxWeight) {
+            return;
+        }
+        Node existing = nodes.get(key);
+        if (existing != null) {
+            detach(existing);
+        }
+        Node node = new Node(key, block, weight);
+        nodes.put(key, node);
+        window.put(key, node);
+        node.segment = window;
+        windowWeight += weight;
+        long windowMax = (long) (maxWeight * WINDOW_SHARE);
+        while (windowWeight > windowMax && !window.isEmpty()) {
+            Node candidate = window.values().iterator().next();
+            window.remove(candidate.key);
+            windowWeight -= candidate.weight;
+            probation.put(candidate.key, candidate);
+            probationWeight += candidate.weight;
+            candidate.segment = probation;
+            evictMain(candidate);
+        }
+    }
+
+    private void evictMain(Node admitted) {
+        Node candidate = admitted;
+        long mainMax = maxWeight - (long) (maxWeight * WINDOW_SHARE);
+        while (probationWeight + protectedWeight > mainMax) {
+            Node victim = eldest(probation);
+            if (victim == candidate && !protectedSegment.isEmpty()) {
+                victim = eldest(protectedSegment);
+            }
+            if (candidate == null || victim == candidate) {
+                remove(victim);
+                candidate = null;
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                remove(victim);
+            } else {
+                remove(candidate);
+                candidate = null;
+            }
+        }
+    }
+
+    private void demoteProtected() {
+        long protectedMax = (long) ((maxWeight - maxWeight * WINDOW_SHARE) * PROTECTED_SHARE);
+        while (protectedWeight > protectedMax && protectedSegment.size() > 1) {
+            Node demoted = eldest(protectedSegment);
+            protectedSegment.remove(demoted.key);
+            protectedWeight -= demoted.weight;
+            probation.put(demoted.key, demoted);
+            probationWeight += demoted.weight;
+            demoted.segment = probation;
+        }
+    }
+
+    private Node eldest(LinkedHashMap<BlockKey, Node> segment) {
+        return segment.isEmpty()
+                ? null
+                : segment.values().iterator().next();
+    }
+
+    private void remove(Node node) {
+        detach(node);
+        evictions.incrementAndGet();
+    }
+
+    private void detach(Node node) {
+        nodes.remove(node.key);
+        node.segment.remove(node.key);
+        if (node.segment == window) {
+            windowWeight -= node.weight;
+        } else if (node.segment == probation) {
+            probationWeight -= node.weight;
+        } else {
+            protectedWeight -= node.weight;
+        }
+    }
+
+    /**
+     * Drops all blocks of a dataset, e.g. after its observations have been changed.
+     *
+     * @param dataset
+     *        the dataset id
+     */
+    public synchronized void invalidate(long dataset) {
+        new ArrayList<>(nodes.values()).stream()
+                                       .filter(node -> node.key.dataset == dataset)
+                                       .forEach(this::detach);
+        unencodable.remove(dataset);
+        if (isStoreEnabled()) {
+            store.invalidate(dataset);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        clear();
+        if (isStoreEnabled()) {
+            store.invalidateAll();
+        }
+    }
+
+    private void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+        unencodable.clear();
+    }
+
+    private FrequencySketch createSketch() {
+        return new FrequencySketch((int) Math.min(Integer.MAX_VALUE >> 2, maxWeight / TYPICAL_BLOCK_WEIGHT));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of blocks read from the store
+     */
+    public long getStoreHits() {
+        return storeHits.get();
+    }
+
+    /**
+     * @return the approximate number of bytes held
+     */
+    public synchronized long getWeight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public synchronized void setMaxWeightMb(long maxWeightMb) {
+        this.maxWeight = Math.max(1, maxWeightMb) * BYTES_PER_MB;
+        this.sketch = createSketch();
+        clear();
+    }
+
+    synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = Math.max(1, maxWeight);
+        this.sketch = createSketch();
+        clear();
+    }
+
+    public void setStore(BlockStore store) {
+        this.store = store;
+    }
+
+    public synchronized void setBlockHours(long blockHours) {
+        this.blockMillis = TimeUnit.HOURS.toMillis(Math.max(1, blockHours));
+        clear();
+    }
+
+    public void setImmutableAfterHours(long immutableAfterHours) {
+        this.immutableAfterMillis = TimeUnit.HOURS.toMillis(Math.max(0, immutableAfterHours));
+    }
+
+    /**
+     * Queries observations and changes of a dataset.
+     *
+     * @param <E>
+     *        the observation type
+     */
+    public interface RangeLoader<E> {
+
+        /**
+         * @param from
+         *        the inclusive start
+         * @param to
+         *        the inclusive end
+         * @return the observations ordered by time
+         */
+        List<E> load(long from, long to);
+
+        /**
+         * @return the current change marker of the dataset, growing with each added observation, e.g. its
+         *         highest observation id
+         */
+        long getChangeMarker();
+
+        /**
+         * @param marker
+         *        the exclusive lower bound of change markers
+         * @param from
+         *        the inclusive start
+         * @param to
+         *        the inclusive end
+         * @return the time and change marker of each observation within the range added after the marker
+         */
+        List<long[]> getChanges(long marker, long from, long to);
+    }
+
+    static final class BlockKey {
+
+        private final long dataset;
+
+        private final long start;
+
+        BlockKey(long dataset, long start) {
+            this.dataset = dataset;
+            this.start = start;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(dataset) * 31 + Long.hashCode(start);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof BlockKey)) {
+                return false;
+            }
+            BlockKey other = (BlockKey) obj;
+            return dataset == other.dataset && start == other.start;
+        }
+    }
+
+    private static final class Node {
+
+        private final BlockKey key;
+
+        private final DataBlock block;
+
+        private final int weight;
+
+        private LinkedHashMap<BlockKey, Node> segment;
+
+        Node(BlockKey key, DataBlock block, int weight) {
+            this.key = key;
+            this.block = block;
+            this.weight = weight;
+        }
+    }
+
+}
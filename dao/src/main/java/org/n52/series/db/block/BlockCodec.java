@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.util.List;
+
+/**
+ * Converts observations of a particular type to and from {@link DataBlock}s.
+ *
+ * @param <E>
+ *        the observation type
+ */
+public interface BlockCodec<E> {
+
+    /**
+     * @param observation
+     *        the observation
+     * @return <code>true</code> if the observation can be held by a block without losing information the
+     *         output needs, e.g. it is instantaneous and has no detection limit
+     */
+    boolean isEncodable(E observation);
+
+    /**
+     * @param observation
+     *        an encodable observation
+     * @return the time of the observation
+     */
+    long getTimestamp(E observation);
+
+    /**
+     * @param start
+     *        the start of the block
+     * @param observations
+     *        encodable observations of the block ordered by time
+     * @param firstValueAt
+     *        the first value time of the dataset
+     * @param changeMarker
+     *        the change marker of the dataset before loading or {@link DataBlock#NO_MARKER}
+     * @return the block
+     */
+    DataBlock encode(long start, List<E> observations, long firstValueAt, long changeMarker);
+
+    /**
+     * @param block
+     *        the block
+     * @param index
+     *        the index of the point
+     * @return the observation of the point
+     */
+    E decode(DataBlock block, int index);
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses {@link DataBlock}s like Gorilla compresses time series: timestamps are stored as
+ * delta-of-deltas in variable sized buckets, unscaled values as XOR of their predecessor with leading and
+ * trailing zeros stripped. A scale is stored once if all points share it, otherwise a flag per point tells
+ * if the scale changed and the new scale follows as absolute 32 bit value. Result times are stored as a mode
+ * if they are missing or equal the timestamps for all points, otherwise a flag per point tells if the result
+ * time equals the timestamp, is missing or follows as absolute 64 bit value.
+ */
+final class BlockCompression {
+
+    private static final int RESULT_TIMES_NONE = 0;
+
+    private static final int RESULT_TIMES_SAMPLING = 1;
+
+    private static final int RESULT_TIMES_MIXED = 2;
+
+    private BlockCompression() {
+    }
+
+    static byte[] compress(DataBlock block) {
+        BitWriter writer = new BitWriter();
+        int size = block.size();
+        writer.write(size, Integer.SIZE);
+        if (size == 0) {
+            return writer.toByteArray();
+        }
+        writeTimestamps(block, writer);
+        writeValues(block, writer);
+        writeScales(block, writer);
+        writeResultTimes(block, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param buffer
+     *        the buffer holding the compressed block
+     * @param offset
+     *        the index of the compressed block in the buffer
+     * @param length
+     *        the length of the compressed block
+     * @param start
+     *        the start of the block
+     * @param firstValueAt
+     *        the first value time of the dataset when the block was loaded
+     * @param changeMarker
+     *        the change marker of the dataset when the block was loaded or {@link DataBlock#NO_MARKER}
+     * @return the block
+     */
+    static DataBlock decompress(ByteBuffer buffer, int offset, int length, long start, long firstValueAt,
+            long changeMarker) {
+        BitReader reader = new BitReader(buffer, offset, length);
+        int size = (int) reader.read(Integer.SIZE);
+        if (size < 0) {
+            throw new IllegalStateException("Invalid block size " + size);
+        }
+        long[] timestamps = new long[size];
+        long[] unscaledValues = new long[size];
+        int[] scales = new int[size];
+        long[] resultTimes = new long[size];
+        if (size > 0) {
+            readTimestamps(reader, timestamps);
+            readValues(reader, unscaledValues);
+            readScales(reader, scales);
+            readResultTimes(reader, timestamps, resultTimes);
+        }
+        return new DataBlock(start, timestamps, resultTimes, unscaledValues, scales, firstValueAt,
+                changeMarker);
+    }
+
+    private static void writeTimestamps(DataBlock block, BitWriter writer) {
+        long previous = block.getTimestamp(0);
+        long previousDelta = 0L;
+        writer.write(previous, Long.SIZE);
+        for (int i = 1; i < block.size(); i++) {
+            long delta = block.getTimestamp(i) - previous;
+            writeDeltaOfDelta(delta - previousDelta, writer);
+            previous = block.getTimestamp(i);
+            previousDelta = delta;
+        }
+    }
+
+    private static void writeDeltaOfDelta(long dod, BitWriter writer) {
+        if (dod == 0) {
+            writer.write(0b0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            writer.write(0b10, 2);
+            writer.write(dod, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            writer.write(0b110, 3);
+            writer.write(dod, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            writer.write(0b1110, 4);
+            writer.write(dod, 12);
+        } else {
+            writer.write(0b1111, 4);
+            writer.write(dod, Long.SIZE);
+        }
+    }
+
+    private static void readTimestamps(BitReader reader, long[] timestamps) {
+        long previous = reader.read(Long.SIZE);
+        long previousDelta = 0L;
+        timestamps[0] = previous;
+        for (int i = 1; i < timestamps.length; i++) {
+            long delta = previousDelta + readDeltaOfDelta(reader);
+            previous += delta;
+            previousDelta = delta;
+            timestamps[i] = previous;
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader reader) {
+        if (!reader.readBit()) {
+            return 0L;
+        } else if (!reader.readBit()) {
+            return signed(reader.read(7), 7);
+        } else if (!reader.readBit()) {
+            return signed(reader.read(9), 9);
+        } else if (!reader.readBit()) {
+            return signed(reader.read(12), 12);
+        }
+        return reader.read(Long.SIZE);
+    }
+
+    /**
+     * Decodes a bucket value. Buckets hold one more positive than negative value, so the largest raw value
+     * maps to the positive bound.
+     */
+    private static long signed(long raw, int bits) {
+        long bound = 1L << (bits - 1);
+        return raw > bound
+                ? raw - (1L << bits)
+                : raw;
+    }
+
+    private static void writeValues(DataBlock block, BitWriter writer) {
+        long previous = block.getUnscaledValue(0);
+        writer.write(previous, Long.SIZE);
+        int leading = Integer.MAX_VALUE;
+        int trailing = 0;
+        for (int i = 1; i < block.size(); i++) {
+            long value = block.getUnscaledValue(i);
+            long xor = value ^ previous;
+            previous = value;
+            if (xor == 0) {
+                writer.write(0b0, 1);
+                continue;
+            }
+            // unlike doubles, unscaled values have many leading zeros, so they get 6 bits instead of 5
+            int currentLeading = Long.numberOfLeadingZeros(xor);
+            int currentTrailing = Long.numberOfTrailingZeros(xor);
+            if (leading != Integer.MAX_VALUE && currentLeading >= leading && currentTrailing >= trailing) {
+                writer.write(0b10, 2);
+                writer.write(xor >>> trailing, Long.SIZE - leading - trailing);
+            } else {
+                int significant = Long.SIZE - currentLeading - currentTrailing;
+                writer.write(0b11, 2);
+                writer.write(currentLeading, 6);
+                // significant bits are 1 to 64, stored as 0 to 63
+                writer.write(significant - 1, 6);
+                writer.write(xor >>> currentTrailing, significant);
+                leading = currentLeading;
+                trailing = currentTrailing;
+            }
+        }
+    }
+
+    private static void readValues(BitReader reader, long[] values) {
+        long previous = reader.read(Long.SIZE);
+        values[0] = previous;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.read(6);
+                    int significant = (int) reader.read(6) + 1;
+                    trailing = Long.SIZE - leading - significant;
+                }
+                long xor = reader.read(Long.SIZE - leading - trailing) << trailing;
+                previous ^= xor;
+            }
+            values[i] = previous;
+        }
+    }
+
+    private static void writeScales(DataBlock block, BitWriter writer) {
+        boolean constant = true;
+        for (int i = 1; i < block.size() && constant; i++) {
+            constant = block.getScale(i) == block.getScale(0);
+        }
+        writer.writeBit(constant);
+        writer.write(block.getScale(0), Integer.SIZE);
+        if (!constant) {
+            for (int i = 1; i < block.size(); i++) {
+                boolean changed = block.getScale(i) != block.getScale(i - 1);
+                writer.writeBit(changed);
+                if (changed) {
+                    writer.write(block.getScale(i), Integer.SIZE);
+                }
+            }
+        }
+    }
+
+    private static void readScales(BitReader reader, int[] scales) {
+        boolean constant = reader.readBit();
+        scales[0] = (int) reader.read(Integer.SIZE);
+        for (int i = 1; i < scales.length; i++) {
+            scales[i] = !constant && reader.readBit()
+                    ? (int) reader.read(Integer.SIZE)
+                    : scales[i - 1];
+        }
+    }
+
+    private static void writeResultTimes(DataBlock block, BitWriter writer) {
+        boolean none = true;
+        boolean sampling = true;
+        for (int i = 0; i < block.size(); i++) {
+            none &= block.getResultTime(i) == DataBlock.NO_TIME;
+            sampling &= block.getResultTime(i) == block.getTimestamp(i);
+        }
+        if (none) {
+            writer.write(RESULT_TIMES_NONE, 2);
+        } else if (sampling) {
+            writer.write(RESULT_TIMES_SAMPLING, 2);
+        } else {
+            writer.write(RESULT_TIMES_MIXED, 2);
+            for (int i = 0; i < block.size(); i++) {
+                long resultTime = block.getResultTime(i);
+                if (resultTime == block.getTimestamp(i)) {
+                    writer.write(0b0, 1);
+                } else if (resultTime == DataBlock.NO_TIME) {
+                    writer.write(0b10, 2);
+                } else {
+                    writer.write(0b11, 2);
+                    writer.write(resultTime, Long.SIZE);
+                }
+            }
+        }
+    }
+
+    private static void readResultTimes(BitReader reader, long[] timestamps, long[] resultTimes) {
+        int mode = (int) reader.read(2);
+        for (int i = 0; i < resultTimes.length; i++) {
+            if (mode == RESULT_TIMES_NONE) {
+                resultTimes[i] = DataBlock.NO_TIME;
+            } else if (mode == RESULT_TIMES_SAMPLING || !reader.readBit()) {
+                resultTimes[i] = timestamps[i];
+            } else {
+                resultTimes[i] = reader.readBit()
+                        ? reader.read(Long.SIZE)
+                        : DataBlock.NO_TIME;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk-backed tier of {@link DataBlock}s below the {@link BlockCache}. Blocks are compressed by
+ * {@link BlockCompression} and appended to one file per dataset, which is read through a read-only memory
+ * mapping, so decoding reads the page cache in place and neither the store's capacity nor warming up after
+ * a restart is bound to the JVM heap.
+ * <p>
+ * Each record carries a checksum of its header and payload, records of a torn write at the end of a file
+ * are truncated when the store is opened. Rewritten blocks leave garbage behind, files with more garbage
+ * than live records are dropped and refilled lazily. If the store exceeds its maximum size, the files of
+ * the least recently read datasets are dropped.
+ * <p>
+ * Blocks are kept across restarts, stored blocks are validated by the {@link BlockCache} like cached ones.
+ * Without a configured directory <code>.series-api/blocks</code> below the user's home is used. A lock file
+ * keeps other instances from using the same directory, a store finding its directory locked disables itself.
+ * <p>
+ * Lookups and bookkeeping are synchronized, blocks are compressed and decompressed outside of the lock. A
+ * mapping stays readable after its file has been dropped, so concurrent drops do not affect decoding.
+ */
+public class BlockStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockStore.class);
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private static final String SUFFIX = ".blocks";
+
+    private static final String LOCK_FILE = ".lock";
+
+    private static final int MAGIC = 0x424C4B33;
+
+    // magic, start, end, firstValueAt, changeMarker, length, checksum
+    private static final int HEADER_LENGTH = 3 * Integer.BYTES + 4 * Long.BYTES;
+
+    // the checksum covers the header up to the checksum itself
+    private static final int CHECKED_HEADER_LENGTH = HEADER_LENGTH - Integer.BYTES;
+
+    private final Map<Long, Segment> segments = new HashMap<>();
+
+    private boolean enabled;
+
+    private Path directory = Paths.get(System.getProperty("user.home"), ".series-api", "blocks");
+
+    private FileChannel lockChannel;
+
+    private long maxSize = 1024 * BYTES_PER_MB;
+
+    private long size;
+
+    private long accesses;
+
+    public synchronized void init() {
+        if (!enabled) {
+            LOGGER.info("Block store is disabled.");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(directory);
+            if (!lock()) {
+                LOGGER.warn("Block store at {} is used by another instance, disabling it.", directory);
+                enabled = false;
+                return;
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    Long dataset = parseDataset(file);
+                    if (dataset != null) {
+                        open(dataset, file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not open block store at {}, disabling it.", directory, e);
+            shutdown();
+            enabled = false;
+            return;
+        }
+        LOGGER.debug("Opening block store with {} datasets ({} bytes) takes {} ms", segments.size(), size,
+                System.currentTimeMillis() - start);
+        evict();
+    }
+
+    public synchronized void shutdown() {
+        segments.values().forEach(this::close);
+        segments.clear();
+        size = 0;
+        unlock();
+    }
+
+    private boolean lock() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            if (lockChannel.tryLock() != null) {
+                return true;
+            }
+        } catch (OverlappingFileLockException e) {
+            LOGGER.debug("Block store at {} is locked within this JVM.", directory, e);
+        }
+        unlock();
+        return false;
+    }
+
+    private void unlock() {
+        if (lockChannel != null) {
+            try {
+                // closing the channel releases its lock
+                lockChannel.close();
+            } catch (IOException e) {
+                LOGGER.debug("Could not release lock of block store at {}.", directory, e);
+            }
+            lockChannel = null;
+        }
+    }
+
+    private Long parseDataset(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.valueOf(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            LOGGER.debug("Ignoring unknown file {} in block store.", file);
+            return null;
+        }
+    }
+
+    private Segment open(long dataset, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Segment segment = new Segment(file, channel);
+        segments.put(dataset, segment);
+        long length = Math.min(channel.size(), Integer.MAX_VALUE);
+        if (length > 0) {
+            scan(segment, channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+        size += segment.size;
+        return segment;
+    }
+
+    private void scan(Segment segment, MappedByteBuffer buffer) throws IOException {
+        int position = 0;
+        while (position + HEADER_LENGTH <= buffer.capacity() && buffer.getInt(position) == MAGIC) {
+            long start = buffer.getLong(position + Integer.BYTES);
+            long end = buffer.getLong(position + Integer.BYTES + Long.BYTES);
+            long firstValueAt = buffer.getLong(position + Integer.BYTES + 2 * Long.BYTES);
+            long changeMarker = buffer.getLong(position + Integer.BYTES + 3 * Long.BYTES);
+            int length = buffer.getInt(position + Integer.BYTES + 4 * Long.BYTES);
+            int checksum = buffer.getInt(position + 2 * Integer.BYTES + 4 * Long.BYTES);
+            int offset = position + HEADER_LENGTH;
+            if (length < 0 || length > buffer.capacity() - offset
+                    || checksum(buffer, position, offset, length) != checksum) {
+                break;
+            }
+            segment.add(start, new Record(offset, length, end, firstValueAt, changeMarker));
+            position = offset + length;
+        }
+        if (position < segment.channel.size()) {
+            LOGGER.debug("Truncating {} to {} bytes of valid records.", segment.file, position);
+            segment.channel.truncate(position);
+        }
+        segment.size = position;
+    }
+
+    private static int checksum(ByteBuffer buffer, int header, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(slice(buffer, header, CHECKED_HEADER_LENGTH));
+        crc.update(slice(buffer, offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.limit(offset + length);
+        return slice;
+    }
+
+    /**
+     * @param dataset
+     *        the dataset id
+     * @param start
+     *        the start of the block
+     * @param end
+     *        the exclusive end of the block
+     * @return the stored block or <code>null</code> if there is none of the given bounds
+     */
+    public DataBlock get(long dataset, long start, long end) {
+        Segment segment;
+        Record record;
+        ByteBuffer buffer;
+        synchronized (this) {
+            segment = enabled
+                    ? segments.get(dataset)
+                    : null;
+            record = segment != null
+                    ? segment.records.get(start)
+                    : null;
+            if (record == null || record.end != end) {
+                return null;
+            }
+            segment.lastAccess = ++accesses;
+            buffer = map(dataset, segment, record.offset + record.length);
+            if (buffer == null) {
+                return null;
+            }
+        }
+        try {
+            return BlockCompression.decompress(buffer, record.offset, record.length, start, record.firstValueAt,
+                    record.changeMarker);
+        } catch (IllegalStateException | IndexOutOfBoundsException e) {
+            LOGGER.warn("Dropping corrupt blocks of dataset {}.", dataset, e);
+            synchronized (this) {
+                if (segments.get(dataset) == segment) {
+                    drop(dataset);
+                }
+            }
+            return null;
+        }
+    }
+
+    private ByteBuffer map(long dataset, Segment segment, long limit) {
+        if (segment.mapped == null || segment.mapped.capacity() < limit) {
+            try {
+                segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+            } catch (IOException e) {
+                LOGGER.warn("Could not map blocks of dataset {}.", dataset, e);
+                drop(dataset);
+                return null;
+            }
+        }
+        return segment.mapped;
+    }
+
+    /**
+     * Appends a block, replacing a previously stored block of the same start.
+     *
+     * @param dataset
+     *        the dataset id
+     * @param block
+     *        the block
+     * @param end
+     *        the exclusive end of the block
+     */
+    public void put(long dataset, DataBlock block, long end) {
+        if (!enabled) {
+            return;
+        }
+        byte[] payload = BlockCompression.compress(block);
+        synchronized (this) {
+            append(dataset, block, end, payload);
+        }
+    }
+
+    private void append(long dataset, DataBlock block, long end, byte[] payload) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Segment segment = segments.get(dataset);
+            if (segment == null) {
+                segment = open(dataset, directory.resolve(dataset + SUFFIX));
+            }
+            long position = segment.size;
+            if (position + HEADER_LENGTH + payload.length > Integer.MAX_VALUE) {
+                return;
+            }
+            ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+            record.putInt(MAGIC)
+                  .putLong(block.getStart())
+                  .putLong(end)
+                  .putLong(block.getFirstValueAt())
+                  .putLong(block.getChangeMarker())
+                  .putInt(payload.length)
+                  .putInt(0)
+                  .put(payload);
+            record.putInt(CHECKED_HEADER_LENGTH, checksum(record, 0, HEADER_LENGTH, payload.length));
+            record.flip();
+            while (record.hasRemaining()) {
+                segment.channel.write(record, position + record.position());
+            }
+            int offset = (int) position + HEADER_LENGTH;
+            segment.add(block.getStart(), new Record(offset, payload.length, end, block.getFirstValueAt(),
+                    block.getChangeMarker()));
+            segment.size += record.capacity();
+            size += record.capacity();
+            segment.lastAccess = ++accesses;
+            if (segment.garbage * 2 > segment.size) {
+                drop(dataset);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not store block of dataset {}.", dataset, e);
+            drop(dataset);
+        }
+        evict();
+    }
+
+    private void evict() {
+        while (size > maxSize && !segments.isEmpty()) {
+            long eldest = segments.entrySet()
+                                  .stream()
+                                  .min((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess))
+                                  .get()
+                                  .getKey();
+            drop(eldest);
+        }
+    }
+
+    /**
+     * Drops all blocks of a dataset.
+     *
+     * @param dataset
+     *        the dataset id
+     */
+    public synchronized void invalidate(long dataset) {
+        drop(dataset);
+    }
+
+    public synchronized void invalidateAll() {
+        new ArrayList<>(segments.keySet()).forEach(this::drop);
+    }
+
+    private void drop(long dataset) {
+        Segment segment = segments.remove(dataset);
+        if (segment != null) {
+            size -= segment.size;
+            close(segment);
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete {}.", segment.file, e);
+            }
+        }
+    }
+
+    private void close(Segment segment) {
+        segment.mapped = null;
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close {}.", segment.file, e);
+        }
+    }
+
+    /**
+     * @return the number of bytes stored
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param directory
+     *        the directory to store blocks in, if empty <code>.series-api/blocks</code> below the user's home
+     *        is used
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory != null && !directory.trim().isEmpty()
+                ? Paths.get(directory)
+                : Paths.get(System.getProperty("user.home"), ".series-api", "blocks");
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    public void setMaxSizeMb(long maxSizeMb) {
+        this.maxSize = Math.max(1, maxSizeMb) * BYTES_PER_MB;
+    }
+
+    void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+
+        private final FileChannel channel;
+
+        private final Map<Long, Record> records = new HashMap<>();
+
+        private MappedByteBuffer mapped;
+
+        private long size;
+
+        private long garbage;
+
+        private long lastAccess;
+
+        Segment(Path file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+
+        void add(long start, Record record) {
+            Record replaced = records.put(start, record);
+            if (replaced != null) {
+                garbage += HEADER_LENGTH + replaced.length;
+            }
+        }
+    }
+
+    private static final class Record {
+
+        private final int offset;
+
+        private final int length;
+
+        private final long end;
+
+        private final long firstValueAt;
+
+        private final long changeMarker;
+
+        Record(int offset, int length, long end, long firstValueAt, long changeMarker) {
+            this.offset = offset;
+            this.length = length;
+            this.end = end;
+            this.firstValueAt = firstValueAt;
+            this.changeMarker = changeMarker;
+        }
+    }
+
+}
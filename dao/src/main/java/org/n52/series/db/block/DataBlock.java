@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Immutable, time aligned block of instantaneous numerical observations of a single dataset. Points are
+ * held column-wise in primitive arrays ordered by time, decimal values as unscaled value and scale.
+ */
+public final class DataBlock {
+
+    /**
+     * Marks a missing result time.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * Marks a missing value.
+     */
+    public static final int NO_VALUE = Integer.MIN_VALUE;
+
+    /**
+     * Marks a block whose observations cannot be checked for changes.
+     */
+    public static final long NO_MARKER = Long.MIN_VALUE;
+
+    private static final int POINT_WEIGHT = 3 * Long.BYTES + Integer.BYTES;
+
+    private static final int BLOCK_OVERHEAD = 96;
+
+    private final long start;
+
+    private final long[] timestamps;
+
+    private final long[] resultTimes;
+
+    private final long[] unscaledValues;
+
+    private final int[] scales;
+
+    private final long firstValueAt;
+
+    private final long changeMarker;
+
+    /**
+     * @param start
+     *        the start of the block
+     * @param timestamps
+     *        the ascending timestamps of the points
+     * @param resultTimes
+     *        the result times of the points or {@link #NO_TIME}
+     * @param unscaledValues
+     *        the unscaled values of the points
+     * @param scales
+     *        the scales of the values or {@link #NO_VALUE}
+     * @param firstValueAt
+     *        the first value time of the dataset when the block was loaded
+     * @param changeMarker
+     *        the change marker of the dataset when the block was loaded or {@link #NO_MARKER}
+     */
+    public DataBlock(long start, long[] timestamps, long[] resultTimes, long[] unscaledValues, int[] scales,
+            long firstValueAt, long changeMarker) {
+        int size = timestamps.length;
+        if (resultTimes.length != size || unscaledValues.length != size || scales.length != size) {
+            throw new IllegalArgumentException("All columns must have the same length.");
+        }
+        this.start = start;
+        this.timestamps = timestamps;
+        this.resultTimes = resultTimes;
+        this.unscaledValues = unscaledValues;
+        this.scales = scales;
+        this.firstValueAt = firstValueAt;
+        this.changeMarker = changeMarker;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public long getResultTime(int index) {
+        return resultTimes[index];
+    }
+
+    public long getUnscaledValue(int index) {
+        return unscaledValues[index];
+    }
+
+    public int getScale(int index) {
+        return scales[index];
+    }
+
+    /**
+     * @param index
+     *        the index of the point
+     * @return the value or <code>null</code> if missing
+     */
+    public BigDecimal getValue(int index) {
+        return scales[index] != NO_VALUE
+                ? new BigDecimal(BigInteger.valueOf(unscaledValues[index]), scales[index])
+                : null;
+    }
+
+    /**
+     * @param value
+     *        a value
+     * @return <code>true</code> if the value can be held by a block
+     */
+    public static boolean isEncodable(BigDecimal value) {
+        return value == null || value.unscaledValue().bitLength() < Long.SIZE && value.scale() != NO_VALUE;
+    }
+
+    public long getFirstValueAt() {
+        return firstValueAt;
+    }
+
+    public long getChangeMarker() {
+        return changeMarker;
+    }
+
+    /**
+     * @param from
+     *        the inclusive lower bound
+     * @return the index of the first point at or after the given time
+     */
+    public int indexOf(long from) {
+        int index = Arrays.binarySearch(timestamps, from);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && timestamps[index - 1] == from) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * @return the approximate number of bytes held by this block
+     */
+    public int getWeight() {
+        return BLOCK_OVERHEAD + POINT_WEIGHT * timestamps.length;
+    }
+
+}
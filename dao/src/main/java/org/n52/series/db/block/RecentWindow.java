@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer of the recent observations of a single dataset, held column-wise in primitive arrays like a
+ * {@link DataBlock}. The buffer grows by doubling up to a maximum number of points, beyond that the oldest
+ * points are overwritten and the window covers less time. Older points are also dropped from the head when
+ * the window moves on.
+ * <p>
+ * Points are identified by their time and result time, so observations of the same time but with different
+ * result times are all held.
+ */
+final class RecentWindow {
+
+    private final long firstValueAt;
+
+    private final long loadedAt;
+
+    private final int maxPoints;
+
+    private long[] timestamps;
+
+    private long[] resultTimes;
+
+    private long[] unscaledValues;
+
+    private int[] scales;
+
+    private int head;
+
+    private int size;
+
+    private long coveredFrom;
+
+    private long syncedLastValueAt;
+
+    /**
+     * @param coveredFrom
+     *        the time from which on the window holds all observations
+     * @param firstValueAt
+     *        the first value time of the dataset when the window was loaded
+     * @param loadedAt
+     *        the time the window was loaded
+     * @param maxPoints
+     *        the maximum number of points
+     */
+    RecentWindow(long coveredFrom, long firstValueAt, long loadedAt, int maxPoints) {
+        this.coveredFrom = coveredFrom;
+        this.firstValueAt = firstValueAt;
+        this.loadedAt = loadedAt;
+        this.maxPoints = maxPoints;
+        this.timestamps = new long[16];
+        this.resultTimes = new long[16];
+        this.unscaledValues = new long[16];
+        this.scales = new int[16];
+        this.syncedLastValueAt = DataBlock.NO_TIME;
+    }
+
+    /**
+     * Appends the points of a block which are not yet held, i.e. after the last point of the window or at
+     * the time of the last point but with another result time. If the window is full, the oldest points are
+     * overwritten.
+     *
+     * @param block
+     *        the points to append
+     * @param lastValueAt
+     *        the last value time of the dataset the window is complete for after appending
+     */
+    synchronized void append(DataBlock block, long lastValueAt) {
+        long last = getLastTimestamp();
+        List<Long> known = getResultTimesAt(last);
+        for (int i = 0; i < block.size(); i++) {
+            long timestamp = block.getTimestamp(i);
+            if (size > 0 && (timestamp < last
+                    || timestamp == last && known.remove(Long.valueOf(block.getResultTime(i))))) {
+                continue;
+            }
+            if (size == timestamps.length && !grow()) {
+                dropOldest();
+            }
+            int index = (head + size) % timestamps.length;
+            timestamps[index] = timestamp;
+            resultTimes[index] = block.getResultTime(i);
+            unscaledValues[index] = block.getUnscaledValue(i);
+            scales[index] = block.getScale(i);
+            size++;
+        }
+        syncedLastValueAt = Math.max(syncedLastValueAt, lastValueAt);
+    }
+
+    private List<Long> getResultTimesAt(long timestamp) {
+        List<Long> times = new ArrayList<>();
+        for (int i = size - 1; i >= 0 && timestamps[(head + i) % timestamps.length] == timestamp; i--) {
+            times.add(resultTimes[(head + i) % timestamps.length]);
+        }
+        return times;
+    }
+
+    private void dropOldest() {
+        // the window is complete only after the overwritten point
+        coveredFrom = Math.max(coveredFrom, timestamps[head] + 1);
+        head = (head + 1) % timestamps.length;
+        size--;
+    }
+
+    private boolean grow() {
+        if (timestamps.length >= maxPoints) {
+            return false;
+        }
+        int capacity = (int) Math.min(maxPoints, timestamps.length * 2L);
+        timestamps = unwrap(timestamps, capacity);
+        resultTimes = unwrap(resultTimes, capacity);
+        unscaledValues = unwrap(unscaledValues, capacity);
+        int[] grown = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            grown[i] = scales[(head + i) % scales.length];
+        }
+        scales = grown;
+        head = 0;
+        return true;
+    }
+
+    private long[] unwrap(long[] column, int capacity) {
+        long[] grown = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            grown[i] = column[(head + i) % column.length];
+        }
+        return grown;
+    }
+
+    /**
+     * Drops points before the given time.
+     *
+     * @param from
+     *        the new start of the window
+     */
+    synchronized void trim(long from) {
+        while (size > 0 && timestamps[head] < from) {
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+        coveredFrom = Math.max(coveredFrom, from);
+    }
+
+    /**
+     * @param from
+     *        the inclusive start
+     * @param to
+     *        the inclusive end
+     * @return a block holding a copy of the points within the range
+     */
+    synchronized DataBlock copy(long from, long to) {
+        int first = 0;
+        while (first < size && timestamps[(head + first) % timestamps.length] < from) {
+            first++;
+        }
+        int last = first;
+        while (last < size && timestamps[(head + last) % timestamps.length] <= to) {
+            last++;
+        }
+        int length = last - first;
+        long[] copiedTimestamps = new long[length];
+        long[] copiedResultTimes = new long[length];
+        long[] copiedValues = new long[length];
+        int[] copiedScales = new int[length];
+        for (int i = 0; i < length; i++) {
+            int index = (head + first + i) % timestamps.length;
+            copiedTimestamps[i] = timestamps[index];
+            copiedResultTimes[i] = resultTimes[index];
+            copiedValues[i] = unscaledValues[index];
+            copiedScales[i] = scales[index];
+        }
+        return new DataBlock(from, copiedTimestamps, copiedResultTimes, copiedValues, copiedScales, firstValueAt,
+                DataBlock.NO_MARKER);
+    }
+
+    /**
+     * @param from
+     *        the start of a requested range
+     * @param currentFirstValueAt
+     *        the current first value time of the dataset
+     * @param currentLastValueAt
+     *        the current last value time of the dataset
+     * @return <code>true</code> if the window holds all observations of the dataset from the given time on
+     */
+    synchronized boolean covers(long from, long currentFirstValueAt, long currentLastValueAt) {
+        return from >= coveredFrom
+                && currentFirstValueAt == firstValueAt
+                && currentLastValueAt <= syncedLastValueAt;
+    }
+
+    synchronized long getLastTimestamp() {
+        return size > 0
+                ? timestamps[(head + size - 1) % timestamps.length]
+                : coveredFrom - 1;
+    }
+
+    synchronized long getSyncedLastValueAt() {
+        return syncedLastValueAt;
+    }
+
+    long getFirstValueAt() {
+        return firstValueAt;
+    }
+
+    long getLoadedAt() {
+        return loadedAt;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the approximate number of bytes held
+     */
+    synchronized long getWeight() {
+        return (long) timestamps.length * (3 * Long.BYTES + Integer.BYTES);
+    }
+
+}
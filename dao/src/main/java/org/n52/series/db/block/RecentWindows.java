@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.Session;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.HibernateSessionStore;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.dao.DataDao;
+import org.n52.series.db.dao.DatasetDao;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.DbQueryFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Keeps {@link RecentWindow}s of the most requested datasets in memory. Dataset requests are counted by a
+ * frequency sketch, a dataset gets a window once it has been requested <code>minRequests</code> times and,
+ * if all windows are taken, more often than the least popular dataset holding one.
+ * <p>
+ * A background poller reads the <code>lastValueAt</code> of all pinned datasets in one bulk query, appends
+ * new observations to the windows whenever a dataset's <code>lastValueAt</code> advances, drops points
+ * leaving the window and reloads windows periodically to pick up late or changed observations. A request
+ * is served from a window only if the window reaches back to the requested start and is in sync with the
+ * dataset's current <code>lastValueAt</code>.
+ */
+public class RecentWindows {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecentWindows.class);
+
+    private final Map<Long, Entry> windows = new ConcurrentHashMap<>();
+
+    private final Set<Long> excluded = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    private HibernateSessionStore sessionStore;
+
+    @Autowired
+    private DbQueryFactory dbQueryFactory;
+
+    private ScheduledExecutorService scheduler;
+
+    private FrequencySketch popularity;
+
+    private boolean enabled = true;
+
+    private int maxDatasets = 200;
+
+    private int minRequests = 3;
+
+    private int maxPoints = 100_000;
+
+    private long windowMillis = TimeUnit.HOURS.toMillis(24);
+
+    private long reloadMillis = TimeUnit.MINUTES.toMillis(60);
+
+    private long pollSeconds = 30;
+
+    public void init() {
+        if (!enabled) {
+            LOGGER.info("Recent windows are disabled.");
+            return;
+        }
+        popularity = new FrequencySketch(10 * maxDatasets);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "recent-windows");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollSafely, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the observations of a dataset within a time range (bounds inclusive) and counts the request for
+     * the dataset's popularity.
+     *
+     * @param dataset
+     *        the dataset id
+     * @param firstValueAt
+     *        the dataset's first value time
+     * @param lastValueAt
+     *        the dataset's last value time
+     * @param from
+     *        the start of the range
+     * @param to
+     *        the end of the range
+     * @param codec
+     *        converts observations to and from blocks
+     * @param <E>
+     *        the observation type
+     * @return the observations ordered by time or <code>null</code> if the dataset has no window covering the
+     *         range
+     */
+    public <E> List<E> getObservations(long dataset, Date firstValueAt, Date lastValueAt, long from, long to,
+            BlockCodec<E> codec) {
+        if (scheduler == null || lastValueAt == null) {
+            return null;
+        }
+        touch(dataset, codec);
+        Entry entry = windows.get(dataset);
+        RecentWindow window = entry != null
+                ? entry.window
+                : null;
+        if (window == null || !window.covers(from, getTime(firstValueAt), lastValueAt.getTime())) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        DataBlock block = window.copy(from, to);
+        List<E> observations = new ArrayList<>(block.size());
+        for (int i = 0; i < block.size(); i++) {
+            observations.add(codec.decode(block, i));
+        }
+        return observations;
+    }
+
+    private synchronized void touch(long dataset, BlockCodec<?> codec) {
+        popularity.increment(dataset);
+        if (windows.containsKey(dataset) || excluded.contains(dataset)) {
+            return;
+        }
+        int frequency = popularity.frequency(dataset);
+        if (frequency < minRequests) {
+            return;
+        }
+        if (windows.size() >= maxDatasets) {
+            Long coldest = windows.keySet()
+                                  .stream()
+                                  .min(Comparator.comparingInt(popularity::frequency))
+                                  .get();
+            if (popularity.frequency(coldest) >= frequency) {
+                return;
+            }
+            windows.remove(coldest);
+        }
+        Entry entry = new Entry(codec);
+        windows.put(dataset, entry);
+        scheduler.execute(() -> loadSafely(dataset, entry));
+    }
+
+    private void loadSafely(long dataset, Entry entry) {
+        Session session = sessionStore.getSession();
+        try {
+            load(dataset, entry, session);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not load recent window of dataset {}.", dataset, e);
+            windows.remove(dataset);
+        } finally {
+            sessionStore.returnSession(session);
+        }
+    }
+
+    private void load(long dataset, Entry entry, Session session) {
+        long start = System.currentTimeMillis();
+        DatasetEntity entity = session.get(DatasetEntity.class, dataset);
+        if (entity == null || entity.getLastValueAt() == null) {
+            windows.remove(dataset);
+            return;
+        }
+        long from = start - windowMillis;
+        RecentWindow window = new RecentWindow(from, getTime(entity.getFirstValueAt()), start, maxPoints);
+        if (append(dataset, entry, window, from, entity.getLastValueAt().getTime(), session)) {
+            entry.window = window;
+            LOGGER.debug("Loading recent window of dataset {} with {} points takes {} ms", dataset, window.size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private void pollSafely() {
+        Session session = sessionStore.getSession();
+        try {
+            poll(session);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not poll recent windows.", e);
+        } finally {
+            sessionStore.returnSession(session);
+        }
+    }
+
+    private void poll(Session session) {
+        long start = System.currentTimeMillis();
+        Map<Long, Date[]> valueTimes = getValueTimes(windows.keySet(), session);
+        for (Map.Entry<Long, Entry> pinned : windows.entrySet()) {
+            long dataset = pinned.getKey();
+            Entry entry = pinned.getValue();
+            RecentWindow window = entry.window;
+            if (window == null) {
+                continue;
+            }
+            try {
+                Date[] times = valueTimes.get(dataset);
+                if (times == null || times[1] == null) {
+                    windows.remove(dataset);
+                } else if (getTime(times[0]) != window.getFirstValueAt()
+                        || start - window.getLoadedAt() > reloadMillis) {
+                    load(dataset, entry, session);
+                } else {
+                    if (times[1].getTime() > window.getSyncedLastValueAt()) {
+                        // from the last point on, which may get observations of other result times
+                        append(dataset, entry, window, window.getLastTimestamp(), times[1].getTime(), session);
+                    }
+                    window.trim(start - windowMillis);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not update recent window of dataset {}.", dataset, e);
+                windows.remove(dataset);
+            }
+        }
+        LOGGER.debug("Polling {} recent windows takes {} ms", windows.size(), System.currentTimeMillis() - start);
+    }
+
+    private Map<Long, Date[]> getValueTimes(Set<Long> datasets, Session session) {
+        Map<Long, Date[]> valueTimes = new HashMap<>();
+        if (!datasets.isEmpty()) {
+            for (Object[] timespan : new DatasetDao<>(session).getTimespans(new ArrayList<>(datasets))) {
+                valueTimes.put((Long) timespan[0], new Date[] {(Date) timespan[1], (Date) timespan[2]});
+            }
+        }
+        return valueTimes;
+    }
+
+    private boolean append(long dataset, Entry entry, RecentWindow window, long from, long to, Session session) {
+        List<DataEntity> observations = new ArrayList<>();
+        if (from <= to) {
+            IoParameters parameters = IoParameters.createDefaults()
+                                                  .extendWith(Parameters.TIMESPAN,
+                                                          new Interval(from, to, DateTimeZone.UTC).toString());
+            DbQuery query = dbQueryFactory.createFrom(parameters);
+            observations.addAll(new DataDao<DataEntity>(session).getAllInstancesFor(dataset, query));
+        }
+        DataBlock block = encode(entry.codec, observations, from, window);
+        if (block == null) {
+            LOGGER.debug("Observations of dataset {} cannot be held by a recent window.", dataset);
+            excluded.add(dataset);
+            windows.remove(dataset);
+            return false;
+        }
+        window.append(block, to);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> DataBlock encode(BlockCodec<E> codec, List<?> observations, long start,
+            RecentWindow window) {
+        List<E> encodable = new ArrayList<>(observations.size());
+        for (Object observation : observations) {
+            if (!codec.isEncodable((E) observation)) {
+                return null;
+            }
+            encodable.add((E) observation);
+        }
+        encodable.sort(Comparator.comparingLong(codec::getTimestamp));
+        return codec.encode(start, encodable, window.getFirstValueAt(), DataBlock.NO_MARKER);
+    }
+
+    private static long getTime(Date date) {
+        return date != null
+                ? date.getTime()
+                : DataBlock.NO_TIME;
+    }
+
+    /**
+     * Drops the window of a dataset, e.g. after its observations have been changed.
+     *
+     * @param dataset
+     *        the dataset id
+     */
+    public void invalidate(long dataset) {
+        windows.remove(dataset);
+        excluded.remove(dataset);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the approximate number of bytes held
+     */
+    public long getWeight() {
+        return windows.values()
+                      .stream()
+                      .map(entry -> entry.window)
+                      .filter(window -> window != null)
+                      .mapToLong(RecentWindow::getWeight)
+                      .sum();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setMaxDatasets(int maxDatasets) {
+        this.maxDatasets = Math.max(1, maxDatasets);
+    }
+
+    public void setMinRequests(int minRequests) {
+        this.minRequests = Math.max(1, minRequests);
+    }
+
+    public void setMaxPoints(int maxPoints) {
+        this.maxPoints = Math.max(16, maxPoints);
+    }
+
+    public void setWindowHours(long windowHours) {
+        this.windowMillis = TimeUnit.HOURS.toMillis(Math.max(1, windowHours));
+    }
+
+    public void setReloadMinutes(long reloadMinutes) {
+        this.reloadMillis = TimeUnit.MINUTES.toMillis(Math.max(1, reloadMinutes));
+    }
+
+    public void setPollSeconds(long pollSeconds) {
+        this.pollSeconds = Math.max(1, pollSeconds);
+    }
+
+    public void setSessionStore(HibernateSessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    public void setDbQueryFactory(DbQueryFactory dbQueryFactory) {
+        this.dbQueryFactory = dbQueryFactory;
+    }
+
+    private static final class Entry {
+
+        private final BlockCodec<?> codec;
+
+        private volatile RecentWindow window;
+
+        Entry(BlockCodec<?> codec) {
+            this.codec = codec;
+        }
+    }
+
+}
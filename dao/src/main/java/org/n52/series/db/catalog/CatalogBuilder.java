@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import org.locationtech.jts.geom.Geometry;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.HierarchicalEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+
+/**
+ * Converts dataset entities into catalog entries. Either starts from scratch or from an existing snapshot
+ * to apply incremental changes. Unchanged parts of the previous search index are reused in both cases.
+ */
+class CatalogBuilder {
+
+    private final Set<String> locales;
+
+    private final Function<AbstractFeatureEntity<?>, Geometry> geometryTransformer;
+
+    private final SortedMap<Long, DatasetEntry> datasets;
+
+    private final Map<ParameterType, SortedMap<Long, ParameterEntry>> parameters = new EnumMap<>(ParameterType.class);
+
+    private final Map<ParameterType, Set<Long>> updated = new EnumMap<>(ParameterType.class);
+
+    private final Set<Long> added = new HashSet<>();
+
+    private final SearchIndex searchIndex;
+
+    private final long revision;
+
+    CatalogBuilder(Set<String> locales,
+                   Function<AbstractFeatureEntity<?>, Geometry> geometryTransformer,
+                   CatalogSnapshot previous) {
+        this.locales = new TreeSet<>(locales);
+        this.geometryTransformer = geometryTransformer;
+        this.datasets = new TreeMap<>();
+        this.searchIndex = previous != null
+                ? previous.getSearchIndex()
+                : null;
+        this.revision = previous != null
+                ? previous.getRevision() + 1
+                : 1;
+        for (ParameterType type : ParameterType.values()) {
+            parameters.put(type, new TreeMap<>());
+            updated.put(type, new HashSet<>());
+        }
+    }
+
+    CatalogBuilder(CatalogSnapshot base, Function<AbstractFeatureEntity<?>, Geometry> geometryTransformer) {
+        this.locales = new TreeSet<>(base.getLocales());
+        this.geometryTransformer = geometryTransformer;
+        this.datasets = new TreeMap<>(base.getDatasetMap());
+        this.searchIndex = base.getSearchIndex();
+        this.revision = base.getRevision() + 1;
+        for (ParameterType type : ParameterType.values()) {
+            parameters.put(type, new TreeMap<>(base.getParameterMaps().get(type)));
+            updated.put(type, new HashSet<>());
+        }
+    }
+
+    CatalogBuilder add(DatasetEntity dataset) {
+        EnumMap<ParameterType, Long> members = new EnumMap<>(ParameterType.class);
+        for (ParameterType type : ParameterType.values()) {
+            DescribableEntity member = type.getMember(dataset);
+            if (member != null) {
+                members.put(type, member.getId());
+                if (updated.get(type).add(member.getId())) {
+                    parameters.get(type).put(member.getId(), createEntry(type, member));
+                }
+            }
+        }
+        datasets.put(dataset.getId(), createEntry(dataset, members));
+        added.add(dataset.getId());
+        return this;
+    }
+
+    /**
+     * Moves the time extent of a held dataset without reloading it.
+     *
+     * @param id
+     *        the dataset id
+     * @param firstValueAt
+     *        the new <code>firstValueAt</code>
+     * @param lastValueAt
+     *        the new <code>lastValueAt</code>
+     * @return this builder
+     */
+    CatalogBuilder withTimespan(Long id, Date firstValueAt, Date lastValueAt) {
+        datasets.computeIfPresent(id, (key, entry) -> entry.withTimespan(firstValueAt, lastValueAt));
+        return this;
+    }
+
+    /**
+     * @param snapshot
+     *        a snapshot
+     * @return <code>true</code> if the given snapshot holds the same datasets and parameter entities with the
+     *         same metadata, time extents of datasets aside
+     */
+    boolean hasSameMetadata(CatalogSnapshot snapshot) {
+        if (snapshot == null
+                || !locales.equals(snapshot.getLocales())
+                || !hasSameEntries(datasets, snapshot.getDatasetMap(), DatasetEntry::hasSameMetadata)) {
+            return false;
+        }
+        for (ParameterType type : ParameterType.values()) {
+            if (!hasSameEntries(parameters.get(type), snapshot.getParameterMaps().get(type),
+                    ParameterEntry::hasSameMetadata)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <E> boolean hasSameEntries(Map<Long, E> entries, Map<Long, E> others, BiPredicate<E, E> same) {
+        if (entries.size() != others.size()) {
+            return false;
+        }
+        for (Map.Entry<Long, E> entry : entries.entrySet()) {
+            if (!same.test(entry.getValue(), others.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    CatalogSnapshot build(long version, Date modified) {
+        materializeCompositeLabels();
+        return new CatalogSnapshot(version, revision, modified, locales, datasets, parameters, searchIndex);
+    }
+
+    /**
+     * (Re-)creates the composite labels of added datasets and of datasets referring to a parameter entity
+     * which has been updated in the meantime, e.g. by a changed dataset sharing the same procedure.
+     */
+    private void materializeCompositeLabels() {
+        for (Map.Entry<Long, DatasetEntry> entry : datasets.entrySet()) {
+            DatasetEntry dataset = entry.getValue();
+            if (added.contains(dataset.getId()) || refersToUpdated(dataset)) {
+                entry.setValue(dataset.withCompositeLabels(createCompositeLabels(dataset)));
+            }
+        }
+    }
+
+    private boolean refersToUpdated(DatasetEntry dataset) {
+        for (ParameterType type : ParameterType.values()) {
+            Long member = dataset.getMember(type);
+            if (member != null && updated.get(type).contains(member)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, DatasetLabel> createCompositeLabels(DatasetEntry dataset) {
+        Map<String, DatasetLabel> compositeLabels = new HashMap<>();
+        for (String locale : locales) {
+            compositeLabels.put(locale, DatasetLabel.of(getLabel(dataset, ParameterType.PHENOMENON, locale),
+                                                        getLabel(dataset, ParameterType.PROCEDURE, locale),
+                                                        getLabel(dataset, ParameterType.FEATURE, locale),
+                                                        getLabel(dataset, ParameterType.OFFERING, locale)));
+        }
+        return compositeLabels;
+    }
+
+    private String getLabel(DatasetEntry dataset, ParameterType type, String locale) {
+        Long member = dataset.getMember(type);
+        ParameterEntry entry = member != null
+                ? parameters.get(type).get(member)
+                : null;
+        return entry != null
+                ? entry.getLabel(locale)
+                : null;
+    }
+
+    private DatasetEntry createEntry(DatasetEntity dataset, EnumMap<ParameterType, Long> members) {
+        Map<String, String> labels = new HashMap<>();
+        Map<String, String> uoms = new HashMap<>();
+        for (String locale : locales) {
+            labels.put(locale, dataset.getLabelFrom(locale));
+            uoms.put(locale, dataset.getUnitI18nName(locale));
+        }
+        ProcedureEntity procedure = dataset.getProcedure();
+        Boolean hasSamplings = dataset.hasSamplingProfile()
+                ? dataset.getSamplingProfile().hasSamplings()
+                : null;
+        return new DatasetEntry(dataset.getId(),
+                                dataset.getIdentifier(),
+                                labels,
+                                uoms,
+                                dataset.getDatasetType(),
+                                dataset.getObservationType(),
+                                dataset.getValueType(),
+                                dataset.isMobile(),
+                                dataset.isInsitu(),
+                                procedure != null && procedure.isReference(),
+                                hasSamplings,
+                                dataset.getOriginTimezone(),
+                                dataset.getFirstValueAt(),
+                                dataset.getLastValueAt(),
+                                members);
+    }
+
+    private ParameterEntry createEntry(ParameterType type, DescribableEntity entity) {
+        Map<String, String> labels = new HashMap<>();
+        for (String locale : locales) {
+            labels.put(locale, entity.getLabelFrom(locale));
+        }
+        Set<Long> parentIds = new HashSet<>();
+        if (entity instanceof HierarchicalEntity) {
+            HierarchicalEntity<?> hierarchical = (HierarchicalEntity<?>) entity;
+            if (hierarchical.hasParents()) {
+                for (Object parent : hierarchical.getParents()) {
+                    parentIds.add(((DescribableEntity) parent).getId());
+                }
+            }
+        }
+        Geometry geometry = entity instanceof AbstractFeatureEntity
+                ? geometryTransformer.apply((AbstractFeatureEntity<?>) entity)
+                : null;
+        return new ParameterEntry(type,
+                                  entity.getId(),
+                                  entity.getIdentifier(),
+                                  entity.getName(),
+                                  labels,
+                                  parentIds,
+                                  geometry,
+                                  entity instanceof ProcedureEntity && ((ProcedureEntity) entity).isReference());
+    }
+
+}
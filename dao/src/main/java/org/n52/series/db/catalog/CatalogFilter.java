@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.n52.io.request.FilterResolver;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.QueryUtils;
+
+/**
+ * Metadata filters of a {@link DbQuery} to be resolved against the catalog index. Mirrors the semantics of
+ * <code>DbQuery#addDetachedFilters</code> and the dataset filters of <code>AbstractDao</code>.
+ */
+public final class CatalogFilter {
+
+    private static final int DEFAULT_LIMIT = 10000;
+
+    private final Map<ParameterType, Set<Long>> parameterIds = new EnumMap<>(ParameterType.class);
+
+    private final Set<Long> datasetIds;
+
+    private final Set<String> datasetTypes;
+
+    private final Set<String> observationTypes;
+
+    private final Set<String> valueTypes;
+
+    private final Boolean mobile;
+
+    private final Boolean insitu;
+
+    private final boolean includeHierarchy;
+
+    private final boolean ignoreReferenceDatasets;
+
+    private final int offset;
+
+    private final int limit;
+
+    private CatalogFilter(DbQuery query, boolean filterByIds) {
+        IoParameters parameters = query.getParameters();
+        for (ParameterType type : ParameterType.values()) {
+            Set<String> values = type.getFilterValues(parameters);
+            if (filterByIds && values != null && !values.isEmpty()) {
+                parameterIds.put(type, QueryUtils.parseToIds(values));
+            }
+        }
+        Set<String> datasets = parameters.getDatasets();
+        boolean hasDatasets = datasets != null && !datasets.isEmpty();
+        this.datasetIds = filterByIds && hasDatasets
+                ? QueryUtils.parseToIds(datasets)
+                : Collections.emptySet();
+        this.ignoreReferenceDatasets = !hasDatasets;
+
+        FilterResolver filterResolver = parameters.getFilterResolver();
+        boolean filterTypes = parameters.shallBehaveBackwardsCompatible()
+                || !filterResolver.shallIncludeAllDatasetTypes();
+        this.datasetTypes = filterTypes ? lowerCase(parameters.getDatasetTypes()) : Collections.emptySet();
+        this.observationTypes = filterTypes ? lowerCase(parameters.getObservationTypes()) : Collections.emptySet();
+        this.valueTypes = filterTypes ? lowerCase(parameters.getValueTypes()) : Collections.emptySet();
+
+        boolean filterDatasets = !filterResolver.shallIncludeAllDatasets();
+        this.mobile = filterDatasets && filterResolver.hasMobileFilter() ? filterResolver.isMobileFilter() : null;
+        this.insitu = filterDatasets && filterResolver.hasInsituFilter() ? filterResolver.isInsituFilter() : null;
+        this.includeHierarchy = query.isIncludeHierarchy();
+
+        if (parameters.containsParameter(Parameters.LIMIT)) {
+            this.limit = parameters.getLimit();
+        } else {
+            this.limit = -1;
+        }
+        if (parameters.containsParameter(Parameters.OFFSET)) {
+            int pageSize = limit > 0 ? limit : DEFAULT_LIMIT;
+            this.offset = parameters.getOffset() * pageSize;
+        } else {
+            this.offset = 0;
+        }
+    }
+
+    /**
+     * Creates a filter from the given query. Check {@link #isSupported(DbQuery)} before.
+     *
+     * @param query
+     *        the query
+     * @return the filter
+     */
+    public static CatalogFilter of(DbQuery query) {
+        return new CatalogFilter(query, true);
+    }
+
+    /**
+     * Creates a filter for counting like <code>AbstractDao#getCount</code> does, i.e. only dataset related
+     * filters are applied while filters by parameter or dataset ids are ignored. Check
+     * {@link #isSupported(DbQuery)} before.
+     *
+     * @param query
+     *        the query
+     * @return the filter
+     */
+    public static CatalogFilter forCounting(DbQuery query) {
+        return new CatalogFilter(query, false);
+    }
+
+    /**
+     * Checks if the given query can be answered from the catalog. Spatial, OData, last value and
+     * sampling filters as well as domain id matching and hierarchy levels still need the database.
+     *
+     * @param query
+     *        the query
+     * @return <code>true</code> if the query can be evaluated against the catalog
+     */
+    public static boolean isSupported(DbQuery query) {
+        IoParameters parameters = query.getParameters();
+        return !query.isMatchDomainIds()
+                && query.getLevel() == null
+                && parameters.getSpatialFilter() == null
+                && parameters.getLastValueMatches() == null
+                && !parameters.getODataFilter().isPresent()
+                && parameters.getSamplings().isEmpty()
+                && parameters.getMeasuringPrograms().isEmpty();
+    }
+
+    private static Set<String> lowerCase(Set<String> values) {
+        return values == null
+                ? Collections.emptySet()
+                : values.stream().map(v -> v.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+    }
+
+    /**
+     * @param type
+     *        the parameter type
+     * @return the filtered ids of the given type (empty if not filtered)
+     */
+    public Set<Long> getParameterIds(ParameterType type) {
+        return parameterIds.getOrDefault(type, Collections.emptySet());
+    }
+
+    public boolean hasParameterFilter(ParameterType type) {
+        return parameterIds.containsKey(type);
+    }
+
+    public Set<Long> getDatasetIds() {
+        return datasetIds;
+    }
+
+    public boolean isIncludeHierarchy() {
+        return includeHierarchy;
+    }
+
+    /**
+     * Reference datasets are only listed if datasets are requested explicitly (like <code>DatasetDao</code>
+     * does).
+     *
+     * @return <code>true</code> if reference datasets have to be skipped in dataset listings
+     */
+    public boolean isIgnoreReferenceDatasets() {
+        return ignoreReferenceDatasets;
+    }
+
+    Set<String> getDatasetTypes() {
+        return datasetTypes;
+    }
+
+    Set<String> getObservationTypes() {
+        return observationTypes;
+    }
+
+    Set<String> getValueTypes() {
+        return valueTypes;
+    }
+
+    Boolean getMobile() {
+        return mobile;
+    }
+
+    Boolean getInsitu() {
+        return insitu;
+    }
+
+    /**
+     * Applies offset and limit parameters like <code>DbQuery#addLimitAndOffsetFilter</code> does.
+     *
+     * @param <T>
+     *        the element type
+     * @param orderedById
+     *        the elements ordered by id
+     * @return the requested page
+     */
+    <T> List<T> page(List<T> orderedById) {
+        int size = orderedById.size();
+        int from = Math.min(offset, size);
+        int to = limit > 0
+                ? (int) Math.min((long) from + limit, size)
+                : size;
+        return orderedById.subList(from, to);
+    }
+
+}
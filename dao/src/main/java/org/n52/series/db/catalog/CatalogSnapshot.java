@@ -0,0 +1,579 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Immutable state of the {@link MetadataCatalog} at a certain point in time. All published datasets and
+ * their related parameter entities are kept ordered by id.
+ * <p>
+ * Datasets are addressed by their ordinal (position in id order). Each parameter entity, dataset type,
+ * observation type, value type and flag is indexed by a {@link CompressedBitmap} of the ordinals of the
+ * datasets referring to it, so filter combinations resolve to bitmap operations and counts to
+ * cardinalities.
+ */
+public final class CatalogSnapshot {
+
+    private static final ParameterType[] SEARCHABLE_DATASET_MEMBERS = {
+        ParameterType.PHENOMENON,
+        ParameterType.PROCEDURE,
+        ParameterType.OFFERING,
+        ParameterType.FEATURE
+    };
+
+    private final long version;
+
+    private final long revision;
+
+    private final Date modified;
+
+    private final Date created;
+
+    private final Set<String> locales;
+
+    private final SortedMap<Long, DatasetEntry> datasets;
+
+    private final Map<ParameterType, SortedMap<Long, ParameterEntry>> parameters;
+
+    private final DatasetEntry[] ordered;
+
+    private final Map<Long, Integer> ordinals;
+
+    private final Map<ParameterType, SortedMap<Long, CompressedBitmap>> memberIndex;
+
+    private final Map<ParameterType, Map<Long, CompressedBitmap>> childIndex;
+
+    private final Map<String, CompressedBitmap> datasetTypeIndex = new HashMap<>();
+
+    private final Map<String, CompressedBitmap> observationTypeIndex = new HashMap<>();
+
+    private final Map<String, CompressedBitmap> valueTypeIndex = new HashMap<>();
+
+    private final CompressedBitmap all;
+
+    private final CompressedBitmap mobileDatasets = new CompressedBitmap();
+
+    private final CompressedBitmap insituDatasets = new CompressedBitmap();
+
+    private final CompressedBitmap referenceDatasets = new CompressedBitmap();
+
+    private final SearchIndex searchIndex;
+
+    private final ExistenceIndex datasetExistence;
+
+    private final Map<ParameterType, ExistenceIndex> parameterExistence;
+
+    private final long maxDatasetId;
+
+    private final Date maxLastValueAt;
+
+    CatalogSnapshot(long version,
+                    long revision,
+                    Date modified,
+                    Set<String> locales,
+                    SortedMap<Long, DatasetEntry> datasets,
+                    Map<ParameterType, SortedMap<Long, ParameterEntry>> parameters,
+                    SearchIndex previousSearchIndex) {
+        this.version = version;
+        this.revision = revision;
+        this.modified = new Date(modified.getTime());
+        this.created = new Date();
+        this.locales = Collections.unmodifiableSet(locales);
+        this.datasets = Collections.unmodifiableSortedMap(datasets);
+        Map<ParameterType, SortedMap<Long, ParameterEntry>> entries = new EnumMap<>(ParameterType.class);
+        for (ParameterType type : ParameterType.values()) {
+            SortedMap<Long, ParameterEntry> typed = parameters.get(type);
+            entries.put(type, Collections.unmodifiableSortedMap(typed != null ? typed : new TreeMap<>()));
+        }
+        this.parameters = Collections.unmodifiableMap(entries);
+
+        this.ordered = datasets.values().toArray(new DatasetEntry[0]);
+        this.ordinals = new HashMap<>(ordered.length * 2);
+        this.memberIndex = new EnumMap<>(ParameterType.class);
+        this.childIndex = new EnumMap<>(ParameterType.class);
+        for (ParameterType type : ParameterType.values()) {
+            memberIndex.put(type, new TreeMap<>());
+            childIndex.put(type, new HashMap<>());
+        }
+        this.all = CompressedBitmap.range(ordered.length);
+        for (int ordinal = 0; ordinal < ordered.length; ordinal++) {
+            index(ordinal, ordered[ordinal]);
+        }
+        this.searchIndex = new SearchIndex(this.parameters, previousSearchIndex);
+        this.datasetExistence = new ExistenceIndex(datasets.keySet());
+        this.parameterExistence = new EnumMap<>(ParameterType.class);
+        for (ParameterType type : ParameterType.values()) {
+            parameterExistence.put(type, new ExistenceIndex(memberIndex.get(type).keySet()));
+        }
+        this.maxDatasetId = datasets.isEmpty() ? Long.MIN_VALUE : datasets.lastKey();
+        long maxLastValue = datasets.values().stream().mapToLong(DatasetEntry::getLastValueAtMillis)
+                .max().orElse(Long.MIN_VALUE);
+        this.maxLastValueAt = maxLastValue != Long.MIN_VALUE ? new Date(maxLastValue) : null;
+    }
+
+    /**
+     * @return a monotonically increasing version, advanced only if published datasets, their metadata or
+     *         their parameter entities have changed. Moving time extents of datasets keep the version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the time the current version has been created
+     */
+    public Date getModified() {
+        return new Date(modified.getTime());
+    }
+
+    /**
+     * @return a monotonically increasing revision, advanced with every swap of the catalog including moved
+     *         time extents of datasets
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return the time the current revision has been created
+     */
+    public Date getCreated() {
+        return new Date(created.getTime());
+    }
+
+    public Set<String> getLocales() {
+        return locales;
+    }
+
+    /**
+     * @param locale
+     *        the requested locale
+     * @return <code>true</code> if labels are held for the given locale
+     */
+    public boolean supportsLocale(String locale) {
+        return locales.contains(MetadataCatalog.normalizeLocale(locale));
+    }
+
+    public int size() {
+        return datasets.size();
+    }
+
+    public long getMaxDatasetId() {
+        return maxDatasetId;
+    }
+
+    public Date getMaxLastValueAt() {
+        return maxLastValueAt != null ? new Date(maxLastValueAt.getTime()) : null;
+    }
+
+    public DatasetEntry getDataset(Long id) {
+        return datasets.get(id);
+    }
+
+    /**
+     * @param id
+     *        the dataset id
+     * @param firstValueAt
+     *        the current <code>firstValueAt</code> of the dataset
+     * @param lastValueAt
+     *        the current <code>lastValueAt</code> of the dataset
+     * @return <code>true</code> if the dataset is not held or its timestamps differ from the held ones
+     */
+    public boolean isChanged(Long id, Date firstValueAt, Date lastValueAt) {
+        DatasetEntry entry = datasets.get(id);
+        return entry == null
+                || !isSameTime(entry.getFirstValueAt(), firstValueAt)
+                || !isSameTime(entry.getLastValueAt(), lastValueAt);
+    }
+
+    private static boolean isSameTime(Date held, Date current) {
+        return held == null
+                ? current == null
+                : current != null && held.getTime() == current.getTime();
+    }
+
+    public Collection<DatasetEntry> getDatasets() {
+        return datasets.values();
+    }
+
+    public ParameterEntry getParameter(ParameterType type, Long id) {
+        return id != null ? parameters.get(type).get(id) : null;
+    }
+
+    public Collection<ParameterEntry> getParameters(ParameterType type) {
+        return parameters.get(type).values();
+    }
+
+    /**
+     * @return the ids of all published datasets
+     */
+    public ExistenceIndex getDatasetExistence() {
+        return datasetExistence;
+    }
+
+    /**
+     * @param type
+     *        the parameter type
+     * @return the ids of all parameter entities of the given type referred by a published dataset
+     */
+    public ExistenceIndex getParameterExistence(ParameterType type) {
+        return parameterExistence.get(type);
+    }
+
+    /**
+     * @param id
+     *        the dataset id
+     * @param filter
+     *        the filter
+     * @return <code>true</code> if the dataset is known and matches the given filter
+     */
+    public boolean matchesDataset(long id, CatalogFilter filter) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal != null && resolve(filter).contains(ordinal);
+    }
+
+    /**
+     * @param type
+     *        the parameter type
+     * @param id
+     *        the parameter entity's id
+     * @param filter
+     *        the filter
+     * @return <code>true</code> if the parameter entity is referred by at least one dataset matching the given
+     *         filter
+     */
+    public boolean matchesParameter(ParameterType type, long id, CatalogFilter filter) {
+        CompressedBitmap datasetsOfMember = memberIndex.get(type).get(id);
+        return datasetsOfMember != null && datasetsOfMember.intersects(resolve(filter));
+    }
+
+    SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    SortedMap<Long, DatasetEntry> getDatasetMap() {
+        return datasets;
+    }
+
+    Map<ParameterType, SortedMap<Long, ParameterEntry>> getParameterMaps() {
+        return parameters;
+    }
+
+    private void index(int ordinal, DatasetEntry dataset) {
+        ordinals.put(dataset.getId(), ordinal);
+        for (ParameterType type : ParameterType.values()) {
+            Long member = dataset.getMember(type);
+            if (member != null) {
+                memberIndex.get(type).computeIfAbsent(member, id -> new CompressedBitmap()).add(ordinal);
+                ParameterEntry entry = type.isHierarchicalFilter()
+                        ? getParameter(type, member)
+                        : null;
+                if (entry != null) {
+                    for (Long parentId : entry.getParentIds()) {
+                        childIndex.get(type).computeIfAbsent(parentId, id -> new CompressedBitmap()).add(ordinal);
+                    }
+                }
+            }
+        }
+        addTo(datasetTypeIndex, dataset.getDatasetType(), ordinal);
+        addTo(observationTypeIndex, dataset.getObservationType(), ordinal);
+        addTo(valueTypeIndex, dataset.getValueType(), ordinal);
+        if (dataset.isMobile()) {
+            mobileDatasets.add(ordinal);
+        }
+        if (dataset.isInsitu()) {
+            insituDatasets.add(ordinal);
+        }
+        if (dataset.isReference()) {
+            referenceDatasets.add(ordinal);
+        }
+    }
+
+    private static void addTo(Map<String, CompressedBitmap> index, Enum<?> value, int ordinal) {
+        if (value != null) {
+            index.computeIfAbsent(value.name().toLowerCase(Locale.ROOT), v -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    /**
+     * Finds the datasets matching the given filter, ordered by id and paged.
+     *
+     * @param filter
+     *        the filter
+     * @return the matching datasets
+     */
+    public List<DatasetEntry> findDatasets(CatalogFilter filter) {
+        int[] matching = resolveDatasets(filter).toArray();
+        List<DatasetEntry> result = new ArrayList<>(matching.length);
+        for (int ordinal : matching) {
+            result.add(ordered[ordinal]);
+        }
+        return filter.page(result);
+    }
+
+    /**
+     * Counts the datasets matching the given filter, ignoring offset and limit.
+     *
+     * @param filter
+     *        the filter
+     * @return the number of matching datasets
+     */
+    public int countDatasets(CatalogFilter filter) {
+        return resolveDatasets(filter).cardinality();
+    }
+
+    /**
+     * Passes all datasets matching the given filter in order of their ids, ignoring offset and limit.
+     *
+     * @param filter
+     *        the filter
+     * @param consumer
+     *        consumes the matching datasets
+     */
+    public void forEachDataset(CatalogFilter filter, Consumer<DatasetEntry> consumer) {
+        for (int ordinal : resolveDatasets(filter).toArray()) {
+            consumer.accept(ordered[ordinal]);
+        }
+    }
+
+    /**
+     * Finds the parameter entities of the given type referred by at least one dataset matching the given
+     * filter, ordered by id and paged.
+     *
+     * @param type
+     *        the parameter type
+     * @param filter
+     *        the filter
+     * @return the matching parameter entities
+     */
+    public List<ParameterEntry> findParameters(ParameterType type, CatalogFilter filter) {
+        CompressedBitmap matching = resolve(filter);
+        SortedMap<Long, ParameterEntry> entries = parameters.get(type);
+        List<ParameterEntry> result = new ArrayList<>();
+        for (Map.Entry<Long, CompressedBitmap> indexed : memberIndex.get(type).entrySet()) {
+            ParameterEntry entry = entries.get(indexed.getKey());
+            if (entry != null && !entry.isReference() && indexed.getValue().intersects(matching)) {
+                result.add(entry);
+            }
+        }
+        return filter.page(result);
+    }
+
+    /**
+     * Counts the parameter entities of the given type referred by at least one dataset matching the given
+     * filter, ignoring offset and limit.
+     *
+     * @param type
+     *        the parameter type
+     * @param filter
+     *        the filter
+     * @return the number of matching parameter entities
+     */
+    public int countParameters(ParameterType type, CatalogFilter filter) {
+        CompressedBitmap matching = resolve(filter);
+        SortedMap<Long, ParameterEntry> entries = parameters.get(type);
+        int count = 0;
+        for (Map.Entry<Long, CompressedBitmap> indexed : memberIndex.get(type).entrySet()) {
+            ParameterEntry entry = entries.get(indexed.getKey());
+            if (entry != null && !entry.isReference() && indexed.getValue().intersects(matching)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Searches parameter entities of the given type whose name or label contains the given term (case
+     * insensitive) and which are referred by at least one dataset matching the given filter. Results are
+     * ranked: exact matches first, followed by prefix, word prefix and infix matches.
+     *
+     * @param type
+     *        the parameter type
+     * @param term
+     *        the search term
+     * @param locale
+     *        the locale of labels to match
+     * @param filter
+     *        the filter
+     * @return the matching parameter entities, best matches first
+     */
+    public List<ParameterEntry> searchParameters(ParameterType type, String term, String locale,
+            CatalogFilter filter) {
+        CompressedBitmap matching = resolve(filter);
+        SortedMap<Long, ParameterEntry> entries = parameters.get(type);
+        List<ParameterEntry> result = new ArrayList<>();
+        for (Long id : searchIndex.search(type, term, locale).keySet()) {
+            ParameterEntry entry = entries.get(id);
+            if (entry != null && !entry.isReference()
+                    && (matching == all || intersects(memberIndex.get(type).get(id), matching))) {
+                result.add(entry);
+            }
+        }
+        return filter.page(result);
+    }
+
+    /**
+     * Searches datasets whose phenomenon, procedure, offering or feature contains the given term (like
+     * <code>DatasetDao#find</code> does). Datasets are ranked by their best matching member.
+     *
+     * @param term
+     *        the search term
+     * @param locale
+     *        the locale of labels to match
+     * @param filter
+     *        the filter
+     * @return the matching datasets, best matches first
+     */
+    public List<DatasetEntry> searchDatasets(String term, String locale, CatalogFilter filter) {
+        Map<Integer, Integer> ranks = new HashMap<>();
+        for (ParameterType type : SEARCHABLE_DATASET_MEMBERS) {
+            for (Map.Entry<Long, Integer> hit : searchIndex.search(type, term, locale).entrySet()) {
+                CompressedBitmap datasetsOfMember = memberIndex.get(type).get(hit.getKey());
+                if (datasetsOfMember != null) {
+                    datasetsOfMember.forEach(ordinal -> ranks.merge(ordinal, hit.getValue(), Math::min));
+                }
+            }
+        }
+        CompressedBitmap matching = resolveDatasets(filter);
+        List<Integer> ordinalsByRank = new ArrayList<>();
+        for (Integer ordinal : ranks.keySet()) {
+            if (matching.contains(ordinal)) {
+                ordinalsByRank.add(ordinal);
+            }
+        }
+        ordinalsByRank.sort(Comparator.<Integer> comparingInt(ranks::get).thenComparingInt(Integer::intValue));
+        List<DatasetEntry> result = new ArrayList<>(ordinalsByRank.size());
+        for (Integer ordinal : ordinalsByRank) {
+            result.add(ordered[ordinal]);
+        }
+        return filter.page(result);
+    }
+
+    /**
+     * @param filter
+     *        the filter
+     * @return the ordinals of all datasets to be listed for the given filter
+     */
+    CompressedBitmap resolveDatasets(CatalogFilter filter) {
+        CompressedBitmap matching = resolve(filter);
+        return filter.isIgnoreReferenceDatasets()
+                ? matching.andNot(referenceDatasets)
+                : matching;
+    }
+
+    /**
+     * Resolves all filters to the ordinals of the matching datasets. Values of the same filter are united,
+     * different filters are intersected.
+     *
+     * @param filter
+     *        the filter
+     * @return the ordinals of all matching datasets
+     */
+    CompressedBitmap resolve(CatalogFilter filter) {
+        CompressedBitmap result = all;
+        if (!filter.getDatasetIds().isEmpty()) {
+            CompressedBitmap datasetIds = new CompressedBitmap();
+            for (Long id : filter.getDatasetIds()) {
+                Integer ordinal = ordinals.get(id);
+                if (ordinal != null) {
+                    datasetIds.add(ordinal);
+                }
+            }
+            result = result.and(datasetIds);
+        }
+        result = and(result, datasetTypeIndex, filter.getDatasetTypes());
+        result = and(result, observationTypeIndex, filter.getObservationTypes());
+        result = and(result, valueTypeIndex, filter.getValueTypes());
+        result = and(result, mobileDatasets, filter.getMobile());
+        result = and(result, insituDatasets, filter.getInsitu());
+        for (ParameterType type : ParameterType.values()) {
+            if (filter.hasParameterFilter(type)) {
+                boolean withChildren = type.isHierarchicalFilter() && filter.isIncludeHierarchy();
+                List<CompressedBitmap> bitmaps = new ArrayList<>();
+                for (Long id : filter.getParameterIds(type)) {
+                    addIfPresent(bitmaps, memberIndex.get(type).get(id));
+                    if (withChildren) {
+                        addIfPresent(bitmaps, childIndex.get(type).get(id));
+                    }
+                }
+                result = result.and(CompressedBitmap.or(bitmaps));
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    private static CompressedBitmap and(CompressedBitmap result, Map<String, CompressedBitmap> index,
+            Set<String> values) {
+        if (values.isEmpty()) {
+            return result;
+        }
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        for (String value : values) {
+            addIfPresent(bitmaps, index.get(value));
+        }
+        return result.and(CompressedBitmap.or(bitmaps));
+    }
+
+    private static CompressedBitmap and(CompressedBitmap result, CompressedBitmap flagged, Boolean flag) {
+        if (flag == null) {
+            return result;
+        }
+        return flag
+                ? result.and(flagged)
+                : result.andNot(flagged);
+    }
+
+    private static boolean intersects(CompressedBitmap datasetsOfMember, CompressedBitmap matching) {
+        return datasetsOfMember != null && datasetsOfMember.intersects(matching);
+    }
+
+    private static void addIfPresent(List<CompressedBitmap> bitmaps, CompressedBitmap bitmap) {
+        if (bitmap != null) {
+            bitmaps.add(bitmap);
+        }
+    }
+
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitmap of non-negative <code>int</code> values following the Roaring layout: values are
+ * partitioned by their upper 16 bits into chunks. A chunk holding up to {@value #ARRAY_MAX} values stores
+ * them as sorted array, denser chunks use a fixed bitset of 65536 bits.
+ * <p>
+ * Set operations return new instances and never modify their operands, so bitmaps held by a
+ * {@link CatalogSnapshot} can be shared by concurrent readers. Adding values is meant for building only.
+ */
+public final class CompressedBitmap {
+
+    static final int ARRAY_MAX = 4096;
+
+    private static final int BITSET_WORDS = 1024;
+
+    private char[] keys;
+
+    private Container[] containers;
+
+    private int size;
+
+    public CompressedBitmap() {
+        this(4);
+    }
+
+    private CompressedBitmap(int capacity) {
+        this.keys = new char[Math.max(1, capacity)];
+        this.containers = new Container[Math.max(1, capacity)];
+    }
+
+    public static CompressedBitmap of(int... values) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param end
+     *        the exclusive upper bound
+     * @return a bitmap containing all values from <code>0</code> to <code>end - 1</code>
+     */
+    public static CompressedBitmap range(int end) {
+        if (end <= 0) {
+            return new CompressedBitmap();
+        }
+        CompressedBitmap bitmap = new CompressedBitmap((end >>> 16) + 1);
+        for (int high = 0; high <= (end - 1) >>> 16; high++) {
+            int from = high << 16;
+            int count = Math.min(end - from, 1 << 16);
+            bitmap.append((char) high, count > ARRAY_MAX
+                    ? BitsetContainer.firstBits(count)
+                    : ArrayContainer.firstValues(count));
+        }
+        return bitmap;
+    }
+
+    /**
+     * @param bitmaps
+     *        the bitmaps to unite
+     * @return the union of all given bitmaps
+     */
+    public static CompressedBitmap or(Collection<CompressedBitmap> bitmaps) {
+        CompressedBitmap result = new CompressedBitmap();
+        for (CompressedBitmap bitmap : bitmaps) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a value. Appending in ascending order is the fastest way to build a bitmap.
+     *
+     * @param value
+     *        a non-negative value
+     */
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values are not supported: " + value);
+        }
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = size > 0 && keys[size - 1] == high
+                ? size - 1
+                : Arrays.binarySearch(keys, 0, size, high);
+        if (index >= 0) {
+            containers[index] = containers[index].add(low);
+        } else {
+            insert(-index - 1, high, new ArrayContainer().add(low));
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || i < size && keys[i] < other.keys[j]) {
+                result.append(keys[i], containers[i]);
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j]);
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], containers[i].andNot(other.containers[j]));
+            } else {
+                result.append(keys[i], containers[i]);
+            }
+        }
+        return result;
+    }
+
+    public boolean intersects(CompressedBitmap other) {
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                if (containers[i].intersects(other.containers[j])) {
+                    return true;
+                }
+                i++;
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param consumer
+     *        gets all values in ascending order
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] index = new int[1];
+        forEach(value -> values[index[0]++] = value);
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof CompressedBitmap && Arrays.equals(toArray(), ((CompressedBitmap) obj).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedBitmap [cardinality=" + cardinality() + ", chunks=" + size + "]";
+    }
+
+    private void appendIfNotEmpty(char key, Container container) {
+        if (container.cardinality() > 0) {
+            append(key, container);
+        }
+    }
+
+    private void append(char key, Container container) {
+        insert(size, key, container);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Values of a chunk sharing the same upper 16 bits. Containers returned by set operations may share state
+     * with their operands, so they must not be modified afterwards; only {@link CompressedBitmap#add(int)}
+     * modifies containers in place while building.
+     */
+    private abstract static class Container {
+
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract boolean intersects(Container other);
+
+        abstract void forEach(int base, IntConsumer consumer);
+
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values;
+
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        static ArrayContainer firstValues(int count) {
+            char[] values = new char[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = (char) i;
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        @Override
+        Container add(char value) {
+            int index = cardinality > 0 && values[cardinality - 1] < value
+                    ? -cardinality - 1
+                    : Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitset().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, Math.min(ARRAY_MAX, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitsetContainer) {
+                return other.or(this);
+            }
+            ArrayContainer that = (ArrayContainer) other;
+            char[] merged = new char[cardinality + that.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < that.cardinality) {
+                if (j >= that.cardinality || i < cardinality && values[i] < that.values[j]) {
+                    merged[count++] = values[i++];
+                } else if (i >= cardinality || values[i] > that.values[j]) {
+                    merged[count++] = that.values[j++];
+                } else {
+                    merged[count++] = values[i++];
+                    j++;
+                }
+            }
+            ArrayContainer result = new ArrayContainer(merged, count);
+            return count > ARRAY_MAX
+                    ? result.toBitset()
+                    : result;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        boolean intersects(Container other) {
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(base | values[i]);
+            }
+        }
+
+        private BitsetContainer toBitset() {
+            BitsetContainer bitset = new BitsetContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitset.set(values[i]);
+            }
+            return bitset;
+        }
+
+    }
+
+    private static final class BitsetContainer extends Container {
+
+        private final long[] words;
+
+        private int cardinality;
+
+        BitsetContainer() {
+            this(new long[BITSET_WORDS], 0);
+        }
+
+        BitsetContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        static BitsetContainer firstBits(int count) {
+            long[] words = new long[BITSET_WORDS];
+            Arrays.fill(words, 0, count >>> 6, -1L);
+            if ((count & 63) != 0) {
+                words[count >>> 6] = (1L << (count & 63)) - 1;
+            }
+            return new BitsetContainer(words, count);
+        }
+
+        void set(char value) {
+            long mask = 1L << value;
+            int index = value >>> 6;
+            if ((words[index] & mask) == 0) {
+                words[index] |= mask;
+                cardinality++;
+            }
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] that = ((BitsetContainer) other).words;
+            long[] result = new long[BITSET_WORDS];
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                result[i] = words[i] & that[i];
+            }
+            return compact(result);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                BitsetContainer bitset = new BitsetContainer(result, cardinality);
+                other.forEach(0, value -> bitset.set((char) value));
+                return bitset;
+            }
+            long[] that = ((BitsetContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                result[i] |= that[i];
+                count += Long.bitCount(result[i]);
+            }
+            return new BitsetContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                other.forEach(0, value -> result[value >>> 6] &= ~(1L << value));
+            } else {
+                long[] that = ((BitsetContainer) other).words;
+                for (int i = 0; i < BITSET_WORDS; i++) {
+                    result[i] &= ~that[i];
+                }
+            }
+            return compact(result);
+        }
+
+        @Override
+        boolean intersects(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.intersects(this);
+            }
+            long[] that = ((BitsetContainer) other).words;
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                if ((words[i] & that[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer consumer) {
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(base | (i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private static Container compact(long[] words) {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            if (count > ARRAY_MAX) {
+                return new BitsetContainer(words, count);
+            }
+            char[] values = new char[count];
+            int index = 0;
+            for (int i = 0; i < BITSET_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[index++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+
+    }
+
+}
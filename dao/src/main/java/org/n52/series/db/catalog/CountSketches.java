@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.n52.series.db.dao.DatasetDao;
+
+/**
+ * Compact count statistics of all published datasets for installations too large to hold a
+ * {@link MetadataCatalog}. Datasets are grouped into cells of equal dataset type, observation type, value
+ * type, mobile and insitu flag. Per cell the number of datasets is counted exactly and the distinct related
+ * parameters are tracked by {@link HyperLogLog} sketches, so parameter counts of any combination of those
+ * filters can be estimated by merging the sketches of the matching cells.
+ */
+public final class CountSketches {
+
+    static final int PRECISION = 12;
+
+    private static final List<ParameterType> TYPES = Arrays.asList(ParameterType.values());
+
+    private static final int MEMBERS_OFFSET = 6;
+
+    private final List<Cell> cells;
+
+    private final long createdAt;
+
+    private CountSketches(List<Cell> cells) {
+        this.cells = Collections.unmodifiableList(cells);
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Scans the members of all published datasets.
+     *
+     * @param dao
+     *        the dataset dao
+     * @return the sketches
+     */
+    public static CountSketches create(DatasetDao<?> dao) {
+        Builder builder = new Builder();
+        List<String> members = TYPES.stream().map(ParameterType::getMemberProperty).collect(Collectors.toList());
+        dao.scrollPublishedMembers(members, row -> {
+            Map<ParameterType, Long> ids = new EnumMap<>(ParameterType.class);
+            for (int i = 0; i < TYPES.size(); i++) {
+                Object id = row[MEMBERS_OFFSET + i];
+                if (id != null) {
+                    ids.put(TYPES.get(i), ((Number) id).longValue());
+                }
+            }
+            builder.add((Enum<?>) row[0],
+                        (Enum<?>) row[1],
+                        (Enum<?>) row[2],
+                        Boolean.TRUE.equals(row[3]),
+                        Boolean.TRUE.equals(row[4]),
+                        Boolean.TRUE.equals(row[5]),
+                        ids);
+        });
+        return builder.build();
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Counts datasets like {@link CatalogSnapshot#countDatasets(CatalogFilter)}. Filters by dataset or
+     * parameter ids are not supported, see {@link CatalogFilter#forCounting(org.n52.series.db.dao.DbQuery)}.
+     *
+     * @param filter
+     *        the counting filter
+     * @return the exact number of matching datasets
+     */
+    public long countDatasets(CatalogFilter filter) {
+        long count = 0;
+        for (Cell cell : cells) {
+            if (cell.matches(filter) && !(cell.reference && filter.isIgnoreReferenceDatasets())) {
+                count += cell.datasets;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Estimates parameter counts like {@link CatalogSnapshot#countParameters(ParameterType, CatalogFilter)}.
+     *
+     * @param type
+     *        the parameter type
+     * @param filter
+     *        the counting filter
+     * @return the estimated number of parameters related to matching datasets
+     */
+    public long estimateParameters(ParameterType type, CatalogFilter filter) {
+        HyperLogLog union = null;
+        for (Cell cell : cells) {
+            HyperLogLog sketch = cell.sketches.get(type);
+            if (sketch != null && cell.matches(filter)) {
+                union = union == null
+                        ? sketch.copy()
+                        : union.merge(sketch);
+            }
+        }
+        return union != null
+                ? union.estimate()
+                : 0L;
+    }
+
+    static final class Builder {
+
+        private final Map<Cell, Cell> cells = new HashMap<>();
+
+        /**
+         * @param referenceProcedure
+         *        if the dataset refers to a reference procedure, which is neither counted as procedure nor
+         *        (by default) as dataset
+         */
+        Builder add(Enum<?> datasetType,
+                    Enum<?> observationType,
+                    Enum<?> valueType,
+                    boolean mobile,
+                    boolean insitu,
+                    boolean referenceProcedure,
+                    Map<ParameterType, Long> members) {
+            Cell key = new Cell(name(datasetType), name(observationType), name(valueType), mobile, insitu,
+                    referenceProcedure);
+            Cell cell = cells.computeIfAbsent(key, k -> k);
+            cell.datasets++;
+            for (Map.Entry<ParameterType, Long> member : members.entrySet()) {
+                if (!(referenceProcedure && member.getKey() == ParameterType.PROCEDURE)) {
+                    cell.sketches.computeIfAbsent(member.getKey(), t -> new HyperLogLog(PRECISION))
+                                 .offer(member.getValue());
+                }
+            }
+            return this;
+        }
+
+        CountSketches build() {
+            return new CountSketches(new ArrayList<>(cells.values()));
+        }
+
+        private static String name(Enum<?> value) {
+            return value != null
+                    ? value.name().toLowerCase(Locale.ROOT)
+                    : null;
+        }
+
+    }
+
+    private static final class Cell {
+
+        private final String datasetType;
+
+        private final String observationType;
+
+        private final String valueType;
+
+        private final boolean mobile;
+
+        private final boolean insitu;
+
+        private final boolean reference;
+
+        private final Map<ParameterType, HyperLogLog> sketches = new EnumMap<>(ParameterType.class);
+
+        private long datasets;
+
+        Cell(String datasetType,
+             String observationType,
+             String valueType,
+             boolean mobile,
+             boolean insitu,
+             boolean reference) {
+            this.datasetType = datasetType;
+            this.observationType = observationType;
+            this.valueType = valueType;
+            this.mobile = mobile;
+            this.insitu = insitu;
+            this.reference = reference;
+        }
+
+        boolean matches(CatalogFilter filter) {
+            return matches(filter.getDatasetTypes(), datasetType)
+                    && matches(filter.getObservationTypes(), observationType)
+                    && matches(filter.getValueTypes(), valueType)
+                    && (filter.getMobile() == null || filter.getMobile() == mobile)
+                    && (filter.getInsitu() == null || filter.getInsitu() == insitu);
+        }
+
+        private static boolean matches(Set<String> filtered, String value) {
+            return filtered.isEmpty() || value != null && filtered.contains(value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(datasetType, observationType, valueType, mobile, insitu, reference);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Cell)) {
+                return false;
+            }
+            Cell other = (Cell) obj;
+            return mobile == other.mobile
+                    && insitu == other.insitu
+                    && reference == other.reference
+                    && Objects.equals(datasetType, other.datasetType)
+                    && Objects.equals(observationType, other.observationType)
+                    && Objects.equals(valueType, other.valueType);
+        }
+
+    }
+
+}
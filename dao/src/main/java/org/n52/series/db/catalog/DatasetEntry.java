@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.series.db.beans.dataset.ValueType;
+
+/**
+ * Immutable snapshot of a published dataset held by the {@link MetadataCatalog}.
+ */
+public final class DatasetEntry {
+
+    private final Long id;
+
+    private final String domainId;
+
+    private final Map<String, String> labels;
+
+    private final Map<String, String> uoms;
+
+    private final DatasetType datasetType;
+
+    private final ObservationType observationType;
+
+    private final ValueType valueType;
+
+    private final boolean mobile;
+
+    private final boolean insitu;
+
+    private final boolean reference;
+
+    private final Boolean hasSamplings;
+
+    private final String originTimezone;
+
+    private final Date firstValueAt;
+
+    private final Date lastValueAt;
+
+    private final Map<ParameterType, Long> members;
+
+    private final Map<String, DatasetLabel> compositeLabels;
+
+    DatasetEntry(Long id,
+                 String domainId,
+                 Map<String, String> labels,
+                 Map<String, String> uoms,
+                 DatasetType datasetType,
+                 ObservationType observationType,
+                 ValueType valueType,
+                 boolean mobile,
+                 boolean insitu,
+                 boolean reference,
+                 Boolean hasSamplings,
+                 String originTimezone,
+                 Date firstValueAt,
+                 Date lastValueAt,
+                 EnumMap<ParameterType, Long> members) {
+        this.id = id;
+        this.domainId = domainId;
+        this.labels = Collections.unmodifiableMap(labels);
+        this.uoms = Collections.unmodifiableMap(uoms);
+        this.datasetType = datasetType;
+        this.observationType = observationType;
+        this.valueType = valueType;
+        this.mobile = mobile;
+        this.insitu = insitu;
+        this.reference = reference;
+        this.hasSamplings = hasSamplings;
+        this.originTimezone = originTimezone;
+        this.firstValueAt = copy(firstValueAt);
+        this.lastValueAt = copy(lastValueAt);
+        this.members = Collections.unmodifiableMap(members);
+        this.compositeLabels = Collections.emptyMap();
+    }
+
+    private DatasetEntry(DatasetEntry entry, Map<String, DatasetLabel> compositeLabels, Date firstValueAt,
+            Date lastValueAt) {
+        this.id = entry.id;
+        this.domainId = entry.domainId;
+        this.labels = entry.labels;
+        this.uoms = entry.uoms;
+        this.datasetType = entry.datasetType;
+        this.observationType = entry.observationType;
+        this.valueType = entry.valueType;
+        this.mobile = entry.mobile;
+        this.insitu = entry.insitu;
+        this.reference = entry.reference;
+        this.hasSamplings = entry.hasSamplings;
+        this.originTimezone = entry.originTimezone;
+        this.firstValueAt = firstValueAt;
+        this.lastValueAt = lastValueAt;
+        this.members = entry.members;
+        this.compositeLabels = Collections.unmodifiableMap(compositeLabels);
+    }
+
+    DatasetEntry withCompositeLabels(Map<String, DatasetLabel> compositeLabels) {
+        return new DatasetEntry(this, compositeLabels, firstValueAt, lastValueAt);
+    }
+
+    DatasetEntry withTimespan(Date first, Date last) {
+        return new DatasetEntry(this, compositeLabels, copy(first), copy(last));
+    }
+
+    /**
+     * @param other
+     *        another entry
+     * @return <code>true</code> if both entries are equal apart from their time extents
+     */
+    boolean hasSameMetadata(DatasetEntry other) {
+        return other != null
+                && Objects.equals(id, other.id)
+                && Objects.equals(domainId, other.domainId)
+                && labels.equals(other.labels)
+                && uoms.equals(other.uoms)
+                && datasetType == other.datasetType
+                && observationType == other.observationType
+                && valueType == other.valueType
+                && mobile == other.mobile
+                && insitu == other.insitu
+                && reference == other.reference
+                && Objects.equals(hasSamplings, other.hasSamplings)
+                && Objects.equals(originTimezone, other.originTimezone)
+                && members.equals(other.members);
+    }
+
+    private static Date copy(Date date) {
+        return date != null
+                ? new Date(date.getTime())
+                : null;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDomainId() {
+        return domainId;
+    }
+
+    public String getLabel(String locale) {
+        return labels.get(MetadataCatalog.normalizeLocale(locale));
+    }
+
+    /**
+     * @param locale
+     *        the locale
+     * @return the composite labels in the given locale or <code>null</code> if the locale is not held by the
+     *         catalog
+     */
+    public DatasetLabel getCompositeLabel(String locale) {
+        return compositeLabels.get(MetadataCatalog.normalizeLocale(locale));
+    }
+
+    public String getUom(String locale) {
+        return uoms.get(MetadataCatalog.normalizeLocale(locale));
+    }
+
+    public DatasetType getDatasetType() {
+        return datasetType;
+    }
+
+    public ObservationType getObservationType() {
+        return observationType;
+    }
+
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    public boolean isMobile() {
+        return mobile;
+    }
+
+    public boolean isInsitu() {
+        return insitu;
+    }
+
+    /**
+     * @return <code>true</code> if the dataset belongs to a reference procedure
+     */
+    public boolean isReference() {
+        return reference;
+    }
+
+    /**
+     * @return whether the dataset has samplings or <code>null</code> if it has no sampling profile
+     */
+    public Boolean getHasSamplings() {
+        return hasSamplings;
+    }
+
+    public boolean isSetOriginTimezone() {
+        return originTimezone != null && !originTimezone.isEmpty();
+    }
+
+    public String getOriginTimezone() {
+        return originTimezone;
+    }
+
+    public Date getFirstValueAt() {
+        return copy(firstValueAt);
+    }
+
+    public Date getLastValueAt() {
+        return copy(lastValueAt);
+    }
+
+    long getLastValueAtMillis() {
+        return lastValueAt != null
+                ? lastValueAt.getTime()
+                : Long.MIN_VALUE;
+    }
+
+    /**
+     * @param type
+     *        the parameter type
+     * @return the id of the referenced parameter entity or <code>null</code>
+     */
+    public Long getMember(ParameterType type) {
+        return members.get(type);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+/**
+ * The composite labels of a dataset in one locale, built from the labels of its phenomenon, procedure,
+ * feature (station) and offering.
+ */
+public final class DatasetLabel {
+
+    private final String datasetLabel;
+
+    private final String timeseriesLabel;
+
+    private DatasetLabel(String datasetLabel, String timeseriesLabel) {
+        this.datasetLabel = datasetLabel;
+        this.timeseriesLabel = timeseriesLabel;
+    }
+
+    public static DatasetLabel of(String phenomenon, String procedure, String station, String offering) {
+        String tail = new StringBuilder().append(procedure)
+                                         .append(", ")
+                                         .append(station)
+                                         .append(", ")
+                                         .append(offering)
+                                         .toString();
+        return new DatasetLabel(phenomenon + ", " + tail, phenomenon + " " + tail);
+    }
+
+    /**
+     * @return the label of the <code>datasets</code> endpoint (<code>phenomenon, procedure, station,
+     *         offering</code>)
+     */
+    public String getDatasetLabel() {
+        return datasetLabel;
+    }
+
+    /**
+     * @return the label of the <code>timeseries</code> endpoint (<code>phenomenon procedure, station,
+     *         offering</code>)
+     */
+    public String getTimeseriesLabel() {
+        return timeseriesLabel;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Ids of the published instances of one collection, e.g. all datasets or all phenomena referred by a
+ * published dataset. Membership is answered by a {@link CompressedBitmap} in constant time, so existence
+ * checks do not have to reach the database.
+ * <p>
+ * The index reflects the state when it was built. Ids above the highest id known at that time may have been
+ * inserted since, such ids are not covered by the index and have to be checked elsewhere.
+ */
+public final class ExistenceIndex {
+
+    private final CompressedBitmap ids = new CompressedBitmap();
+
+    private final Set<Long> largeIds = new HashSet<>();
+
+    private final long maxId;
+
+    ExistenceIndex(Collection<Long> ids) {
+        long max = Long.MIN_VALUE;
+        for (Long id : ids) {
+            if (id >= 0 && id <= Integer.MAX_VALUE) {
+                this.ids.add(id.intValue());
+            } else {
+                largeIds.add(id);
+            }
+            max = Math.max(max, id);
+        }
+        this.maxId = max;
+    }
+
+    /**
+     * @param id
+     *        the id to check
+     * @return <code>true</code> if the index can tell whether the given id exists
+     */
+    public boolean covers(long id) {
+        return id <= maxId;
+    }
+
+    /**
+     * @param id
+     *        the id to check
+     * @return <code>true</code> if the given id is known to the index
+     */
+    public boolean contains(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE
+                ? ids.contains((int) id)
+                : largeIds.contains(id);
+    }
+
+    public int size() {
+        return ids.cardinality() + largeIds.size();
+    }
+
+}
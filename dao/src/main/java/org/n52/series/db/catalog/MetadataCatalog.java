@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.n52.io.crs.CRSUtils;
+import org.n52.io.request.IoParameters;
+import org.n52.series.db.HibernateSessionStore;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.GeometryEntity;
+import org.n52.series.db.dao.DatasetDao;
+import org.n52.series.db.dao.DbQueryFactory;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.TransformException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * In-memory catalog of all published datasets and their related parameter entities. The catalog is built
+ * in background at startup and refreshed by polling the timestamps of all published datasets. Moved time
+ * extents are applied in place, new datasets are loaded, removed or unpublished datasets cause a rebuild.
+ * Each refresh creates a new immutable {@link CatalogSnapshot} which is swapped atomically, so readers never
+ * see partial updates. Other metadata changes (e.g. labels) are picked up by a periodic full rebuild.
+ * <p>
+ * The {@link CatalogSnapshot#getVersion() version} of a snapshot advances only on structural changes, i.e.
+ * new or removed datasets and changed metadata, not when time extents move. Caches derived from the
+ * catalog are keyed by it.
+ */
+public class MetadataCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataCatalog.class);
+
+    private static final String DEFAULT_LOCALE = "en";
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+
+    private final AtomicLong versions = new AtomicLong();
+
+    private final CRSUtils crsUtils = CRSUtils.createEpsgForcedXYAxisOrder();
+
+    @Autowired
+    private HibernateSessionStore sessionStore;
+
+    @Autowired
+    private DbQueryFactory dbQueryFactory;
+
+    private ScheduledExecutorService scheduler;
+
+    private boolean enabled = true;
+
+    private boolean existenceChecks = true;
+
+    private Set<String> locales = Collections.singleton(DEFAULT_LOCALE);
+
+    private long refreshIntervalSeconds = 60;
+
+    private long rebuildIntervalMinutes = 15;
+
+    private long lastRebuild;
+
+    private volatile long lastRefresh;
+
+    public void init() {
+        if (!enabled) {
+            LOGGER.info("Metadata catalog is disabled.");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metadata-catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshSafely, 0, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the current snapshot or <code>null</code> if the catalog is disabled or not built yet
+     */
+    public CatalogSnapshot getSnapshot() {
+        return enabled
+                ? snapshot.get()
+                : null;
+    }
+
+    public boolean isAvailable() {
+        return getSnapshot() != null;
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not refresh metadata catalog.", e);
+        }
+    }
+
+    /**
+     * Refreshes the catalog. Applies incremental changes if possible, otherwise rebuilds the catalog.
+     * Changes are detected per dataset by comparing the held timestamps with the current ones, so datasets
+     * advancing behind others (or moving backwards) are picked up, too. Moved time extents are applied
+     * without reloading the datasets and keep the catalog version, only new datasets or changed metadata
+     * advance it.
+     */
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        Session session = sessionStore.getSession();
+        try {
+            refresh(new DatasetDao<>(session));
+            lastRefresh = start;
+        } finally {
+            sessionStore.returnSession(session);
+        }
+    }
+
+    private void refresh(DatasetDao<DatasetEntity> dao) {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null || isRebuildDue()) {
+            swap(rebuild(current, dao));
+            return;
+        }
+        List<Object[]> timespans = dao.getPublishedTimespans();
+        if (hasRemovedDatasets(current, timespans)) {
+            LOGGER.debug("Published datasets have been removed, rebuilding metadata catalog.");
+            swap(rebuild(current, dao));
+            return;
+        }
+        Set<Long> added = getAddedDatasets(current, timespans);
+        List<Object[]> moved = getMovedTimespans(current, timespans);
+        if (!added.isEmpty() || !moved.isEmpty()) {
+            swap(update(current, dao, added, moved));
+        }
+    }
+
+    /**
+     * The catalog is current if the last refresh has succeeded within two refresh intervals, i.e. the
+     * snapshot misses at most the changes of the last refresh interval.
+     *
+     * @return <code>true</code> if the snapshot has been compared with the database recently
+     */
+    public boolean isCurrent() {
+        return isAvailable() && isCurrent(lastRefresh, System.currentTimeMillis());
+    }
+
+    boolean isCurrent(long refreshed, long now) {
+        return now - refreshed <= TimeUnit.SECONDS.toMillis(2 * refreshIntervalSeconds);
+    }
+
+    /**
+     * @param current
+     *        the current snapshot
+     * @param timespans
+     *        the id, <code>firstValueAt</code> and <code>lastValueAt</code> of each published dataset
+     * @return <code>true</code> if the snapshot holds datasets which are not published anymore
+     */
+    static boolean hasRemovedDatasets(CatalogSnapshot current, List<Object[]> timespans) {
+        int held = 0;
+        for (Object[] timespan : timespans) {
+            if (current.getDataset(toId(timespan)) != null) {
+                held++;
+            }
+        }
+        return held < current.size();
+    }
+
+    /**
+     * @param current
+     *        the current snapshot
+     * @param timespans
+     *        the id, <code>firstValueAt</code> and <code>lastValueAt</code> of each published dataset
+     * @return the ids of published datasets not held by the snapshot
+     */
+    static Set<Long> getAddedDatasets(CatalogSnapshot current, List<Object[]> timespans) {
+        Set<Long> added = new HashSet<>();
+        for (Object[] timespan : timespans) {
+            Long id = toId(timespan);
+            if (current.getDataset(id) == null) {
+                added.add(id);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @param current
+     *        the current snapshot
+     * @param timespans
+     *        the id, <code>firstValueAt</code> and <code>lastValueAt</code> of each published dataset
+     * @return the timespans of held datasets whose timestamps have changed
+     */
+    static List<Object[]> getMovedTimespans(CatalogSnapshot current, List<Object[]> timespans) {
+        List<Object[]> moved = new ArrayList<>();
+        for (Object[] timespan : timespans) {
+            Long id = toId(timespan);
+            if (current.getDataset(id) != null && current.isChanged(id, (Date) timespan[1], (Date) timespan[2])) {
+                moved.add(timespan);
+            }
+        }
+        return moved;
+    }
+
+    private static Long toId(Object[] timespan) {
+        return ((Number) timespan[0]).longValue();
+    }
+
+    private boolean isRebuildDue() {
+        return System.currentTimeMillis() - lastRebuild > TimeUnit.MINUTES.toMillis(rebuildIntervalMinutes);
+    }
+
+    /**
+     * Rebuilds the catalog from scratch. The version is kept if nothing but time extents have changed, so a
+     * periodic rebuild does not outdate what has been derived from the current version.
+     */
+    private CatalogSnapshot rebuild(CatalogSnapshot current, DatasetDao<DatasetEntity> dao) {
+        long start = System.currentTimeMillis();
+        CatalogBuilder builder = new CatalogBuilder(locales, this::createGeometry, current);
+        dao.forEachPublishedInstance(dao.getPublishedIds(), builder::add);
+        lastRebuild = System.currentTimeMillis();
+        CatalogSnapshot next = builder.hasSameMetadata(current)
+                ? builder.build(current.getVersion(), current.getModified())
+                : builder.build(versions.incrementAndGet(), new Date());
+        LOGGER.debug("Building metadata catalog with {} datasets takes {} ms", next.size(), lastRebuild - start);
+        return next;
+    }
+
+    private CatalogSnapshot update(CatalogSnapshot current, DatasetDao<DatasetEntity> dao, Set<Long> added,
+            List<Object[]> moved) {
+        if (added.isEmpty()) {
+            return moveTimespans(current, moved);
+        }
+        long start = System.currentTimeMillis();
+        CatalogBuilder builder = new CatalogBuilder(current, this::createGeometry);
+        moved.forEach(timespan -> builder.withTimespan(toId(timespan), (Date) timespan[1], (Date) timespan[2]));
+        dao.forEachPublishedInstance(added, builder::add);
+        CatalogSnapshot next = builder.build(versions.incrementAndGet(), new Date());
+        LOGGER.debug("Adding {} and moving {} datasets of metadata catalog takes {} ms", added.size(),
+                moved.size(), System.currentTimeMillis() - start);
+        return next;
+    }
+
+    /**
+     * @param current
+     *        the current snapshot
+     * @param moved
+     *        the id, <code>firstValueAt</code> and <code>lastValueAt</code> of held datasets
+     * @return a snapshot of the same version holding the moved time extents
+     */
+    static CatalogSnapshot moveTimespans(CatalogSnapshot current, List<Object[]> moved) {
+        CatalogBuilder builder = new CatalogBuilder(current, feature -> null);
+        moved.forEach(timespan -> builder.withTimespan(toId(timespan), (Date) timespan[1], (Date) timespan[2]));
+        return builder.build(current.getVersion(), current.getModified());
+    }
+
+    void swap(CatalogSnapshot next) {
+        snapshot.set(next);
+        LOGGER.debug("Metadata catalog swapped, version {}", next.getVersion());
+    }
+
+    private Geometry createGeometry(AbstractFeatureEntity<?> feature) {
+        if (!feature.isSetGeometry()) {
+            return null;
+        }
+        String srid = dbQueryFactory.createFrom(IoParameters.createDefaults()).getDatabaseSridCode();
+        GeometryEntity geometryEntity = feature.getGeometryEntity();
+        PrecisionModel pm = new PrecisionModel(PrecisionModel.FLOATING);
+        geometryEntity.setGeometryFactory(srid == null
+                ? new GeometryFactory(pm)
+                : new GeometryFactory(pm, CRSUtils.getSrsIdFrom(srid)));
+        try {
+            return crsUtils.transformOuterToInner(geometryEntity.getGeometry(), srid);
+        } catch (FactoryException | TransformException e) {
+            LOGGER.warn("Could not transform geometry of feature {}.", feature.getId(), e);
+            return null;
+        }
+    }
+
+    static String normalizeLocale(String locale) {
+        return locale == null || locale.trim().isEmpty()
+                ? DEFAULT_LOCALE
+                : locale.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Ranks a case insensitive match of a search term in a label like catalog searches rank their results.
+     *
+     * @param label
+     *        the label
+     * @param term
+     *        the search term
+     * @return the rank (lower is better) or <code>-1</code> if the label does not contain the term
+     */
+    public static int rank(String label, String term) {
+        return term != null
+                ? SearchIndex.rank(SearchIndex.normalize(label), SearchIndex.normalize(term))
+                : -1;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return <code>true</code> if existence checks shall be answered from the id indexes of the snapshot
+     */
+    public boolean isExistenceChecks() {
+        return existenceChecks && isAvailable();
+    }
+
+    public void setExistenceChecks(boolean existenceChecks) {
+        this.existenceChecks = existenceChecks;
+    }
+
+    /**
+     * @param locales
+     *        comma separated list of locales to hold labels for
+     */
+    public void setLocales(String locales) {
+        Set<String> normalized = Arrays.stream(locales.split(","))
+                .map(String::trim)
+                .filter(l -> !l.isEmpty())
+                .map(MetadataCatalog::normalizeLocale)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        this.locales = normalized.isEmpty()
+                ? Collections.singleton(DEFAULT_LOCALE)
+                : normalized;
+    }
+
+    public void setRefreshIntervalSeconds(long refreshIntervalSeconds) {
+        this.refreshIntervalSeconds = Math.max(1, refreshIntervalSeconds);
+    }
+
+    public void setRebuildIntervalMinutes(long rebuildIntervalMinutes) {
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+    }
+
+    public void setSessionStore(HibernateSessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    public void setDbQueryFactory(DbQueryFactory dbQueryFactory) {
+        this.dbQueryFactory = dbQueryFactory;
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Immutable snapshot of a parameter entity (feature, procedure, ...) held by the {@link MetadataCatalog}.
+ */
+public final class ParameterEntry {
+
+    private final ParameterType type;
+
+    private final Long id;
+
+    private final String domainId;
+
+    private final String name;
+
+    private final Map<String, String> labels;
+
+    private final Set<Long> parentIds;
+
+    private final Geometry geometry;
+
+    private final boolean reference;
+
+    ParameterEntry(ParameterType type,
+                   Long id,
+                   String domainId,
+                   String name,
+                   Map<String, String> labels,
+                   Set<Long> parentIds,
+                   Geometry geometry,
+                   boolean reference) {
+        this.type = type;
+        this.id = id;
+        this.domainId = domainId;
+        this.name = name;
+        this.labels = Collections.unmodifiableMap(labels);
+        this.parentIds = Collections.unmodifiableSet(parentIds);
+        this.geometry = geometry;
+        this.reference = reference;
+    }
+
+    public ParameterType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDomainId() {
+        return domainId;
+    }
+
+    /**
+     * @return the untranslated name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param locale
+     *        the locale
+     * @return the label in the given locale or <code>null</code> if the locale is not held by the catalog
+     */
+    public String getLabel(String locale) {
+        return labels.get(MetadataCatalog.normalizeLocale(locale));
+    }
+
+    Map<String, String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return the ids of the direct parents (empty for non-hierarchical entities)
+     */
+    public Set<Long> getParentIds() {
+        return parentIds;
+    }
+
+    /**
+     * @return the geometry (features only) already transformed to the inner CRS
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * @return <code>true</code> for reference procedures, which are not listed (like <code>ProcedureDao</code>
+     *         does)
+     */
+    public boolean isReference() {
+        return reference;
+    }
+
+    /**
+     * @param other
+     *        another entry
+     * @return <code>true</code> if both entries describe the same parameter entity identically
+     */
+    boolean hasSameMetadata(ParameterEntry other) {
+        return other != null
+                && type == other.type
+                && Objects.equals(id, other.id)
+                && Objects.equals(domainId, other.domainId)
+                && Objects.equals(name, other.name)
+                && labels.equals(other.labels)
+                && parentIds.equals(other.parentIds)
+                && (geometry == null
+                        ? other.geometry == null
+                        : other.geometry != null && geometry.equalsExact(other.geometry))
+                && reference == other.reference;
+    }
+
+}
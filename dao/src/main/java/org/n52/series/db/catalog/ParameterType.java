@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Set;
+import java.util.function.Function;
+
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.CategoryEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+
+/**
+ * The parameter entities a dataset refers to and which are held by the {@link MetadataCatalog}.
+ */
+public enum ParameterType {
+
+    FEATURE(AbstractFeatureEntity.class, Parameters.FEATURES, DatasetEntity.PROPERTY_FEATURE, true,
+            IoParameters::getFeatures, DatasetEntity::getFeature),
+
+    PROCEDURE(ProcedureEntity.class, Parameters.PROCEDURES, DatasetEntity.PROPERTY_PROCEDURE, true,
+            IoParameters::getProcedures, DatasetEntity::getProcedure),
+
+    OFFERING(OfferingEntity.class, Parameters.OFFERINGS, DatasetEntity.PROPERTY_OFFERING, true,
+            IoParameters::getOfferings, DatasetEntity::getOffering),
+
+    PHENOMENON(PhenomenonEntity.class, Parameters.PHENOMENA, DatasetEntity.PROPERTY_PHENOMENON, false,
+            IoParameters::getPhenomena, DatasetEntity::getPhenomenon),
+
+    CATEGORY(CategoryEntity.class, Parameters.CATEGORIES, DatasetEntity.PROPERTY_CATEGORY, false,
+            IoParameters::getCategories, DatasetEntity::getCategory),
+
+    PLATFORM(PlatformEntity.class, Parameters.PLATFORMS, DatasetEntity.PROPERTY_PLATFORM, false,
+            IoParameters::getPlatforms, DatasetEntity::getPlatform);
+
+    private final Class<? extends DescribableEntity> entityType;
+
+    private final String parameterName;
+
+    private final String memberProperty;
+
+    private final boolean hierarchicalFilter;
+
+    private final Function<IoParameters, Set<String>> filterValues;
+
+    private final Function<DatasetEntity, ? extends DescribableEntity> member;
+
+    ParameterType(Class<? extends DescribableEntity> entityType,
+                  String parameterName,
+                  String memberProperty,
+                  boolean hierarchicalFilter,
+                  Function<IoParameters, Set<String>> filterValues,
+                  Function<DatasetEntity, ? extends DescribableEntity> member) {
+        this.entityType = entityType;
+        this.parameterName = parameterName;
+        this.memberProperty = memberProperty;
+        this.hierarchicalFilter = hierarchicalFilter;
+        this.filterValues = filterValues;
+        this.member = member;
+    }
+
+    /**
+     * @param entity
+     *        a parameter entity
+     * @return the type of the given entity or <code>null</code> if the entity is not held by the catalog
+     */
+    public static ParameterType of(DescribableEntity entity) {
+        for (ParameterType type : values()) {
+            if (type.entityType.isInstance(entity)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param entityClass
+     *        a parameter entity class
+     * @return the type of the given class or <code>null</code> if its entities are not held by the catalog
+     */
+    public static ParameterType of(Class<?> entityClass) {
+        for (ParameterType type : values()) {
+            if (type.entityType.isAssignableFrom(entityClass)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param memberProperty
+     *        a property of {@link DatasetEntity}
+     * @return the type referred by the given property or <code>null</code> if it does not refer to a type
+     *         held by the catalog
+     */
+    public static ParameterType ofMemberProperty(String memberProperty) {
+        for (ParameterType type : values()) {
+            if (type.memberProperty.equals(memberProperty)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param parameterName
+     *        the name of a query parameter, equal to the name of the collection listing the type
+     * @return the type filtered by the given parameter or <code>null</code> if it does not filter a type held
+     *         by the catalog
+     */
+    public static ParameterType ofParameterName(String parameterName) {
+        for (ParameterType type : values()) {
+            if (type.parameterName.equals(parameterName)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public Class<? extends DescribableEntity> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * @return the name of the query parameter filtering by this type
+     */
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    /**
+     * @return the property of {@link DatasetEntity} referring to this type
+     */
+    public String getMemberProperty() {
+        return memberProperty;
+    }
+
+    /**
+     * @return <code>true</code> if a filter on this type also matches datasets referring to a child of the
+     *         filtered entity (see <code>DbQuery#addHierarchicalFilterRestriction</code>)
+     */
+    public boolean isHierarchicalFilter() {
+        return hierarchicalFilter;
+    }
+
+    public Set<String> getFilterValues(IoParameters parameters) {
+        return filterValues.apply(parameters);
+    }
+
+    public DescribableEntity getMember(DatasetEntity dataset) {
+        return member.apply(dataset);
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Trigram index over names and labels of the catalog's parameter entities. Matches have the semantics of a
+ * case insensitive <code>like '%term%'</code> on the untranslated name or the label of the requested locale.
+ * Candidates are found by intersecting the postings of all trigrams of the search term and verified against
+ * the indexed texts afterwards. Terms shorter than a trigram are verified against all entities.
+ * <p>
+ * The index of a parameter type is reused by following snapshots as long as no name or label of that type
+ * has changed, so incremental catalog refreshes usually do not rebuild it.
+ */
+final class SearchIndex {
+
+    static final int EXACT = 0;
+
+    static final int PREFIX = 1;
+
+    static final int WORD_PREFIX = 2;
+
+    static final int INFIX = 3;
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int RANK_SHIFT = 48;
+
+    private static final int LENGTH_SHIFT = 32;
+
+    private static final int MAX_LENGTH = 0xFFFF;
+
+    private final Map<ParameterType, TypeIndex> indexes = new EnumMap<>(ParameterType.class);
+
+    SearchIndex(Map<ParameterType, ? extends Map<Long, ParameterEntry>> parameters, SearchIndex previous) {
+        for (ParameterType type : ParameterType.values()) {
+            Collection<ParameterEntry> entries = parameters.get(type).values();
+            TypeIndex reusable = previous != null
+                    ? previous.indexes.get(type)
+                    : null;
+            indexes.put(type, reusable != null && reusable.isUpToDate(entries)
+                    ? reusable
+                    : new TypeIndex(entries));
+        }
+    }
+
+    static String normalize(String text) {
+        return text != null
+                ? text.toLowerCase(Locale.ROOT)
+                : null;
+    }
+
+    /**
+     * @param type
+     *        the parameter type
+     * @param term
+     *        the search term
+     * @param locale
+     *        the locale of labels to match
+     * @return ids of all matching entities mapped to their rank, best matches first
+     */
+    Map<Long, Integer> search(ParameterType type, String term, String locale) {
+        return indexes.get(type).search(normalize(term), MetadataCatalog.normalizeLocale(locale));
+    }
+
+    /**
+     * Ranks a match of the given term in the given text.
+     *
+     * @param text
+     *        the normalized text
+     * @param term
+     *        the normalized term
+     * @return the rank (lower is better) or <code>-1</code> if the text does not contain the term
+     */
+    static int rank(String text, String term) {
+        if (text == null) {
+            return -1;
+        }
+        int index = text.indexOf(term);
+        if (index < 0) {
+            return -1;
+        }
+        if (index == 0) {
+            return text.length() == term.length()
+                    ? EXACT
+                    : PREFIX;
+        }
+        while (index > 0) {
+            if (!Character.isLetterOrDigit(text.charAt(index - 1))) {
+                return WORD_PREFIX;
+            }
+            index = text.indexOf(term, index + 1);
+        }
+        return INFIX;
+    }
+
+    private static int best(int rank, int other) {
+        if (rank < 0) {
+            return other;
+        }
+        return other < 0
+                ? rank
+                : Math.min(rank, other);
+    }
+
+    private static long gram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    private static void addGrams(String text, Set<Long> grams) {
+        if (text != null) {
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                grams.add(gram(text, i));
+            }
+        }
+    }
+
+    /**
+     * Growable list of hits encoded as sortable <code>long</code> keys (rank, text length, ordinal).
+     */
+    private static final class HitList {
+
+        private long[] keys = new long[16];
+
+        private int size;
+
+        void add(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = key;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(keys, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+    }
+
+    private static final class TypeIndex {
+
+        private final long[] ids;
+
+        private final String[] names;
+
+        private final Map<String, String[]> labels = new HashMap<>();
+
+        private final Map<Long, CompressedBitmap> postings = new HashMap<>();
+
+        TypeIndex(Collection<ParameterEntry> entries) {
+            int size = entries.size();
+            this.ids = new long[size];
+            this.names = new String[size];
+            int ordinal = 0;
+            Set<Long> grams = new HashSet<>();
+            for (ParameterEntry entry : entries) {
+                ids[ordinal] = entry.getId();
+                names[ordinal] = normalize(entry.getName());
+                addGrams(names[ordinal], grams);
+                for (Map.Entry<String, String> label : entry.getLabels().entrySet()) {
+                    String normalized = normalize(label.getValue());
+                    labels.computeIfAbsent(label.getKey(), l -> new String[size])[ordinal] = normalized;
+                    addGrams(normalized, grams);
+                }
+                for (Long gram : grams) {
+                    postings.computeIfAbsent(gram, g -> new CompressedBitmap()).add(ordinal);
+                }
+                grams.clear();
+                ordinal++;
+            }
+        }
+
+        boolean isUpToDate(Collection<ParameterEntry> entries) {
+            if (entries.size() != ids.length) {
+                return false;
+            }
+            int ordinal = 0;
+            for (ParameterEntry entry : entries) {
+                if (ids[ordinal] != entry.getId() || !Objects.equals(names[ordinal], normalize(entry.getName()))) {
+                    return false;
+                }
+                for (Map.Entry<String, String> label : entry.getLabels().entrySet()) {
+                    String[] indexed = labels.get(label.getKey());
+                    if (indexed == null || !Objects.equals(indexed[ordinal], normalize(label.getValue()))) {
+                        return false;
+                    }
+                }
+                ordinal++;
+            }
+            return true;
+        }
+
+        Map<Long, Integer> search(String term, String locale) {
+            String[] localeLabels = labels.get(locale);
+            HitList hits = new HitList();
+            CompressedBitmap candidates = getCandidates(term);
+            if (candidates != null) {
+                candidates.forEach(ordinal -> addIfMatching(ordinal, term, localeLabels, hits));
+            } else {
+                for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+                    addIfMatching(ordinal, term, localeLabels, hits);
+                }
+            }
+            // ordinals follow the id order, so sorting by key orders by rank, length and id
+            long[] keys = hits.sorted();
+            Map<Long, Integer> result = new LinkedHashMap<>(keys.length * 2);
+            for (long key : keys) {
+                result.put(ids[(int) key], (int) (key >>> RANK_SHIFT));
+            }
+            return result;
+        }
+
+        private CompressedBitmap getCandidates(String term) {
+            if (term.length() < GRAM_LENGTH) {
+                return null;
+            }
+            Set<Long> grams = new HashSet<>();
+            addGrams(term, grams);
+            List<CompressedBitmap> lists = new ArrayList<>();
+            for (Long gram : grams) {
+                CompressedBitmap posting = postings.get(gram);
+                if (posting == null) {
+                    return new CompressedBitmap();
+                }
+                lists.add(posting);
+            }
+            lists.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+            Iterator<CompressedBitmap> iterator = lists.iterator();
+            CompressedBitmap candidates = iterator.next();
+            while (iterator.hasNext() && !candidates.isEmpty()) {
+                candidates = candidates.and(iterator.next());
+            }
+            return candidates;
+        }
+
+        private void addIfMatching(int ordinal, String term, String[] localeLabels, HitList hits) {
+            String label = localeLabels != null
+                    ? localeLabels[ordinal]
+                    : null;
+            int rank = best(rank(names[ordinal], term), rank(label, term));
+            if (rank >= 0) {
+                String matched = label != null
+                        ? label
+                        : names[ordinal];
+                long length = Math.min(matched != null ? matched.length() : 0, MAX_LENGTH);
+                hits.add((long) rank << RANK_SHIFT | length << LENGTH_SHIFT | ordinal);
+            }
+        }
+
+    }
+
+}
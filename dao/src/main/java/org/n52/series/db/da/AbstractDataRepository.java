@@ -30,14 +30,18 @@ package org.n52.series.db.da;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.proxy.HibernateProxy;
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
 import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
 import org.n52.io.response.DetectionLimitOutput;
 import org.n52.io.response.TimeOutput;
 import org.n52.io.response.dataset.AbstractValue;
@@ -47,15 +51,26 @@ import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.GeometryEntity;
 import org.n52.series.db.beans.dataset.DatasetType;
 import org.n52.series.db.beans.parameter.ParameterEntity;
+import org.n52.series.db.block.BlockCache;
+import org.n52.series.db.block.BlockCache.RangeLoader;
+import org.n52.series.db.block.BlockCodec;
+import org.n52.series.db.block.RecentWindows;
 import org.n52.series.db.dao.DataDao;
 import org.n52.series.db.dao.DatasetDao;
 import org.n52.series.db.dao.DbQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 
 public abstract class AbstractDataRepository<S extends DatasetEntity,
                                              E extends DataEntity<T>,
                                              V extends AbstractValue<?>, T>
         extends SessionAwareRepository implements DataRepository<S, E, V, T> {
 
+    @Autowired(required = false)
+    private BlockCache blockCache;
+
+    @Autowired(required = false)
+    private RecentWindows recentWindows;
+
     @Override
     public Data<V> getData(String datasetId, DbQuery dbQuery) {
         Session session = getSession();
@@ -90,6 +105,79 @@ public abstract class AbstractDataRepository<S extends DatasetEntity,
 
     protected abstract Data<V> assembleData(Long dataset, DbQuery query, Session session);
 
+    /**
+     * Gets the observations of a dataset from the recent windows or the block cache if the repository
+     * supports blocks and the query allows, i.e. asks for condensed outputs without further observation
+     * filters.
+     *
+     * @param datasetId
+     *        the dataset id
+     * @param query
+     *        the query
+     * @param session
+     *        the session
+     * @return the observations or <code>null</code> if they have to be queried
+     */
+    protected List<E> getCachedObservations(Long datasetId, DbQuery query, Session session) {
+        boolean recent = recentWindows != null && recentWindows.isEnabled();
+        boolean blocks = blockCache != null && blockCache.isEnabled();
+        if (!recent && !blocks || query.isExpanded() || query.isObservationFiltered()) {
+            return null;
+        }
+        DatasetEntity dataset = session.get(DatasetEntity.class, datasetId);
+        BlockCodec<E> codec = dataset != null
+                && !dataset.isMobile()
+                && !DatasetType.trajectory.equals(dataset.getDatasetType())
+                        ? createBlockCodec(dataset)
+                        : null;
+        if (codec == null) {
+            return null;
+        }
+        Interval timespan = query.getTimespan();
+        List<E> observations = recent
+                ? recentWindows.getObservations(datasetId, dataset.getFirstValueAt(), dataset.getLastValueAt(),
+                        timespan.getStartMillis(), timespan.getEndMillis(), codec)
+                : null;
+        if (observations != null || !blocks) {
+            return observations;
+        }
+        DataDao<E> dao = createDataDao(session);
+        return blockCache.getObservations(datasetId, dataset.getFirstValueAt(), dataset.getLastValueAt(),
+                timespan.getStartMillis(), timespan.getEndMillis(), codec, new RangeLoader<E>() {
+
+                    @Override
+                    public List<E> load(long from, long to) {
+                        return dao.getAllInstancesFor(datasetId, query.replaceWith(Parameters.TIMESPAN,
+                                new Interval(from, to, DateTimeZone.UTC).toString()));
+                    }
+
+                    @Override
+                    public long getChangeMarker() {
+                        return dao.getMaxId(datasetId);
+                    }
+
+                    @Override
+                    public List<long[]> getChanges(long marker, long from, long to) {
+                        return dao.getAddedAfter(datasetId, marker, new Date(from), new Date(to))
+                                  .stream()
+                                  .map(row -> new long[] {
+                                      ((Date) row[0]).getTime(),
+                                      ((Number) row[1]).longValue()
+                                  })
+                                  .collect(Collectors.toList());
+                    }
+                });
+    }
+
+    /**
+     * @param dataset
+     *        the dataset
+     * @return the codec to hold the dataset's observations in blocks or <code>null</code> if not supported
+     */
+    protected BlockCodec<E> createBlockCodec(DatasetEntity dataset) {
+        return null;
+    }
+
     @Override
     public V assembleDataValueWithMetadata(E data, S dataset, DbQuery query) {
         V value = assembleDataValue(data, dataset, query);
@@ -31,6 +31,7 @@ package org.n52.series.db.da;
 import org.hibernate.Session;
 import org.n52.io.response.CategoryOutput;
 import org.n52.series.db.beans.CategoryEntity;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.AbstractDao;
 import org.n52.series.db.dao.CategoryDao;
 import org.n52.series.db.dao.DbQuery;
@@ -45,6 +46,11 @@ public class CategoryRepository extends ParameterRepository<CategoryEntity, Cate
         return new CategoryOutput();
     }
 
+    @Override
+    protected ParameterType getCatalogType() {
+        return ParameterType.CATEGORY;
+    }
+
     @Override
     protected SearchResult createEmptySearchResult(String id, String label, String baseUrl) {
         return new CategorySearchResult().setId(id).setLabel(label).setBaseUrl(baseUrl);
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.util.Date;
+import java.util.List;
+
+import org.n52.series.db.beans.CountDataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.block.BlockCodec;
+import org.n52.series.db.block.DataBlock;
+
+/**
+ * Holds instantaneous count observations without detection limit in {@link DataBlock}s. Decoded
+ * observations carry what condensed data outputs need: times, result time and value.
+ */
+final class CountBlockCodec implements BlockCodec<CountDataEntity> {
+
+    private final DatasetEntity dataset;
+
+    CountBlockCodec(DatasetEntity dataset) {
+        this.dataset = dataset;
+    }
+
+    @Override
+    public boolean isEncodable(CountDataEntity observation) {
+        Date start = observation.getSamplingTimeStart();
+        Date end = observation.getSamplingTimeEnd();
+        return start != null
+                && end != null
+                && start.getTime() == end.getTime()
+                && !observation.hasDetectionLimit();
+    }
+
+    @Override
+    public long getTimestamp(CountDataEntity observation) {
+        return observation.getSamplingTimeEnd().getTime();
+    }
+
+    @Override
+    public DataBlock encode(long start, List<CountDataEntity> observations, long firstValueAt,
+            long changeMarker) {
+        int size = observations.size();
+        long[] timestamps = new long[size];
+        long[] resultTimes = new long[size];
+        long[] values = new long[size];
+        int[] scales = new int[size];
+        for (int i = 0; i < size; i++) {
+            CountDataEntity observation = observations.get(i);
+            Integer value = observation.getValue();
+            timestamps[i] = getTimestamp(observation);
+            resultTimes[i] = observation.getResultTime() != null
+                    ? observation.getResultTime().getTime()
+                    : DataBlock.NO_TIME;
+            values[i] = value != null
+                    ? value
+                    : 0L;
+            scales[i] = value != null
+                    ? 0
+                    : DataBlock.NO_VALUE;
+        }
+        return new DataBlock(start, timestamps, resultTimes, values, scales, firstValueAt, changeMarker);
+    }
+
+    @Override
+    public CountDataEntity decode(DataBlock block, int index) {
+        Date time = new Date(block.getTimestamp(index));
+        CountDataEntity observation = new CountDataEntity();
+        observation.setDataset(dataset);
+        observation.setSamplingTimeStart(time);
+        observation.setSamplingTimeEnd(time);
+        if (block.getScale(index) != DataBlock.NO_VALUE) {
+            observation.setValue((int) block.getUnscaledValue(index));
+        }
+        if (block.getResultTime(index) != DataBlock.NO_TIME) {
+            observation.setResultTime(new Date(block.getResultTime(index)));
+        }
+        return observation;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches counts per normalized filter. Entries expire after a time to live or as soon as the version they
+ * have been computed for (e.g. of the metadata catalog) has changed.
+ */
+class CountCache {
+
+    private final Cache<String, Entry> cache;
+
+    private final boolean enabled;
+
+    /**
+     * @param ttlSeconds
+     *        the time to keep counts, <code>0</code> disables caching
+     * @param maxEntries
+     *        the maximum number of cached entries
+     */
+    CountCache(long ttlSeconds, long maxEntries) {
+        this.enabled = ttlSeconds > 0;
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumSize(maxEntries)
+                                 .expireAfterWrite(Math.max(1, ttlSeconds), TimeUnit.SECONDS)
+                                 .build();
+    }
+
+    /**
+     * @param <T>
+     *        the type of the cached value
+     * @param key
+     *        the key, <code>null</code> if the value shall not be cached
+     * @param version
+     *        the current version
+     * @return the value cached for the key and version or <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getIfPresent(String key, long version) {
+        Entry entry = enabled && key != null
+                ? cache.getIfPresent(key)
+                : null;
+        return entry != null && entry.version == version
+                ? (T) entry.value
+                : null;
+    }
+
+    /**
+     * @param <T>
+     *        the type of the cached value
+     * @param key
+     *        the key, <code>null</code> if the value shall not be cached
+     * @param version
+     *        the current version
+     * @param loader
+     *        computes the value if not cached
+     * @return the cached or computed value
+     */
+    <T> T get(String key, long version, Supplier<T> loader) {
+        T cached = getIfPresent(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        T value = loader.get();
+        if (enabled && key != null && value != null) {
+            cache.put(key, new Entry(value, version));
+        }
+        return value;
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+
+        private final long version;
+
+        Entry(Object value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+    }
+
+}
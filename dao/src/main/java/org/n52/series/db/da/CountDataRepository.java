@@ -40,6 +40,7 @@ import org.n52.series.db.DataRepositoryComponent;
 import org.n52.series.db.beans.CountDataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.ServiceEntity;
+import org.n52.series.db.block.BlockCodec;
 import org.n52.series.db.dao.DataDao;
 import org.n52.series.db.dao.DbQuery;
 
@@ -82,8 +83,11 @@ public class CountDataRepository extends AbstractNumericalDataRepository<CountDa
     @Override
     protected Data<CountValue> assembleData(Long dataset, DbQuery query, Session session) {
         Data<CountValue> result = new Data<>();
-        DataDao<CountDataEntity> dao = new DataDao<>(session);
-        List<CountDataEntity> observations = dao.getAllInstancesFor(dataset, query);
+        List<CountDataEntity> observations = getCachedObservations(dataset, query, session);
+        if (observations == null) {
+            DataDao<CountDataEntity> dao = new DataDao<>(session);
+            observations = dao.getAllInstancesFor(dataset, query);
+        }
         for (CountDataEntity observation : observations) {
             if (observation != null) {
                 result.addNewValue(assembleDataValue(observation, observation.getDataset(), query));
@@ -92,6 +96,11 @@ public class CountDataRepository extends AbstractNumericalDataRepository<CountDa
         return result;
     }
 
+    @Override
+    protected BlockCodec<CountDataEntity> createBlockCodec(DatasetEntity dataset) {
+        return new CountBlockCodec(dataset);
+    }
+
     @Override
     public CountValue assembleDataValue(CountDataEntity observation, DatasetEntity series, DbQuery query) {
         if (observation == null) {
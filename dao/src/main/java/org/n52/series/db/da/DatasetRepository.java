@@ -30,8 +30,14 @@ package org.n52.series.db.da;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.hibernate.Session;
 import org.n52.io.HrefHelper;
@@ -45,19 +51,22 @@ import org.n52.io.response.dataset.DatasetOutput;
 import org.n52.io.response.dataset.DatasetParameters;
 import org.n52.io.response.dataset.IndividualObservationOutput;
 import org.n52.io.response.dataset.ProfileOutput;
-import org.n52.io.response.dataset.ReferenceValueOutput;
 import org.n52.io.response.dataset.TimeseriesMetadataOutput;
 import org.n52.io.response.dataset.TrajectoryOutput;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.DataRepositoryTypeFactory;
 import org.n52.series.db.DatasetTypesMetadata;
-import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.DescribableEntity;
-import org.n52.series.db.beans.OfferingEntity;
-import org.n52.series.db.beans.PhenomenonEntity;
-import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.beans.dataset.DatasetType;
 import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.DatasetEntry;
+import org.n52.series.db.catalog.ParameterEntry;
+import org.n52.series.db.catalog.ParameterType;
+import org.n52.series.db.dao.DataDao;
 import org.n52.series.db.dao.DatasetDao;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.spi.search.DatasetSearchResult;
@@ -66,6 +75,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.base.Suppliers;
+
 /**
  * TODO: JavaDoc
  *
@@ -83,6 +94,10 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
 
     @Override
     public boolean exists(String id, DbQuery query) {
+        Boolean fromCatalog = datasetExistsInCatalog(id, query);
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         Session session = getSession();
         try {
             // String handleAsFallback = query.getHandleAsValueTypeFallback();
@@ -104,6 +119,10 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
 
     @Override
     public List<DatasetOutput<V>> getAllCondensed(DbQuery query) {
+        List<DatasetOutput<V>> fromCatalog = getAllCondensedFromCatalog(query);
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         Session session = getSession();
         try {
             return getAllCondensed(query, session);
@@ -114,6 +133,10 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
 
     @Override
     public List<DatasetOutput<V>> getAllCondensed(DbQuery query, Session session) {
+        List<DatasetOutput<V>> fromCatalog = getAllCondensedFromCatalog(query);
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         List<DatasetOutput<V>> results = new ArrayList<>();
         // FilterResolver filterResolver = query.getFilterResolver();
         if (query.getParameters().isMatchDomainIds()) {
@@ -144,6 +167,23 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
         LOGGER.debug("Processing all condensed instances takes {} ms", System.currentTimeMillis() - start);
     }
 
+    private List<DatasetOutput<V>> getAllCondensedFromCatalog(DbQuery query) {
+        CatalogSnapshot snapshot = getCatalogSnapshot(query);
+        if (snapshot == null) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        List<DatasetOutput<V>> results = new ArrayList<>();
+        for (DatasetEntry dataset : snapshot.findDatasets(CatalogFilter.of(query))) {
+            if (dataRepositoryFactory.isKnown(dataset.getObservationType().name(), dataset.getValueType().name())) {
+                results.add(createCondensed(dataset, snapshot, query));
+            }
+        }
+        LOGGER.debug("Processing all condensed instances from catalog (version {}) takes {} ms",
+                snapshot.getVersion(), System.currentTimeMillis() - start);
+        return results;
+    }
+
     private DatasetDao<? extends DatasetEntity> getDatasetDao(Class<? extends DatasetEntity> clazz, Session session) {
         return new DatasetDao<>(session, clazz);
     }
@@ -206,18 +246,90 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
     private void addExpandedResults(DatasetDao<? extends DatasetEntity> dao, DbQuery query,
             List<DatasetOutput<V>> results, Session session) {
         long start = System.currentTimeMillis();
+        List<DatasetEntity> datasets = new ArrayList<>();
         for (DatasetEntity dataset : dao.getAllInstances(query)) {
             if (dataRepositoryFactory.isKnown(dataset.getObservationType().name(), dataset.getValueType().name())) {
-                try {
-                    results.add(createExpanded(dataset, query, session));
-                } catch (Exception e) {
-                    LOGGER.error("Error while processing dataset {}! Exception: {}", dataset.getId(), e);
-                }
+                datasets.add(dataset);
+            }
+        }
+        resolveFirstAndLastObservations(datasets, query, session);
+        for (DatasetEntity dataset : datasets) {
+            try {
+                results.add(createExpanded(dataset, query, session));
+            } catch (Exception e) {
+                LOGGER.error("Error while processing dataset {}! Exception: {}", dataset.getId(), e);
             }
         }
         LOGGER.debug("Processing all expanded instances takes {} ms", System.currentTimeMillis() - start);
     }
 
+    /**
+     * Resolves missing first and last observations of the given datasets (and their reference datasets) in
+     * bulk, so that creating the expanded output does not query each value separately. The datasets are
+     * marked read-only beforehand, so the resolved observations are never flushed back to the database.
+     *
+     * @param datasets
+     *        the datasets to expand
+     * @param query
+     *        the query
+     * @param session
+     *        the session
+     */
+    private void resolveFirstAndLastObservations(List<DatasetEntity> datasets, DbQuery query, Session session) {
+        if (datasets.size() < 2) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<Long, DatasetEntity> candidates = collectCandidates(datasets);
+        Map<Long, Date> firstTimestamps = getMissingTimestamps(candidates.values(), true);
+        Map<Long, Date> lastTimestamps = getMissingTimestamps(candidates.values(), false);
+        if (firstTimestamps.isEmpty() && lastTimestamps.isEmpty()) {
+            return;
+        }
+        for (DatasetEntity dataset : candidates.values()) {
+            if (session.contains(dataset)) {
+                session.setReadOnly(dataset, true);
+            }
+        }
+        DataDao<DataEntity<?>> dataDao = new DataDao<>(session);
+        if (!firstTimestamps.isEmpty()) {
+            dataDao.getDataValuesAt(firstTimestamps, DataEntity.PROPERTY_SAMPLING_TIME_START, query)
+                    .forEach((id, value) -> candidates.get(id).setFirstObservation(value));
+        }
+        if (!lastTimestamps.isEmpty()) {
+            dataDao.getDataValuesAt(lastTimestamps, DataEntity.PROPERTY_SAMPLING_TIME_END, query)
+                    .forEach((id, value) -> candidates.get(id).setLastObservation(value));
+        }
+        LOGGER.debug("Resolving first/last observations of {} datasets takes {} ms", candidates.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    static Map<Long, DatasetEntity> collectCandidates(List<DatasetEntity> datasets) {
+        Map<Long, DatasetEntity> candidates = new LinkedHashMap<>();
+        for (DatasetEntity dataset : datasets) {
+            candidates.put(dataset.getId(), dataset);
+            if (dataset.getReferenceValues() != null) {
+                dataset.getReferenceValues().stream().filter(Objects::nonNull).filter(DatasetEntity::isPublished)
+                        .forEach(rv -> candidates.putIfAbsent(rv.getId(), rv));
+            }
+        }
+        return candidates;
+    }
+
+    static Map<Long, Date> getMissingTimestamps(Collection<DatasetEntity> datasets, boolean first) {
+        Map<Long, Date> timestamps = new HashMap<>();
+        for (DatasetEntity dataset : datasets) {
+            if (first && dataset.getFirstObservation() == null && dataset.isSetFirstValueAt()
+                    && dataset.getFirstQuantityValue() == null) {
+                timestamps.put(dataset.getId(), dataset.getFirstValueAt());
+            } else if (!first && dataset.getLastObservation() == null && dataset.isSetLastValueAt()
+                    && dataset.getLastQuantityValue() == null) {
+                timestamps.put(dataset.getId(), dataset.getLastValueAt());
+            }
+        }
+        return timestamps;
+    }
+
     @Override
     public DatasetOutput<V> getInstance(String id, DbQuery query) {
         Session session = getSession();
@@ -234,6 +346,26 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
         return createExpanded(instanceEntity, query, session);
     }
 
+    @Override
+    public List<DatasetOutput<V>> getInstances(List<String> ids, DbQuery query) {
+        Session session = getSession();
+        try {
+            long start = System.currentTimeMillis();
+            DatasetDao<? extends DatasetEntity> dao = getDatasetDao(DatasetEntity.class, session);
+            List<DatasetEntity> found = new ArrayList<>(dao.getInstances(parseIds(ids), query));
+            List<DatasetEntity> datasets = orderAsRequested(ids, found);
+            resolveFirstAndLastObservations(found, query, session);
+            List<DatasetOutput<V>> results = new ArrayList<>(datasets.size());
+            for (DatasetEntity dataset : datasets) {
+                results.add(createExpanded(dataset, query, session));
+            }
+            LOGGER.debug("Processing {} instances takes {} ms", ids.size(), System.currentTimeMillis() - start);
+            return results;
+        } finally {
+            returnSession(session);
+        }
+    }
+
     DatasetEntity getInstanceEntity(String id, DbQuery query, Session session) {
         DatasetDao<? extends DatasetEntity> dao = getDatasetDao(DatasetEntity.class, session);
         DatasetEntity instance = dao.getInstance(Long.parseLong(id), query);
@@ -242,10 +374,16 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
 
     @Override
     public Collection<SearchResult> searchFor(IoParameters paramters) {
+        DbQuery query = getDbQuery(paramters);
+        CatalogSnapshot snapshot = query.getSearchTerm() != null
+                ? getCatalogSnapshot(query)
+                : null;
+        if (snapshot != null) {
+            return searchInCatalog(snapshot, query);
+        }
         Session session = getSession();
         try {
             DatasetDao<? extends DatasetEntity> dao = getDatasetDao(DatasetEntity.class, session);
-            DbQuery query = getDbQuery(paramters);
             List<? extends DatasetEntity> found = dao.find(query);
             return convertToSearchResults(found, query);
         } finally {
@@ -253,13 +391,26 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
         }
     }
 
-    public List<SearchResult> convertToSearchResults(List<? extends DescribableEntity> found, DbQuery query) {
+    private List<SearchResult> searchInCatalog(CatalogSnapshot snapshot, DbQuery query) {
+        long start = System.currentTimeMillis();
         String locale = query.getLocale();
+        String hrefBase = query.getHrefBase();
+        List<SearchResult> results = new ArrayList<>();
+        for (DatasetEntry dataset : snapshot.searchDatasets(query.getSearchTerm(), locale, CatalogFilter.of(query))) {
+            String id = dataset.getId().toString();
+            results.add(new DatasetSearchResult().setId(id).setLabel(dataset.getLabel(locale)).setBaseUrl(hrefBase));
+        }
+        LOGGER.debug("Searching in catalog (version {}) takes {} ms", snapshot.getVersion(),
+                System.currentTimeMillis() - start);
+        return results;
+    }
+
+    public List<SearchResult> convertToSearchResults(List<? extends DescribableEntity> found, DbQuery query) {
         String hrefBase = query.getHrefBase();
         List<SearchResult> results = new ArrayList<>();
         for (DescribableEntity searchResult : found) {
             String id = searchResult.getId().toString();
-            String label = searchResult.getLabelFrom(locale);
+            String label = query.getLabelFrom(searchResult);
             results.add(new DatasetSearchResult().setId(id).setLabel(label).setBaseUrl(hrefBase));
         }
         return results;
@@ -275,8 +426,12 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
         Long id = dataset.getId();
         String hrefBase = query.getHrefBase();
         String domainId = dataset.getIdentifier();
-        String uom = dataset.getUnitI18nName(query.getLocale());
-        String label = createDatasetLabel(dataset, query.getLocale());
+        String uom = query.isSelected(DatasetOutput.UOM)
+                ? dataset.getUnitI18nName(query.getLocale())
+                : null;
+        String label = query.isSelected(ParameterOutput.LABEL)
+                ? query.getDatasetLabelFrom(dataset).getDatasetLabel()
+                : null;
 
         result.setId(id.toString());
         result.setValue(DatasetOutput.UOM, uom, parameters, result::setUom);
@@ -289,7 +444,7 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
         result.setValue(DatasetOutput.VALUE_TYPE, dataset.getValueType().name(), parameters, result::setValueType);
         result.setValue(DatasetOutput.MOBILE, dataset.isMobile(), parameters, result::setMobile);
         result.setValue(DatasetOutput.INSITU, dataset.isInsitu(), parameters, result::setInsitu);
-        if (dataset.hasSamplingProfile()) {
+        if (query.isSelected(DatasetOutput.HAS_SAMPLINGS) && dataset.hasSamplingProfile()) {
             result.setValue(DatasetOutput.HAS_SAMPLINGS, dataset.getSamplingProfile().hasSamplings(), parameters,
                     result::setHasSamplings);
         }
@@ -304,18 +459,67 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
         result.setValue(DatasetOutput.SMAPLING_TIME_END,
                 createTimeOutput(dataset.getLastValueAt(), dataset.getOriginTimezone(), parameters), parameters,
                 result::setSamplingTimeEnd);
-        result.setValue(DatasetOutput.FEATURE, getCondensedFeature(dataset.getFeature(), query), parameters,
-                result::setFeature);
+        if (query.isSelected(DatasetOutput.FEATURE)) {
+            result.setValue(DatasetOutput.FEATURE, getCondensedFeature(dataset.getFeature(), query), parameters,
+                    result::setFeature);
+        }
+
+        return result;
+    }
+
+    protected DatasetOutput<V> createCondensed(DatasetEntry dataset, CatalogSnapshot snapshot, DbQuery query) {
+        IoParameters parameters = query.getParameters();
+        DatasetOutput<V> result = new DatasetOutput();
+
+        Long id = dataset.getId();
+        String hrefBase = query.getHrefBase();
+        String domainId = dataset.getDomainId();
+        String uom = dataset.getUom(query.getLocale());
+        String label = dataset.getCompositeLabel(query.getLocale()).getDatasetLabel();
+        String href = HrefHelper.constructHref(hrefBase, getCollectionName(dataset.getDatasetType())) + "/" + id;
+
+        result.setId(id.toString());
+        result.setValue(DatasetOutput.UOM, uom, parameters, result::setUom);
+        result.setValue(ParameterOutput.LABEL, label, parameters, result::setLabel);
+        result.setValue(ParameterOutput.DOMAIN_ID, domainId, parameters, result::setDomainId);
+        result.setValue(DatasetOutput.DATASET_TYPE, dataset.getDatasetType().name(), parameters,
+                result::setDatasetType);
+        result.setValue(DatasetOutput.OBSERVATION_TYPE, dataset.getObservationType().name(), parameters,
+                result::setObservationType);
+        result.setValue(DatasetOutput.VALUE_TYPE, dataset.getValueType().name(), parameters, result::setValueType);
+        result.setValue(DatasetOutput.MOBILE, dataset.isMobile(), parameters, result::setMobile);
+        result.setValue(DatasetOutput.INSITU, dataset.isInsitu(), parameters, result::setInsitu);
+        if (dataset.getHasSamplings() != null) {
+            result.setValue(DatasetOutput.HAS_SAMPLINGS, dataset.getHasSamplings(), parameters,
+                    result::setHasSamplings);
+        }
+        result.setValue(ParameterOutput.HREF, href, parameters, result::setHref);
+        result.setValue(DatasetOutput.ORIGIN_TIMEZONE,
+                dataset.isSetOriginTimezone() ? dataset.getOriginTimezone() : "UTC", parameters,
+                result::setOriginTimezone);
 
+        result.setValue(DatasetOutput.SMAPLING_TIME_START,
+                createTimeOutput(dataset.getFirstValueAt(), dataset.getOriginTimezone(), parameters), parameters,
+                result::setSamplingTimeStart);
+        result.setValue(DatasetOutput.SMAPLING_TIME_END,
+                createTimeOutput(dataset.getLastValueAt(), dataset.getOriginTimezone(), parameters), parameters,
+                result::setSamplingTimeEnd);
+        ParameterEntry feature = snapshot.getParameter(ParameterType.FEATURE,
+                dataset.getMember(ParameterType.FEATURE));
+        if (feature != null) {
+            result.setValue(DatasetOutput.FEATURE, getCondensedFeature(feature, query), parameters,
+                    result::setFeature);
+        }
         return result;
     }
 
     private String createHref(String hrefBase, DatasetEntity dataset) {
-        return HrefHelper.constructHref(hrefBase, getCollectionName(dataset)) + "/" + dataset.getId();
+        return HrefHelper.constructHref(hrefBase, getCollectionName(dataset.getDatasetType())) + "/"
+                + dataset.getId();
     }
 
-    private String getCollectionName(DatasetEntity dataset) {
-        switch (dataset.getDatasetType()) {
+    private String getCollectionName(DatasetType datasetType) {
+        switch (datasetType) {
             case individualObservation:
                 return IndividualObservationOutput.COLLECTION_PATH;
             case trajectory:
@@ -330,49 +534,64 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
     }
 
     protected DatasetOutput<V> createExpanded(DatasetEntity dataset, DbQuery query, Session session) {
-        IoParameters params = query.getParameters();
         DatasetOutput<V> result = createCondensed(dataset, query);
-
-        DatasetParameters datasetParams = createDatasetParameters(dataset, query.withoutFieldsFilter(), session);
-        datasetParams.setPlatform(getCondensedPlatform(dataset.getPlatform(), query));
         if (dataset.getService() == null) {
             dataset.setService(getServiceEntity());
         }
 
         DataRepository<DatasetEntity, ?, V, ?> dataRepository = getDataRepositoryFactory(dataset);
-        V firstValue = dataRepository.getFirstValue(dataset, session, query);
-        V lastValue = dataset.getFirstValueAt().equals(dataset.getLastValueAt()) ? firstValue
-                : dataRepository.getLastValue(dataset, session, query);
+        Supplier<V> firstValue = Suppliers.memoize(() -> dataRepository.getFirstValue(dataset, session, query));
+        Supplier<V> lastValue = () -> getLastValue(dataRepository, dataset, firstValue, query, session);
 
-        List<ReferenceValueOutput<V>> refValues = dataRepository.getReferenceValues(dataset, query, session);
-        lastValue = isReferenceSeries(dataset) && isCongruentValues(firstValue, lastValue)
-                // first == last to have a valid interval
-                ? firstValue
-                : lastValue;
-
-        result.setValue(DatasetOutput.REFERENCE_VALUES, refValues, params, result::setReferenceValues);
-        result.setValue(DatasetOutput.DATASET_PARAMETERS, datasetParams, params, result::setDatasetParameters);
-        result.setValue(DatasetOutput.FIRST_VALUE, firstValue, params, result::setFirstValue);
-        result.setValue(DatasetOutput.LAST_VALUE, lastValue, params, result::setLastValue);
+        setLazily(result, DatasetOutput.REFERENCE_VALUES,
+                () -> dataRepository.getReferenceValues(dataset, query, session), query,
+                result::setReferenceValues);
+        setLazily(result, DatasetOutput.DATASET_PARAMETERS, () -> createExpandedParameters(dataset, query, session),
+                query, result::setDatasetParameters);
+        setLazily(result, DatasetOutput.FIRST_VALUE, firstValue, query, result::setFirstValue);
+        setLazily(result, DatasetOutput.LAST_VALUE, lastValue, query, result::setLastValue);
 
         if (query.getParameters().containsParameter(Parameters.AGGREGATION)
                 && dataRepository instanceof AbstractDataRepository) {
-            Set<String> aggParams = query.getParameters().getAggregation();
-            AggregationOutput<V> aggregation = new AggregationOutput<>();
-            addCount(aggregation, aggParams, (AbstractDataRepository<DatasetEntity, ?, V, ?>) dataRepository, dataset,
-                    query, session);
-            if (checkNumerical(dataset) && dataRepository instanceof AbstractNumericalDataRepository) {
-                addAggregation(aggregation, aggParams, (AbstractNumericalDataRepository<?, V, ?>) dataRepository,
-                        dataset, query, session);
-            }
-            if (!aggregation.isEmpty()) {
-                result.setValue(DatasetOutput.AGGREGATION, aggregation, params, result::setAggregations);
-            }
+            setLazily(result, DatasetOutput.AGGREGATION, () -> createAggregation(dataRepository, dataset, query,
+                    session), query, result::setAggregations);
         }
 
         return result;
     }
 
+    private DatasetParameters createExpandedParameters(DatasetEntity dataset, DbQuery query, Session session) {
+        DatasetParameters datasetParams = createDatasetParameters(dataset, query.withoutFieldsFilter(), session);
+        datasetParams.setPlatform(getCondensedPlatform(dataset.getPlatform(), query));
+        return datasetParams;
+    }
+
+    private V getLastValue(DataRepository<DatasetEntity, ?, V, ?> dataRepository, DatasetEntity dataset,
+            Supplier<V> firstValue, DbQuery query, Session session) {
+        V lastValue = dataset.getFirstValueAt().equals(dataset.getLastValueAt())
+                ? firstValue.get()
+                : dataRepository.getLastValue(dataset, session, query);
+        return isReferenceSeries(dataset) && isCongruentValues(firstValue.get(), lastValue)
+                // first == last to have a valid interval
+                ? firstValue.get()
+                : lastValue;
+    }
+
+    private AggregationOutput<V> createAggregation(DataRepository<DatasetEntity, ?, V, ?> dataRepository,
+            DatasetEntity dataset, DbQuery query, Session session) {
+        Set<String> aggParams = query.getParameters().getAggregation();
+        AggregationOutput<V> aggregation = new AggregationOutput<>();
+        addCount(aggregation, aggParams, (AbstractDataRepository<DatasetEntity, ?, V, ?>) dataRepository, dataset,
+                query, session);
+        if (checkNumerical(dataset) && dataRepository instanceof AbstractNumericalDataRepository) {
+            addAggregation(aggregation, aggParams, (AbstractNumericalDataRepository<?, V, ?>) dataRepository,
+                    dataset, query, session);
+        }
+        return !aggregation.isEmpty()
+                ? aggregation
+                : null;
+    }
+
     private void addCount(AggregationOutput<V> aggregation, Set<String> params,
             AbstractDataRepository<DatasetEntity, ?, V, ?> dataRepository, DatasetEntity dataset, DbQuery query,
             Session session) {
@@ -412,22 +631,6 @@ public class DatasetRepository<V extends AbstractValue<?>> extends SessionAwareR
         return series.getProcedure().isReference();
     }
 
-    private String createDatasetLabel(DatasetEntity dataset, String locale) {
-        PhenomenonEntity phenomenon = dataset.getPhenomenon();
-        ProcedureEntity procedure = dataset.getProcedure();
-        OfferingEntity offering = dataset.getOffering();
-        AbstractFeatureEntity<?> feature = dataset.getFeature();
-
-        String procedureLabel = procedure.getLabelFrom(locale);
-        String phenomenonLabel = phenomenon.getLabelFrom(locale);
-        String offeringLabel = offering.getLabelFrom(locale);
-        String stationLabel = feature.getLabelFrom(locale);
-
-        StringBuilder sb = new StringBuilder();
-        return sb.append(phenomenonLabel).append(", ").append(procedureLabel).append(", ").append(stationLabel)
-                .append(", ").append(offeringLabel).toString();
-    }
-
     public DataRepositoryTypeFactory getDataRepositoryTypeFactory() {
         return dataRepositoryFactory;
     }
@@ -28,12 +28,36 @@
  */
 package org.n52.series.db.da;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import org.hibernate.Session;
+import org.n52.io.request.FilterResolver;
 import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.DataRepositoryTypeFactory;
 import org.n52.series.db.HibernateSessionStore;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.CountSketches;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.AbstractDao;
 import org.n52.series.db.dao.CategoryDao;
 import org.n52.series.db.dao.DatasetDao;
@@ -46,163 +70,588 @@ import org.n52.series.db.dao.PhenomenonDao;
 import org.n52.series.db.dao.PlatformDao;
 import org.n52.series.db.dao.ProcedureDao;
 import org.n52.series.db.dao.SamplingDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class EntityCounter {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityCounter.class);
+
+    private static final String DATASET_TYPES = "datasetTypes";
+
+    private static final String VALUE_TYPES = "valueTypes";
+
+    private static final String TIMESERIES = "timeseries";
+
+    private static final String INDIVIDUAL_OBSERVATION = "individualObservation";
+
+    private static final String TRAJECTORY = "trajectory";
+
+    private static final String PROFILE = "profile";
+
+    private static final List<ParameterType> MEMBERS = Arrays.asList(ParameterType.FEATURE,
+            ParameterType.OFFERING, ParameterType.PROCEDURE, ParameterType.PHENOMENON, ParameterType.CATEGORY,
+            ParameterType.PLATFORM);
+
+    private static final int MEMBERS_OFFSET = 3;
+
+    /**
+     * Query parameter to request exact counts even if approximate counting is enabled.
+     */
+    public static final String EXACT_COUNTS = "exactCounts";
+
     private final HibernateSessionStore sessionStore;
 
     private final DataRepositoryTypeFactory dataRepositoryFactory;
 
     private final DbQueryFactory dbQueryFactory;
 
+    private MetadataCatalog metadataCatalog;
+
+    private CountCache cache;
+
+    private long cacheTtlSeconds = 300;
+
+    private long cacheMaxEntries = 1000;
+
+    private final AtomicReference<CountSketches> sketches = new AtomicReference<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private boolean approximate;
+
+    private long sketchRefreshIntervalMinutes = 60;
+
     @Autowired
     public EntityCounter(HibernateSessionStore sesionStore, DataRepositoryTypeFactory dataRepositoryFactory,
             DbQueryFactory dbQueryFactory) {
         this.sessionStore = sesionStore;
         this.dataRepositoryFactory = dataRepositoryFactory;
         this.dbQueryFactory = dbQueryFactory;
+        this.cache = createCache();
     }
 
-    public Long countFeatures(DbQuery query) throws DataAccessException {
-        Session session = sessionStore.getSession();
-        try {
-            return getCount(new FeatureDao(session), query);
-        } finally {
-            sessionStore.returnSession(session);
+    public void init() {
+        if (approximate) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "count-sketches");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::refreshSketchesSafely, 0, sketchRefreshIntervalMinutes,
+                    TimeUnit.MINUTES);
         }
     }
 
-    public Long countOfferings(DbQuery query) throws DataAccessException {
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes all entity counts for the given filter at once. Counts are taken from the metadata catalog
+     * if available, otherwise from a single grouped query of the matching datasets. If approximate counting is
+     * enabled and the catalog is not available, counts are estimated unless exact counts are requested via
+     * {@link #EXACT_COUNTS}. Results are cached per normalized filter until they expire or the metadata
+     * catalog has changed.
+     *
+     * @param query
+     *        the query
+     * @return all entity counts
+     * @throws DataAccessException
+     *         if counting fails
+     */
+    public EntityCounts countAll(DbQuery query) throws DataAccessException {
+        boolean estimate = approximate && !query.getParameters().getAsBoolean(EXACT_COUNTS, false);
+        CatalogSnapshot snapshot = getCatalogSnapshot(query);
+        return cache.get(createCacheKey(query, estimate), getCatalogVersion(),
+                () -> computeCounts(query, snapshot, estimate));
+    }
+
+    /**
+     * Counts a single entity type. The count is taken from cached counts of all entities for the same filter
+     * (see {@link #countAll(DbQuery)}) if present, otherwise it is counted and cached on its own.
+     *
+     * @param query
+     *        the query
+     * @param entity
+     *        the name of the counted entity type
+     * @param fromCounts
+     *        gets the count from all entity counts
+     * @param counting
+     *        counts the entities within a session
+     * @return the count
+     */
+    private Long count(DbQuery query,
+                       String entity,
+                       Function<EntityCounts, Long> fromCounts,
+                       Function<Session, Long> counting) {
+        String key = createCacheKey(query, false);
+        long version = getCatalogVersion();
+        EntityCounts counts = cache.getIfPresent(key, version);
+        Long count = counts != null
+                ? fromCounts.apply(counts)
+                : null;
+        if (count != null) {
+            return count;
+        }
+        return cache.get(key != null ? key + ";count=" + entity : null, version, () -> {
+            Session session = sessionStore.getSession();
+            try {
+                return counting.apply(session);
+            } finally {
+                sessionStore.returnSession(session);
+            }
+        });
+    }
+
+    private EntityCounts computeCounts(DbQuery query, CatalogSnapshot snapshot, boolean estimate) {
+        long start = System.currentTimeMillis();
+        String source = "from catalog";
+        EntityCounts counts = null;
+        if (snapshot != null) {
+            counts = countFromCatalog(query, snapshot);
+        } else if (estimate) {
+            source = "by estimation";
+            counts = estimateCounts(query);
+        }
+        if (counts == null) {
+            source = "from database";
+            counts = countFromDatabase(query);
+        }
+        LOGGER.debug("Counting all entities {} takes {} ms", source, System.currentTimeMillis() - start);
+        return counts;
+    }
+
+    /**
+     * Estimates counts from the count sketches. Samplings and measuring programs are counted exactly.
+     *
+     * @return the estimated counts or <code>null</code> if the query cannot be estimated
+     */
+    private EntityCounts estimateCounts(DbQuery query) {
+        CountSketches current = sketches.get();
+        if (current == null || !CatalogFilter.isSupported(query)) {
+            return null;
+        }
+        CatalogFilter filter = CatalogFilter.forCounting(query);
         Session session = sessionStore.getSession();
         try {
-            return getCount(new OfferingDao(session), query);
+            EntityCounts counts = new EntityCounts();
+            counts.setFeatures(current.estimateParameters(ParameterType.FEATURE, filter));
+            counts.setOfferings(current.estimateParameters(ParameterType.OFFERING, filter));
+            counts.setProcedures(current.estimateParameters(ParameterType.PROCEDURE, filter));
+            counts.setPhenomena(current.estimateParameters(ParameterType.PHENOMENON, filter));
+            counts.setCategories(current.estimateParameters(ParameterType.CATEGORY, filter));
+            counts.setPlatforms(current.estimateParameters(ParameterType.PLATFORM, filter));
+            counts.setDatasets(countDatasetsInSketches(createDatasetsCountQuery(query), current));
+            counts.setSamplings(getCount(new SamplingDao(session), query));
+            counts.setMeasuringPrograms(getCount(new MeasuringProgramDao(session), query));
+            counts.setTimeseries(countDatasetsInSketches(createDatasetTypeQuery(query, TIMESERIES), current));
+            counts.setIndividualObservations(
+                    countDatasetsInSketches(createDatasetTypeQuery(query, INDIVIDUAL_OBSERVATION), current));
+            counts.setProfiles(countDatasetsInSketches(createDatasetTypeQuery(query, PROFILE), current));
+            counts.setTrajectories(countDatasetsInSketches(createDatasetTypeQuery(query, TRAJECTORY), current));
+            counts.setExact(false);
+            return counts;
         } finally {
             sessionStore.returnSession(session);
         }
     }
 
-    public Long countProcedures(DbQuery query) throws DataAccessException {
-        Session session = sessionStore.getSession();
+    private Long countDatasetsInSketches(DbQuery query, CountSketches current) {
+        return current.countDatasets(CatalogFilter.forCounting(query));
+    }
+
+    private void refreshSketchesSafely() {
         try {
-            return getCount(new ProcedureDao(session), query);
-        } finally {
-            sessionStore.returnSession(session);
+            refreshSketches();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not refresh count sketches.", e);
         }
     }
 
-    public Long countPhenomena(DbQuery query) throws DataAccessException {
+    /**
+     * Rebuilds the count sketches used for approximate counting. Skipped as long as the metadata catalog
+     * provides exact counts.
+     */
+    public void refreshSketches() {
+        if (metadataCatalog != null && metadataCatalog.isAvailable()) {
+            sketches.set(null);
+            return;
+        }
+        long start = System.currentTimeMillis();
         Session session = sessionStore.getSession();
         try {
-            return getCount(new PhenomenonDao(session), query);
+            sketches.set(CountSketches.create(new DatasetDao<>(session, DatasetEntity.class)));
+            LOGGER.debug("Building count sketches takes {} ms", System.currentTimeMillis() - start);
         } finally {
             sessionStore.returnSession(session);
         }
     }
 
-    public Long countCategories(DbQuery query) throws DataAccessException {
+    private EntityCounts countFromCatalog(DbQuery query, CatalogSnapshot snapshot) {
+        CatalogFilter filter = CatalogFilter.forCounting(query);
+        EntityCounts counts = new EntityCounts();
+        counts.setFeatures((long) snapshot.countParameters(ParameterType.FEATURE, filter));
+        counts.setOfferings((long) snapshot.countParameters(ParameterType.OFFERING, filter));
+        counts.setProcedures((long) snapshot.countParameters(ParameterType.PROCEDURE, filter));
+        counts.setPhenomena((long) snapshot.countParameters(ParameterType.PHENOMENON, filter));
+        counts.setCategories((long) snapshot.countParameters(ParameterType.CATEGORY, filter));
+        counts.setPlatforms((long) snapshot.countParameters(ParameterType.PLATFORM, filter));
+        counts.setDatasets(countDatasetsInCatalog(createDatasetsCountQuery(query), snapshot));
+        counts.setTimeseries(countDatasetsInCatalog(createDatasetTypeQuery(query, TIMESERIES), snapshot));
+        counts.setIndividualObservations(
+                countDatasetsInCatalog(createDatasetTypeQuery(query, INDIVIDUAL_OBSERVATION), snapshot));
+        counts.setProfiles(countDatasetsInCatalog(createDatasetTypeQuery(query, PROFILE), snapshot));
+        counts.setTrajectories(countDatasetsInCatalog(createDatasetTypeQuery(query, TRAJECTORY), snapshot));
+
+        // samplings and measuring programs are not held by the catalog
         Session session = sessionStore.getSession();
         try {
-            return getCount(new CategoryDao(session), query);
+            counts.setSamplings(getCount(new SamplingDao(session), query));
+            counts.setMeasuringPrograms(getCount(new MeasuringProgramDao(session), query));
         } finally {
             sessionStore.returnSession(session);
         }
+        return counts;
     }
 
-    public Long countPlatforms(DbQuery query) throws DataAccessException {
+    private Long countDatasetsInCatalog(DbQuery query, CatalogSnapshot snapshot) {
+        return (long) snapshot.countDatasets(CatalogFilter.forCounting(query));
+    }
+
+    /**
+     * Counts all parameter entities and datasets by a single query grouping the matching datasets by their
+     * types and members, see {@link DatasetDao#getGroupedCounts(DbQuery, List)}. Dataset and value type filters
+     * differ between the counts and are applied to the groups. Samplings and measuring programs are no
+     * members of a dataset and are counted on their own.
+     */
+    private EntityCounts countFromDatabase(DbQuery query) {
         Session session = sessionStore.getSession();
         try {
-            return getCount(new PlatformDao(session), query);
+            DatasetDao<DatasetEntity> datasetDao = new DatasetDao<>(session, DatasetEntity.class);
+            List<String> members = MEMBERS.stream().map(ParameterType::getMemberProperty).collect(Collectors.toList());
+            List<Object[]> groups = datasetDao.getGroupedCounts(query.removeAllOf(DATASET_TYPES, VALUE_TYPES),
+                    members);
+            EntityCounts counts = countGroups(groups, new GroupFilter(query),
+                    new GroupFilter(createDatasetsCountQuery(query)),
+                    new GroupFilter(createDatasetTypeQuery(query, TIMESERIES, INDIVIDUAL_OBSERVATION, TRAJECTORY,
+                            PROFILE)));
+            counts.setSamplings(getCount(new SamplingDao(session), query));
+            counts.setMeasuringPrograms(getCount(new MeasuringProgramDao(session), query));
+            return counts;
         } finally {
             sessionStore.returnSession(session);
         }
     }
 
-    public Long countDatasets(DbQuery query) throws DataAccessException {
-        Session session = sessionStore.getSession();
-        try {
-            IoParameters parameters = query.getParameters();
-            if (parameters.getValueTypes().isEmpty()) {
-                parameters = parameters.extendWith("valueTypes",
-                        dataRepositoryFactory.getKnownTypes().toArray(new String[0]));
-                return getCount(new DatasetDao<>(session, DatasetEntity.class), dbQueryFactory.createFrom(parameters));
+    /**
+     * @param groups
+     *        dataset type, value type, reference flag, member ids (see {@link #MEMBERS}) and count of each group
+     * @param parameters
+     *        filters the groups referring the counted parameter entities
+     * @param datasets
+     *        filters the groups of counted datasets
+     * @param datasetTypes
+     *        filters the groups of datasets counted per dataset type
+     * @return the counts
+     */
+    static EntityCounts countGroups(List<Object[]> groups, GroupFilter parameters, GroupFilter datasets,
+            GroupFilter datasetTypes) {
+        Map<ParameterType, Set<Long>> ids = new EnumMap<>(ParameterType.class);
+        MEMBERS.forEach(type -> ids.put(type, new HashSet<>()));
+        Map<String, Long> byType = new HashMap<>();
+        long datasetCount = 0;
+        for (Object[] group : groups) {
+            long count = ((Number) group[group.length - 1]).longValue();
+            if (parameters.test(group, false)) {
+                for (int i = 0; i < MEMBERS.size(); i++) {
+                    Object id = group[MEMBERS_OFFSET + i];
+                    if (id != null) {
+                        ids.get(MEMBERS.get(i)).add(((Number) id).longValue());
+                    }
+                }
+            }
+            if (datasets.test(group, true)) {
+                datasetCount += count;
+            }
+            if (datasetTypes.test(group, true) && group[0] != null) {
+                byType.merge(((Enum<?>) group[0]).name(), count, Long::sum);
             }
-            return getCount(new DatasetDao<>(session, DatasetEntity.class), query);
-        } finally {
-            sessionStore.returnSession(session);
         }
+        EntityCounts counts = new EntityCounts();
+        counts.setFeatures((long) ids.get(ParameterType.FEATURE).size());
+        counts.setOfferings((long) ids.get(ParameterType.OFFERING).size());
+        counts.setProcedures((long) ids.get(ParameterType.PROCEDURE).size());
+        counts.setPhenomena((long) ids.get(ParameterType.PHENOMENON).size());
+        counts.setCategories((long) ids.get(ParameterType.CATEGORY).size());
+        counts.setPlatforms((long) ids.get(ParameterType.PLATFORM).size());
+        counts.setDatasets(datasetCount);
+        counts.setTimeseries(byType.getOrDefault(TIMESERIES, 0L));
+        counts.setIndividualObservations(byType.getOrDefault(INDIVIDUAL_OBSERVATION, 0L));
+        counts.setProfiles(byType.getOrDefault(PROFILE, 0L));
+        counts.setTrajectories(byType.getOrDefault(TRAJECTORY, 0L));
+        return counts;
     }
 
-    public Long countSamplings(DbQuery query) throws DataAccessException {
-        Session session = sessionStore.getSession();
-        try {
-            return getCount(new SamplingDao(session), query);
-        } finally {
-            sessionStore.returnSession(session);
+    public Long countFeatures(DbQuery query) throws DataAccessException {
+        return count(query, "features", EntityCounts::getFeatures,
+                session -> getCount(new FeatureDao(session), query));
+    }
+
+    public Long countOfferings(DbQuery query) throws DataAccessException {
+        return count(query, "offerings", EntityCounts::getOfferings,
+                session -> getCount(new OfferingDao(session), query));
+    }
+
+    public Long countProcedures(DbQuery query) throws DataAccessException {
+        return count(query, "procedures", EntityCounts::getProcedures,
+                session -> getCount(new ProcedureDao(session), query));
+    }
+
+    public Long countPhenomena(DbQuery query) throws DataAccessException {
+        return count(query, "phenomena", EntityCounts::getPhenomena,
+                session -> getCount(new PhenomenonDao(session), query));
+    }
+
+    public Long countCategories(DbQuery query) throws DataAccessException {
+        return count(query, "categories", EntityCounts::getCategories,
+                session -> getCount(new CategoryDao(session), query));
+    }
+
+    public Long countPlatforms(DbQuery query) throws DataAccessException {
+        return count(query, "platforms", EntityCounts::getPlatforms,
+                session -> getCount(new PlatformDao(session), query));
+    }
+
+    public Long countDatasets(DbQuery query) throws DataAccessException {
+        return count(query, "datasets", EntityCounts::getDatasets, session -> getCount(
+                new DatasetDao<>(session, DatasetEntity.class), createDatasetsCountQuery(query)));
+    }
+
+    private DbQuery createDatasetsCountQuery(DbQuery query) {
+        IoParameters parameters = query.getParameters();
+        if (parameters.getValueTypes().isEmpty()) {
+            parameters = parameters.extendWith(VALUE_TYPES,
+                    dataRepositoryFactory.getKnownTypes().toArray(new String[0]));
+            return dbQueryFactory.createFrom(parameters);
         }
+        return query;
+    }
+
+    private DbQuery createDatasetTypeQuery(DbQuery query, String... datasetTypes) {
+        return dbQueryFactory.createFrom(query.getParameters().replaceWith(DATASET_TYPES, datasetTypes));
+    }
+
+    public Long countSamplings(DbQuery query) throws DataAccessException {
+        return count(query, "samplings", EntityCounts::getSamplings,
+                session -> getCount(new SamplingDao(session), query));
     }
 
     public Long countMeasuringPrograms(DbQuery query) throws DataAccessException {
-        Session session = sessionStore.getSession();
-        try {
-            return getCount(new MeasuringProgramDao(session), query);
-        } finally {
-            sessionStore.returnSession(session);
-        }
+        return count(query, "measuringPrograms", EntityCounts::getMeasuringPrograms,
+                session -> getCount(new MeasuringProgramDao(session), query));
     }
 
     public Long countStations() throws DataAccessException {
-        Session session = sessionStore.getSession();
-        try {
-            DbQuery query = createBackwardsCompatibleQuery();
-            return countFeatures(query);
-        } finally {
-            sessionStore.returnSession(session);
-        }
+        return countFeatures(createBackwardsCompatibleQuery());
     }
 
     @Deprecated
     public Long countTimeseries() throws DataAccessException {
-        Session session = sessionStore.getSession();
-        try {
-            DbQuery query = createBackwardsCompatibleQuery();
-            return countDatasets(query);
-        } finally {
-            sessionStore.returnSession(session);
-        }
+        return countDatasets(createBackwardsCompatibleQuery());
     }
 
     public Long countTimeseries(DbQuery query) throws DataAccessException {
-        return countDataset(query, "timeseries");
+        return countDataset(query, TIMESERIES, EntityCounts::getTimeseries);
     }
 
     public Long countIndividualObservations(DbQuery query) throws DataAccessException {
-        return countDataset(query, "individualObservation");
+        return countDataset(query, INDIVIDUAL_OBSERVATION, EntityCounts::getIndividualObservations);
     }
 
     public Long countTrajectories(DbQuery query) throws DataAccessException {
-        return countDataset(query, "trajectory");
+        return countDataset(query, TRAJECTORY, EntityCounts::getTrajectories);
     }
 
     public Long countProfiles(DbQuery query) throws DataAccessException {
-        return countDataset(query, "profile");
+        return countDataset(query, PROFILE, EntityCounts::getProfiles);
     }
 
-    private Long countDataset(DbQuery query, String datasetType) throws DataAccessException {
-        Session session = sessionStore.getSession();
-        try {
-            IoParameters parameters = query.getParameters();
-            parameters = parameters.replaceWith("datasetTypes", datasetType);
-            return getCount(new DatasetDao<>(session, DatasetEntity.class), dbQueryFactory.createFrom(parameters));
-        } finally {
-            sessionStore.returnSession(session);
-        }
+    private Long countDataset(DbQuery query, String datasetType, Function<EntityCounts, Long> fromCounts)
+            throws DataAccessException {
+        return count(query, datasetType, fromCounts, session -> getCount(
+                new DatasetDao<>(session, DatasetEntity.class), createDatasetTypeQuery(query, datasetType)));
     }
 
     public Long getCount(AbstractDao<?> dao, DbQuery query) throws DataAccessException {
         return dao.getCount(query);
     }
 
+    private CatalogSnapshot getCatalogSnapshot(DbQuery query) {
+        CatalogSnapshot snapshot = metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        return snapshot != null && CatalogFilter.isSupported(query)
+                ? snapshot
+                : null;
+    }
+
+    private long getCatalogVersion() {
+        CatalogSnapshot snapshot = metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        return snapshot != null
+                ? snapshot.getVersion()
+                : -1L;
+    }
+
+    /**
+     * Creates a key of all parameters affecting counts. Spatial, last value and OData filters are not
+     * cached at all.
+     *
+     * @param query
+     *        the query
+     * @param estimate
+     *        if counts may be estimated
+     * @return the cache key or <code>null</code> if counts of the given query shall not be cached
+     */
+    String createCacheKey(DbQuery query, boolean estimate) {
+        IoParameters parameters = query.getParameters();
+        if (cacheTtlSeconds <= 0
+                || parameters.getSpatialFilter() != null
+                || parameters.getLastValueMatches() != null
+                || parameters.getODataFilter().isPresent()) {
+            return null;
+        }
+        FilterResolver filterResolver = parameters.getFilterResolver();
+        StringBuilder key = new StringBuilder();
+        key.append("estimate=").append(estimate)
+           .append(";bc=").append(parameters.shallBehaveBackwardsCompatible())
+           .append(";allTypes=").append(filterResolver.shallIncludeAllDatasetTypes())
+           .append(";allDatasets=").append(filterResolver.shallIncludeAllDatasets())
+           .append(";mobile=").append(filterResolver.hasMobileFilter() ? filterResolver.isMobileFilter() : null)
+           .append(";insitu=").append(filterResolver.hasInsituFilter() ? filterResolver.isInsituFilter() : null)
+           .append(";services=").append(parameters.getAsString(Parameters.SERVICES))
+           .append(";domainIds=").append(query.isMatchDomainIds())
+           .append(";hierarchy=").append(query.isIncludeHierarchy())
+           .append(";level=").append(query.getLevel())
+           .append(";timespan=").append(parameters.getAsString(Parameters.TIMESPAN));
+        appendSorted(key, "datasetTypes", parameters.getDatasetTypes());
+        appendSorted(key, "observationTypes", parameters.getObservationTypes());
+        appendSorted(key, "valueTypes", parameters.getValueTypes());
+        appendSorted(key, "datasets", parameters.getDatasets());
+        appendSorted(key, "features", parameters.getFeatures());
+        appendSorted(key, "procedures", parameters.getProcedures());
+        appendSorted(key, "offerings", parameters.getOfferings());
+        appendSorted(key, "phenomena", parameters.getPhenomena());
+        appendSorted(key, "categories", parameters.getCategories());
+        appendSorted(key, "platforms", parameters.getPlatforms());
+        appendSorted(key, "samplings", parameters.getSamplings());
+        appendSorted(key, "measuringPrograms", parameters.getMeasuringPrograms());
+        return key.toString();
+    }
+
+    private void appendSorted(StringBuilder key, String name, Set<String> values) {
+        key.append(';').append(name).append('=');
+        if (values != null) {
+            key.append(new TreeSet<>(values));
+        }
+    }
+
+    /**
+     * Filters groups of datasets by their types like {@link org.n52.series.db.dao.AbstractDao} filters
+     * datasets.
+     */
+    static final class GroupFilter {
+
+        private final Set<String> datasetTypes;
+
+        private final Set<String> valueTypes;
+
+        private final boolean ignoreReferenceDatasets;
+
+        GroupFilter(DbQuery query) {
+            IoParameters parameters = query.getParameters();
+            boolean filterTypes = parameters.shallBehaveBackwardsCompatible()
+                    || !parameters.getFilterResolver().shallIncludeAllDatasetTypes();
+            this.datasetTypes = filterTypes
+                    ? lowerCase(parameters.getDatasetTypes())
+                    : Collections.emptySet();
+            this.valueTypes = filterTypes
+                    ? lowerCase(parameters.getValueTypes())
+                    : Collections.emptySet();
+            Set<String> datasets = parameters.getDatasets();
+            this.ignoreReferenceDatasets = datasets == null || datasets.isEmpty();
+        }
+
+        /**
+         * @param group
+         *        dataset type, value type and reference flag of the group
+         * @param skipReferenceDatasets
+         *        if reference datasets shall be skipped unless datasets are filtered by id
+         * @return <code>true</code> if the group matches
+         */
+        boolean test(Object[] group, boolean skipReferenceDatasets) {
+            return matches(datasetTypes, group[0])
+                    && matches(valueTypes, group[1])
+                    && !(skipReferenceDatasets && ignoreReferenceDatasets && Boolean.TRUE.equals(group[2]));
+        }
+
+        private static boolean matches(Set<String> types, Object type) {
+            return types.isEmpty()
+                    || type != null && types.contains(((Enum<?>) type).name().toLowerCase(Locale.ROOT));
+        }
+
+        private static Set<String> lowerCase(Set<String> values) {
+            return values == null
+                    ? Collections.emptySet()
+                    : values.stream().map(v -> v.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        }
+    }
+
+    private CountCache createCache() {
+        return new CountCache(cacheTtlSeconds, cacheMaxEntries);
+    }
+
+    /**
+     * @param metadataCatalog
+     *        the catalog to count from (optional)
+     */
+    @Autowired(required = false)
+    public void setMetadataCatalog(MetadataCatalog metadataCatalog) {
+        this.metadataCatalog = metadataCatalog;
+    }
+
+    /**
+     * @param cacheTtlSeconds
+     *        the time to keep counts, <code>0</code> disables caching
+     */
+    public void setCacheTtlSeconds(long cacheTtlSeconds) {
+        this.cacheTtlSeconds = cacheTtlSeconds;
+        this.cache = createCache();
+    }
+
+    public void setCacheMaxEntries(long cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+        this.cache = createCache();
+    }
+
+    /**
+     * @param approximate
+     *        <code>true</code> to estimate counts if the metadata catalog is not available, e.g. because it is
+     *        disabled for very large installations
+     */
+    public void setApproximate(boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    public void setSketchRefreshIntervalMinutes(long sketchRefreshIntervalMinutes) {
+        this.sketchRefreshIntervalMinutes = Math.max(1, sketchRefreshIntervalMinutes);
+    }
+
     private DbQuery createBackwardsCompatibleQuery() {
         IoParameters parameters = IoParameters.createDefaults();
         // parameters = parameters.extendWith(Parameters.FILTER_PLATFORM_TYPES,
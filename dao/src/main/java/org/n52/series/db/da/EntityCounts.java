@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+/**
+ * All entity counts of a certain filter, as computed by {@link EntityCounter#countAll(org.n52.series.db.dao.DbQuery)}.
+ */
+public class EntityCounts {
+
+    private Long features;
+
+    private Long offerings;
+
+    private Long procedures;
+
+    private Long phenomena;
+
+    private Long categories;
+
+    private Long platforms;
+
+    private Long datasets;
+
+    private Long timeseries;
+
+    private Long individualObservations;
+
+    private Long profiles;
+
+    private Long trajectories;
+
+    private Long samplings;
+
+    private Long measuringPrograms;
+
+    private boolean exact = true;
+
+    public Long getFeatures() {
+        return features;
+    }
+
+    public void setFeatures(Long features) {
+        this.features = features;
+    }
+
+    public Long getOfferings() {
+        return offerings;
+    }
+
+    public void setOfferings(Long offerings) {
+        this.offerings = offerings;
+    }
+
+    public Long getProcedures() {
+        return procedures;
+    }
+
+    public void setProcedures(Long procedures) {
+        this.procedures = procedures;
+    }
+
+    public Long getPhenomena() {
+        return phenomena;
+    }
+
+    public void setPhenomena(Long phenomena) {
+        this.phenomena = phenomena;
+    }
+
+    public Long getCategories() {
+        return categories;
+    }
+
+    public void setCategories(Long categories) {
+        this.categories = categories;
+    }
+
+    public Long getPlatforms() {
+        return platforms;
+    }
+
+    public void setPlatforms(Long platforms) {
+        this.platforms = platforms;
+    }
+
+    public Long getDatasets() {
+        return datasets;
+    }
+
+    public void setDatasets(Long datasets) {
+        this.datasets = datasets;
+    }
+
+    public Long getTimeseries() {
+        return timeseries;
+    }
+
+    public void setTimeseries(Long timeseries) {
+        this.timeseries = timeseries;
+    }
+
+    public Long getIndividualObservations() {
+        return individualObservations;
+    }
+
+    public void setIndividualObservations(Long individualObservations) {
+        this.individualObservations = individualObservations;
+    }
+
+    public Long getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(Long profiles) {
+        this.profiles = profiles;
+    }
+
+    public Long getTrajectories() {
+        return trajectories;
+    }
+
+    public void setTrajectories(Long trajectories) {
+        this.trajectories = trajectories;
+    }
+
+    public Long getSamplings() {
+        return samplings;
+    }
+
+    public void setSamplings(Long samplings) {
+        this.samplings = samplings;
+    }
+
+    public Long getMeasuringPrograms() {
+        return measuringPrograms;
+    }
+
+    public void setMeasuringPrograms(Long measuringPrograms) {
+        this.measuringPrograms = measuringPrograms;
+    }
+
+    /**
+     * @return <code>false</code> if some counts are estimated (see {@link EntityCounter#setApproximate(boolean)})
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    public void setExact(boolean exact) {
+        this.exact = exact;
+    }
+
+}
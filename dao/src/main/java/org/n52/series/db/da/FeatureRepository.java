@@ -33,6 +33,8 @@ import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
 import org.n52.io.response.FeatureOutput;
 import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.catalog.ParameterEntry;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.FeatureDao;
 import org.n52.series.db.dao.SearchableDao;
@@ -46,6 +48,17 @@ public class FeatureRepository extends HierarchicalParameterRepository<FeatureEn
         return new FeatureOutput();
     }
 
+    @Override
+    protected ParameterType getCatalogType() {
+        return ParameterType.FEATURE;
+    }
+
+    @Override
+    protected boolean isCatalogSupported(ParameterType type, DbQuery query) {
+        // filtering by own type includes all children of the filtered entities
+        return type.getFilterValues(query.getParameters()).isEmpty();
+    }
+
     @Override
     protected SearchResult createEmptySearchResult(String id, String label, String baseUrl) {
         return new FeatureSearchResult().setId(id).setLabel(label).setBaseUrl(baseUrl);
@@ -66,6 +79,11 @@ public class FeatureRepository extends HierarchicalParameterRepository<FeatureEn
         return getCondensedFeature(entity, query);
     }
 
+    @Override
+    protected FeatureOutput createCondensed(ParameterEntry entry, DbQuery query) {
+        return getCondensedFeature(entry, query);
+    }
+
     @Override
     protected FeatureOutput createExpanded(FeatureEntity entity, DbQuery query, Session session) {
         return getMapperFactory().getFeatureMapper().createExpanded(entity, query, false, false, query.getLevel(),
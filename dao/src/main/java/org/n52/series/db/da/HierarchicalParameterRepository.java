@@ -28,52 +28,10 @@
  */
 package org.n52.series.db.da;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-
-import org.hibernate.Session;
 import org.n52.io.response.AbstractOutput;
-import org.n52.series.db.DataAccessException;
 import org.n52.series.db.beans.HierarchicalEntity;
-import org.n52.series.db.dao.DbQuery;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public abstract class HierarchicalParameterRepository<E extends HierarchicalEntity<E>, O extends AbstractOutput>
         extends ParameterRepository<E, O> implements OutputAssembler<O> {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(HierarchicalParameterRepository.class);
-
-    @Override
-    protected List<O> createExpanded(Collection<E> entities, DbQuery query, Session session)
-            throws DataAccessException {
-        if (entities != null) {
-            long start = System.currentTimeMillis();
-            LOGGER.debug("Expandend entities raw: " + entities.size());
-            List<O> result = entities.parallelStream().map(e -> createExpanded(e, query, session))
-                    .filter(Objects::nonNull).collect(Collectors.toList());
-            LOGGER.debug("Expandend entities processed: " + result.size());
-            LOGGER.debug("Processing all expanded instances takes {} ms", System.currentTimeMillis() - start);
-            return result;
-        }
-        return new ArrayList<>();
-    }
-
-    @Override
-    protected List<O> createCondensed(Collection<E> entities, DbQuery query, Session session) {
-        long start = System.currentTimeMillis();
-        if (entities != null) {
-            LOGGER.debug("Condensed entities raw: " + entities.size());
-            List<O> result = entities.parallelStream().map(entity -> createCondensed(entity, query, session))
-                    .filter(Objects::nonNull).collect(Collectors.toList());
-            LOGGER.debug("Condensed entities processed: " + result.size());
-            LOGGER.debug("Processing all condensed instances takes {} ms", System.currentTimeMillis() - start);
-            return result;
-        }
-        return new ArrayList<>();
-    }
-
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+/**
+ * The latest value of a dataset: its time, its scalar value (a number, text or boolean, <code>null</code>
+ * for no-data or non-scalar values) and its unit of measurement.
+ */
+public final class LatestValue {
+
+    private final String datasetId;
+
+    private final long timestamp;
+
+    private final Object value;
+
+    private final String uom;
+
+    public LatestValue(String datasetId, long timestamp, Object value, String uom) {
+        this.datasetId = datasetId;
+        this.timestamp = timestamp;
+        this.value = value;
+        this.uom = uom;
+    }
+
+    public String getDatasetId() {
+        return datasetId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public String getUom() {
+        return uom;
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.hibernate.Session;
+import org.n52.series.db.DataAccessException;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.ServiceEntity;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.dao.DataDao;
+import org.n52.series.db.dao.DatasetDao;
+import org.n52.series.db.dao.DbQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the latest values of all datasets matching a filter without assembling dataset outputs. Only the
+ * ids of the matching datasets are queried up front, the datasets are loaded chunk by chunk. Values are
+ * taken from the datasets' <code>lastQuantityValue</code> where available, the last observations of all
+ * other datasets are fetched by one set-based query per chunk. Values are handed out chunk by chunk, so
+ * callers can stream them. Values which have been added after given times are resolved the
+ * same way, e.g. to feed change subscriptions.
+ */
+public class LatestValueRepository extends SessionAwareRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatestValueRepository.class);
+
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * @param query
+     *        the dataset filter
+     * @param consumer
+     *        consumes the latest values in ascending order of the matching datasets' ids, datasets without
+     *        values are skipped
+     * @throws DataAccessException
+     *         if accessing the database fails
+     */
+    public void getLatestValues(DbQuery query, Consumer<LatestValue> consumer) throws DataAccessException {
+        Session session = getSession();
+        try {
+            long start = System.currentTimeMillis();
+            DatasetDao<DatasetEntity> datasetDao = new DatasetDao<>(session);
+            DataDao<DataEntity<?>> dataDao = new DataDao<>(session);
+            List<Long> ids = datasetDao.getAllIds(query);
+            for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+                List<DatasetEntity> chunk = new ArrayList<>(
+                        datasetDao.getInstances(ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size())), query));
+                chunk.sort(Comparator.comparing(DatasetEntity::getId));
+                Map<Long, Date> unknown = new HashMap<>();
+                for (DatasetEntity dataset : chunk) {
+                    if (dataset.isSetLastValueAt() && dataset.getLastQuantityValue() == null) {
+                        unknown.put(dataset.getId(), dataset.getLastValueAt());
+                    }
+                }
+                Map<Long, DataEntity<?>> observations = unknown.isEmpty()
+                        ? Collections.emptyMap()
+                        : dataDao.getDataValuesAt(unknown, DataEntity.PROPERTY_SAMPLING_TIME_END, query);
+                for (DatasetEntity dataset : chunk) {
+                    if (dataset.isSetLastValueAt()) {
+                        Object value = unknown.containsKey(dataset.getId())
+                                ? getValue(observations.get(dataset.getId()), dataset)
+                                : getLastQuantityValue(dataset, getServiceEntity(dataset));
+                        consumer.accept(new LatestValue(Long.toString(dataset.getId()),
+                                dataset.getLastValueAt().getTime(), value,
+                                dataset.getUnitI18nName(query.getLocale())));
+                    }
+                }
+                // written chunks are not needed anymore
+                session.clear();
+            }
+            LOGGER.debug("Resolving latest values of {} datasets takes {} ms", ids.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    /**
+     * Resolves the values datasets got after given times. The datasets' current <code>lastValueAt</code>
+     * are read in bulk, the new observations of all datasets which have advanced are fetched by one query
+     * per chunk of datasets, restricted to each dataset's own range of new values.
+     * <p>
+     * At most <code>maxValues</code> values are resolved, the earliest first. If the limit is reached, the
+     * returned times of the affected datasets stay before the values left out, so passing them as
+     * <code>since</code> to the next call resolves the remaining values.
+     *
+     * @param since
+     *        the times after which values of a dataset are new by dataset id, <code>null</code> to only read
+     *        the dataset's current <code>lastValueAt</code>
+     * @param query
+     *        the query
+     * @param maxValues
+     *        the maximum number of values to resolve
+     * @param consumer
+     *        consumes the new values ordered by dataset and time
+     * @return the times up to which values have been resolved by dataset id, i.e. the current
+     *         <code>lastValueAt</code> unless the limit has been reached, datasets not found or without values
+     *         are missing
+     * @throws DataAccessException
+     *         if accessing the database fails
+     */
+    public Map<Long, Date> getValuesAfter(Map<Long, Date> since, DbQuery query, int maxValues,
+            Consumer<LatestValue> consumer) throws DataAccessException {
+        Session session = getSession();
+        try {
+            int remaining = maxValues;
+            Map<Long, Date> lastValues = new HashMap<>();
+            List<Long> ids = new ArrayList<>(since.keySet());
+            DatasetDao<DatasetEntity> datasetDao = new DatasetDao<>(session);
+            DataDao<DataEntity<?>> dataDao = new DataDao<>(session);
+            for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+                Map<Long, DatasetEntity> datasets = new HashMap<>();
+                Map<Long, Date> chunkLastValues = new HashMap<>();
+                for (DatasetEntity dataset : datasetDao.getInstances(chunk, query)) {
+                    if (dataset.isSetLastValueAt()) {
+                        datasets.put(dataset.getId(), dataset);
+                        chunkLastValues.put(dataset.getId(), dataset.getLastValueAt());
+                    }
+                }
+                Map<Long, Date> advanced = getAdvanced(since, chunkLastValues);
+                if (!advanced.isEmpty() && remaining <= 0) {
+                    // left for the next call
+                    chunkLastValues.putAll(advanced);
+                } else if (!advanced.isEmpty()) {
+                    List<DataEntity<?>> observations =
+                            dataDao.getAllInstancesWithin(advanced, chunkLastValues, query, remaining);
+                    if (observations.size() >= remaining) {
+                        Date complete = limitToCompleteTimes(observations);
+                        advanced.keySet()
+                                .stream()
+                                .filter(id -> chunkLastValues.get(id).after(complete))
+                                .forEach(id -> chunkLastValues.put(id, complete));
+                        LOGGER.debug("Resolving values after {} is left for the next call.", complete);
+                    }
+                    remaining -= observations.size();
+                    observations.sort(Comparator.comparing((DataEntity<?> o) -> o.getDatasetId())
+                                                .thenComparing(DataEntity::getSamplingTimeEnd));
+                    for (DataEntity<?> observation : observations) {
+                        DatasetEntity dataset = datasets.get(observation.getDatasetId());
+                        consumer.accept(new LatestValue(Long.toString(dataset.getId()),
+                                observation.getSamplingTimeEnd().getTime(), getValue(observation, dataset),
+                                dataset.getUnitI18nName(query.getLocale())));
+                    }
+                }
+                lastValues.putAll(chunkLastValues);
+            }
+            return lastValues;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    /**
+     * Drops the observations of the latest time of a limited result, as further observations of that time
+     * may have been left out.
+     *
+     * @param observations
+     *        the observations ordered by time, limited to a maximum number
+     * @return the time up to which the remaining observations are complete
+     */
+    static Date limitToCompleteTimes(List<DataEntity<?>> observations) {
+        Date last = observations.get(observations.size() - 1).getSamplingTimeEnd();
+        if (observations.get(0).getSamplingTimeEnd().equals(last)) {
+            // all of the same time, consumed anyway to make progress
+            return last;
+        }
+        observations.removeIf(observation -> observation.getSamplingTimeEnd().equals(last));
+        return new Date(last.getTime() - 1);
+    }
+
+    /**
+     * @param since
+     *        the times after which values are new by dataset id, <code>null</code> if not yet known
+     * @param lastValues
+     *        the current <code>lastValueAt</code> by dataset id
+     * @return the times after which the new values of each dataset start, only of datasets which have
+     *         advanced since
+     */
+    static Map<Long, Date> getAdvanced(Map<Long, Date> since, Map<Long, Date> lastValues) {
+        Map<Long, Date> advanced = new HashMap<>();
+        lastValues.forEach((id, lastValueAt) -> {
+            Date after = since.get(id);
+            if (after != null && lastValueAt.after(after)) {
+                advanced.put(id, after);
+            }
+        });
+        return advanced;
+    }
+
+    /**
+     * @param dataset
+     *        a dataset with a <code>lastQuantityValue</code>
+     * @param service
+     *        the service defining the no data values
+     * @return the formatted value or <code>null</code> if it is a no data value
+     */
+    Object getLastQuantityValue(DatasetEntity dataset, ServiceEntity service) {
+        BigDecimal value = dataset.getLastQuantityValue();
+        QuantityDataEntity observation = new QuantityDataEntity();
+        observation.setValue(value);
+        if (service.isNoDataValue(observation)) {
+            return null;
+        }
+        return ValueType.count.equals(dataset.getValueType())
+                ? (Object) value.intValue()
+                : format(value, dataset);
+    }
+
+    private Object getValue(DataEntity<?> observation, DatasetEntity dataset) {
+        if (observation == null || getServiceEntity(dataset).isNoDataValue(observation)) {
+            return null;
+        }
+        Object value = observation.getValue();
+        if (value instanceof BigDecimal) {
+            return format((BigDecimal) value, dataset);
+        }
+        return value instanceof Number || value instanceof String || value instanceof Boolean
+                ? value
+                : null;
+    }
+
+    private BigDecimal format(BigDecimal value, DatasetEntity dataset) {
+        Integer scale = dataset.getNumberOfDecimals();
+        return scale != null
+                ? value.setScale(scale, RoundingMode.HALF_UP)
+                : value;
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.n52.io.response.ParameterOutput;
+import org.n52.series.db.DataAccessException;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.dao.BatchInitializer;
+import org.n52.series.db.dao.DbQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps entities to outputs in two phases:
+ * <ol>
+ * <li>the associations the output needs are initialized on the calling (request) thread which owns the
+ * Hibernate session,</li>
+ * <li>the then detached entities are mapped in parallel on a dedicated executor.</li>
+ * </ol>
+ * Mapping functions must therefore not use the session. Small collections, calls from a mapping thread
+ * (nested mappings) and a disabled or not initialized pipeline map sequentially on the calling thread.
+ * <p>
+ * The {@link Metrics} of the last mapping are kept per calling thread, see {@link #getLastMetrics()}.
+ */
+public class MappingPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappingPipeline.class);
+
+    private static final ThreadLocal<Boolean> MAPPING_THREAD = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static final ThreadLocal<Metrics> LAST_METRICS = new ThreadLocal<>();
+
+    private static final MappingPipeline SEQUENTIAL = new MappingPipeline();
+
+    private ExecutorService executor;
+
+    private boolean enabled = true;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int parallelThreshold = 100;
+
+    public void init() {
+        if (!enabled) {
+            LOGGER.info("Parallel output mapping is disabled.");
+            return;
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(() -> {
+                MAPPING_THREAD.set(Boolean.TRUE);
+                r.run();
+            }, "output-mapping-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param entities
+     *        the entities to map
+     * @param prefetch
+     *        initializes what the mapping needs, called on the calling thread
+     * @param mapping
+     *        maps a single entity, must not use the session
+     * @return the non-<code>null</code> outputs in the order of the given entities
+     */
+    public <E, O> List<O> map(Collection<E> entities, Consumer<Collection<E>> prefetch, Function<E, O> mapping) {
+        if (entities == null || entities.isEmpty()) {
+            LAST_METRICS.set(new Metrics(0, 0, 1, 0, 0));
+            return new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        prefetch.accept(entities);
+        long prefetched = System.currentTimeMillis();
+        boolean parallel = isParallel(entities.size());
+        List<O> result = parallel
+                ? mapParallel(new ArrayList<>(entities), mapping)
+                : mapSequential(entities, mapping);
+        long end = System.currentTimeMillis();
+        Metrics metrics = new Metrics(entities.size(), result.size(), parallel ? threads : 1, prefetched - start,
+                end - prefetched);
+        LAST_METRICS.set(metrics);
+        LOGGER.debug("Mapping {}", metrics);
+        return result;
+    }
+
+    /**
+     * @return a shared pipeline which is never initialized and therefore maps on the calling thread
+     */
+    public static MappingPipeline sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * @return the metrics of the last mapping done on the current thread, or <code>null</code> if the current
+     *         thread did not map yet
+     */
+    public static Metrics getLastMetrics() {
+        return LAST_METRICS.get();
+    }
+
+    /**
+     * Initializes the translations of entities whose labels are requested but not resolved in memory, in bulk
+     * by {@link BatchInitializer} if a session is given.
+     *
+     * @param entities
+     *        the entities
+     * @param query
+     *        the query
+     * @param session
+     *        the session the entities belong to, if <code>null</code> translations are initialized one by one
+     */
+    public static void initializeTranslations(Collection<? extends DescribableEntity> entities, DbQuery query,
+            Session session) {
+        if (!query.isSelected(ParameterOutput.LABEL)) {
+            return;
+        }
+        List<DescribableEntity> pending = entities.stream()
+                                                  .filter(Objects::nonNull)
+                                                  .filter(entity -> !query.isLabelResolvedInMemory(entity))
+                                                  .collect(Collectors.toList());
+        if (session != null) {
+            BatchInitializer.initializeTranslations(session, pending);
+        } else {
+            pending.forEach(entity -> Hibernate.initialize(entity.getTranslations()));
+        }
+    }
+
+    private boolean isParallel(int size) {
+        return executor != null && threads > 1 && size >= parallelThreshold && !MAPPING_THREAD.get();
+    }
+
+    private <E, O> List<O> mapSequential(Collection<E> entities, Function<E, O> mapping) {
+        return entities.stream().map(mapping).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private <E, O> List<O> mapParallel(List<E> entities, Function<E, O> mapping) {
+        int chunkSize = (entities.size() + threads - 1) / threads;
+        List<Future<List<O>>> chunks = new ArrayList<>();
+        for (int from = 0; from < entities.size(); from += chunkSize) {
+            List<E> chunk = entities.subList(from, Math.min(from + chunkSize, entities.size()));
+            Callable<List<O>> task = () -> mapSequential(chunk, mapping);
+            chunks.add(executor.submit(task));
+        }
+        List<O> result = new ArrayList<>(entities.size());
+        try {
+            for (Future<List<O>> chunk : chunks) {
+                result.addAll(chunk.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while mapping outputs.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessException("Could not map outputs.", e.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(true));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads > 0
+                ? threads
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+    }
+
+    /**
+     * Metrics of a single mapping.
+     */
+    public static final class Metrics {
+
+        private final int entities;
+
+        private final int outputs;
+
+        private final int threads;
+
+        private final long prefetchMillis;
+
+        private final long mappingMillis;
+
+        Metrics(int entities, int outputs, int threads, long prefetchMillis, long mappingMillis) {
+            this.entities = entities;
+            this.outputs = outputs;
+            this.threads = threads;
+            this.prefetchMillis = prefetchMillis;
+            this.mappingMillis = mappingMillis;
+        }
+
+        /**
+         * @return the number of entities to map
+         */
+        public int getEntities() {
+            return entities;
+        }
+
+        /**
+         * @return the number of non-<code>null</code> outputs
+         */
+        public int getOutputs() {
+            return outputs;
+        }
+
+        /**
+         * @return the number of threads mapping, <code>1</code> if mapped on the calling thread
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * @return the time spent initializing associations
+         */
+        public long getPrefetchMillis() {
+            return prefetchMillis;
+        }
+
+        /**
+         * @return the time spent mapping
+         */
+        public long getMappingMillis() {
+            return mappingMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d entities to %d outputs on %d thread(s) takes %d ms, prefetching %d ms",
+                    entities, outputs, threads, mappingMillis, prefetchMillis);
+        }
+
+    }
+
+}
@@ -28,6 +28,8 @@
  */
 package org.n52.series.db.da;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -44,7 +46,9 @@ import org.n52.io.response.sampling.MeasuringProgramOutput;
 import org.n52.io.response.sampling.ProducerOutput;
 import org.n52.io.response.sampling.SamplingOutput;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.FeatureEntity;
 import org.n52.series.db.beans.sampling.MeasuringProgramEntity;
+import org.n52.series.db.dao.BatchInitializer;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.MeasuringProgramDao;
 import org.n52.series.db.dao.SearchableDao;
@@ -74,6 +78,22 @@ public class MeasuringProgramRepository extends ParameterRepository<MeasuringPro
         return new MeasuringProgramDao(session);
     }
 
+    @Override
+    protected void prefetchCondensed(Collection<MeasuringProgramEntity> measuringPrograms, DbQuery query,
+            Session session) {
+        super.prefetchCondensed(measuringPrograms, query, session);
+        List<FeatureEntity> features = new ArrayList<>();
+        for (MeasuringProgramEntity measuringProgram : measuringPrograms) {
+            if (measuringProgram.hasDatasets()) {
+                for (DatasetEntity dataset : measuringProgram.getDatasets()) {
+                    features.add(dataset.getFeature());
+                }
+            }
+        }
+        // loads the feature proxies together with their translations
+        BatchInitializer.initializeTranslations(session, features);
+    }
+
     @Override
     protected MeasuringProgramOutput createCondensed(MeasuringProgramEntity measuringProgram, DbQuery query,
             Session session) {
@@ -31,6 +31,7 @@ package org.n52.series.db.da;
 import org.hibernate.Session;
 import org.n52.io.response.OfferingOutput;
 import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.OfferingDao;
 import org.n52.series.db.dao.SearchableDao;
@@ -44,6 +45,11 @@ public class OfferingRepository extends HierarchicalParameterRepository<Offering
         return new OfferingOutput();
     }
 
+    @Override
+    protected ParameterType getCatalogType() {
+        return ParameterType.OFFERING;
+    }
+
     @Override
     protected SearchResult createEmptySearchResult(String id, String label, String baseUrl) {
         return new OfferingSearchResult().setId(id).setLabel(label).setBaseUrl(baseUrl);
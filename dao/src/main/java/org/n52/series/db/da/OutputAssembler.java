@@ -28,6 +28,7 @@
  */
 package org.n52.series.db.da;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -51,6 +52,26 @@ public interface OutputAssembler<T> {
 
     T getInstance(String id, DbQuery parameters, Session session) throws DataAccessException;
 
+    /**
+     * Gets the instances of the given ids. Assemblers which can load all instances at once override this
+     * default, which gets each instance separately.
+     *
+     * @param ids
+     *        the ids of the instances
+     * @param parameters
+     *        the query
+     * @return the instances in the order of the given ids
+     * @throws DataAccessException
+     *         if accessing the data fails
+     */
+    default List<T> getInstances(List<String> ids, DbQuery parameters) throws DataAccessException {
+        List<T> results = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            results.add(getInstance(id, parameters));
+        }
+        return results;
+    }
+
     Collection<SearchResult> searchFor(IoParameters parameters);
 
     boolean exists(String id, DbQuery query) throws DataAccessException;
@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.hibernate.Session;
@@ -39,6 +40,10 @@ import org.n52.io.request.IoParameters;
 import org.n52.io.response.ParameterOutput;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.ParameterEntry;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.AbstractDao;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.SearchableDao;
@@ -62,6 +67,13 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
 
     @Override
     public boolean exists(String id, DbQuery query) {
+        ParameterType type = getCatalogType();
+        Boolean fromCatalog = type != null && isCatalogSupported(type, query)
+                ? existsInCatalog(type, id, query)
+                : null;
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         Session session = getSession();
         try {
             return createDao(session).hasInstance(id, query);
@@ -70,8 +82,20 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
         }
     }
 
+    /**
+     * @return the type of parameter held by the metadata catalog or <code>null</code> if this repository
+     *         can not be served from the catalog
+     */
+    protected ParameterType getCatalogType() {
+        return null;
+    }
+
     @Override
     public List<O> getAllCondensed(DbQuery query) {
+        List<O> fromCatalog = getAllCondensedFromCatalog(query);
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         Session session = getSession();
         try {
             return getAllCondensed(query, session);
@@ -82,6 +106,10 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
 
     @Override
     public List<O> getAllCondensed(DbQuery query, Session session) {
+        List<O> fromCatalog = getAllCondensedFromCatalog(query);
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         List<E> allInstances = getAllInstances(query, session);
         long start = System.currentTimeMillis();
         try {
@@ -92,18 +120,81 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
     }
 
     protected List<O> createCondensed(Collection<E> allInstances, DbQuery query, Session session) {
-        List<O> result = allInstances.parallelStream().map(entity -> createCondensed(entity, query, session))
-                .filter(Objects::nonNull).collect(Collectors.toList());
+        // mapping threads must not share the request's session, so they get none at all
+        return getMappingPipeline().map(allInstances,
+                                        entities -> prefetchCondensed(entities, query, session),
+                                        entity -> createCondensed(entity, query, null));
+    }
+
+    /**
+     * Initializes every association {@link #createCondensed(DescribableEntity, DbQuery, Session)} touches, as
+     * condensed outputs are mapped in parallel without a session. Overriding repositories have to initialize
+     * the associations their condensed mapping adds.
+     *
+     * @param entities
+     *        the entities to be mapped
+     * @param query
+     *        the query
+     * @param session
+     *        the session the entities belong to
+     */
+    protected void prefetchCondensed(Collection<E> entities, DbQuery query, Session session) {
+        MappingPipeline.initializeTranslations(entities, query, session);
+    }
+
+    private List<O> getAllCondensedFromCatalog(DbQuery query) {
+        ParameterType type = getCatalogType();
+        CatalogSnapshot snapshot = type != null
+                ? getCatalogSnapshot(query)
+                : null;
+        if (snapshot == null || !isCatalogSupported(type, query)) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        List<O> result = snapshot.findParameters(type, CatalogFilter.of(query)).stream()
+                .map(entry -> createCondensed(entry, query)).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        LOGGER.debug("Processing allCondensed from catalog (version {}) takes: {}", snapshot.getVersion(),
+                System.currentTimeMillis() - start);
         return result;
     }
 
+    /**
+     * Allows subclasses to exclude queries from being served by the metadata catalog.
+     *
+     * @param type
+     *        the catalog type of this repository
+     * @param query
+     *        the query
+     * @return if the catalog can serve the query
+     */
+    protected boolean isCatalogSupported(ParameterType type, DbQuery query) {
+        return true;
+    }
+
+    protected O createCondensed(ParameterEntry entry, DbQuery query) {
+        return createCondensed(prepareEmptyParameterOutput(), entry, query);
+    }
+
+    /**
+     * @param entity
+     *        the entity to map
+     * @param query
+     *        the query
+     * @param session
+     *        the session, <code>null</code> when mapped by the {@link MappingPipeline}, so implementations must
+     *        only use what {@link #prefetchCondensed(Collection, DbQuery, Session)} has initialized
+     * @return the condensed output or <code>null</code> if mapping fails
+     */
     protected O createCondensed(E entity, DbQuery query, Session session) {
         try {
             O result = prepareEmptyParameterOutput();
             IoParameters parameters = query.getParameters();
 
             Long id = entity.getId();
-            String label = entity.getLabelFrom(query.getLocale());
+            String label = query.isSelected(ParameterOutput.LABEL)
+                    ? query.getLabelFrom(entity)
+                    : null;
             String domainId = entity.getIdentifier();
             String hrefBase = query.getHrefBase();
 
@@ -144,8 +235,12 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
 
     protected List<O> createExpanded(Collection<E> allInstances, DbQuery query, Session session)
             throws DataAccessException {
+        if (allInstances == null) {
+            return new ArrayList<>();
+        }
+        // expanded outputs query related data within the session, so map them on the session's thread
         LOGGER.debug("Entities: " + allInstances.size());
-        List<O> result = allInstances.parallelStream().map(e -> createExpanded(e, query, session))
+        List<O> result = allInstances.stream().map(e -> createExpanded(e, query, session))
                 .filter(Objects::nonNull).collect(Collectors.toList());
         LOGGER.debug("Ouput: " + result.size());
         return result;
@@ -178,6 +273,23 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
         return createExpanded(entity, query, session);
     }
 
+    @Override
+    public List<O> getInstances(List<String> ids, DbQuery query) {
+        Session session = getSession();
+        try {
+            long start = System.currentTimeMillis();
+            List<E> entities = orderAsRequested(ids, getEntities(parseIds(ids), createDao(session), query));
+            LOGGER.debug("Querying {} instances takes {} ms", ids.size(), System.currentTimeMillis() - start);
+            return createExpanded(entities, query, session);
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    protected List<E> getEntities(Set<Long> ids, AbstractDao<E> dao, DbQuery query) {
+        return dao.getInstances(ids, query);
+    }
+
     protected E getInstance(Long id, DbQuery query, Session session) {
         AbstractDao<E> dao = createDao(session);
         return getEntity(id, dao, query);
@@ -193,10 +305,14 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
 
     @Override
     public Collection<SearchResult> searchFor(IoParameters parameters) {
+        DbQuery query = getDbQuery(parameters);
+        List<SearchResult> fromCatalog = searchInCatalog(query);
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         Session session = getSession();
         try {
             SearchableDao<E> dao = createSearchableDao(session);
-            DbQuery query = getDbQuery(parameters);
             List<E> found = dao.find(query);
             return convertToSearchResults(found, query);
         } finally {
@@ -204,12 +320,32 @@ public abstract class ParameterRepository<E extends DescribableEntity, O extends
         }
     }
 
-    protected List<SearchResult> convertToSearchResults(List<E> found, DbQuery query) {
+    private List<SearchResult> searchInCatalog(DbQuery query) {
+        ParameterType type = getCatalogType();
+        CatalogSnapshot snapshot = type != null && query.getSearchTerm() != null
+                ? getCatalogSnapshot(query)
+                : null;
+        if (snapshot == null || !isCatalogSupported(type, query)) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
         String locale = query.getLocale();
+        String hrefBase = query.getHrefBase();
+        List<SearchResult> results = new ArrayList<>();
+        for (ParameterEntry entry : snapshot.searchParameters(type, query.getSearchTerm(), locale,
+                CatalogFilter.of(query))) {
+            results.add(createEmptySearchResult(Long.toString(entry.getId()), entry.getLabel(locale), hrefBase));
+        }
+        LOGGER.debug("Searching in catalog (version {}) takes {} ms", snapshot.getVersion(),
+                System.currentTimeMillis() - start);
+        return results;
+    }
+
+    protected List<SearchResult> convertToSearchResults(List<E> found, DbQuery query) {
         String hrefBase = query.getHrefBase();
         List<SearchResult> results = new ArrayList<>();
         for (DescribableEntity searchResult : found) {
-            String label = searchResult.getLabelFrom(locale);
+            String label = query.getLabelFrom(searchResult);
             String id = Long.toString(searchResult.getId());
             results.add(createEmptySearchResult(id, label, hrefBase));
         }
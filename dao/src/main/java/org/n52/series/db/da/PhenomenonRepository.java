@@ -31,6 +31,7 @@ package org.n52.series.db.da;
 import org.hibernate.Session;
 import org.n52.io.response.PhenomenonOutput;
 import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.AbstractDao;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.PhenomenonDao;
@@ -45,6 +46,11 @@ public class PhenomenonRepository extends HierarchicalParameterRepository<Phenom
         return new PhenomenonOutput();
     }
 
+    @Override
+    protected ParameterType getCatalogType() {
+        return ParameterType.PHENOMENON;
+    }
+
     @Override
     protected SearchResult createEmptySearchResult(String id, String label, String baseUrl) {
         return new PhenomenonSearchResult().setId(id).setLabel(label).setBaseUrl(baseUrl);
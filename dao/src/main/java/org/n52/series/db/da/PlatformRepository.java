@@ -38,6 +38,7 @@ import org.n52.io.response.PlatformOutput;
 import org.n52.io.response.dataset.AbstractValue;
 import org.n52.series.db.DataRepositoryTypeFactory;
 import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.PlatformDao;
 import org.n52.series.db.dao.SearchableDao;
@@ -63,6 +64,11 @@ public class PlatformRepository extends ParameterRepository<PlatformEntity, Plat
         return new PlatformOutput();
     }
 
+    @Override
+    protected ParameterType getCatalogType() {
+        return ParameterType.PLATFORM;
+    }
+
     @Override
     protected SearchResult createEmptySearchResult(String id, String label, String baseUrl) {
         return new PlatformSearchResult().setId(id).setLabel(label).setBaseUrl(baseUrl);
@@ -31,6 +31,7 @@ package org.n52.series.db.da;
 import org.hibernate.Session;
 import org.n52.io.response.ProcedureOutput;
 import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.ProcedureDao;
 import org.n52.series.db.dao.SearchableDao;
@@ -44,6 +45,17 @@ public class ProcedureRepository extends HierarchicalParameterRepository<Procedu
         return new ProcedureOutput();
     }
 
+    @Override
+    protected ParameterType getCatalogType() {
+        return ParameterType.PROCEDURE;
+    }
+
+    @Override
+    protected boolean isCatalogSupported(ParameterType type, DbQuery query) {
+        // filtering by own type includes all children of the filtered entities
+        return type.getFilterValues(query.getParameters()).isEmpty();
+    }
+
     @Override
     protected SearchResult createEmptySearchResult(String id, String label, String baseUrl) {
         return new ProcedureSearchResult().setId(id).setLabel(label).setBaseUrl(baseUrl);
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.block.BlockCodec;
+import org.n52.series.db.block.DataBlock;
+
+/**
+ * Holds instantaneous quantity observations without detection limit in {@link DataBlock}s. Decoded
+ * observations carry what condensed data outputs need: times, result time and value.
+ */
+final class QuantityBlockCodec implements BlockCodec<QuantityDataEntity> {
+
+    private final DatasetEntity dataset;
+
+    QuantityBlockCodec(DatasetEntity dataset) {
+        this.dataset = dataset;
+    }
+
+    @Override
+    public boolean isEncodable(QuantityDataEntity observation) {
+        Date start = observation.getSamplingTimeStart();
+        Date end = observation.getSamplingTimeEnd();
+        return start != null
+                && end != null
+                && start.getTime() == end.getTime()
+                && !observation.hasDetectionLimit()
+                && DataBlock.isEncodable(observation.getValue());
+    }
+
+    @Override
+    public long getTimestamp(QuantityDataEntity observation) {
+        return observation.getSamplingTimeEnd().getTime();
+    }
+
+    @Override
+    public DataBlock encode(long start, List<QuantityDataEntity> observations, long firstValueAt,
+            long changeMarker) {
+        int size = observations.size();
+        long[] timestamps = new long[size];
+        long[] resultTimes = new long[size];
+        long[] unscaledValues = new long[size];
+        int[] scales = new int[size];
+        for (int i = 0; i < size; i++) {
+            QuantityDataEntity observation = observations.get(i);
+            BigDecimal value = observation.getValue();
+            timestamps[i] = getTimestamp(observation);
+            resultTimes[i] = observation.getResultTime() != null
+                    ? observation.getResultTime().getTime()
+                    : DataBlock.NO_TIME;
+            unscaledValues[i] = value != null
+                    ? value.unscaledValue().longValue()
+                    : 0L;
+            scales[i] = value != null
+                    ? value.scale()
+                    : DataBlock.NO_VALUE;
+        }
+        return new DataBlock(start, timestamps, resultTimes, unscaledValues, scales, firstValueAt,
+                changeMarker);
+    }
+
+    @Override
+    public QuantityDataEntity decode(DataBlock block, int index) {
+        Date time = new Date(block.getTimestamp(index));
+        QuantityDataEntity observation = new QuantityDataEntity();
+        observation.setDataset(dataset);
+        observation.setSamplingTimeStart(time);
+        observation.setSamplingTimeEnd(time);
+        observation.setValue(block.getValue(index));
+        if (block.getResultTime(index) != DataBlock.NO_TIME) {
+            observation.setResultTime(new Date(block.getResultTime(index)));
+        }
+        return observation;
+    }
+
+}
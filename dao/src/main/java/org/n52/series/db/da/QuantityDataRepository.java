@@ -61,6 +61,7 @@ import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.beans.QuantityDataEntity;
 import org.n52.series.db.beans.ServiceEntity;
 import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.block.BlockCodec;
 import org.n52.series.db.dao.DataDao;
 import org.n52.series.db.dao.DbQuery;
 import org.slf4j.Logger;
@@ -300,7 +301,15 @@ public class QuantityDataRepository
     protected Data<QuantityValue> assembleData(Long dataset, DbQuery query, Session session) {
         // TODO: How to handle observations with detection limit? Currentl, null
         // is returned a filtered
-        return assembleData(createDataDao(session).getAllInstancesFor(dataset, query), query);
+        List<QuantityDataEntity> observations = getCachedObservations(dataset, query, session);
+        return assembleData(observations != null
+                ? observations
+                : createDataDao(session).getAllInstancesFor(dataset, query), query);
+    }
+
+    @Override
+    protected BlockCodec<QuantityDataEntity> createBlockCodec(DatasetEntity dataset) {
+        return new QuantityBlockCodec(dataset);
     }
 
     private Data<QuantityValue> assembleData(List<QuantityDataEntity> list, DbQuery query) {
@@ -28,6 +28,8 @@
  */
 package org.n52.series.db.da;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -49,6 +51,7 @@ import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.sampling.MeasuringProgramEntity;
 import org.n52.series.db.beans.sampling.SamplingEntity;
 import org.n52.series.db.dao.AbstractDao;
+import org.n52.series.db.dao.BatchInitializer;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.SamplingDao;
 import org.n52.series.db.dao.SearchableDao;
@@ -82,6 +85,17 @@ public class SamplingRepository extends ParameterRepository<SamplingEntity, Samp
         return new SamplingDao(session);
     }
 
+    @Override
+    protected void prefetchCondensed(Collection<SamplingEntity> samplings, DbQuery query, Session session) {
+        super.prefetchCondensed(samplings, query, session);
+        List<MeasuringProgramEntity> measuringPrograms = new ArrayList<>();
+        for (SamplingEntity sampling : samplings) {
+            measuringPrograms.add(sampling.getMeasuringProgram());
+        }
+        // loads the measuring program proxies together with their translations
+        BatchInitializer.initializeTranslations(session, measuringPrograms);
+    }
+
     @Override
     protected SamplingOutput createCondensed(SamplingEntity sampling, DbQuery query, Session session) {
         IoParameters parameters = query.getParameters();
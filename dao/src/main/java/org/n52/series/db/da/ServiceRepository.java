@@ -28,9 +28,12 @@
  */
 package org.n52.series.db.da;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.Session;
 import org.n52.io.request.IoParameters;
@@ -116,6 +119,17 @@ public class ServiceRepository extends ParameterRepository<ServiceEntity, Servic
         return result;
     }
 
+    @Override
+    protected List<ServiceEntity> getEntities(Set<Long> ids, AbstractDao<ServiceEntity> dao, DbQuery query) {
+        Set<Long> stored = new HashSet<>(ids);
+        List<ServiceEntity> result = new ArrayList<>();
+        if (getServiceEntity() != null && stored.remove(getServiceEntity().getId())) {
+            result.add(getServiceEntity());
+        }
+        result.addAll(dao.getInstances(stored, query));
+        return result;
+    }
+
     @Override
     protected ServiceOutput createExpanded(ServiceEntity entity, DbQuery query, Session session) {
         return getMapperFactory().getServiceMapper().createExpanded(entity, query, session);
@@ -29,8 +29,18 @@
 package org.n52.series.db.da;
 
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.hibernate.Session;
 import org.joda.time.DateTime;
@@ -40,6 +50,7 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.PrecisionModel;
 import org.n52.io.crs.CRSUtils;
 import org.n52.io.request.IoParameters;
+import org.n52.io.response.AbstractOutput;
 import org.n52.io.response.CategoryOutput;
 import org.n52.io.response.FeatureOutput;
 import org.n52.io.response.OfferingOutput;
@@ -50,6 +61,7 @@ import org.n52.io.response.ProcedureOutput;
 import org.n52.io.response.ServiceOutput;
 import org.n52.io.response.TimeOutput;
 import org.n52.io.response.dataset.DatasetParameters;
+import org.n52.io.response.dataset.StationOutput;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.HibernateSessionStore;
 import org.n52.series.db.ServiceEntityFactory;
@@ -64,6 +76,12 @@ import org.n52.series.db.beans.PhenomenonEntity;
 import org.n52.series.db.beans.PlatformEntity;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.beans.ServiceEntity;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.ExistenceIndex;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.db.catalog.ParameterEntry;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.da.mapper.MapperFactory;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.DbQueryFactory;
@@ -95,6 +113,12 @@ public abstract class SessionAwareRepository {
     @Autowired
     private HibernateSessionStore sessionStore;
 
+    @Autowired(required = false)
+    private MetadataCatalog metadataCatalog;
+
+    @Autowired(required = false)
+    private MappingPipeline mappingPipeline;
+
     public DbQueryFactory getDbQueryFactory() {
         return dbQueryFactory != null ? dbQueryFactory : new DefaultDbQueryFactory();
     }
@@ -123,6 +147,112 @@ public abstract class SessionAwareRepository {
         return mapperFactory;
     }
 
+    public MetadataCatalog getMetadataCatalog() {
+        return metadataCatalog;
+    }
+
+    public void setMetadataCatalog(MetadataCatalog metadataCatalog) {
+        this.metadataCatalog = metadataCatalog;
+    }
+
+    /**
+     * @return the configured pipeline or a sequential one if none is configured
+     */
+    protected MappingPipeline getMappingPipeline() {
+        return mappingPipeline != null
+                ? mappingPipeline
+                : MappingPipeline.sequential();
+    }
+
+    public void setMappingPipeline(MappingPipeline mappingPipeline) {
+        this.mappingPipeline = mappingPipeline;
+    }
+
+    /**
+     * @param query
+     *        the query to answer
+     * @return the current catalog snapshot if the query can be answered from it, <code>null</code> otherwise
+     */
+    protected CatalogSnapshot getCatalogSnapshot(DbQuery query) {
+        CatalogSnapshot snapshot = metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        return snapshot != null && snapshot.supportsLocale(query.getLocale()) && CatalogFilter.isSupported(query)
+                ? snapshot
+                : null;
+    }
+
+    /**
+     * Answers an existence check from the id index of the metadata catalog. Ids known to the catalog and
+     * matching the query's filters exist. While the catalog is {@link MetadataCatalog#isCurrent() current},
+     * ids covered by the index but unknown or not matching do not exist, so such negative lookups never reach
+     * the database. Domain ids, ids inserted after the snapshot was taken and lookups against an outdated
+     * catalog have to be checked in the database.
+     *
+     * @param type
+     *        the parameter type
+     * @param id
+     *        the requested id
+     * @param query
+     *        the query
+     * @return if the instance exists or <code>null</code> if the database has to be asked
+     */
+    protected Boolean existsInCatalog(ParameterType type, String id, DbQuery query) {
+        CatalogSnapshot snapshot = getExistenceSnapshot();
+        return snapshot != null
+                ? existsIn(snapshot.getParameterExistence(type), id, query,
+                        (key, filter) -> snapshot.matchesParameter(type, key, filter), metadataCatalog.isCurrent())
+                : null;
+    }
+
+    /**
+     * Like {@link #existsInCatalog(ParameterType, String, DbQuery)} but for datasets.
+     *
+     * @param id
+     *        the requested id
+     * @param query
+     *        the query
+     * @return if the dataset exists or <code>null</code> if the database has to be asked
+     */
+    protected Boolean datasetExistsInCatalog(String id, DbQuery query) {
+        CatalogSnapshot snapshot = getExistenceSnapshot();
+        return snapshot != null
+                ? existsIn(snapshot.getDatasetExistence(), id, query, snapshot::matchesDataset,
+                        metadataCatalog.isCurrent())
+                : null;
+    }
+
+    private CatalogSnapshot getExistenceSnapshot() {
+        return metadataCatalog != null && metadataCatalog.isExistenceChecks()
+                ? metadataCatalog.getSnapshot()
+                : null;
+    }
+
+    private Boolean existsIn(ExistenceIndex index, String id, DbQuery query,
+            BiPredicate<Long, CatalogFilter> matcher, boolean current) {
+        Long key = !query.isMatchDomainIds()
+                ? tryParseId(id)
+                : null;
+        if (key == null || !index.covers(key)) {
+            // domain ids and ids inserted after the snapshot was taken
+            return null;
+        }
+        if (!index.contains(key)) {
+            return current
+                    ? Boolean.FALSE
+                    : null;
+        }
+        if (!CatalogFilter.isSupported(query)) {
+            return null;
+        }
+        if (matcher.test(key, CatalogFilter.of(query))) {
+            return Boolean.TRUE;
+        }
+        return current
+                ? Boolean.FALSE
+                : null;
+    }
+
     protected Geometry getGeometry(GeometryEntity geometryEntity, DbQuery query) {
         if (geometryEntity == null) {
             return null;
@@ -151,6 +281,69 @@ public abstract class SessionAwareRepository {
         }
     }
 
+    /**
+     * @param ids
+     *        the requested ids
+     * @return the ids which can be parsed, non-numeric ids can not match any instance
+     */
+    protected Set<Long> parseIds(Collection<String> ids) {
+        Set<Long> result = new LinkedHashSet<>();
+        for (String id : ids) {
+            Long key = tryParseId(id);
+            if (key != null) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Orders the instances loaded in one go as requested.
+     *
+     * @param <E>
+     *        the entity type
+     * @param ids
+     *        the requested ids, possibly containing duplicates
+     * @param found
+     *        the instances found
+     * @return the instances in the order of the given ids
+     * @throws ResourceNotFoundException
+     *         naming all ids which could not be found
+     */
+    protected <E extends DescribableEntity> List<E> orderAsRequested(List<String> ids, Collection<E> found)
+            throws ResourceNotFoundException {
+        Map<Long, E> byId = new HashMap<>();
+        for (E entity : found) {
+            byId.put(entity.getId(), entity);
+        }
+        List<E> result = new ArrayList<>(ids.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Long key = tryParseId(id);
+            E entity = key != null
+                    ? byId.get(key)
+                    : null;
+            if (entity != null) {
+                result.add(entity);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Resources with ids '" + String.join("', '", missing)
+                    + "' could not be found.");
+        }
+        return result;
+    }
+
+    private Long tryParseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     public void returnSession(Session session) {
         sessionStore.returnSession(session);
     }
@@ -244,6 +437,12 @@ public abstract class SessionAwareRepository {
         return getMapperFactory().getFeatureMapper().createCondensed((FeatureEntity) entity, parameters);
     }
 
+    protected FeatureOutput getCondensedFeature(ParameterEntry entry, DbQuery query) {
+        FeatureOutput result = createCondensed(new FeatureOutput(), entry, query);
+        result.setValue(StationOutput.GEOMETRY, entry.getGeometry(), query.getParameters(), result::setGeometry);
+        return result;
+    }
+
     protected FeatureOutput getCondensedExtendedFeature(AbstractFeatureEntity<?> entity, DbQuery parameters) {
         return getCondensedFeature(entity, parameters);
     }
@@ -267,9 +466,35 @@ public abstract class SessionAwareRepository {
             : getServiceEntity();
     }
 
+    /**
+     * Sets an output member whose value is expensive to compute, e.g. because it needs further queries. The
+     * value is supplied only if the member is selected by the <code>fields</code> filter.
+     *
+     * @param <T>
+     *        the value type
+     * @param result
+     *        the output
+     * @param member
+     *        the name of the output member
+     * @param value
+     *        supplies the value
+     * @param query
+     *        the query
+     * @param setter
+     *        sets the value to the output
+     */
+    protected <T> void setLazily(AbstractOutput result, String member, Supplier<T> value, DbQuery query,
+            Consumer<T> setter) {
+        if (query.isSelected(member)) {
+            result.setValue(member, value.get(), query.getParameters(), setter);
+        }
+    }
+
     protected <T extends ParameterOutput> T createCondensed(T result, DescribableEntity entity, DbQuery query) {
         String id = Long.toString(entity.getId());
-        String label = entity.getLabelFrom(query.getLocale());
+        String label = query.isSelected(ParameterOutput.LABEL)
+                ? query.getLabelFrom(entity)
+                : null;
         String domainId = entity.getIdentifier();
         String hrefBase = query.getHrefBase();
 
@@ -280,6 +505,17 @@ public abstract class SessionAwareRepository {
         return result;
     }
 
+    protected <T extends ParameterOutput> T createCondensed(T result, ParameterEntry entry, DbQuery query) {
+        String hrefBase = query.getHrefBase();
+
+        result.setId(Long.toString(entry.getId()));
+        result.setValue(ParameterOutput.DOMAIN_ID, entry.getDomainId(), query.getParameters(), result::setDomainId);
+        result.setValue(ParameterOutput.LABEL, entry.getLabel(query.getLocale()), query.getParameters(),
+                result::setLabel);
+        result.setValue(ParameterOutput.HREF_BASE, hrefBase, query.getParameters(), result::setHrefBase);
+        return result;
+    }
+
     protected Geometry createGeometry(AbstractFeatureEntity<?> featureEntity, DbQuery query) {
         return featureEntity.isSetGeometry() ? getGeometry(featureEntity.getGeometryEntity(), query) : null;
     }
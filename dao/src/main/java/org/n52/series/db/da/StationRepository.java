@@ -39,6 +39,7 @@ import org.n52.io.response.dataset.StationOutput;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.FeatureDao;
 import org.n52.series.spi.search.SearchResult;
@@ -58,6 +59,13 @@ public class StationRepository extends SessionAwareRepository
 
     @Override
     public boolean exists(String id, DbQuery parameters) throws DataAccessException {
+        // filtering by features includes all children of the filtered entities
+        Boolean fromCatalog = ParameterType.FEATURE.getFilterValues(parameters.getParameters()).isEmpty()
+                ? existsInCatalog(ParameterType.FEATURE, id, parameters)
+                : null;
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         Session session = getSession();
         try {
             FeatureDao dao = createDao(session);
@@ -81,11 +89,10 @@ public class StationRepository extends SessionAwareRepository
     }
 
     private List<SearchResult> convertToSearchResults(List<? extends DescribableEntity> found, DbQuery query) {
-        String locale = query.getLocale();
         List<SearchResult> results = new ArrayList<>();
         for (DescribableEntity searchResult : found) {
             String pkid = Long.toString(searchResult.getId());
-            String label = searchResult.getLabelFrom(locale);
+            String label = query.getLabelFrom(searchResult);
             results.add(new StationSearchResult().setId(pkid).setLabel(label));
         }
         return results;
@@ -189,7 +196,9 @@ public class StationRepository extends SessionAwareRepository
         IoParameters parameters = query.getParameters();
 
         String id = Long.toString(entity.getId());
-        String label = entity.getLabelFrom(query.getLocale());
+        String label = query.isSelected(StationOutput.PROPERTIES)
+                ? query.getLabelFrom(entity)
+                : null;
         Geometry geometry = getGeometry(entity, query);
         result.setId(id);
         result.setValue(StationOutput.PROPERTIES, label, parameters, result::setLabel);
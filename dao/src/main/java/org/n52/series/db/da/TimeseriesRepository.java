@@ -44,12 +44,15 @@ import org.n52.io.response.dataset.quantity.QuantityValue;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.beans.AbstractFeatureEntity;
 import org.n52.series.db.beans.DatasetEntity;
-import org.n52.series.db.beans.OfferingEntity;
-import org.n52.series.db.beans.PhenomenonEntity;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.beans.QuantityDataEntity;
 import org.n52.series.db.beans.ServiceEntity;
 import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.DatasetEntry;
+import org.n52.series.db.catalog.ParameterEntry;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.dao.DatasetDao;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.spi.search.SearchResult;
@@ -78,6 +81,10 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
 
     @Override
     public boolean exists(String id, DbQuery parameters) throws DataAccessException {
+        Boolean fromCatalog = datasetExistsInCatalog(id, parameters);
+        if (fromCatalog != null) {
+            return fromCatalog;
+        }
         Session session = getSession();
         try {
             DatasetDao<DatasetEntity> dao = createDao(session);
@@ -94,21 +101,17 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
             DatasetDao<DatasetEntity> seriesDao = createDao(session);
             DbQuery query = dbQueryFactory.createFrom(parameters);
             List<DatasetEntity> found = seriesDao.find(query);
-            return convertToResults(found, query.getLocale());
+            return convertToResults(found, query);
         } finally {
             returnSession(session);
         }
     }
 
-    private List<SearchResult> convertToResults(List<DatasetEntity> found, String locale) {
+    private List<SearchResult> convertToResults(List<DatasetEntity> found, DbQuery query) {
         List<SearchResult> results = new ArrayList<>();
         for (DatasetEntity searchResult : found) {
             String pkid = searchResult.getId().toString();
-            String phenomenonLabel = searchResult.getPhenomenon().getLabelFrom(locale);
-            String procedureLabel = searchResult.getProcedure().getLabelFrom(locale);
-            String stationLabel = searchResult.getFeature().getLabelFrom(locale);
-            String offeringLabel = searchResult.getOffering().getLabelFrom(locale);
-            String label = createTimeseriesLabel(phenomenonLabel, procedureLabel, stationLabel, offeringLabel);
+            String label = query.getDatasetLabelFrom(searchResult).getTimeseriesLabel();
             results.add(new TimeseriesSearchResult().setId(pkid).setLabel(label));
         }
         return results;
@@ -116,6 +119,10 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
 
     @Override
     public List<TimeseriesMetadataOutput> getAllCondensed(DbQuery query) throws DataAccessException {
+        CatalogSnapshot snapshot = getCatalogSnapshot(query);
+        if (snapshot != null) {
+            return getAllCondensed(query, snapshot);
+        }
         Session session = getSession();
         try {
             return getAllCondensed(query, session);
@@ -126,6 +133,10 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
 
     @Override
     public List<TimeseriesMetadataOutput> getAllCondensed(DbQuery query, Session session) throws DataAccessException {
+        CatalogSnapshot snapshot = getCatalogSnapshot(query);
+        if (snapshot != null) {
+            return getAllCondensed(query, snapshot);
+        }
         List<TimeseriesMetadataOutput> results = new ArrayList<>();
         DatasetDao<DatasetEntity> seriesDao = createDao(session);
         for (DatasetEntity timeseries : seriesDao.getAllInstances(query)) {
@@ -134,6 +145,14 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
         return results;
     }
 
+    private List<TimeseriesMetadataOutput> getAllCondensed(DbQuery query, CatalogSnapshot snapshot) {
+        List<TimeseriesMetadataOutput> results = new ArrayList<>();
+        for (DatasetEntry timeseries : snapshot.findDatasets(CatalogFilter.of(query))) {
+            results.add(createCondensed(timeseries, snapshot, query));
+        }
+        return results;
+    }
+
     @Override
     public List<TimeseriesMetadataOutput> getAllExpanded(DbQuery query) throws DataAccessException {
         Session session = getSession();
@@ -178,17 +197,15 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
     protected TimeseriesMetadataOutput createExpanded(DatasetEntity series, DbQuery query, Session session)
             throws DataAccessException {
         TimeseriesMetadataOutput result = createCondensed(series, query, session);
-        List<ReferenceValueOutput<QuantityValue>> refValues = createReferenceValueOutputs(series, query);
-        DatasetParameters timeseries = createTimeseriesOutput(series, query.withoutFieldsFilter());
-
-        QuantityValue firstValue = repository.getFirstValue(series, session, query);
-        QuantityValue lastValue = repository.getLastValue(series, session, query);
-
-        IoParameters params = query.getParameters();
-        result.setValue(DatasetOutput.REFERENCE_VALUES, refValues, params, result::setReferenceValues);
-        result.setValue(DatasetOutput.DATASET_PARAMETERS, timeseries, params, result::setDatasetParameters);
-        result.setValue(DatasetOutput.FIRST_VALUE, firstValue, params, result::setFirstValue);
-        result.setValue(DatasetOutput.LAST_VALUE, lastValue, params, result::setLastValue);
+        setLazily(result, DatasetOutput.REFERENCE_VALUES, () -> createReferenceValueOutputs(series, query), query,
+                result::setReferenceValues);
+        setLazily(result, DatasetOutput.DATASET_PARAMETERS,
+                () -> createTimeseriesOutput(series, query.withoutFieldsFilter()), query,
+                result::setDatasetParameters);
+        setLazily(result, DatasetOutput.FIRST_VALUE, () -> repository.getFirstValue(series, session, query), query,
+                result::setFirstValue);
+        setLazily(result, DatasetOutput.LAST_VALUE, () -> repository.getLastValue(series, session, query), query,
+                result::setLastValue);
         return result;
     }
 
@@ -217,19 +234,16 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
         IoParameters parameters = query.getParameters();
         TimeseriesMetadataOutput result = new TimeseriesMetadataOutput(parameters);
         String locale = query.getLocale();
-        PhenomenonEntity phenomenon = entity.getPhenomenon();
-        String phenomenonLabel = phenomenon.getLabelFrom(locale);
-        ProcedureEntity procedure = entity.getProcedure();
-        String procedureLabel = procedure.getLabelFrom(locale);
-        AbstractFeatureEntity<?> feature = entity.getFeature();
-        String stationLabel = feature.getLabelFrom(locale);
-        OfferingEntity offering = entity.getOffering();
-        String offeringLabel = offering.getLabelFrom(locale);
-
         Long pkid = entity.getId();
-        String uom = entity.getUnitI18nName(locale);
-        String label = createTimeseriesLabel(phenomenonLabel, procedureLabel, stationLabel, offeringLabel);
-        StationOutput station = createCondensedStation(entity, query.withoutFieldsFilter(), session);
+        String uom = query.isSelected(DatasetOutput.UOM)
+                ? entity.getUnitI18nName(locale)
+                : null;
+        String label = query.isSelected(ParameterOutput.LABEL)
+                ? query.getDatasetLabelFrom(entity).getTimeseriesLabel()
+                : null;
+        StationOutput station = query.isSelected(TimeseriesMetadataOutput.STATION)
+                ? createCondensedStation(entity, query.withoutFieldsFilter(), session)
+                : null;
 
         result.setId(pkid.toString());
         result.setValue(ParameterOutput.LABEL, label, parameters, result::setLabel);
@@ -239,12 +253,23 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
         return result;
     }
 
-    private String createTimeseriesLabel(String phenomenon, String procedure, String station, String offering) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(phenomenon).append(" ");
-        sb.append(procedure).append(", ");
-        sb.append(station).append(", ");
-        return sb.append(offering).toString();
+    private TimeseriesMetadataOutput createCondensed(DatasetEntry entry, CatalogSnapshot snapshot, DbQuery query) {
+        IoParameters parameters = query.getParameters();
+        TimeseriesMetadataOutput result = new TimeseriesMetadataOutput(parameters);
+        String locale = query.getLocale();
+        String uom = entry.getUom(locale);
+        String label = entry.getCompositeLabel(locale).getTimeseriesLabel();
+        ParameterEntry feature = snapshot.getParameter(ParameterType.FEATURE, entry.getMember(ParameterType.FEATURE));
+        StationOutput station = feature != null
+                ? createCondensedStation(feature, query.withoutFieldsFilter())
+                : null;
+
+        result.setId(entry.getId().toString());
+        result.setValue(ParameterOutput.LABEL, label, parameters, result::setLabel);
+        result.setValue(DatasetOutput.UOM, uom, parameters, result::setUom);
+        result.setValue(TimeseriesMetadataOutput.STATION, station, parameters, result::setStation);
+
+        return result;
     }
 
     private StationOutput createCondensedStation(DatasetEntity entity, DbQuery query, Session session)
@@ -256,6 +281,15 @@ public class TimeseriesRepository extends SessionAwareRepository implements Outp
         return stationRepository.getCondensedInstance(featurePkid, query, session);
     }
 
+    private StationOutput createCondensedStation(ParameterEntry feature, DbQuery query) {
+        StationOutput result = new StationOutput();
+        IoParameters parameters = query.getParameters();
+        result.setId(Long.toString(feature.getId()));
+        result.setValue(StationOutput.PROPERTIES, feature.getLabel(query.getLocale()), parameters, result::setLabel);
+        result.setValue(StationOutput.GEOMETRY, feature.getGeometry(), parameters, result::setGeometry);
+        return result;
+    }
+
     protected DatasetParameters createTimeseriesOutput(DatasetEntity dataset, DbQuery parameters)
             throws DataAccessException {
         DatasetParameters metadata = new DatasetParameters();
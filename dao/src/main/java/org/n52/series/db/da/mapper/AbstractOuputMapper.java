@@ -29,12 +29,10 @@
 package org.n52.series.db.da.mapper;
 
 import java.time.ZoneOffset;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
-import java.util.stream.Collectors;
 
 import org.hibernate.Session;
 import org.joda.time.DateTime;
@@ -64,6 +62,7 @@ import org.n52.series.db.beans.PhenomenonEntity;
 import org.n52.series.db.beans.PlatformEntity;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.beans.ServiceEntity;
+import org.n52.series.db.da.MappingPipeline;
 import org.n52.series.db.dao.DbQuery;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.operation.TransformException;
@@ -165,16 +164,9 @@ public abstract class AbstractOuputMapper<T extends ParameterOutput, S extends D
     }
 
     protected List<T> createCondensed(Collection<S> entities, DbQuery query, Session session) {
-        long start = System.currentTimeMillis();
-        if (entities != null) {
-            LOGGER.debug("Condensed entities raw: " + entities.size());
-            List<T> result = entities.parallelStream().map(entity -> createCondensed(entity, query))
-                    .collect(Collectors.toList());
-            LOGGER.debug("Condensed entities processed: " + result.size());
-            LOGGER.debug("Processing all condensed instances takes {} ms", System.currentTimeMillis() - start);
-            return result;
-        }
-        return new ArrayList<>();
+        return getMapperFactory().getMappingPipeline()
+                .map(entities, e -> MappingPipeline.initializeTranslations(e, query, session),
+                        e -> createCondensed(e, query));
     }
 
     protected TimeOutput createTimeOutput(Date date, IoParameters parameters) {
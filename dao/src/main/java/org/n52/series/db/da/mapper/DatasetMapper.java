@@ -38,11 +38,7 @@ import org.n52.io.response.dataset.IndividualObservationOutput;
 import org.n52.io.response.dataset.ProfileOutput;
 import org.n52.io.response.dataset.TimeseriesMetadataOutput;
 import org.n52.io.response.dataset.TrajectoryOutput;
-import org.n52.series.db.beans.AbstractFeatureEntity;
 import org.n52.series.db.beans.DatasetEntity;
-import org.n52.series.db.beans.OfferingEntity;
-import org.n52.series.db.beans.PhenomenonEntity;
-import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.dao.DbQuery;
 
 public class DatasetMapper extends AbstractOuputMapper<DatasetOutput<AbstractValue<?>>, DatasetEntity> {
@@ -61,8 +57,12 @@ public class DatasetMapper extends AbstractOuputMapper<DatasetOutput<AbstractVal
             Long id = dataset.getId();
             String hrefBase = query.getHrefBase();
             String domainId = dataset.getIdentifier();
-            String uom = dataset.getUnitI18nName(query.getLocale());
-            String label = createDatasetLabel(dataset, query.getLocale());
+            String uom = query.isSelected(DatasetOutput.UOM)
+                    ? dataset.getUnitI18nName(query.getLocale())
+                    : null;
+            String label = query.isSelected(ParameterOutput.LABEL)
+                    ? query.getDatasetLabelFrom(dataset).getDatasetLabel()
+                    : null;
 
             result.setId(id.toString());
             result.setValue(DatasetOutput.UOM, uom, parameters, result::setUom);
@@ -75,7 +75,7 @@ public class DatasetMapper extends AbstractOuputMapper<DatasetOutput<AbstractVal
             result.setValue(DatasetOutput.VALUE_TYPE, dataset.getValueType().name(), parameters, result::setValueType);
             result.setValue(DatasetOutput.MOBILE, dataset.isMobile(), parameters, result::setMobile);
             result.setValue(DatasetOutput.INSITU, dataset.isInsitu(), parameters, result::setInsitu);
-            if (dataset.hasSamplingProfile()) {
+            if (query.isSelected(DatasetOutput.HAS_SAMPLINGS) && dataset.hasSamplingProfile()) {
                 result.setValue(DatasetOutput.HAS_SAMPLINGS, dataset.getSamplingProfile().hasSamplings(), parameters,
                         result::setHasSamplings);
             }
@@ -90,9 +90,11 @@ public class DatasetMapper extends AbstractOuputMapper<DatasetOutput<AbstractVal
             result.setValue(DatasetOutput.SMAPLING_TIME_END,
                     createTimeOutput(dataset.getLastValueAt(), dataset.getOriginTimezone(), parameters), parameters,
                     result::setSamplingTimeEnd);
-            result.setValue(DatasetOutput.FEATURE,
-                    getMapperFactory().getFeatureMapper().createCondensed(dataset.getFeature(), query), parameters,
-                    result::setFeature);
+            if (query.isSelected(DatasetOutput.FEATURE)) {
+                result.setValue(DatasetOutput.FEATURE,
+                        getMapperFactory().getFeatureMapper().createCondensed(dataset.getFeature(), query),
+                        parameters, result::setFeature);
+            }
 
             return result;
         } catch (Exception e) {
@@ -126,20 +128,4 @@ public class DatasetMapper extends AbstractOuputMapper<DatasetOutput<AbstractVal
         }
     }
 
-    private String createDatasetLabel(DatasetEntity dataset, String locale) {
-        PhenomenonEntity phenomenon = dataset.getPhenomenon();
-        ProcedureEntity procedure = dataset.getProcedure();
-        OfferingEntity offering = dataset.getOffering();
-        AbstractFeatureEntity<?> feature = dataset.getFeature();
-
-        String procedureLabel = procedure.getLabelFrom(locale);
-        String phenomenonLabel = phenomenon.getLabelFrom(locale);
-        String offeringLabel = offering.getLabelFrom(locale);
-        String stationLabel = feature.getLabelFrom(locale);
-
-        StringBuilder sb = new StringBuilder();
-        return sb.append(phenomenonLabel).append(", ").append(procedureLabel).append(", ").append(stationLabel)
-                .append(", ").append(offeringLabel).toString();
-    }
-
 }
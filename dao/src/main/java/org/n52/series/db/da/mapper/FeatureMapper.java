@@ -88,16 +88,17 @@ public class FeatureMapper extends AbstractOuputMapper<FeatureOutput, FeatureEnt
         try {
             FeatureOutput result = createCondensed(entity, query);
             addService(result, entity, query);
-            if (!isParent && !isChild) {
+            if (!isParent && !isChild && query.isSelected(StationOutput.PROPERTIES)) {
                 Map<String, DatasetParameters> timeseriesList = createTimeseriesList(entity.getDatasets(), query);
                 result.setValue(StationOutput.PROPERTIES, timeseriesList, query.getParameters(), result::setDatasets);
             }
-            if (!isParent && !isChild && entity.hasParents()) {
+            if (!isParent && !isChild && query.isSelected(HierarchicalParameterOutput.PARENTS)
+                    && entity.hasParents()) {
                 List<FeatureOutput> parents = getMemberList(entity.getParents(), query, level, true, false, session);
                 result.setValue(HierarchicalParameterOutput.PARENTS, parents, query.getParameters(),
                         result::setParents);
             }
-            if (level != null && level > 0) {
+            if (level != null && level > 0 && query.isSelected(HierarchicalParameterOutput.CHILDREN)) {
                 if (((!isParent && !isChild) || (!isParent && isChild)) && entity.hasChildren()) {
                     List<FeatureOutput> children =
                             getMemberList(entity.getChildren(), query, level - 1, false, true, session);
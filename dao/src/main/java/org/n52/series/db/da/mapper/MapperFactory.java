@@ -35,6 +35,7 @@ import org.n52.io.response.dataset.DatasetOutput;
 import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.ServiceEntity;
 import org.n52.series.db.da.EntityCounter;
+import org.n52.series.db.da.MappingPipeline;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.DbQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +51,9 @@ public class MapperFactory {
     @Autowired
     private EntityCounter counter;
 
+    @Autowired(required = false)
+    private MappingPipeline mappingPipeline;
+
     @Autowired
     private DefaultIoFactory<DatasetOutput<AbstractValue<?>>, AbstractValue<?>> ioFactoryCreator;
 
@@ -98,6 +102,15 @@ public class MapperFactory {
         return counter;
     }
 
+    /**
+     * @return the configured pipeline or a sequential one if none is configured
+     */
+    protected MappingPipeline getMappingPipeline() {
+        return mappingPipeline != null
+                ? mappingPipeline
+                : MappingPipeline.sequential();
+    }
+
     protected DefaultIoFactory<DatasetOutput<AbstractValue<?>>, AbstractValue<?>> getIoFactoryCreator() {
         return ioFactoryCreator;
     }
@@ -45,7 +45,9 @@ public interface OutputMapper<T extends ParameterOutput, S extends DescribableEn
     default T condensed(T result, DescribableEntity entity, DbQuery query) {
         try {
             String id = Long.toString(entity.getId());
-            String label = entity.getLabelFrom(query.getLocale());
+            String label = query.isSelected(ParameterOutput.LABEL)
+                    ? query.getLabelFrom(entity)
+                    : null;
             String domainId = entity.getIdentifier();
             String hrefBase = query.getHrefBase();
 
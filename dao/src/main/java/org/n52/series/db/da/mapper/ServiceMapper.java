@@ -43,7 +43,7 @@ import org.n52.io.response.ServiceOutput.DatasetCount;
 import org.n52.io.response.ServiceOutput.ParameterCount;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.beans.ServiceEntity;
-import org.n52.series.db.da.EntityCounter;
+import org.n52.series.db.da.EntityCounts;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.web.exception.InternalServerException;
 import org.slf4j.Logger;
@@ -55,6 +55,8 @@ public class ServiceMapper extends AbstractOuputMapper<ServiceOutput, ServiceEnt
 
     private static final String SERVICE_TYPE = "Restful series access layer.";
 
+    private static final String QUANTITIES_EXACT = "quantitiesExact";
+
     public ServiceMapper(MapperFactory mapperFactory) {
         super(mapperFactory);
     }
@@ -71,7 +73,8 @@ public class ServiceMapper extends AbstractOuputMapper<ServiceOutput, ServiceEnt
             ServiceOutput result = getCondensedService(entity, query);
             IoParameters parameters = query.getParameters();
 
-            ParameterCount quantities = countParameters(result, query);
+            EntityCounts counts = countAll(result, query);
+            ParameterCount quantities = createParameterCount(counts);
             boolean supportsFirstLatest = entity.getSupportsFirstLast();
 
             String serviceUrl = entity.getUrl();
@@ -82,6 +85,7 @@ public class ServiceMapper extends AbstractOuputMapper<ServiceOutput, ServiceEnt
 
             Map<String, Object> features = new HashMap<>();
             features.put(ServiceOutput.QUANTITIES, quantities);
+            features.put(QUANTITIES_EXACT, counts.isExact());
             features.put(ServiceOutput.SUPPORTS_FIRST_LATEST, supportsFirstLatest);
             features.put(ServiceOutput.SUPPORTED_MIME_TYPES, getSupportedDatasets(result));
 
@@ -102,35 +106,39 @@ public class ServiceMapper extends AbstractOuputMapper<ServiceOutput, ServiceEnt
         return entity.getType() != null ? entity.getType() : SERVICE_TYPE;
     }
 
-    private ParameterCount countParameters(ServiceOutput service, DbQuery query) {
+    private EntityCounts countAll(ServiceOutput service, DbQuery query) {
         try {
             IoParameters parameters = query.getParameters();
-            ParameterCount quantities = new ServiceOutput.ParameterCount();
             DbQuery serviceQuery = getMapperFactory().getDbQuery(parameters
                     .extendWith(Parameters.SERVICES, service.getId()).removeAllOf("offset").removeAllOf("limit"));
-            quantities.setOfferingsSize(getMapperFactory().getCounter().countOfferings(serviceQuery));
-            quantities.setProceduresSize(getMapperFactory().getCounter().countProcedures(serviceQuery));
-            quantities.setCategoriesSize(getMapperFactory().getCounter().countCategories(serviceQuery));
-            quantities.setPhenomenaSize(getMapperFactory().getCounter().countPhenomena(serviceQuery));
-            quantities.setFeaturesSize(getMapperFactory().getCounter().countFeatures(serviceQuery));
-
-            // if (parameters.shallBehaveBackwardsCompatible()) {
-            // quantities.setTimeseriesSize(counter.countTimeseries());
-            // quantities.setStationsSize(counter.countStations());
-            // } else {
-            quantities.setPlatformsSize(getMapperFactory().getCounter().countPlatforms(serviceQuery));
-            quantities.setDatasets(createDatasetCount(getMapperFactory().getCounter(), serviceQuery));
-
-            // TODO
-            quantities.setSamplingsSize(getMapperFactory().getCounter().countSamplings(serviceQuery));
-            quantities.setMeasuringProgramsSize(getMapperFactory().getCounter().countMeasuringPrograms(serviceQuery));
-            // }
-            return quantities;
+            return getMapperFactory().getCounter().countAll(serviceQuery);
         } catch (DataAccessException e) {
             throw new InternalServerException("Could not count parameter entities.", e);
         }
     }
 
+    private ParameterCount createParameterCount(EntityCounts counts) {
+        ParameterCount quantities = new ServiceOutput.ParameterCount();
+        quantities.setOfferingsSize(counts.getOfferings());
+        quantities.setProceduresSize(counts.getProcedures());
+        quantities.setCategoriesSize(counts.getCategories());
+        quantities.setPhenomenaSize(counts.getPhenomena());
+        quantities.setFeaturesSize(counts.getFeatures());
+
+        // if (parameters.shallBehaveBackwardsCompatible()) {
+        // quantities.setTimeseriesSize(counter.countTimeseries());
+        // quantities.setStationsSize(counter.countStations());
+        // } else {
+        quantities.setPlatformsSize(counts.getPlatforms());
+        quantities.setDatasets(createDatasetCount(counts));
+
+        // TODO
+        quantities.setSamplingsSize(counts.getSamplings());
+        quantities.setMeasuringProgramsSize(counts.getMeasuringPrograms());
+        // }
+        return quantities;
+    }
+
     private Map<String, Set<String>> getSupportedDatasets(ServiceOutput service) {
         Map<String, Set<String>> mimeTypesByDatasetTypes = new HashMap<>();
         for (String valueType : getMapperFactory().getIoFactoryCreator().getKnownTypes()) {
@@ -144,13 +152,13 @@ public class ServiceMapper extends AbstractOuputMapper<ServiceOutput, ServiceEnt
         return mimeTypesByDatasetTypes;
     }
 
-    private DatasetCount createDatasetCount(EntityCounter counter, DbQuery query) {
+    private DatasetCount createDatasetCount(EntityCounts counts) {
         DatasetCount datasetCount = new DatasetCount();
-        datasetCount.setTotalAmount(counter.countDatasets(query));
-        datasetCount.setAmountTimeseries(counter.countTimeseries(query));
-        datasetCount.setAmountIndividualObservations(counter.countIndividualObservations(query));
-        datasetCount.setAmountProfiles(counter.countProfiles(query));
-        datasetCount.setAmountTrajectories(counter.countTrajectories(query));
+        datasetCount.setTotalAmount(counts.getDatasets());
+        datasetCount.setAmountTimeseries(counts.getTimeseries());
+        datasetCount.setAmountIndividualObservations(counts.getIndividualObservations());
+        datasetCount.setAmountProfiles(counts.getProfiles());
+        datasetCount.setAmountTrajectories(counts.getTrajectories());
         return datasetCount;
     }
 
@@ -30,12 +30,14 @@ package org.n52.series.db.dao;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.geolatte.geom.GeometryType;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.Criterion;
@@ -129,6 +131,33 @@ public abstract class AbstractDao<T> implements GenericDao<T, Long> {
         return clazz.cast(instanceCriteria.uniqueResult());
     }
 
+    /**
+     * Loads the instances with the given ids by a single <code>id IN (...)</code> query. Ids which do not
+     * match an instance (or the query's filters) are not part of the result.
+     *
+     * @param keys
+     *        the ids of the instances
+     * @param query
+     *        the query
+     * @return the instances found, in no particular order
+     */
+    public List<T> getInstances(Collection<Long> keys, DbQuery query) {
+        LOGGER.debug("get instances '{}': {}", keys, query);
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return getInstances(keys, query, getEntityClass());
+    }
+
+    protected List<T> getInstances(Collection<Long> keys, DbQuery query, Class<T> clazz) {
+        return getInstances(keys, query, clazz, getDefaultCriteria(query, clazz));
+    }
+
+    @SuppressWarnings("unchecked")
+    protected List<T> getInstances(Collection<Long> keys, DbQuery query, Class<T> clazz, Criteria criteria) {
+        return criteria.add(Restrictions.in(DescribableEntity.PROPERTY_ID, keys)).list();
+    }
+
     @Override
     public Long getCount(DbQuery query) throws DataAccessException {
         if (!DataModelUtil.isEntitySupported(getEntityClass(), session)) {
@@ -145,12 +174,28 @@ public abstract class AbstractDao<T> implements GenericDao<T, Long> {
     }
 
     protected <I extends I18nEntity> Criteria i18n(Class<I> clazz, Criteria criteria, DbQuery query) {
-        return hasTranslation(query, clazz) ? query.addLocaleTo(criteria, clazz) : criteria;
+        if (query.isLabelDictionaryAvailable()) {
+            // labels are resolved in memory
+            return criteria;
+        }
+        return query.hasTranslation(clazz, session) ? query.addLocaleTo(criteria, clazz) : criteria;
     }
 
-    private <I extends I18nEntity> boolean hasTranslation(DbQuery parameters, Class<I> clazz) {
-        Criteria i18nCriteria = session.createCriteria(clazz);
-        return parameters.checkTranslationForLocale(i18nCriteria);
+    /**
+     * Adds a join fetch of the translations at the given path unless labels are resolved in memory.
+     *
+     * @param criteria
+     *        the criteria
+     * @param translationsPath
+     *        the path of the translations collection
+     * @param query
+     *        the query
+     * @return the criteria
+     */
+    protected Criteria fetchTranslations(Criteria criteria, String translationsPath, DbQuery query) {
+        return query.isLabelDictionaryAvailable()
+                ? criteria
+                : criteria.setFetchMode(translationsPath, FetchMode.JOIN);
     }
 
     public Criteria getDefaultCriteria(DbQuery query) {
@@ -365,7 +410,7 @@ public abstract class AbstractDao<T> implements GenericDao<T, Long> {
                 }
             }
         }
-        return params != null ? new DbQuery(params) : query;
+        return params != null ? query.replaceParameters(params) : query;
     }
 
     protected List<String> toStringList(Collection<Long> set) {
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.FetchMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.n52.series.db.beans.DescribableEntity;
+
+/**
+ * Initializes lazy entities and their translations in bulk. Instead of one query per entity (and one per
+ * translations collection) a single query per entity type and chunk of ids loads the entities together
+ * with their translations into the session, where proxies and uninitialized collections then resolve
+ * without further queries.
+ */
+public final class BatchInitializer {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String TRANSLATIONS = "translations";
+
+    private BatchInitializer() {
+    }
+
+    /**
+     * Initializes the given entities (proxies included) and their translations.
+     *
+     * @param session
+     *        the session the entities belong to
+     * @param entities
+     *        the entities, may contain <code>null</code> and duplicates
+     */
+    public static void initializeTranslations(Session session, Collection<? extends DescribableEntity> entities) {
+        Map<String, Set<Long>> pending = new LinkedHashMap<>();
+        for (DescribableEntity entity : entities) {
+            if (entity != null && !isInitialized(entity)) {
+                pending.computeIfAbsent(getEntityName(session, entity), name -> new LinkedHashSet<>())
+                       .add(getId(entity));
+            }
+        }
+        pending.forEach((entityName, ids) -> fetch(session, entityName, new ArrayList<>(ids)));
+    }
+
+    private static void fetch(Session session, String entityName, List<Long> ids) {
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            session.createCriteria(entityName)
+                   .add(Restrictions.in(DescribableEntity.PROPERTY_ID, batch))
+                   .setFetchMode(TRANSLATIONS, FetchMode.JOIN)
+                   .list();
+        }
+    }
+
+    /**
+     * @param entity
+     *        the entity or a proxy of it
+     * @return <code>true</code> if the entity and its translations are initialized
+     */
+    static boolean isInitialized(DescribableEntity entity) {
+        if (entity instanceof HibernateProxy) {
+            LazyInitializer initializer = ((HibernateProxy) entity).getHibernateLazyInitializer();
+            return !initializer.isUninitialized()
+                    && Hibernate.isInitialized(((DescribableEntity) initializer.getImplementation())
+                            .getTranslations());
+        }
+        return Hibernate.isInitialized(entity.getTranslations());
+    }
+
+    private static String getEntityName(Session session, DescribableEntity entity) {
+        return entity instanceof HibernateProxy
+                ? ((HibernateProxy) entity).getHibernateLazyInitializer().getEntityName()
+                : session.getEntityName(entity);
+    }
+
+    private static Long getId(DescribableEntity entity) {
+        return entity instanceof HibernateProxy
+                ? (Long) ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier()
+                : entity.getId();
+    }
+
+}
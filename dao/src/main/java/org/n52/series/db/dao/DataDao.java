@@ -29,15 +29,21 @@
 package org.n52.series.db.dao;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.criterion.CriteriaSpecification;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -67,6 +73,8 @@ public class DataDao<T extends DataEntity> extends AbstractDao<T> {
 
     private static final Order DEFAULT_ORDER = Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_END);
 
+    private static final int BATCH_SIZE = 500;
+
     private final Class<T> entityType;
 
     @SuppressWarnings("unchecked")
@@ -136,6 +144,34 @@ public class DataDao<T extends DataEntity> extends AbstractDao<T> {
         return criteria.list();
     }
 
+    /**
+     * Gets the observations of each given dataset which have been sampled within the dataset's own time
+     * range, i.e. ending after its start and not after its end.
+     *
+     * @param after
+     *        the exclusive start of the range by dataset id
+     * @param until
+     *        the inclusive end of the range by dataset id, must contain all datasets of <code>after</code>
+     * @param query
+     *        the query
+     * @param maxResults
+     *        the maximum number of observations
+     * @return the earliest observations within the ranges ordered by time
+     */
+    @SuppressWarnings("unchecked")
+    public List<DataEntity<?>> getAllInstancesWithin(Map<Long, Date> after, Map<Long, Date> until, DbQuery query,
+            int maxResults) {
+        Disjunction ranges = Restrictions.disjunction();
+        after.forEach((dataset, start) -> ranges.add(Restrictions.and(
+                Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, dataset),
+                Restrictions.gt(DataEntity.PROPERTY_SAMPLING_TIME_END, start),
+                Restrictions.le(DataEntity.PROPERTY_SAMPLING_TIME_END, until.get(dataset)))));
+        return getDefaultCriteria(query)
+                .add(ranges)
+                .setMaxResults(maxResults)
+                .list();
+    }
+
     @SuppressWarnings("unchecked")
     public T getClosestOuterPreviousValue(final DatasetEntity dataset, final DateTime lowerBound, final DbQuery query) {
         final String column = DataEntity.PROPERTY_SAMPLING_TIME_START;
@@ -212,6 +248,55 @@ public class DataDao<T extends DataEntity> extends AbstractDao<T> {
         return (T) criteria.uniqueResult();
     }
 
+    /**
+     * Retrieves the observations of multiple datasets at the given timestamps with one query per chunk of
+     * datasets. Result times are handled like for single datasets: the latest result time by default, the
+     * requested result times if given, or any result time if all result times are requested.
+     *
+     * @param timestamps
+     *        the timestamps to match (first or last value time) by dataset id
+     * @param column
+     *        the column to match timestamps against
+     * @param query
+     *        the query
+     * @return the matching observations by dataset id
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, T> getDataValuesAt(Map<Long, Date> timestamps, String column, DbQuery query) {
+        Map<Long, T> values = new HashMap<>();
+        List<Long> datasetIds = new ArrayList<>(timestamps.keySet());
+        for (int i = 0; i < datasetIds.size(); i += BATCH_SIZE) {
+            List<Long> chunk = datasetIds.subList(i, Math.min(i + BATCH_SIZE, datasetIds.size()));
+            Set<Date> dates = chunk.stream().map(timestamps::get).collect(Collectors.toSet());
+            LOGGER.debug("get data for {} datasets via {}", chunk.size(), column);
+            Criteria criteria = getDefaultCriteria(query, DEFAULT_ORDER)
+                    .add(Restrictions.in(column, dates));
+            addResultTimeRestriction(criteria, column, Restrictions.in(DataEntity.PROPERTY_DATASET_ID, chunk), query);
+            for (T candidate : (List<T>) criteria.list()) {
+                Long datasetId = candidate.getDatasetId();
+                Date expected = timestamps.get(datasetId);
+                Date actual = DataEntity.PROPERTY_SAMPLING_TIME_START.equals(column)
+                        ? candidate.getSamplingTimeStart()
+                        : candidate.getSamplingTimeEnd();
+                if (expected != null && actual != null && expected.getTime() == actual.getTime()) {
+                    values.merge(datasetId, candidate, this::selectByResultTime);
+                }
+            }
+        }
+        return values;
+    }
+
+    private T selectByResultTime(T current, T candidate) {
+        Date currentResultTime = current.getResultTime();
+        Date candidateResultTime = candidate.getResultTime();
+        if (currentResultTime == null) {
+            return candidate;
+        }
+        return candidateResultTime != null && candidateResultTime.after(currentResultTime)
+                ? candidate
+                : current;
+    }
+
     @Deprecated
     public GeometryEntity getValueGeometryViaTimeend(DatasetEntity series, DbQuery query) {
         Date lastValueAt = series.getLastValueAt();
@@ -234,7 +319,14 @@ public class DataDao<T extends DataEntity> extends AbstractDao<T> {
 
     private Criteria createDataCriteria(String column, DatasetEntity dataset, DbQuery query, Order order) {
         Criteria criteria = getDefaultCriteria(query, order);
-        criteria.add(Restrictions.eq(DataEntity.PROPERTY_DATASET, dataset));
+        return addResultTimeRestriction(criteria, column, Restrictions.eq(DataEntity.PROPERTY_DATASET, dataset), query);
+    }
+
+    private Criteria addResultTimeRestriction(Criteria criteria,
+                                              String column,
+                                              Criterion datasetRestriction,
+                                              DbQuery query) {
+        criteria.add(datasetRestriction);
 
         IoParameters parameters = query.getParameters();
         if (parameters.isAllResultTimes()) {
@@ -251,7 +343,7 @@ public class DataDao<T extends DataEntity> extends AbstractDao<T> {
             String rtDatasetId = QueryUtils.createAssociation(rtAlias, DataEntity.PROPERTY_DATASET);
             String rtResultTime = QueryUtils.createAssociation(rtAlias, DataEntity.PROPERTY_RESULT_TIME);
             DetachedCriteria maxResultTimeQuery = DetachedCriteria.forClass(getEntityClass(), rtAlias);
-            maxResultTimeQuery.add(Restrictions.eq(DataEntity.PROPERTY_DATASET, dataset))
+            maxResultTimeQuery.add(datasetRestriction)
                               .setProjection(Projections.projectionList()
                                                         .add(Projections.groupProperty(rtColumn))
                                                         .add(Projections.groupProperty(rtDatasetId))
@@ -306,6 +398,47 @@ public class DataDao<T extends DataEntity> extends AbstractDao<T> {
         return (Long) c.uniqueResult();
     }
 
+    /**
+     * @param dataset
+     *        the dataset id
+     * @return the highest id of the dataset's observations (including deleted ones) or <code>0</code> if
+     *         there are none
+     */
+    public long getMaxId(Long dataset) {
+        Object maxId = session.createCriteria(entityType)
+                              .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, dataset))
+                              .setProjection(Projections.max(DataEntity.PROPERTY_ID))
+                              .uniqueResult();
+        return maxId != null
+                ? ((Number) maxId).longValue()
+                : 0L;
+    }
+
+    /**
+     * Gets the observations of a dataset added after the given id within a time range.
+     *
+     * @param dataset
+     *        the dataset id
+     * @param id
+     *        the exclusive lower bound of the ids
+     * @param from
+     *        the inclusive start of the range
+     * @param to
+     *        the inclusive end of the range
+     * @return the sampling time end and id of each observation
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getAddedAfter(Long dataset, long id, Date from, Date to) {
+        return session.createCriteria(entityType)
+                      .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, dataset))
+                      .add(Restrictions.gt(DataEntity.PROPERTY_ID, id))
+                      .add(Restrictions.between(DataEntity.PROPERTY_SAMPLING_TIME_END, from, to))
+                      .setProjection(Projections.projectionList()
+                                                .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_END))
+                                                .add(Projections.property(DataEntity.PROPERTY_ID)))
+                      .list();
+    }
+
     public BigDecimal getAvg(DatasetEntity dataset) {
         Criteria c = getDefaultCriteria();
         addDatasetRestriction(c, dataset);
@@ -28,17 +28,27 @@
  */
 package org.n52.series.db.dao;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.criterion.CriteriaSpecification;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.sql.JoinType;
 import org.hibernate.transform.ResultTransformer;
+import org.n52.io.response.ParameterOutput;
+import org.n52.io.response.dataset.DatasetOutput;
+import org.n52.io.response.dataset.TimeseriesMetadataOutput;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.DataModelUtil;
 import org.n52.series.db.DatasetTypesMetadata;
@@ -74,6 +84,8 @@ public class DatasetDao<T extends DatasetEntity> extends AbstractDao<T> implemen
     private static final String LAST_OBSERVATION_ALIAS = "lastObservation";
     private static final String PARAMETERS_ALIAS = "parameters";
 
+    private static final int BATCH_SIZE = 500;
+
     private final Class<T> entityType;
 
     private final DatasetTypesMetadataTransformer transformer = new DatasetTypesMetadataTransformer();
@@ -131,6 +143,12 @@ public class DatasetDao<T extends DatasetEntity> extends AbstractDao<T> implemen
                 addFetchModes(getDefaultCriteria(null, false, query, clazz), query, true));
     }
 
+    @Override
+    protected List<T> getInstances(Collection<Long> keys, DbQuery query, Class<T> clazz) {
+        return super.getInstances(keys, query, clazz,
+                addFetchModes(getDefaultCriteria(null, false, query, clazz), query, true));
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<T> getAllInstances(DbQuery q) throws DataAccessException {
@@ -149,6 +167,200 @@ public class DatasetDao<T extends DatasetEntity> extends AbstractDao<T> implemen
         }
     }
 
+    /**
+     * Retrieves the ids of all datasets matching the given query, so matching datasets can be loaded chunk
+     * by chunk.
+     *
+     * @param q
+     *        the query
+     * @return the ids of the matching datasets in ascending order
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> getAllIds(DbQuery q) {
+        DbQuery query = checkLevelParameterForHierarchyQuery(q);
+        Criteria criteria = query.addFilters(getDefaultCriteria(query), getDatasetProperty(), session)
+                .setProjection(Projections.distinct(Projections.property(DescribableEntity.PROPERTY_ID)))
+                .setResultTransformer(CriteriaSpecification.PROJECTION)
+                .addOrder(Order.asc(DescribableEntity.PROPERTY_ID));
+        long start = System.currentTimeMillis();
+        try {
+            return criteria.list();
+        } finally {
+            LOGGER.debug("Querying all ids takes {} ms", System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * @return the ids of all published datasets
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> getPublishedIds() {
+        return session.createCriteria(getEntityClass())
+                .add(createPublishedDatasetFilter())
+                .setProjection(Projections.property(DescribableEntity.PROPERTY_ID))
+                .list();
+    }
+
+    /**
+     * Passes the published datasets with the given ids to the given consumer. Datasets are loaded in chunks,
+     * their related parameter entities and all translations by one further query per entity type and chunk
+     * (see {@link BatchInitializer}), so no collection is join fetched along with the datasets. Each chunk is
+     * cleared from the session once consumed, so the session does not grow with the number of datasets.
+     *
+     * @param ids
+     *        the dataset ids
+     * @param consumer
+     *        consumes the published datasets (unpublished or unknown ids are skipped)
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachPublishedInstance(Collection<Long> ids, Consumer<T> consumer) {
+        long start = System.currentTimeMillis();
+        List<Long> keys = new ArrayList<>(ids);
+        for (int i = 0; i < keys.size(); i += BATCH_SIZE) {
+            List<Long> batch = keys.subList(i, Math.min(i + BATCH_SIZE, keys.size()));
+            List<T> datasets = session.createCriteria(getEntityClass())
+                    .add(createPublishedDatasetFilter())
+                    .add(Restrictions.in(DescribableEntity.PROPERTY_ID, batch))
+                    .setFetchMode(DatasetEntity.PROPERTY_UNIT, FetchMode.JOIN)
+                    .list();
+            initializeMembers(datasets);
+            datasets.forEach(consumer);
+            session.clear();
+        }
+        LOGGER.debug("Loading {} published instances takes {} ms", keys.size(), System.currentTimeMillis() - start);
+    }
+
+    private void initializeMembers(List<T> datasets) {
+        List<DescribableEntity> entities = new ArrayList<>(datasets.size() * 7);
+        for (T dataset : datasets) {
+            entities.add(dataset);
+            entities.add(dataset.getFeature());
+            entities.add(dataset.getProcedure());
+            entities.add(dataset.getOffering());
+            entities.add(dataset.getPhenomenon());
+            entities.add(dataset.getCategory());
+            entities.add(dataset.getPlatform());
+        }
+        BatchInitializer.initializeTranslations(session, entities);
+    }
+
+    /**
+     * Lightweight change detection on published datasets. Only ids and timestamps are selected, so changes
+     * of single datasets can be detected without loading any entity.
+     *
+     * @return rows containing the id, the <code>firstValueAt</code> and the <code>lastValueAt</code>
+     *         timestamps of each published dataset
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getPublishedTimespans() {
+        return session.createCriteria(getEntityClass())
+                .add(createPublishedDatasetFilter())
+                .setProjection(Projections.projectionList()
+                        .add(Projections.property(DescribableEntity.PROPERTY_ID))
+                        .add(Projections.property(DatasetEntity.PROPERTY_FIRST_VALUE_AT))
+                        .add(Projections.property(DatasetEntity.PROPERTY_LAST_VALUE_AT)))
+                .list();
+    }
+
+    /**
+     * Reads the current timestamps of the given datasets without loading any entity.
+     *
+     * @param ids
+     *        the dataset ids
+     * @return rows containing the id, the <code>firstValueAt</code> and the <code>lastValueAt</code>
+     *         timestamps of each dataset (unknown ids are missing)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getTimespans(Collection<Long> ids) {
+        List<Long> keys = new ArrayList<>(ids);
+        List<Object[]> timespans = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i += BATCH_SIZE) {
+            List<Long> batch = keys.subList(i, Math.min(i + BATCH_SIZE, keys.size()));
+            timespans.addAll(session.createCriteria(getEntityClass())
+                    .add(Restrictions.in(DescribableEntity.PROPERTY_ID, batch))
+                    .setProjection(Projections.projectionList()
+                            .add(Projections.property(DescribableEntity.PROPERTY_ID))
+                            .add(Projections.property(DatasetEntity.PROPERTY_FIRST_VALUE_AT))
+                            .add(Projections.property(DatasetEntity.PROPERTY_LAST_VALUE_AT)))
+                    .list());
+        }
+        return timespans;
+    }
+
+    /**
+     * Streams dataset type, observation type, value type, mobile flag, insitu flag, the reference flag of the
+     * procedure and the ids of the given members (in that order) of all published datasets. Rows are not kept
+     * in the session, so even millions of datasets can be scanned.
+     *
+     * @param memberProperties
+     *        the member properties to retrieve the ids of
+     * @param consumer
+     *        consumes the rows
+     */
+    public void scrollPublishedMembers(List<String> memberProperties, Consumer<Object[]> consumer) {
+        long start = System.currentTimeMillis();
+        ProjectionList projections = Projections.projectionList()
+                .add(Projections.property(DatasetEntity.PROPERTY_DATASET_TYPE))
+                .add(Projections.property(DatasetEntity.PROPERTY_OBSERVATION_TYPE))
+                .add(Projections.property(DatasetEntity.PROPERTY_VALUE_TYPE))
+                .add(Projections.property(DatasetEntity.PROPERTY_MOBILE))
+                .add(Projections.property(DatasetEntity.PROPERTY_INSITU))
+                .add(Projections.property(QueryUtils.createAssociation(PROCEDURE_PATH_ALIAS,
+                        ProcedureEntity.PROPERTY_REFERENCE)));
+        for (String member : memberProperties) {
+            projections.add(Projections.property(QueryUtils.createAssociation(member, DescribableEntity.PROPERTY_ID)));
+        }
+        Criteria criteria = session.createCriteria(getEntityClass())
+                .add(createPublishedDatasetFilter())
+                .createAlias(DatasetEntity.PROPERTY_PROCEDURE, PROCEDURE_PATH_ALIAS, JoinType.LEFT_OUTER_JOIN)
+                .setProjection(projections)
+                .setReadOnly(true)
+                .setFetchSize(1000);
+        long rows = 0;
+        try (ScrollableResults results = criteria.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(results.get());
+                rows++;
+            }
+        }
+        LOGGER.debug("Scanning members of {} published datasets takes {} ms", rows,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Counts the published datasets matching the dataset related filters of the given query in groups of
+     * dataset type, value type, the reference flag of the procedure and the ids of the given members. Rows
+     * hold the grouped values in that order followed by the count. Reference datasets are not skipped, so
+     * callers can derive counts for different filters from a single query.
+     *
+     * @param query
+     *        the query
+     * @param memberProperties
+     *        the member properties to group by the ids of
+     * @return the grouped counts
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> getGroupedCounts(DbQuery query, List<String> memberProperties) {
+        if (!DataModelUtil.isEntitySupported(getEntityClass(), session)) {
+            return new ArrayList<>();
+        }
+        ProjectionList projections = Projections.projectionList()
+                .add(Projections.groupProperty(DatasetEntity.PROPERTY_DATASET_TYPE))
+                .add(Projections.groupProperty(DatasetEntity.PROPERTY_VALUE_TYPE))
+                .add(Projections.groupProperty(QueryUtils.createAssociation(PROCEDURE_PATH_ALIAS,
+                        ProcedureEntity.PROPERTY_REFERENCE)));
+        for (String member : memberProperties) {
+            projections.add(Projections.groupProperty(QueryUtils.createAssociation(member,
+                    DescribableEntity.PROPERTY_ID)));
+        }
+        projections.add(Projections.rowCount());
+        Criteria criteria = super.getDefaultCriteria(getDefaultAlias(), query, getEntityClass())
+                .createAlias(DatasetEntity.PROPERTY_PROCEDURE, PROCEDURE_PATH_ALIAS, JoinType.LEFT_OUTER_JOIN);
+        query.addOdataFilterForDataset(criteria);
+        return criteria.setProjection(projections)
+                       .list();
+    }
+
     @SuppressWarnings("unchecked")
     public List<T> getInstancesWith(FeatureEntity feature, DbQuery query) {
         LOGGER.debug("get instance for feature '{}'", feature);
@@ -206,33 +418,70 @@ public class DatasetDao<T extends DatasetEntity> extends AbstractDao<T> implemen
         return addFetchModes(criteria, q, q.isExpanded());
     }
 
+    /**
+     * Joins what the requested outputs need. Condensed outputs are planned from the <code>fields</code>
+     * filter, e.g. <code>fields=id,label</code> joins the members only if the composite labels are not
+     * materialized and <code>fields=id</code> joins nothing at all.
+     *
+     * @param criteria
+     *        the criteria
+     * @param q
+     *        the query
+     * @param instance
+     *        if a single instance is requested
+     * @return the criteria
+     */
     protected Criteria addFetchModes(Criteria criteria, DbQuery q, boolean instance) {
-        criteria.setFetchMode(DatasetEntity.PROPERTY_FEATURE, FetchMode.JOIN);
-        criteria.setFetchMode(DatasetEntity.PROPERTY_UNIT, FetchMode.JOIN);
-        criteria.setFetchMode(DatasetEntity.PROPERTY_PHENOMENON, FetchMode.JOIN);
-        criteria.setFetchMode(DatasetEntity.PROPERTY_PROCEDURE, FetchMode.JOIN);
-        criteria.setFetchMode(DatasetEntity.PROPERTY_OFFERING, FetchMode.JOIN);
-        criteria.setFetchMode(getFetchPath(DatasetEntity.PROPERTY_FEATURE, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-        criteria.setFetchMode(getFetchPath(DatasetEntity.PROPERTY_PHENOMENON, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-        criteria.setFetchMode(getFetchPath(DatasetEntity.PROPERTY_PROCEDURE, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-        criteria.setFetchMode(getFetchPath(DatasetEntity.PROPERTY_OFFERING, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-        if (DataModelUtil.isEntitySupported(SamplingEntity.class, criteria)) {
+        boolean full = q.isExpanded() || instance;
+        boolean labels = full || q.isSelected(ParameterOutput.LABEL);
+        boolean members = labels && (full || !q.isLabelDictionaryAvailable());
+        if (members || q.isSelected(DatasetOutput.FEATURE) || q.isSelected(TimeseriesMetadataOutput.STATION)) {
+            criteria.setFetchMode(DatasetEntity.PROPERTY_FEATURE, FetchMode.JOIN);
+        }
+        if (full || q.isSelected(DatasetOutput.UOM)) {
+            criteria.setFetchMode(DatasetEntity.PROPERTY_UNIT, FetchMode.JOIN);
+        }
+        if (members) {
+            criteria.setFetchMode(DatasetEntity.PROPERTY_PHENOMENON, FetchMode.JOIN);
+            criteria.setFetchMode(DatasetEntity.PROPERTY_PROCEDURE, FetchMode.JOIN);
+            criteria.setFetchMode(DatasetEntity.PROPERTY_OFFERING, FetchMode.JOIN);
+            fetchTranslations(criteria, getFetchPath(DatasetEntity.PROPERTY_FEATURE, TRANSLATIONS_ALIAS), q);
+            fetchTranslations(criteria, getFetchPath(DatasetEntity.PROPERTY_PHENOMENON, TRANSLATIONS_ALIAS), q);
+            fetchTranslations(criteria, getFetchPath(DatasetEntity.PROPERTY_PROCEDURE, TRANSLATIONS_ALIAS), q);
+            fetchTranslations(criteria, getFetchPath(DatasetEntity.PROPERTY_OFFERING, TRANSLATIONS_ALIAS), q);
+        }
+        if ((full || q.isSelected(DatasetOutput.HAS_SAMPLINGS))
+                && DataModelUtil.isEntitySupported(SamplingEntity.class, criteria)) {
             criteria.setFetchMode(getFetchPath(DatasetEntity.PROPERTY_SAMPLING_PROFILE,
                     SamplingProfileDatasetEntity.PROPERTY_SAMPLING_IDS), FetchMode.JOIN);
         }
-        if (q.isExpanded() || instance) {
+        if (full) {
+            addExpandedFetchModes(criteria, q);
+        }
+        return criteria;
+    }
+
+    private void addExpandedFetchModes(Criteria criteria, DbQuery q) {
+        boolean lastValue = q.isSelected(DatasetOutput.LAST_VALUE);
+        if (lastValue || q.isSelected(DatasetOutput.FIRST_VALUE)) {
+            // the last value falls back to the first one for single value and reference datasets
             criteria.setFetchMode(FIRST_OBSERVATION_ALIAS, FetchMode.JOIN);
-            criteria.setFetchMode(LAST_OBSERVATION_ALIAS, FetchMode.JOIN);
             criteria.setFetchMode(getFetchPath(FIRST_OBSERVATION_ALIAS, PARAMETERS_ALIAS), FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(LAST_OBSERVATION_ALIAS, PARAMETERS_ALIAS), FetchMode.JOIN);
             criteria.setFetchMode("verticalMetadata", FetchMode.JOIN);
+        }
+        if (lastValue) {
+            criteria.setFetchMode(LAST_OBSERVATION_ALIAS, FetchMode.JOIN);
+            criteria.setFetchMode(getFetchPath(LAST_OBSERVATION_ALIAS, PARAMETERS_ALIAS), FetchMode.JOIN);
+        }
+        if (q.isSelected(DatasetOutput.REFERENCE_VALUES)) {
             criteria.setFetchMode("referenceValues", FetchMode.JOIN);
+        }
+        if (q.isSelected(DatasetOutput.DATASET_PARAMETERS)) {
             criteria.setFetchMode(DatasetEntity.PROPERTY_PLATFORM, FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(DatasetEntity.PROPERTY_PLATFORM, TRANSLATIONS_ALIAS), FetchMode.JOIN);
+            fetchTranslations(criteria, getFetchPath(DatasetEntity.PROPERTY_PLATFORM, TRANSLATIONS_ALIAS), q);
             criteria.setFetchMode(DatasetEntity.PROPERTY_CATEGORY, FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(DatasetEntity.PROPERTY_CATEGORY, TRANSLATIONS_ALIAS), FetchMode.JOIN);
+            fetchTranslations(criteria, getFetchPath(DatasetEntity.PROPERTY_CATEGORY, TRANSLATIONS_ALIAS), q);
         }
-        return criteria;
     }
 
     @Override
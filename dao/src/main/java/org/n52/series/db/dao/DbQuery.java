@@ -28,7 +28,9 @@
  */
 package org.n52.series.db.dao;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.hibernate.Criteria;
@@ -57,11 +59,15 @@ import org.n52.io.request.Parameters;
 import org.n52.series.db.DataModelUtil;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.FeatureEntity;
 import org.n52.series.db.beans.IdEntity;
 import org.n52.series.db.beans.OfferingEntity;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.beans.sampling.SamplingEntity;
 import org.n52.series.db.beans.sampling.SamplingProfileDatasetEntity;
+import org.n52.series.db.catalog.DatasetLabel;
+import org.n52.series.db.catalog.ParameterType;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.operation.TransformException;
 import org.slf4j.Logger;
@@ -85,20 +91,34 @@ public class DbQuery {
 
     private boolean includeHierarchy = true;
 
+    private HierarchyClosureCache hierarchyClosures;
+
+    private TranslationCache translations;
+
+    private DomainIdResolver domainIds;
+
     public DbQuery(IoParameters parameters) {
         if (parameters != null) {
             this.parameters = parameters;
         }
     }
 
+    private DbQuery copyWith(IoParameters ioParameters) {
+        DbQuery query = new DbQuery(ioParameters);
+        query.hierarchyClosures = hierarchyClosures;
+        query.translations = translations;
+        query.domainIds = domainIds;
+        return query;
+    }
+
     /**
      * Creates a new instance and removes spatial filter parameters.
      *
      * @return a new instance with spatial filters removed
      */
     public DbQuery removeSpatialFilter() {
-        return new DbQuery(parameters.removeAllOf(Parameters.BBOX)
-                                     .removeAllOf(Parameters.NEAR));
+        return copyWith(parameters.removeAllOf(Parameters.BBOX)
+                                  .removeAllOf(Parameters.NEAR));
     }
 
     /**
@@ -109,7 +129,7 @@ public class DbQuery {
      * @return a new instance with containing the new parameter values
      */
     public DbQuery replaceWith(String parameter, String... values) {
-        return new DbQuery(parameters.replaceWith(parameter, values));
+        return copyWith(parameters.replaceWith(parameter, values));
     }
 
     /**
@@ -126,7 +146,18 @@ public class DbQuery {
                 ioParameters = ioParameters.removeAllOf(parameterName);
             }
         }
-        return new DbQuery(ioParameters);
+        return copyWith(ioParameters);
+    }
+
+    /**
+     * Creates a new instance with the given parameters, keeping the hierarchy closures.
+     *
+     * @param ioParameters
+     *        the parameters
+     * @return a new instance
+     */
+    public DbQuery replaceParameters(IoParameters ioParameters) {
+        return copyWith(ioParameters);
     }
 
     public String getDatabaseSridCode() {
@@ -183,6 +214,24 @@ public class DbQuery {
         return parameters.isExpanded();
     }
 
+    /**
+     * @param field
+     *        the name of an output member
+     * @return <code>true</code> if no <code>fields</code> filter is set or the filter selects the given member
+     */
+    public boolean isSelected(String field) {
+        Set<String> fields = parameters.getFields();
+        if (fields == null || fields.isEmpty()) {
+            return true;
+        }
+        for (String selected : fields) {
+            if (selected.equalsIgnoreCase(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean isMatchDomainIds() {
         return parameters.getAsBoolean(Parameters.MATCH_DOMAIN_IDS, Parameters.DEFAULT_MATCH_DOMAIN_IDS);
     }
@@ -214,6 +263,65 @@ public class DbQuery {
         return !criteria.add(Restrictions.like(PROPERTY_LOCALE, getCountryCode())).list().isEmpty();
     }
 
+    /**
+     * @param translationClass
+     *        the translation entity class
+     * @param session
+     *        the session
+     * @return <code>true</code> if translations in the requested locale are stored for the given class
+     */
+    public boolean hasTranslation(Class<?> translationClass, Session session) {
+        return translations != null
+                ? translations.hasTranslation(translationClass, getLocale(), session)
+                : checkTranslationForLocale(session.createCriteria(translationClass));
+    }
+
+    /**
+     * @return <code>true</code> if labels in the requested locale are resolved in memory, i.e. queries do not
+     *         need to join translations
+     */
+    public boolean isLabelDictionaryAvailable() {
+        return translations != null && translations.isLabelDictionaryAvailable(getLocale());
+    }
+
+    /**
+     * @param entity
+     *        the entity to get the label from
+     * @return the label in the requested locale
+     */
+    public String getLabelFrom(DescribableEntity entity) {
+        return translations != null
+                ? translations.getLabel(entity, getLocale())
+                : entity.getLabelFrom(getLocale());
+    }
+
+    /**
+     * @param entity
+     *        the entity
+     * @return <code>true</code> if the label of the entity is resolved without its translations
+     */
+    public boolean isLabelResolvedInMemory(DescribableEntity entity) {
+        return translations != null && translations.holdsLabel(entity, getLocale());
+    }
+
+    /**
+     * @param dataset
+     *        the dataset to get the composite labels from
+     * @return the composite labels in the requested locale, built from the related entities only if not
+     *         materialized in memory
+     */
+    public DatasetLabel getDatasetLabelFrom(DatasetEntity dataset) {
+        DatasetLabel materialized = translations != null
+                ? translations.getDatasetLabel(dataset, getLocale())
+                : null;
+        return materialized != null
+                ? materialized
+                : DatasetLabel.of(getLabelFrom(dataset.getPhenomenon()),
+                                  getLabelFrom(dataset.getProcedure()),
+                                  getLabelFrom(dataset.getFeature()),
+                                  getLabelFrom(dataset.getOffering()));
+    }
+
     public Criteria addLocaleTo(Criteria criteria, Class< ? > clazz) {
         if (getLocale() != null && DataModelUtil.isEntitySupported(clazz, criteria)) {
             Criteria translations = criteria.createCriteria(PROPERTY_TRANSLATIONS, JoinType.LEFT_OUTER_JOIN);
@@ -352,7 +460,8 @@ public class DbQuery {
     private void addProcedureRestriction(Set<String> procedures, DetachedCriteria filter, Session session) {
         if (isIncludeHierarchy() && DataModelUtil.isPropertyNameSupported(ProcedureEntity.PROPERTY_PARENTS,
                 ProcedureEntity.class, session)) {
-            addHierarchicalFilterRestriction(procedures, DatasetEntity.PROPERTY_PROCEDURE, filter, "proc_");
+            addHierarchicalFilterRestriction(procedures, DatasetEntity.PROPERTY_PROCEDURE, filter, "proc_",
+                    ProcedureEntity.class);
         } else {
             addFilterRestriction(procedures, DatasetEntity.PROPERTY_PROCEDURE, filter);
         }
@@ -361,7 +470,8 @@ public class DbQuery {
     private void addOfferingRestriction(Set<String> offerings, DetachedCriteria filter, Session session) {
         if (isIncludeHierarchy() && DataModelUtil.isPropertyNameSupported(OfferingEntity.PROPERTY_PARENTS,
                 OfferingEntity.class, session)) {
-            addHierarchicalFilterRestriction(offerings, DatasetEntity.PROPERTY_OFFERING, filter, "off_");
+            addHierarchicalFilterRestriction(offerings, DatasetEntity.PROPERTY_OFFERING, filter, "off_",
+                    OfferingEntity.class);
         } else {
             addFilterRestriction(offerings, DatasetEntity.PROPERTY_OFFERING, filter);
         }
@@ -369,7 +479,8 @@ public class DbQuery {
 
     private void addFeatureRestriction(Set<String> features, DetachedCriteria filter) {
         if (isIncludeHierarchy()) {
-            addHierarchicalFilterRestriction(features, DatasetEntity.PROPERTY_FEATURE, filter, "feat_");
+            addHierarchicalFilterRestriction(features, DatasetEntity.PROPERTY_FEATURE, filter, "feat_",
+                    FeatureEntity.class);
         } else {
             addFilterRestriction(features, DatasetEntity.PROPERTY_FEATURE, filter);
         }
@@ -378,12 +489,22 @@ public class DbQuery {
     private DetachedCriteria addHierarchicalFilterRestriction(Set<String> values,
                                                               String entity,
                                                               DetachedCriteria filter,
-                                                              String prefix) {
-        if (hasValues(values)) {
+                                                              String prefix,
+                                                              Class<?> entityClass) {
+        HierarchyClosure closure = getHierarchyClosure(entityClass);
+        Set<Long> resolved = hasValues(values) && closure != null
+                ? resolveIds(values, entityClass)
+                : null;
+        if (resolved != null) {
+            // same as joining the parents below but without a join per filter
+            Set<Long> ids = new HashSet<>(resolved);
+            ids.addAll(closure.getDescendants(ids, 1));
+            filter.add(Restrictions.in(QueryUtils.createAssociation(entity, PROPERTY_ID), ids));
+        } else if (hasValues(values)) {
             filter.createCriteria(entity, prefix + "e")
                   // join the parents to enable filtering via parent ids
                   .createAlias(prefix + "e.parents", prefix + "p", JoinType.LEFT_OUTER_JOIN)
-                  .add(Restrictions.or(createIdCriterion(values, prefix + "e"),
+                  .add(Restrictions.or(createIdCriterion(values, prefix + "e", entityClass),
                                        Restrictions.in(prefix + "p.id", QueryUtils.parseToIds(values))));
         }
         return filter;
@@ -395,7 +516,7 @@ public class DbQuery {
 
     private DetachedCriteria addFilterRestriction(Set<String> values, String entity, DetachedCriteria filter) {
         if (hasValues(values)) {
-            Criterion restriction = createIdCriterion(values);
+            Criterion restriction = createIdCriterion(values, null, getFilteredEntityClass(entity));
             if (entity == null || entity.isEmpty()) {
                 return filter.add(restriction);
             } else {
@@ -407,21 +528,79 @@ public class DbQuery {
         return filter;
     }
 
-    private Criterion createIdCriterion(Set<String> values) {
-        return createIdCriterion(values, null);
+    private Class<?> getFilteredEntityClass(String entity) {
+        if (entity == null || entity.isEmpty()) {
+            return DatasetEntity.class;
+        }
+        ParameterType type = ParameterType.ofMemberProperty(entity);
+        return type != null
+                ? type.getEntityType()
+                : null;
     }
 
-    private Criterion createIdCriterion(Set<String> values, String alias) {
+    private Criterion createIdCriterion(Set<String> values, String alias, Class<?> entityClass) {
         return parameters.isMatchDomainIds()
-                ? createDomainIdFilter(values, alias)
+                ? createDomainIdFilter(values, alias, entityClass)
                 : createIdFilter(values, alias);
     }
 
-    private Criterion createDomainIdFilter(Set<String> filterValues, String alias) {
+    /**
+     * Matches the given domain ids. Domain ids resolved to primary keys in memory are filtered by their
+     * (indexed) keys, only unresolved domain ids are matched case-insensitive by the database.
+     *
+     * @param filterValues
+     *        the domain ids
+     * @param alias
+     *        the alias of the filtered entity
+     * @param entityClass
+     *        the filtered entity class or <code>null</code> if unknown
+     * @return the filter
+     */
+    public Criterion createDomainIdFilter(Collection<String> filterValues, String alias, Class<?> entityClass) {
+        Set<Long> ids = new HashSet<>();
+        Disjunction filter = Restrictions.disjunction();
         String column = QueryUtils.createAssociation(alias, DatasetEntity.PROPERTY_DOMAIN_ID);
-        return filterValues.stream().map(filter -> Restrictions.ilike(column, filter))
-                .collect(Restrictions::disjunction, Disjunction::add,
-                         (a, b) -> b.conditions().forEach(a::add));
+        for (String value : filterValues) {
+            Set<Long> resolved = resolveDomainId(value, entityClass);
+            if (resolved != null) {
+                ids.addAll(resolved);
+            } else {
+                filter.add(Restrictions.ilike(column, value));
+            }
+        }
+        if (!ids.isEmpty()) {
+            filter.add(Restrictions.in(QueryUtils.createAssociation(alias, PROPERTY_ID), ids));
+        }
+        return filter;
+    }
+
+    /**
+     * @param filterValues
+     *        ids or domain ids if domain ids shall be matched
+     * @param entityClass
+     *        the filtered entity class
+     * @return the primary keys of the filtered entities or <code>null</code> if not all domain ids could be
+     *         resolved in memory
+     */
+    public Set<Long> resolveIds(Collection<String> filterValues, Class<?> entityClass) {
+        if (!isMatchDomainIds()) {
+            return QueryUtils.parseToIds(filterValues);
+        }
+        Set<Long> ids = new HashSet<>();
+        for (String value : filterValues) {
+            Set<Long> resolved = resolveDomainId(value, entityClass);
+            if (resolved == null) {
+                return null;
+            }
+            ids.addAll(resolved);
+        }
+        return ids;
+    }
+
+    private Set<Long> resolveDomainId(String domainId, Class<?> entityClass) {
+        return domainIds != null && entityClass != null
+                ? domainIds.resolve(entityClass, domainId)
+                : null;
     }
 
     public Criterion createIdFilter(Set<String> filterValues, String alias) {
@@ -433,6 +612,16 @@ public class DbQuery {
         return values != null && !values.isEmpty();
     }
 
+    /**
+     * @return <code>true</code> if observations are filtered by more than their dataset and the timespan,
+     *         i.e. by result times, space or an OData filter
+     */
+    public boolean isObservationFiltered() {
+        return parameters.shallClassifyByResultTimes()
+                || parameters.getSpatialFilter() != null
+                || parameters.getODataFilter().isPresent();
+    }
+
     public Criteria addResultTimeFilter(Criteria criteria) {
         if (parameters.shallClassifyByResultTimes()) {
             criteria.add(parameters.getResultTimes().stream()
@@ -482,13 +671,36 @@ public class DbQuery {
     }
 
     public DbQuery withoutFieldsFilter() {
-        return new DbQuery(parameters.removeAllOf(Parameters.FILTER_FIELDS));
+        return copyWith(parameters.removeAllOf(Parameters.FILTER_FIELDS));
     }
 
     public boolean expandWithNextValuesBeyondInterval() {
         return parameters.isExpandWithNextValuesBeyondInterval();
     }
 
+    /**
+     * @param entityClass
+     *        the hierarchical entity class
+     * @return the transitive closure of the entity hierarchy or <code>null</code> if not available
+     */
+    public HierarchyClosure getHierarchyClosure(Class<?> entityClass) {
+        return hierarchyClosures != null
+                ? hierarchyClosures.getClosure(entityClass)
+                : null;
+    }
+
+    public void setHierarchyClosures(HierarchyClosureCache hierarchyClosures) {
+        this.hierarchyClosures = hierarchyClosures;
+    }
+
+    public void setTranslations(TranslationCache translations) {
+        this.translations = translations;
+    }
+
+    public void setDomainIdResolver(DomainIdResolver domainIds) {
+        this.domainIds = domainIds;
+    }
+
     /**
      * @return the includeHierarchy
      */
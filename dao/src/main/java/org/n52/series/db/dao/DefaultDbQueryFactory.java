@@ -31,6 +31,7 @@ package org.n52.series.db.dao;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.io.request.IoParameters;
+import org.springframework.beans.factory.annotation.Autowired;
 
 @Configurable
 public class DefaultDbQueryFactory implements DbQueryFactory {
@@ -40,10 +41,22 @@ public class DefaultDbQueryFactory implements DbQueryFactory {
     private String databaseSrid = "EPSG:4326";
     private Integer epsgCode;
 
+    @Autowired(required = false)
+    private HierarchyClosureCache hierarchyClosures;
+
+    @Autowired(required = false)
+    private TranslationCache translations;
+
+    @Autowired(required = false)
+    private DomainIdResolver domainIdResolver;
+
     @Override
     public DbQuery createFrom(IoParameters parameters) {
         DbQuery query = new DbQuery(parameters);
         query.setDatabaseSridCode(getDatabaseSrid());
+        query.setHierarchyClosures(hierarchyClosures);
+        query.setTranslations(translations);
+        query.setDomainIdResolver(domainIdResolver);
         return query;
     }
 
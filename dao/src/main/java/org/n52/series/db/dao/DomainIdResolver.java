@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.DatasetEntry;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.db.catalog.ParameterEntry;
+import org.n52.series.db.catalog.ParameterType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Resolves domain ids (identifiers) to primary keys by a case-normalized hash index of the datasets and
+ * parameter entities held by the {@link MetadataCatalog}. The index is rebuilt on demand whenever the
+ * catalog swapped its snapshot, so filters by domain ids can use the indexed primary keys instead of a
+ * case-insensitive <code>like</code> per value.
+ * <p>
+ * Only one thread rebuilds the index at a time, concurrent requests do not wait for it but leave their
+ * domain ids unresolved until the new index is available. Unresolved domain ids (also those unknown to the
+ * catalog, e.g. of entities inserted after the last refresh or of entities the catalog does not hold) have
+ * to be matched by the database.
+ */
+public class DomainIdResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DomainIdResolver.class);
+
+    private final AtomicReference<DomainIdIndex> index = new AtomicReference<>();
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    @Autowired(required = false)
+    private MetadataCatalog metadataCatalog;
+
+    private boolean enabled = true;
+
+    /**
+     * @param entityClass
+     *        the entity class filtered by domain id
+     * @param domainId
+     *        the domain id, matched case-insensitive
+     * @return the primary keys of all entities with the given domain id or <code>null</code> if the domain id
+     *         could not be resolved
+     */
+    public Set<Long> resolve(Class<?> entityClass, String domainId) {
+        DomainIdIndex current = getIndex();
+        if (current == null || domainId == null) {
+            return null;
+        }
+        Map<String, Set<Long>> ids = DatasetEntity.class.isAssignableFrom(entityClass)
+                ? current.datasets
+                : current.parameters.get(ParameterType.of(entityClass));
+        return ids != null
+                ? ids.get(normalize(domainId))
+                : null;
+    }
+
+    private DomainIdIndex getIndex() {
+        CatalogSnapshot snapshot = enabled && metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        if (snapshot == null) {
+            return null;
+        }
+        DomainIdIndex current = index.get();
+        if (isCurrent(current, snapshot)) {
+            return current;
+        }
+        if (!building.compareAndSet(false, true)) {
+            // another thread rebuilds the index, the database matches domain ids meanwhile
+            return null;
+        }
+        try {
+            current = index.get();
+            if (!isCurrent(current, snapshot)) {
+                current = new DomainIdIndex(snapshot);
+                index.set(current);
+            }
+            return current;
+        } finally {
+            building.set(false);
+        }
+    }
+
+    private static boolean isCurrent(DomainIdIndex current, CatalogSnapshot snapshot) {
+        return current != null && current.version == snapshot.getVersion();
+    }
+
+    static String normalize(String domainId) {
+        return domainId.toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setMetadataCatalog(MetadataCatalog metadataCatalog) {
+        this.metadataCatalog = metadataCatalog;
+    }
+
+    private static final class DomainIdIndex {
+
+        private final long version;
+
+        private final Map<String, Set<Long>> datasets;
+
+        private final Map<ParameterType, Map<String, Set<Long>>> parameters = new EnumMap<>(ParameterType.class);
+
+        DomainIdIndex(CatalogSnapshot snapshot) {
+            long start = System.currentTimeMillis();
+            this.version = snapshot.getVersion();
+            this.datasets = new HashMap<>(snapshot.size() * 2);
+            for (DatasetEntry dataset : snapshot.getDatasets()) {
+                add(datasets, dataset.getDomainId(), dataset.getId());
+            }
+            for (ParameterType type : ParameterType.values()) {
+                Collection<ParameterEntry> entries = snapshot.getParameters(type);
+                Map<String, Set<Long>> typed = new HashMap<>(entries.size() * 2);
+                for (ParameterEntry entry : entries) {
+                    add(typed, entry.getDomainId(), entry.getId());
+                }
+                parameters.put(type, typed);
+            }
+            LOGGER.debug("Indexing domain ids of catalog version {} takes {} ms", version,
+                    System.currentTimeMillis() - start);
+        }
+
+        private static void add(Map<String, Set<Long>> ids, String domainId, Long id) {
+            if (domainId != null) {
+                ids.merge(normalize(domainId), Collections.singleton(id), (a, b) -> {
+                    Set<Long> merged = new HashSet<>(a);
+                    merged.addAll(b);
+                    return merged;
+                });
+            }
+        }
+
+    }
+
+}
@@ -37,6 +37,8 @@ import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
+import org.n52.io.response.HierarchicalParameterOutput;
+import org.n52.io.response.dataset.StationOutput;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.beans.AbstractFeatureEntity;
 import org.n52.series.db.beans.DatasetEntity;
@@ -85,7 +87,7 @@ public class FeatureDao extends HierarchicalDao<FeatureEntity, I18nFeatureEntity
         Criteria c = getDefaultCriteria();
         IoParameters parameters = query.getParameters();
         if (parameters.getFeatures() != null && !parameters.getFeatures().isEmpty()) {
-            c.add(query.getParameters().isMatchDomainIds() ? createDomainIdFilter(parameters.getFeatures())
+            c.add(query.getParameters().isMatchDomainIds() ? createDomainIdFilter(query, parameters.getFeatures())
                     : createIdFilter(parameters.getFeatures()));
         }
         query.addSpatialFilter(c);
@@ -106,35 +108,31 @@ public class FeatureDao extends HierarchicalDao<FeatureEntity, I18nFeatureEntity
     protected Criteria addFetchModes(Criteria criteria, DbQuery q) {
         super.addFetchModes(criteria, q);
         if (q.isExpanded()) {
-            criteria.setFetchMode(AbstractFeatureEntity.PROPERTY_PARENTS, FetchMode.JOIN);
-            criteria.setFetchMode(AbstractFeatureEntity.PROPERTY_CHILDREN, FetchMode.JOIN);
-            criteria.setFetchMode(AbstractFeatureEntity.PROPERTY_DATASETS, FetchMode.JOIN);
-            criteria.setFetchMode(
-                    getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS, DatasetEntity.PROPERTY_PHENOMENON),
-                    FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS,
-                    DatasetEntity.PROPERTY_PHENOMENON, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-            criteria.setFetchMode(
-                    getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS, DatasetEntity.PROPERTY_PROCEDURE),
-                    FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS,
-                    DatasetEntity.PROPERTY_PROCEDURE, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-            criteria.setFetchMode(
-                    getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS, DatasetEntity.PROPERTY_OFFERING),
-                    FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS,
-                    DatasetEntity.PROPERTY_OFFERING, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-            criteria.setFetchMode(
-                    getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS, DatasetEntity.PROPERTY_PLATFORM),
-                    FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS,
-                    DatasetEntity.PROPERTY_PLATFORM, TRANSLATIONS_ALIAS), FetchMode.JOIN);
-            criteria.setFetchMode(
-                    getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS, DatasetEntity.PROPERTY_CATEGORY),
-                    FetchMode.JOIN);
-            criteria.setFetchMode(getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS,
-                    DatasetEntity.PROPERTY_CATEGORY, TRANSLATIONS_ALIAS), FetchMode.JOIN);
+            if (q.isSelected(HierarchicalParameterOutput.PARENTS)) {
+                criteria.setFetchMode(AbstractFeatureEntity.PROPERTY_PARENTS, FetchMode.JOIN);
+            }
+            if (q.isSelected(HierarchicalParameterOutput.CHILDREN)) {
+                criteria.setFetchMode(AbstractFeatureEntity.PROPERTY_CHILDREN, FetchMode.JOIN);
+            }
+            if (q.isSelected(StationOutput.PROPERTIES)) {
+                addDatasetFetchModes(criteria, q);
+            }
         }
         return criteria;
     }
+
+    private void addDatasetFetchModes(Criteria criteria, DbQuery q) {
+        criteria.setFetchMode(AbstractFeatureEntity.PROPERTY_DATASETS, FetchMode.JOIN);
+        for (String member : new String[] {
+            DatasetEntity.PROPERTY_PHENOMENON,
+            DatasetEntity.PROPERTY_PROCEDURE,
+            DatasetEntity.PROPERTY_OFFERING,
+            DatasetEntity.PROPERTY_PLATFORM,
+            DatasetEntity.PROPERTY_CATEGORY
+        }) {
+            criteria.setFetchMode(getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS, member), FetchMode.JOIN);
+            fetchTranslations(criteria, getFetchPath(AbstractFeatureEntity.PROPERTY_DATASETS, member,
+                    TRANSLATIONS_ALIAS), q);
+        }
+    }
 }
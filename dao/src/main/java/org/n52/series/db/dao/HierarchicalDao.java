@@ -41,7 +41,6 @@ import java.util.stream.Collectors;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
-import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.transform.RootEntityResultTransformer;
@@ -49,7 +48,6 @@ import org.n52.io.request.IoParameters;
 import org.n52.io.request.Parameters;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.DataModelUtil;
-import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.HierarchicalEntity;
 import org.n52.series.db.beans.IdEntity;
 import org.n52.series.db.beans.i18n.I18nEntity;
@@ -102,7 +100,7 @@ public abstract class HierarchicalDao<T extends HierarchicalEntity<T>, I extends
         Criteria c = getDefaultCriteria();
         Set<String> parameters = getParameter(query);
         if (parameters != null && !parameters.isEmpty()) {
-            c.add(query.getParameters().isMatchDomainIds() ? createDomainIdFilter(parameters)
+            c.add(query.getParameters().isMatchDomainIds() ? createDomainIdFilter(query, parameters)
                     : createIdFilter(parameters));
         }
         query.addSpatialFilter(c);
@@ -120,8 +118,14 @@ public abstract class HierarchicalDao<T extends HierarchicalEntity<T>, I extends
     }
 
     protected Set<Long> getChildrenIds(DbQuery query, Set<String> entities, int level) {
+        HierarchyClosure closure = query.getHierarchyClosure(getEntityClass());
+        if (closure != null) {
+            // like querying recursively: direct children are included even if level is below 1
+            return closure.getDescendants(resolveIds(query, entities), Math.max(1, level));
+        }
         Criteria c = getDefaultCriteria();
-        c.add(query.getParameters().isMatchDomainIds() ? createDomainIdFilter(entities) : createIdFilter(entities));
+        c.add(query.getParameters().isMatchDomainIds() ? createDomainIdFilter(query, entities)
+                : createIdFilter(entities));
         if (checkChildrenProperty()) {
             c.createCriteria(HierarchicalEntity.PROPERTY_CHILDREN, "c");
             c.setProjection(Projections.property("c." + IdEntity.PROPERTY_ID));
@@ -130,13 +134,25 @@ public abstract class HierarchicalDao<T extends HierarchicalEntity<T>, I extends
         return Collections.emptySet();
     }
 
+    @SuppressWarnings("unchecked")
+    private Set<Long> resolveIds(DbQuery query, Set<String> entities) {
+        Set<Long> resolved = query.resolveIds(entities, getEntityClass());
+        if (resolved != null) {
+            return resolved;
+        }
+        Criteria c = getDefaultCriteria();
+        c.add(createDomainIdFilter(query, entities));
+        c.setProjection(Projections.property(IdEntity.PROPERTY_ID));
+        return new LinkedHashSet<>(c.list());
+    }
+
     private boolean checkChildrenProperty() {
         return DataModelUtil.isPropertyNameSupported(HierarchicalEntity.PROPERTY_CHILDREN, getEntityClass(), session);
     }
 
     protected DbQuery updateQuery(DbQuery query, Collection<String> entities) {
         IoParameters params =  replaceParameter(query, entities).removeAllOf(Parameters.MATCH_DOMAIN_IDS);
-        return new DbQuery(params);
+        return query.replaceParameters(params);
     }
 
     protected Set<Long> queryRecursiv(Set<Long> entities, int level) {
@@ -161,9 +177,8 @@ public abstract class HierarchicalDao<T extends HierarchicalEntity<T>, I extends
                 .setResultTransformer(RootEntityResultTransformer.INSTANCE);
     }
 
-    protected Criterion createDomainIdFilter(Collection<String> filterValues) {
-        return filterValues.stream().map(filter -> Restrictions.ilike(DescribableEntity.PROPERTY_DOMAIN_ID, filter))
-                .collect(Restrictions::disjunction, Disjunction::add, (a, b) -> b.conditions().forEach(a::add));
+    protected Criterion createDomainIdFilter(DbQuery query, Collection<String> filterValues) {
+        return query.createDomainIdFilter(filterValues, null, getEntityClass());
     }
 
     protected Criterion createIdFilter(Collection<String> filterValues) {
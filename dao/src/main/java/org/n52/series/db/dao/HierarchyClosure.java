@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transitive closure of a parent/child hierarchy, i.e. all ancestor/descendant pairs along with their
+ * distance. Descendants of any depth are a single lookup. Cycles are tolerated: every descendant is kept
+ * once at its shortest distance.
+ */
+public final class HierarchyClosure {
+
+    private static final HierarchyClosure EMPTY = new HierarchyClosure(Collections.emptyMap());
+
+    private final Map<Long, Descendants> descendants;
+
+    private final long pairs;
+
+    private HierarchyClosure(Map<Long, Descendants> descendants) {
+        this.descendants = descendants;
+        this.pairs = descendants.values().stream().mapToLong(d -> d.ids.length).sum();
+    }
+
+    public static HierarchyClosure empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param parentsByChild
+     *        the direct parents of each child
+     * @return the closure
+     */
+    public static HierarchyClosure fromParents(Map<Long, ? extends Collection<Long>> parentsByChild) {
+        Map<Long, List<Long>> childrenByParent = new HashMap<>();
+        parentsByChild.forEach((child, parents) -> {
+            for (Long parent : parents) {
+                childrenByParent.computeIfAbsent(parent, p -> new ArrayList<>()).add(child);
+            }
+        });
+        Map<Long, Descendants> closure = new HashMap<>(childrenByParent.size() * 2);
+        for (Long ancestor : childrenByParent.keySet()) {
+            closure.put(ancestor, collect(ancestor, childrenByParent));
+        }
+        return new HierarchyClosure(closure);
+    }
+
+    private static Descendants collect(Long ancestor, Map<Long, List<Long>> childrenByParent) {
+        Set<Long> visited = new LinkedHashSet<>();
+        List<Integer> depthEnds = new ArrayList<>();
+        Deque<Long> level = new ArrayDeque<>(Collections.singleton(ancestor));
+        while (!level.isEmpty()) {
+            Deque<Long> next = new ArrayDeque<>();
+            for (Long parent : level) {
+                for (Long child : childrenByParent.getOrDefault(parent, Collections.emptyList())) {
+                    if (!child.equals(ancestor) && visited.add(child)) {
+                        next.add(child);
+                    }
+                }
+            }
+            if (!next.isEmpty()) {
+                depthEnds.add(visited.size());
+            }
+            level = next;
+        }
+        return new Descendants(visited.stream().mapToLong(Long::longValue).toArray(),
+                               depthEnds.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @param ancestors
+     *        the ancestors
+     * @param maxDepth
+     *        the maximum distance to include, <code>1</code> for direct children
+     * @return the union of all descendants within the given distance
+     */
+    public Set<Long> getDescendants(Collection<Long> ancestors, int maxDepth) {
+        Set<Long> result = new LinkedHashSet<>();
+        for (Long ancestor : ancestors) {
+            Descendants candidates = descendants.get(ancestor);
+            if (candidates != null && maxDepth > 0) {
+                int end = candidates.depthEnds[Math.min(maxDepth, candidates.depthEnds.length) - 1];
+                for (int i = 0; i < end; i++) {
+                    result.add(candidates.ids[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    public Set<Long> getDescendants(Long ancestor, int maxDepth) {
+        return getDescendants(Collections.singleton(ancestor), maxDepth);
+    }
+
+    /**
+     * @param ancestor
+     *        the ancestor
+     * @param descendant
+     *        the descendant
+     * @return the distance between both or <code>-1</code> if not related
+     */
+    public int getDepth(Long ancestor, Long descendant) {
+        Descendants candidates = descendants.get(ancestor);
+        if (candidates != null) {
+            for (int i = 0; i < candidates.ids.length; i++) {
+                if (candidates.ids[i] == descendant) {
+                    int position = Arrays.binarySearch(candidates.depthEnds, i + 1);
+                    return (position >= 0 ? position : -position - 1) + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the ids of all entities having children
+     */
+    public Set<Long> getAncestors() {
+        return new HashSet<>(descendants.keySet());
+    }
+
+    /**
+     * @return the number of ancestor/descendant pairs
+     */
+    public long size() {
+        return pairs;
+    }
+
+    private static final class Descendants {
+
+        // ordered by distance to the ancestor
+        private final long[] ids;
+
+        // exclusive end index within ids of each distance
+        private final int[] depthEnds;
+
+        Descendants(long[] ids, int[] depthEnds) {
+            this.ids = ids;
+            this.depthEnds = depthEnds;
+        }
+
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.n52.series.db.DataModelUtil;
+import org.n52.series.db.HibernateSessionStore;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.HierarchicalEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Holds the {@link HierarchyClosure} of features, procedures, offerings and platforms (as far as the data
+ * model maps parents). The closures are built in background at startup and rebuilt periodically, so
+ * hierarchy changes become visible after the next refresh. Until the first build, queries walk the
+ * hierarchy in the database.
+ */
+public class HierarchyClosureCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HierarchyClosureCache.class);
+
+    private static final String PARENT_ALIAS = "parent";
+
+    private static final List<Class<?>> HIERARCHICAL_ENTITIES = Arrays.asList(FeatureEntity.class,
+                                                                               ProcedureEntity.class,
+                                                                               OfferingEntity.class,
+                                                                               PlatformEntity.class);
+
+    private final AtomicReference<Map<Class<?>, HierarchyClosure>> closures = new AtomicReference<>();
+
+    @Autowired
+    private HibernateSessionStore sessionStore;
+
+    private ScheduledExecutorService scheduler;
+
+    private boolean enabled = true;
+
+    private long refreshIntervalSeconds = 300;
+
+    public void init() {
+        if (!enabled) {
+            LOGGER.info("Hierarchy closure cache is disabled.");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hierarchy-closure");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshSafely, 0, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @param entityClass
+     *        the hierarchical entity class
+     * @return the closure of the given entity type or <code>null</code> if not available (yet)
+     */
+    public HierarchyClosure getClosure(Class<?> entityClass) {
+        Map<Class<?>, HierarchyClosure> current = enabled
+                ? closures.get()
+                : null;
+        return current != null
+                ? current.get(entityClass)
+                : null;
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not refresh hierarchy closures.", e);
+        }
+    }
+
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        Session session = sessionStore.getSession();
+        try {
+            Map<Class<?>, HierarchyClosure> next = new HashMap<>();
+            for (Class<?> entityClass : HIERARCHICAL_ENTITIES) {
+                next.put(entityClass, hasParents(entityClass, session)
+                        ? HierarchyClosure.fromParents(getParentsByChild(entityClass, session))
+                        : HierarchyClosure.empty());
+            }
+            closures.set(Collections.unmodifiableMap(next));
+            LOGGER.debug("Building hierarchy closures takes {} ms", System.currentTimeMillis() - start);
+        } finally {
+            sessionStore.returnSession(session);
+        }
+    }
+
+    private boolean hasParents(Class<?> entityClass, Session session) {
+        return DataModelUtil.isEntitySupported(entityClass, session)
+                && DataModelUtil.isPropertyNameSupported(HierarchicalEntity.PROPERTY_PARENTS, entityClass, session);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Set<Long>> getParentsByChild(Class<?> entityClass, Session session) {
+        List<Object[]> pairs = session.createCriteria(entityClass)
+                .createAlias(HierarchicalEntity.PROPERTY_PARENTS, PARENT_ALIAS)
+                .setProjection(Projections.projectionList()
+                        .add(Projections.property(DescribableEntity.PROPERTY_ID))
+                        .add(Projections.property(QueryUtils.createAssociation(PARENT_ALIAS,
+                                DescribableEntity.PROPERTY_ID))))
+                .list();
+        Map<Long, Set<Long>> parentsByChild = new HashMap<>();
+        for (Object[] pair : pairs) {
+            parentsByChild.computeIfAbsent((Long) pair[0], id -> new HashSet<>()).add((Long) pair[1]);
+        }
+        return parentsByChild;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setRefreshIntervalSeconds(long refreshIntervalSeconds) {
+        this.refreshIntervalSeconds = Math.max(1, refreshIntervalSeconds);
+    }
+
+    public void setSessionStore(HibernateSessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+}
@@ -28,6 +28,7 @@
  */
 package org.n52.series.db.dao;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -128,6 +129,17 @@ public class MeasuringProgramDao extends AbstractDao<MeasuringProgramEntity>
         return getInstance(key, query, clazz, criteria);
     }
 
+    @Override
+    protected List<MeasuringProgramEntity> getInstances(Collection<Long> keys, DbQuery query,
+            Class<MeasuringProgramEntity> clazz) {
+        if (!DataModelUtil.isEntitySupported(getEntityClass(), session)) {
+            return Collections.emptyList();
+        }
+        Criteria criteria = session.createCriteria(clazz);
+        criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+        return getInstances(keys, query, clazz, criteria);
+    }
+
     protected Class<I18nMeasuringProgramEntity> getI18NEntityClass() {
         return I18nMeasuringProgramEntity.class;
     }
@@ -31,9 +31,9 @@ package org.n52.series.db.dao;
 import java.util.List;
 
 import org.hibernate.Criteria;
-import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
+import org.n52.io.response.ParameterOutput;
 import org.n52.series.db.DataAccessException;
 import org.n52.series.db.beans.DescribableEntity;
 import org.n52.series.db.beans.i18n.I18nEntity;
@@ -92,7 +92,9 @@ public abstract class ParameterDao<T extends DescribableEntity, I extends I18nEn
 
     @Override
     protected Criteria addFetchModes(Criteria criteria, DbQuery query) {
-        criteria.setFetchMode(TRANSLATIONS_ALIAS, FetchMode.JOIN);
+        if (query.isSelected(ParameterOutput.LABEL)) {
+            fetchTranslations(criteria, TRANSLATIONS_ALIAS, query);
+        }
         return criteria;
     }
 
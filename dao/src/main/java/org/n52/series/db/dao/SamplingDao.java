@@ -28,6 +28,7 @@
  */
 package org.n52.series.db.dao;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -123,6 +124,17 @@ public class SamplingDao extends AbstractDao<SamplingEntity> implements Searchab
         return getInstance(key, query, clazz, criteria);
     }
 
+    @Override
+    protected List<SamplingEntity> getInstances(Collection<Long> keys, DbQuery query,
+            Class<SamplingEntity> clazz) {
+        if (!DataModelUtil.isEntitySupported(getEntityClass(), session)) {
+            return Collections.emptyList();
+        }
+        Criteria criteria = session.createCriteria(clazz);
+        criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+        return getInstances(keys, query, clazz, criteria);
+    }
+
     @Override
     protected Criteria getDefaultCriteria(String alias, DbQuery query, Class<?> clazz) {
 //      String nonNullAlias = alias != null ? alias : getDefaultAlias();
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.n52.series.db.DataAccessException;
+import org.n52.series.db.DataModelUtil;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.DescribableEntity;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.DatasetEntry;
+import org.n52.series.db.catalog.DatasetLabel;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.db.catalog.ParameterEntry;
+import org.n52.series.db.catalog.ParameterType;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Answers which locales translations exist for and resolves translated labels without joining translation
+ * tables.
+ * <ul>
+ * <li>The locales stored per translation entity class are queried once and kept for a configurable time, so
+ * localized listings no longer list all translation rows to decide whether to join translations.</li>
+ * <li>Labels of datasets and their parameter entities are taken from the {@link MetadataCatalog} which
+ * holds them for all configured locales. Entities not (yet) held by the catalog fall back to their own
+ * translations.</li>
+ * </ul>
+ */
+public class TranslationCache {
+
+    private static final String PROPERTY_LOCALE = "locale";
+
+    @Autowired(required = false)
+    private MetadataCatalog metadataCatalog;
+
+    private Cache<Class<?>, Set<String>> locales;
+
+    private boolean enabled = true;
+
+    private long ttlSeconds = 300;
+
+    public TranslationCache() {
+        this.locales = createCache();
+    }
+
+    /**
+     * @param translationClass
+     *        the translation entity class
+     * @param locale
+     *        the requested locale
+     * @param session
+     *        the session to query the stored locales with if not cached
+     * @return <code>true</code> if translations in the given locale are stored for the given class
+     */
+    public boolean hasTranslation(Class<?> translationClass, String locale, Session session) {
+        if (locale == null) {
+            return false;
+        }
+        String countryCode = getCountryCode(locale);
+        if (!enabled) {
+            return !getStoredLocales(translationClass, countryCode, session).isEmpty();
+        }
+        try {
+            return locales.get(translationClass, () -> getStoredLocales(translationClass, null, session))
+                          .contains(countryCode);
+        } catch (ExecutionException e) {
+            throw new DataAccessException("Could not determine stored locales of " + translationClass, e);
+        }
+    }
+
+    /**
+     * @param locale
+     *        the requested locale
+     * @return <code>true</code> if labels in the given locale are held in memory so that queries do not need
+     *         to join translations
+     */
+    public boolean isLabelDictionaryAvailable(String locale) {
+        return getSnapshot(locale) != null;
+    }
+
+    /**
+     * @param entity
+     *        the entity (a dataset or one of its parameter entities)
+     * @param locale
+     *        the requested locale
+     * @return the label in the given locale
+     */
+    public String getLabel(DescribableEntity entity, String locale) {
+        String label = getLabelFromDictionary(entity, locale);
+        return label != null
+                ? label
+                : entity.getLabelFrom(locale);
+    }
+
+    /**
+     * @param entity
+     *        the entity (a dataset or one of its parameter entities)
+     * @param locale
+     *        the requested locale
+     * @return <code>true</code> if the label is resolved in memory, i.e. without the entity's translations
+     */
+    public boolean holdsLabel(DescribableEntity entity, String locale) {
+        return getLabelFromDictionary(entity, locale) != null;
+    }
+
+    /**
+     * @param dataset
+     *        the dataset
+     * @param locale
+     *        the requested locale
+     * @return the composite labels materialized by the catalog or <code>null</code> if not held in memory
+     */
+    public DatasetLabel getDatasetLabel(DatasetEntity dataset, String locale) {
+        CatalogSnapshot snapshot = getSnapshot(locale);
+        DatasetEntry entry = snapshot != null && dataset.getId() != null
+                ? snapshot.getDataset(dataset.getId())
+                : null;
+        return entry != null
+                ? entry.getCompositeLabel(locale)
+                : null;
+    }
+
+    private String getLabelFromDictionary(DescribableEntity entity, String locale) {
+        CatalogSnapshot snapshot = getSnapshot(locale);
+        if (snapshot == null || entity.getId() == null) {
+            return null;
+        }
+        if (entity instanceof DatasetEntity) {
+            DatasetEntry entry = snapshot.getDataset(entity.getId());
+            return entry != null
+                    ? entry.getLabel(locale)
+                    : null;
+        }
+        ParameterType type = ParameterType.of(entity);
+        ParameterEntry entry = type != null
+                ? snapshot.getParameter(type, entity.getId())
+                : null;
+        return entry != null
+                ? entry.getLabel(locale)
+                : null;
+    }
+
+    private CatalogSnapshot getSnapshot(String locale) {
+        CatalogSnapshot snapshot = enabled && metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        return snapshot != null && snapshot.supportsLocale(locale)
+                ? snapshot
+                : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> getStoredLocales(Class<?> translationClass, String countryCode, Session session) {
+        if (!DataModelUtil.isEntitySupported(translationClass, session)) {
+            return Collections.emptySet();
+        }
+        Criteria criteria = session.createCriteria(translationClass)
+                .setProjection(Projections.distinct(Projections.property(PROPERTY_LOCALE)));
+        if (countryCode != null) {
+            criteria.add(Restrictions.like(PROPERTY_LOCALE, countryCode));
+        }
+        List<String> stored = criteria.list();
+        return Collections.unmodifiableSet(new HashSet<>(stored));
+    }
+
+    private static String getCountryCode(String locale) {
+        return locale.split("_")[0];
+    }
+
+    private Cache<Class<?>, Set<String>> createCache() {
+        return CacheBuilder.newBuilder()
+                           .expireAfterWrite(Math.max(1, ttlSeconds), TimeUnit.SECONDS)
+                           .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+        this.locales = createCache();
+    }
+
+    public void setMetadataCatalog(MetadataCatalog metadataCatalog) {
+        this.metadataCatalog = metadataCatalog;
+    }
+
+}
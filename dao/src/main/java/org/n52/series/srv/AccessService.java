@@ -28,13 +28,20 @@
  */
 package org.n52.series.srv;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import org.n52.io.request.IoParameters;
 import org.n52.io.response.OutputCollection;
 import org.n52.io.response.ParameterOutput;
 import org.n52.series.db.DataAccessException;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.db.catalog.ParameterType;
 import org.n52.series.db.da.OutputAssembler;
 import org.n52.series.db.dao.DbQuery;
 import org.n52.series.db.dao.DbQueryFactory;
@@ -44,11 +51,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 public class AccessService<T extends ParameterOutput> extends ParameterService<T> {
 
+    private static final String DATASETS = "datasets";
+
     protected final OutputAssembler<T> repository;
 
     @Autowired
     protected DbQueryFactory dbQueryFactory;
 
+    @Autowired(required = false)
+    protected AdmissionController admissionController;
+
+    @Autowired(required = false)
+    protected ResponseCache responseCache;
+
+    @Autowired(required = false)
+    protected MetadataCatalog metadataCatalog;
+
+    private String collection;
+
     public AccessService(OutputAssembler<T> repository) {
         this.repository = repository;
     }
@@ -57,7 +77,9 @@ public class AccessService<T extends ParameterOutput> extends ParameterService<T
     public OutputCollection<T> getExpandedParameters(IoParameters query) {
         try {
             DbQuery dbQuery = dbQueryFactory.createFrom(query);
-            List<T> results = repository.getAllExpanded(dbQuery);
+            List<T> results = cached(query, true,
+                    () -> admitListing(query, () -> estimateListingSize(dbQuery),
+                                       () -> repository.getAllExpanded(dbQuery)));
             return new OutputCollection<T>(results);
         } catch (DataAccessException e) {
             throw new InternalServerException("Could not get expanded data.", e);
@@ -68,7 +90,7 @@ public class AccessService<T extends ParameterOutput> extends ParameterService<T
     public OutputCollection<T> getCondensedParameters(IoParameters query) {
         try {
             DbQuery dbQuery = dbQueryFactory.createFrom(query);
-            List<T> results = repository.getAllCondensed(dbQuery);
+            List<T> results = cached(query, false, () -> repository.getAllCondensed(dbQuery));
             return new OutputCollection<T>(results);
         } catch (DataAccessException e) {
             throw new InternalServerException("Could not get condensed data.", e);
@@ -79,11 +101,7 @@ public class AccessService<T extends ParameterOutput> extends ParameterService<T
     public OutputCollection<T> getParameters(String[] ids, IoParameters query) {
         try {
             DbQuery dbQuery = dbQueryFactory.createFrom(query);
-            List<T> results = new ArrayList<>();
-            for (String id : ids) {
-                results.add(repository.getInstance(id, dbQuery));
-            }
-            return new OutputCollection<>(results);
+            return new OutputCollection<>(repository.getInstances(Arrays.asList(ids), dbQuery));
         } catch (DataAccessException e) {
             throw new InternalServerException("Could not get multiple instance data.", e);
         }
@@ -108,4 +126,52 @@ public class AccessService<T extends ParameterOutput> extends ParameterService<T
         }
     }
 
+    protected List<T> cached(IoParameters query, boolean expanded, Supplier<List<T>> listing) {
+        return responseCache != null && collection != null
+                ? responseCache.get(collection, expanded, query, listing)
+                : listing.get();
+    }
+
+    protected <R> R admitListing(IoParameters query, LongSupplier size, Supplier<R> action) {
+        return admissionController != null
+                ? admissionController.admitListingRequest(query, size, action)
+                : action.get();
+    }
+
+    protected <R> R admitData(IoParameters query, Collection<String> datasets, Supplier<R> action) {
+        return admissionController != null
+                ? admissionController.admitDataRequest(query, datasets, action)
+                : action.get();
+    }
+
+    /**
+     * @param query
+     *        the query
+     * @return the number of items the collection lists for the given query, or <code>-1</code> if the
+     *         metadata catalog cannot tell
+     */
+    protected long estimateListingSize(DbQuery query) {
+        CatalogSnapshot snapshot = metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        if (snapshot == null || collection == null) {
+            return -1;
+        }
+        if (DATASETS.equals(collection)) {
+            return snapshot.countDatasets(CatalogFilter.of(query));
+        }
+        ParameterType type = ParameterType.ofParameterName(collection);
+        return type != null
+                ? snapshot.countParameters(type, CatalogFilter.of(query))
+                : -1;
+    }
+
+    /**
+     * @param collection
+     *        the name listings are cached by, e.g. <code>features</code>, see {@link ResponseCache}
+     */
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
 }
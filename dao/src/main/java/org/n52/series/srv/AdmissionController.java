@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.joda.time.Interval;
+import org.n52.io.IntervalWithTimeZone;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.DatasetEntry;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Classifies incoming requests by an estimated cost and runs heavy ones within a bounded bulkhead. Light
+ * requests (metadata lookups, small data pulls) are executed directly on the calling thread, so they keep
+ * their latency even while bulk exports occupy the bulkhead. Heavy requests finding no free slot are
+ * rejected right away with a {@link ServiceBusyException}, so they never hold a servlet thread waiting.
+ * <p>
+ * The cost of a data request is estimated as <code>hours &times; expected values per hour</code> summed up
+ * over the requested datasets, where hours are those of the requested interval overlapping the dataset's
+ * <code>firstValueAt</code> and <code>lastValueAt</code> held by the {@link MetadataCatalog}. Datasets not
+ * held by the catalog count with the whole interval. No query runs to estimate a cost. The cost of an
+ * expanded listing is the number of items to expand, i.e. the <code>limit</code> parameter, the number of
+ * requested datasets or the size of the listing if known.
+ */
+public class AdmissionController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionController.class);
+
+    private static final long UNBOUNDED_COST = Long.MAX_VALUE;
+
+    private static final double MILLIS_PER_HOUR = 3600000d;
+
+    @Autowired(required = false)
+    private MetadataCatalog metadataCatalog;
+
+    private boolean enabled = true;
+
+    private int maxConcurrentHeavyRequests = 4;
+
+    private long retryAfterSeconds = 10;
+
+    private long heavyDataCostThreshold = 100000;
+
+    private long expectedValuesPerHour = 60;
+
+    private long heavyListingThreshold = 500;
+
+    private Semaphore running;
+
+    private final AtomicLong lightRequests = new AtomicLong();
+
+    private final AtomicLong heavyRequests = new AtomicLong();
+
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    public AdmissionController() {
+        init();
+    }
+
+    public void init() {
+        this.running = new Semaphore(maxConcurrentHeavyRequests);
+        LOGGER.debug("Heavy request bulkhead: {} concurrent, threshold {} values",
+                     maxConcurrentHeavyRequests,
+                     heavyDataCostThreshold);
+    }
+
+    /**
+     * Runs a data request for the given datasets.
+     *
+     * @param parameters
+     *        the request parameters
+     * @param datasets
+     *        the ids of the datasets to assemble data for
+     * @param action
+     *        the actual data assembling
+     * @param <T>
+     *        the result type
+     * @return the result of the action
+     * @throws ServiceBusyException
+     *         if the bulkhead is saturated
+     */
+    public <T> T admitDataRequest(IoParameters parameters, Collection<String> datasets, Supplier<T> action) {
+        if (!enabled) {
+            return admit(false, action);
+        }
+        return admit(estimateDataCost(parameters, datasets) > heavyDataCostThreshold, action);
+    }
+
+    /**
+     * Runs an expanded listing request.
+     *
+     * @param parameters
+     *        the request parameters
+     * @param size
+     *        estimates the number of items listed without a limit, negative if unknown
+     * @param action
+     *        the actual listing
+     * @param <T>
+     *        the result type
+     * @return the result of the action
+     * @throws ServiceBusyException
+     *         if the bulkhead is saturated
+     */
+    public <T> T admitListingRequest(IoParameters parameters, LongSupplier size, Supplier<T> action) {
+        return admit(enabled && estimateListingCost(parameters, size) > heavyListingThreshold, action);
+    }
+
+    long estimateDataCost(IoParameters parameters, Collection<String> datasets) {
+        IntervalWithTimeZone timespan = parameters.getTimespan();
+        if (timespan == null) {
+            return UNBOUNDED_COST;
+        }
+        Interval interval = timespan.toInterval();
+        CatalogSnapshot snapshot = metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        double hours = 0;
+        for (String dataset : datasets) {
+            Long id = toId(dataset);
+            DatasetEntry entry = snapshot != null && id != null
+                    ? snapshot.getDataset(id)
+                    : null;
+            hours += entry != null
+                    ? getOverlappingHours(interval, entry.getFirstValueAt(), entry.getLastValueAt())
+                    : getOverlappingHours(interval, null, null);
+        }
+        double cost = hours * expectedValuesPerHour;
+        return cost >= UNBOUNDED_COST
+                ? UNBOUNDED_COST
+                : (long) cost;
+    }
+
+    /**
+     * @param interval
+     *        the requested interval
+     * @param firstValueAt
+     *        the first value of a dataset, <code>null</code> if unknown
+     * @param lastValueAt
+     *        the last value of a dataset, <code>null</code> if unknown
+     * @return the hours of the interval a dataset may have values in, at least one if they overlap at all
+     */
+    static double getOverlappingHours(Interval interval, Date firstValueAt, Date lastValueAt) {
+        long start = firstValueAt != null
+                ? Math.max(interval.getStartMillis(), firstValueAt.getTime())
+                : interval.getStartMillis();
+        long end = lastValueAt != null
+                ? Math.min(interval.getEndMillis(), lastValueAt.getTime())
+                : interval.getEndMillis();
+        return end < start
+                ? 0d
+                : Math.max(1d, (end - start) / MILLIS_PER_HOUR);
+    }
+
+    long estimateListingCost(IoParameters parameters, LongSupplier size) {
+        if (parameters.containsParameter(Parameters.LIMIT) && parameters.getLimit() > 0) {
+            return parameters.getLimit();
+        }
+        if (!parameters.getDatasets().isEmpty()) {
+            return parameters.getDatasets().size();
+        }
+        // a listing of unknown size is not held back
+        return Math.max(0, size.getAsLong());
+    }
+
+    private static Long toId(String dataset) {
+        try {
+            return Long.valueOf(dataset);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private <T> T admit(boolean heavy, Supplier<T> action) {
+        if (!heavy) {
+            lightRequests.incrementAndGet();
+            return action.get();
+        }
+        if (!running.tryAcquire()) {
+            throw reject("no free slot");
+        }
+        try {
+            heavyRequests.incrementAndGet();
+            long start = System.currentTimeMillis();
+            T result = action.get();
+            LOGGER.debug("Heavy request within bulkhead takes {} ms", System.currentTimeMillis() - start);
+            return result;
+        } finally {
+            running.release();
+        }
+    }
+
+    private ServiceBusyException reject(String reason) {
+        rejectedRequests.incrementAndGet();
+        LOGGER.warn("Rejected heavy request: {}", reason);
+        return new ServiceBusyException("Server is busy processing other heavy requests (" + reason
+                + "). Try again later or narrow the request.", retryAfterSeconds);
+    }
+
+    public long getLightRequests() {
+        return lightRequests.get();
+    }
+
+    public long getHeavyRequests() {
+        return heavyRequests.get();
+    }
+
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    public int getActiveHeavyRequests() {
+        return maxConcurrentHeavyRequests - running.availablePermits();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setMaxConcurrentHeavyRequests(int maxConcurrentHeavyRequests) {
+        this.maxConcurrentHeavyRequests = Math.max(1, maxConcurrentHeavyRequests);
+    }
+
+    public void setHeavyDataCostThreshold(long heavyDataCostThreshold) {
+        this.heavyDataCostThreshold = heavyDataCostThreshold;
+    }
+
+    public void setRetryAfterSeconds(long retryAfterSeconds) {
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    /**
+     * @param expectedValuesPerHour
+     *        the values per hour assumed for each dataset
+     */
+    public void setExpectedValuesPerHour(long expectedValuesPerHour) {
+        this.expectedValuesPerHour = expectedValuesPerHour;
+    }
+
+    public void setMetadataCatalog(MetadataCatalog metadataCatalog) {
+        this.metadataCatalog = metadataCatalog;
+    }
+
+    public void setHeavyListingThreshold(long heavyListingThreshold) {
+        this.heavyListingThreshold = heavyListingThreshold;
+    }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.n52.io.request.IoParameters;
+import org.n52.series.db.da.LatestValue;
+import org.n52.series.db.da.LatestValueRepository;
+import org.n52.series.db.dao.DbQueryFactory;
+import org.n52.web.exception.BadRequestException;
+import org.n52.web.exception.InternalServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Pushes new observations of datasets to subscribers. One shared poller reads the <code>lastValueAt</code> of
+ * all subscribed datasets in bulk, fetches the new observations of advanced datasets once and fans them out
+ * to all subscriptions of these datasets. So the database load depends on the number of subscribed datasets
+ * but not on the number of subscribers.
+ * <p>
+ * The poller only queues the values of each subscription. A pool of publisher threads delivers them in
+ * order per subscription, so a slow subscriber does not delay others. Subscriptions falling behind by more
+ * than the allowed number of pending batches are closed.
+ */
+public class ChangeFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    // accessed by the poller only
+    private final Map<Long, Date> cursors = new HashMap<>();
+
+    private final LatestValueRepository repository;
+
+    @Autowired
+    private DbQueryFactory dbQueryFactory;
+
+    private ScheduledExecutorService scheduler;
+
+    private ExecutorService publisher;
+
+    private boolean enabled = true;
+
+    private long pollSeconds = 10;
+
+    private int maxSubscriptions = 1000;
+
+    private int maxDatasets = 100;
+
+    private int maxValuesPerPoll = 10_000;
+
+    private long timeoutMinutes = 30;
+
+    private int publisherThreads = 4;
+
+    private int maxPendingBatches = 10;
+
+    private long retryAfterSeconds = 30;
+
+    public ChangeFeed(LatestValueRepository repository) {
+        this.repository = repository;
+    }
+
+    public void init() {
+        if (!enabled) {
+            LOGGER.info("Change feed is disabled.");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger count = new AtomicInteger();
+        publisher = Executors.newFixedThreadPool(publisherThreads, r -> {
+            Thread thread = new Thread(r, "change-feed-publisher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollSafely, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (publisher != null) {
+            publisher.shutdownNow();
+        }
+        subscriptions.clear();
+        subscriptionCount.set(0);
+    }
+
+    /**
+     * Subscribes to new observations of datasets. Observations are pushed which have been added after the
+     * next poll, values are scalar or <code>null</code> if not representable as such.
+     *
+     * @param datasets
+     *        the ids of the datasets to observe
+     * @param listener
+     *        consumes the new values of the datasets, called by a publisher thread. Throwing an exception
+     *        closes the subscription.
+     * @return the subscription to close once the subscriber is gone
+     * @throws ServiceBusyException
+     *         if the maximum number of subscriptions is reached
+     */
+    public Subscription subscribe(Collection<Long> datasets, Consumer<List<LatestValue>> listener) {
+        if (scheduler == null) {
+            throw new InternalServerException("Change feed is disabled.");
+        }
+        if (datasets.isEmpty() || datasets.size() > maxDatasets) {
+            throw new BadRequestException("Subscribe to at least one and at most " + maxDatasets + " datasets.");
+        }
+        if (subscriptionCount.incrementAndGet() > maxSubscriptions) {
+            subscriptionCount.decrementAndGet();
+            throw new ServiceBusyException("Too many subscriptions, try again later.", retryAfterSeconds);
+        }
+        Subscription subscription = new Subscription(datasets, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not poll for new observations.", e);
+        }
+    }
+
+    void poll() {
+        Map<Long, Date> since = new HashMap<>();
+        subscriptions.forEach(s -> s.datasets.forEach(id -> since.put(id, cursors.get(id))));
+        cursors.keySet().retainAll(since.keySet());
+        if (since.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, List<LatestValue>> changes = new HashMap<>();
+        Map<Long, Date> lastValues = repository.getValuesAfter(since,
+                dbQueryFactory.createFrom(IoParameters.createDefaults()), maxValuesPerPoll,
+                v -> changes.computeIfAbsent(v.getDatasetId(), k -> new ArrayList<>()).add(v));
+        cursors.putAll(lastValues);
+        if (changes.isEmpty()) {
+            return;
+        }
+        int queued = 0;
+        for (Subscription subscription : subscriptions) {
+            List<LatestValue> values = subscription.datasets.stream()
+                    .map(id -> changes.get(id.toString()))
+                    .filter(Objects::nonNull)
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList());
+            if (!values.isEmpty() && subscription.queue(values)) {
+                queued++;
+            }
+        }
+        LOGGER.debug("Queueing new values of {} datasets for {} subscriptions takes {} ms", changes.size(),
+                queued, System.currentTimeMillis() - start);
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setPollSeconds(long pollSeconds) {
+        this.pollSeconds = Math.max(1, pollSeconds);
+    }
+
+    public void setMaxSubscriptions(int maxSubscriptions) {
+        this.maxSubscriptions = maxSubscriptions;
+    }
+
+    public void setMaxDatasets(int maxDatasets) {
+        this.maxDatasets = maxDatasets;
+    }
+
+    /**
+     * @param maxValuesPerPoll
+     *        the maximum number of new values read by a poll, further values are read by the next polls
+     */
+    public void setMaxValuesPerPoll(int maxValuesPerPoll) {
+        this.maxValuesPerPoll = Math.max(1, maxValuesPerPoll);
+    }
+
+    /**
+     * @return the time in milliseconds after which subscribers shall reconnect
+     */
+    public long getTimeoutMillis() {
+        return TimeUnit.MINUTES.toMillis(timeoutMinutes);
+    }
+
+    public void setTimeoutMinutes(long timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    public void setPublisherThreads(int publisherThreads) {
+        this.publisherThreads = Math.max(1, publisherThreads);
+    }
+
+    public void setMaxPendingBatches(int maxPendingBatches) {
+        this.maxPendingBatches = Math.max(1, maxPendingBatches);
+    }
+
+    public void setRetryAfterSeconds(long retryAfterSeconds) {
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public void setDbQueryFactory(DbQueryFactory dbQueryFactory) {
+        this.dbQueryFactory = dbQueryFactory;
+    }
+
+    public final class Subscription {
+
+        private final Set<Long> datasets;
+
+        private final Consumer<List<LatestValue>> listener;
+
+        private final Queue<List<LatestValue>> pending = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger pendingCount = new AtomicInteger();
+
+        private final AtomicBoolean publishing = new AtomicBoolean();
+
+        private Subscription(Collection<Long> datasets, Consumer<List<LatestValue>> listener) {
+            this.datasets = Collections.unmodifiableSet(new HashSet<>(datasets));
+            this.listener = listener;
+        }
+
+        public Set<Long> getDatasets() {
+            return datasets;
+        }
+
+        public void close() {
+            if (subscriptions.remove(this)) {
+                subscriptionCount.decrementAndGet();
+            }
+            pending.clear();
+        }
+
+        private boolean queue(List<LatestValue> values) {
+            if (pendingCount.incrementAndGet() > maxPendingBatches) {
+                LOGGER.debug("Closing subscription which has fallen behind by {} batches.", maxPendingBatches);
+                close();
+                return false;
+            }
+            pending.add(values);
+            schedulePublishing();
+            return true;
+        }
+
+        private void schedulePublishing() {
+            if (!pending.isEmpty() && publishing.compareAndSet(false, true)) {
+                try {
+                    publisher.execute(this::publishPending);
+                } catch (RejectedExecutionException e) {
+                    publishing.set(false);
+                }
+            }
+        }
+
+        private void publishPending() {
+            try {
+                List<LatestValue> values;
+                while ((values = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    if (!publish(values)) {
+                        return;
+                    }
+                }
+            } finally {
+                publishing.set(false);
+            }
+            // values queued after the last poll but before releasing the flag
+            schedulePublishing();
+        }
+
+        private boolean publish(List<LatestValue> values) {
+            try {
+                listener.accept(values);
+                return true;
+            } catch (RuntimeException e) {
+                LOGGER.debug("Closing subscription which failed to consume values.", e);
+                close();
+                return false;
+            }
+        }
+
+    }
+
+}
@@ -37,6 +37,11 @@ import org.n52.series.spi.srv.CountingMetadataService;
 import org.n52.web.exception.InternalServerException;
 import org.springframework.beans.factory.annotation.Autowired;
 
+/**
+ * Counts entities for the collection count endpoints. Counts are read from the count cache of the
+ * {@link EntityCounter}, which also holds the counts computed for service expansion, so repeated requests
+ * of the same filter do not query the database again.
+ */
 public class CountingMetadataAccessService implements CountingMetadataService {
 
     private final EntityCounter counter;
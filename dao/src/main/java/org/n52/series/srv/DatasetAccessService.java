@@ -29,6 +29,7 @@
 package org.n52.series.srv;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.n52.io.TvpDataCollection;
 import org.n52.io.request.IoParameters;
@@ -69,15 +70,19 @@ public class DatasetAccessService<V extends AbstractValue<?>> extends AccessServ
     @Override
     public DataCollection<Data<V>> getData(IoParameters parameters) {
         try {
-            TvpDataCollection<Data<V>> dataCollection = new TvpDataCollection<>();
             List<DatasetTypesMetadata> datasetTypesMetadata = getRepository().getDatasetTypesMetadata(parameters);
-            for (DatasetTypesMetadata metadata : datasetTypesMetadata) {
-                Data<V> data = getDataFor(metadata, parameters);
-                if (data != null) {
-                    dataCollection.addNewSeries(metadata.getId(), data);
+            List<String> datasets = datasetTypesMetadata.stream().map(DatasetTypesMetadata::getId)
+                    .collect(Collectors.toList());
+            return admitData(parameters, datasets, () -> {
+                TvpDataCollection<Data<V>> dataCollection = new TvpDataCollection<>();
+                for (DatasetTypesMetadata metadata : datasetTypesMetadata) {
+                    Data<V> data = getDataFor(metadata, parameters);
+                    if (data != null) {
+                        dataCollection.addNewSeries(metadata.getId(), data);
+                    }
                 }
-            }
-            return dataCollection;
+                return dataCollection;
+            });
         } catch (DataAccessException e) {
             throw new InternalServerException("Could not get series data from database.", e);
         }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.n52.io.request.IoParameters;
+import org.n52.series.db.DataAccessException;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.db.da.LatestValue;
+import org.n52.series.db.da.LatestValueRepository;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.DbQueryFactory;
+import org.n52.web.exception.InternalServerException;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class LatestValueAccessService {
+
+    private final LatestValueRepository repository;
+
+    @Autowired
+    private DbQueryFactory dbQueryFactory;
+
+    @Autowired(required = false)
+    private AdmissionController admissionController;
+
+    @Autowired(required = false)
+    private MetadataCatalog metadataCatalog;
+
+    public LatestValueAccessService(LatestValueRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param query
+     *        the dataset filter
+     * @param consumer
+     *        consumes the latest values of the matching datasets
+     */
+    public void getLatestValues(IoParameters query, Consumer<LatestValue> consumer) {
+        try {
+            DbQuery dbQuery = dbQueryFactory.createFrom(query);
+            admitListing(query, () -> estimateListingSize(dbQuery), () -> {
+                repository.getLatestValues(dbQuery, consumer);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            throw new InternalServerException("Could not get latest values.", e);
+        }
+    }
+
+    private <R> R admitListing(IoParameters query, LongSupplier size, Supplier<R> action) {
+        return admissionController != null
+                ? admissionController.admitListingRequest(query, size, action)
+                : action.get();
+    }
+
+    private long estimateListingSize(DbQuery query) {
+        CatalogSnapshot snapshot = metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        return snapshot != null
+                ? snapshot.countDatasets(CatalogFilter.of(query))
+                : -1;
+    }
+
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Memory bounded cache of condensed and expanded collection listings. Time to live (minutes) per collection
+ * is read from the <code>cache</code> section of <code>config-general.json</code>, collections without
+ * or with a zero time to live are not cached.
+ * <p>
+ * Listings are keyed by the collection and a fingerprint of all known request parameters. An expired
+ * listing, or one loaded before the metadata catalog has changed, is still served for
+ * <code>staleSeconds</code> while it is reloaded in background. Listings are keyed by the structural
+ * version of the metadata catalog, which advances only when datasets are added or removed, or when
+ * metadata has changed. Moved time extents (e.g. new last values) do not outdate cached listings.
+ * <p>
+ * Cached outputs are shared between requests and must be treated as immutable, every hit serves a new
+ * list holding the cached outputs. The cache is bounded by the number of cached outputs. Hits, stale hits
+ * and misses are counted per collection.
+ */
+public class ResponseCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+    private static final Set<String> PARAMETER_NAMES = collectParameterNames();
+
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+
+    private final Map<String, CollectionStatistics> statistics = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private MetadataCatalog metadataCatalog;
+
+    private Cache<String, Entry> cache;
+
+    private ExecutorService executor;
+
+    private boolean enabled = true;
+
+    private String configuration = "/config-general.json";
+
+    private long maxOutputs = 100000;
+
+    private long staleSeconds = 60;
+
+    public void init() {
+        if (!enabled) {
+            LOGGER.info("Response cache is disabled.");
+            return;
+        }
+        readTtls();
+        long maxTtl = ttls.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+        cache = CacheBuilder.newBuilder()
+                            .maximumWeight(maxOutputs)
+                            .weigher((String key, Entry entry) -> entry.weight)
+                            .expireAfterWrite(Math.max(1L, maxTtl + TimeUnit.SECONDS.toMillis(staleSeconds)),
+                                    TimeUnit.MILLISECONDS)
+                            .build();
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "response-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param collection
+     *        the collection, e.g. <code>features</code>
+     * @param expanded
+     *        if the listing is expanded
+     * @param parameters
+     *        the request parameters
+     * @param loader
+     *        loads the listing
+     * @param <T>
+     *        the output type
+     * @return the cached or loaded listing
+     */
+    public <T> List<T> get(String collection, boolean expanded, IoParameters parameters, Supplier<List<T>> loader) {
+        Long ttl = ttls.get(collection);
+        if (cache == null || ttl == null || ttl <= 0) {
+            return loader.get();
+        }
+        String key = collection + (expanded ? "/expanded?" : "?") + fingerprint(parameters);
+        return get(collection, key, ttl, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> List<T> get(String collection, String key, long ttlMillis, Supplier<List<T>> loader) {
+        CollectionStatistics counts = statistics.computeIfAbsent(collection, c -> new CollectionStatistics());
+        long version = getCatalogVersion();
+        long now = System.currentTimeMillis();
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null && now < cached.expiresAt && cached.version == version) {
+            counts.hits.incrementAndGet();
+            return new ArrayList<>((List<T>) cached.value);
+        }
+        if (cached != null && now < cached.expiresAt + TimeUnit.SECONDS.toMillis(staleSeconds)) {
+            counts.staleHits.incrementAndGet();
+            revalidate(key, ttlMillis, version, loader, cached);
+            return new ArrayList<>((List<T>) cached.value);
+        }
+        counts.misses.incrementAndGet();
+        return load(key, ttlMillis, version, loader);
+    }
+
+    private <T> List<T> load(String key, long ttlMillis, long version, Supplier<List<T>> loader) {
+        long start = System.currentTimeMillis();
+        List<T> value = loader.get();
+        long end = System.currentTimeMillis();
+        cache.put(key, new Entry(new ArrayList<>(value), end + ttlMillis, version));
+        LOGGER.debug("Loading {} ({} outputs) takes {} ms", key, value.size(), end - start);
+        return value;
+    }
+
+    private <T> void revalidate(String key, long ttlMillis, long version, Supplier<List<T>> loader, Entry stale) {
+        if (!stale.revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                load(key, ttlMillis, version, loader);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not revalidate {}.", key, e);
+                stale.revalidating.set(false);
+            }
+        });
+    }
+
+    private long getCatalogVersion() {
+        CatalogSnapshot snapshot = metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        return snapshot != null
+                ? snapshot.getVersion()
+                : -1L;
+    }
+
+    /**
+     * @param parameters
+     *        the request parameters
+     * @return all known parameters set, in order of their names
+     */
+    static String fingerprint(IoParameters parameters) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (String name : PARAMETER_NAMES) {
+            if (parameters.containsParameter(name)) {
+                fingerprint.append(name).append('=').append(parameters.getAsString(name)).append('&');
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static Set<String> collectParameterNames() {
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (Field field : Parameters.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    names.add((String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    LOGGER.debug("Could not read parameter name {}.", field.getName(), e);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    private void readTtls() {
+        try (InputStream stream = ResponseCache.class.getResourceAsStream(configuration)) {
+            if (stream == null) {
+                LOGGER.info("No cache configuration found at {}.", configuration);
+                return;
+            }
+            new ObjectMapper().readTree(stream)
+                              .path("cache")
+                              .fields()
+                              .forEachRemaining(e -> setTtlMinutes(e.getKey(), e.getValue()));
+        } catch (IOException e) {
+            LOGGER.warn("Could not read cache configuration {}.", configuration, e);
+        }
+    }
+
+    private void setTtlMinutes(String collection, JsonNode minutes) {
+        ttls.put(collection, TimeUnit.MINUTES.toMillis(minutes.asLong()));
+    }
+
+    /**
+     * Drops all cached listings of a collection.
+     *
+     * @param collection
+     *        the collection
+     */
+    public void invalidate(String collection) {
+        if (cache != null) {
+            cache.asMap().keySet().removeIf(key -> key.startsWith(collection + "?")
+                    || key.startsWith(collection + "/"));
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return hit and miss counts per collection
+     */
+    public Map<String, CollectionStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param configuration
+     *        classpath location of the JSON configuration declaring time to live minutes per collection
+     */
+    public void setConfiguration(String configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param maxOutputs
+     *        the maximum number of outputs held by all cached listings
+     */
+    public void setMaxOutputs(long maxOutputs) {
+        this.maxOutputs = Math.max(1, maxOutputs);
+    }
+
+    public void setStaleSeconds(long staleSeconds) {
+        this.staleSeconds = Math.max(0, staleSeconds);
+    }
+
+    public static final class CollectionStatistics {
+
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong staleHits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        /**
+         * @return the number of expired or outdated listings served while being revalidated
+         */
+        public long getStaleHits() {
+            return staleHits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<?> value;
+
+        private final int weight;
+
+        private final long expiresAt;
+
+        private final long version;
+
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        Entry(List<?> value, long expiresAt, long version) {
+            this.value = value;
+            this.weight = Math.max(1, value.size());
+            this.expiresAt = expiresAt;
+            this.version = version;
+        }
+    }
+
+}
@@ -28,11 +28,20 @@
  */
 package org.n52.series.srv;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
 import org.n52.io.response.CategoryOutput;
 import org.n52.io.response.FeatureOutput;
 import org.n52.io.response.PhenomenonOutput;
@@ -41,14 +50,27 @@ import org.n52.io.response.ProcedureOutput;
 import org.n52.io.response.dataset.DatasetOutput;
 import org.n52.io.response.dataset.StationOutput;
 import org.n52.io.response.dataset.TimeseriesMetadataOutput;
+import org.n52.series.db.DataAccessException;
 import org.n52.series.db.da.OutputAssembler;
 import org.n52.series.spi.search.SearchResult;
 import org.n52.series.spi.search.SearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+/**
+ * Searches the parameter repositories concurrently. Each repository is searched on a thread of its own (and
+ * therefore with a session of its own) for at most <code>perSourceLimit</code> results, or more if the
+ * request's <code>limit</code> is higher. The results are merged into the best matches of the search term
+ * up to the request's <code>limit</code>, or the configured <code>limit</code> if the request sets none, see
+ * {@link SearchResultMerger}. Sources not answering within the timeout are left out of the
+ * result. A disabled or not initialized search queries the repositories sequentially.
+ */
 @SuppressWarnings("deprecation")
 public class Search implements SearchService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(Search.class);
+
     @Autowired
     private OutputAssembler<ProcedureOutput> procedureRepository;
 
@@ -75,22 +97,146 @@ public class Search implements SearchService {
     @Deprecated
     private OutputAssembler<StationOutput> stationRepository;
 
+    private ExecutorService executor;
+
+    private boolean enabled = true;
+
+    private int threads = 6;
+
+    private int perSourceLimit = 100;
+
+    private int limit = 100;
+
+    private long timeoutSeconds = 10;
+
+    public void init() {
+        if (!enabled) {
+            LOGGER.info("Parallel search is disabled.");
+            return;
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "search-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public Collection<SearchResult> searchResources(IoParameters parameters) {
-        Set<SearchResult> results = new HashSet<>();
-        results.addAll(phenomenonRepository.searchFor(parameters));
-        results.addAll(procedureRepository.searchFor(parameters));
-        results.addAll(featureRepository.searchFor(parameters));
-        results.addAll(categoryRepository.searchFor(parameters));
+        long start = System.currentTimeMillis();
+        int resultLimit = getResultLimit(parameters, limit);
+        int sourceLimit = Math.max(resultLimit, perSourceLimit);
+        IoParameters bounded = parameters.extendWith(Parameters.LIMIT, Integer.toString(sourceLimit));
+        List<OutputAssembler< ? >> sources = getSources(parameters);
+        String term = parameters.getAsString(Parameters.SEARCH_TERM);
+        SearchResultMerger merger = new SearchResultMerger(term, resultLimit);
+        if (executor == null) {
+            sources.forEach(source -> merger.addAll(searchIn(source, bounded, sourceLimit)));
+        } else {
+            searchConcurrently(sources, bounded, sourceLimit, merger);
+        }
+        List<SearchResult> results = merger.getResults();
+        LOGGER.debug("Searching {} sources for {} results takes {} ms", sources.size(), results.size(),
+                System.currentTimeMillis() - start);
+        return results;
+    }
+
+    /**
+     * @param parameters
+     *        the request parameters
+     * @param defaultLimit
+     *        the limit if the request sets none
+     * @return the number of results requested
+     */
+    static int getResultLimit(IoParameters parameters, int defaultLimit) {
+        int requested = parameters.containsParameter(Parameters.LIMIT)
+                ? parameters.getLimit()
+                : -1;
+        return requested > 0
+                ? requested
+                : defaultLimit;
+    }
 
+    private List<OutputAssembler< ? >> getSources(IoParameters parameters) {
+        List<OutputAssembler< ? >> sources = new ArrayList<>(Arrays.asList(phenomenonRepository,
+                procedureRepository, featureRepository, categoryRepository));
         if (parameters.shallBehaveBackwardsCompatible()) {
-            results.addAll(timeseriesRepository.searchFor(parameters));
-            results.addAll(stationRepository.searchFor(parameters));
+            sources.add(timeseriesRepository);
+            sources.add(stationRepository);
         } else {
-            results.addAll(platformRepository.searchFor(parameters));
-            results.addAll(datasetRepository.searchFor(parameters));
+            sources.add(platformRepository);
+            sources.add(datasetRepository);
         }
-        return results;
+        return sources;
+    }
+
+    private void searchConcurrently(List<OutputAssembler< ? >> sources, IoParameters parameters, int sourceLimit,
+            SearchResultMerger merger) {
+        List<Future<List<SearchResult>>> searches = new ArrayList<>(sources.size());
+        for (OutputAssembler< ? > source : sources) {
+            searches.add(executor.submit(() -> searchIn(source, parameters, sourceLimit)));
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        try {
+            // merged in source order, so equally ranked results keep a stable order
+            for (int i = 0; i < searches.size(); i++) {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                try {
+                    merger.addAll(searches.get(i).get(remaining, TimeUnit.MILLISECONDS));
+                } catch (TimeoutException e) {
+                    LOGGER.warn("Searching {} exceeds {} s, its results are left out.",
+                            sources.get(i).getClass().getSimpleName(), timeoutSeconds);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while searching.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessException("Could not search.", e.getCause());
+        } finally {
+            searches.forEach(search -> search.cancel(true));
+        }
+    }
+
+    private List<SearchResult> searchIn(OutputAssembler< ? > source, IoParameters parameters, int sourceLimit) {
+        List<SearchResult> results = new ArrayList<>(source.searchFor(parameters));
+        return results.size() > sourceLimit
+                ? results.subList(0, sourceLimit)
+                : results;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setPerSourceLimit(int perSourceLimit) {
+        this.perSourceLimit = Math.max(1, perSourceLimit);
+    }
+
+    public void setLimit(int limit) {
+        this.limit = Math.max(1, limit);
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = Math.max(1, timeoutSeconds);
     }
 
 }
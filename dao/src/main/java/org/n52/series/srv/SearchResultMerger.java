@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.spi.search.SearchResult;
+
+/**
+ * Merges search results of several sources into the best <code>limit</code> results. Results are ranked by
+ * how their label matches the search term (exact, prefix, word prefix, infix, no label match), ties keep the
+ * order in which the results were added. Duplicates are added once.
+ */
+final class SearchResultMerger {
+
+    private static final int NO_LABEL_MATCH = Integer.MAX_VALUE;
+
+    private static final Comparator<Ranked> BEST_FIRST = Comparator.<Ranked> comparingInt(r -> r.rank)
+            .thenComparingLong(r -> r.sequence);
+
+    private final PriorityQueue<Ranked> worstFirst = new PriorityQueue<>(BEST_FIRST.reversed());
+
+    private final Set<SearchResult> seen = new HashSet<>();
+
+    private final String term;
+
+    private final int limit;
+
+    private long sequence;
+
+    SearchResultMerger(String term, int limit) {
+        this.term = term;
+        this.limit = Math.max(1, limit);
+    }
+
+    void addAll(Collection<SearchResult> results) {
+        if (results != null) {
+            results.forEach(this::add);
+        }
+    }
+
+    void add(SearchResult result) {
+        if (result == null || !seen.add(result)) {
+            return;
+        }
+        int rank = MetadataCatalog.rank(result.getLabel(), term);
+        Ranked ranked = new Ranked(result, rank < 0 ? NO_LABEL_MATCH : rank, sequence++);
+        if (worstFirst.size() < limit) {
+            worstFirst.add(ranked);
+        } else if (BEST_FIRST.compare(ranked, worstFirst.peek()) < 0) {
+            worstFirst.poll();
+            worstFirst.add(ranked);
+        }
+    }
+
+    /**
+     * @return the merged results, best first
+     */
+    List<SearchResult> getResults() {
+        List<Ranked> ranked = new ArrayList<>(worstFirst);
+        ranked.sort(BEST_FIRST);
+        List<SearchResult> results = new ArrayList<>(ranked.size());
+        ranked.forEach(r -> results.add(r.result));
+        return results;
+    }
+
+    private static final class Ranked {
+
+        private final SearchResult result;
+
+        private final int rank;
+
+        private final long sequence;
+
+        private Ranked(SearchResult result, int rank, long sequence) {
+            this.result = result;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+    }
+
+}
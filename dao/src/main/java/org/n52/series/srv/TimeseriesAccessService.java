@@ -61,14 +61,16 @@ public class TimeseriesAccessService extends AccessService<TimeseriesMetadataOut
     @Override
     public DataCollection<Data<QuantityValue>> getData(IoParameters parameters) {
         try {
-            TvpDataCollection<Data<QuantityValue>> dataCollection = new TvpDataCollection<>();
-            for (String timeseriesId : parameters.getDatasets()) {
-                Data<QuantityValue> data = getDataFor(timeseriesId, parameters);
-                if (data != null) {
-                    dataCollection.addNewSeries(timeseriesId, data);
+            return admitData(parameters, parameters.getDatasets(), () -> {
+                TvpDataCollection<Data<QuantityValue>> dataCollection = new TvpDataCollection<>();
+                for (String timeseriesId : parameters.getDatasets()) {
+                    Data<QuantityValue> data = getDataFor(timeseriesId, parameters);
+                    if (data != null) {
+                        dataCollection.addNewSeries(timeseriesId, data);
+                    }
                 }
-            }
-            return dataCollection;
+                return dataCollection;
+            });
         } catch (DataAccessException e) {
             throw new InternalServerException("Could not get series data from database.", e);
         }
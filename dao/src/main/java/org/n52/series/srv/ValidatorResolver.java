@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.catalog.CatalogFilter;
+import org.n52.series.db.catalog.CatalogSnapshot;
+import org.n52.series.db.catalog.DatasetEntry;
+import org.n52.series.db.catalog.MetadataCatalog;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.DbQueryFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Derives HTTP validators (<code>ETag</code> and <code>Last-Modified</code>) of GET requests from a single
+ * lookup of the metadata catalog, so conditional requests can be answered before any query runs:
+ * <ul>
+ * <li>data of a single dataset (<code>/datasets/{id}/data</code>, <code>/timeseries/{id}/getData</code>)
+ * changes with the catalog version and the dataset's <code>firstValueAt</code> and <code>lastValueAt</code>.
+ * Only requests with an absolute <code>timespan</code> get validators, as the data of relative or default
+ * timespans changes with the current time,</li>
+ * <li>the latest values (<code>/latest-values</code>) change with the catalog version and the
+ * <code>lastValueAt</code> of the selected datasets. Queries the catalog cannot filter fall back to all
+ * datasets,</li>
+ * <li>all other resources change with every revision of the catalog.</li>
+ * </ul>
+ * Entity tags are weak and include a token of the running instance and a SHA-256 digest of the path, the
+ * full query string and the negotiated headers. As the catalog is refreshed by polling, new values become
+ * visible to validators with the next refresh. Without an available catalog no validators are resolved.
+ */
+public class ValidatorResolver {
+
+    private static final Set<String> DATA_COLLECTIONS =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("datasets", "timeseries")));
+
+    private static final Set<String> DATA_RESOURCES =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("data", "getdata", "observations")));
+
+    private static final String RELATIVE_TIME = "now";
+
+    private static final String LATEST_VALUES = "/latest-values";
+
+    private final String instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    @Autowired(required = false)
+    private MetadataCatalog metadataCatalog;
+
+    @Autowired(required = false)
+    private DbQueryFactory dbQueryFactory;
+
+    private boolean enabled = true;
+
+    /**
+     * @param path
+     *        the request path without context path
+     * @param queryString
+     *        the query string, may be <code>null</code>
+     * @param variants
+     *        header values the representation depends on, e.g. <code>Accept</code>
+     * @return the validators or <code>null</code> if the request cannot be validated
+     */
+    public Validators resolve(String path, String queryString, String... variants) {
+        CatalogSnapshot snapshot = enabled && metadataCatalog != null
+                ? metadataCatalog.getSnapshot()
+                : null;
+        if (snapshot == null || path == null) {
+            return null;
+        }
+        if (path.endsWith(LATEST_VALUES)) {
+            return resolveLatestValues(snapshot, path, queryString, variants);
+        }
+        Long datasetId = parseDatasetId(path);
+        if (datasetId == null) {
+            return new Validators(tag("r" + toString(snapshot.getRevision()), path, queryString, variants),
+                    snapshot.getCreated().getTime());
+        }
+        DatasetEntry dataset = snapshot.getDataset(datasetId);
+        if (dataset == null || dataset.getFirstValueAt() == null || dataset.getLastValueAt() == null
+                || !isAbsoluteTimespan(getParameter(queryString, Parameters.TIMESPAN))) {
+            return null;
+        }
+        long firstValueAt = dataset.getFirstValueAt().getTime();
+        long lastValueAt = dataset.getLastValueAt().getTime();
+        String version = "v" + toString(snapshot.getVersion())
+                + "-d" + datasetId + "." + toString(firstValueAt) + "." + toString(lastValueAt);
+        return new Validators(tag(version, path, queryString, variants),
+                Math.max(lastValueAt, snapshot.getModified().getTime()));
+    }
+
+    private Validators resolveLatestValues(CatalogSnapshot snapshot, String path, String queryString,
+            String... variants) {
+        long[] lastValues = new long[] {
+            Long.MIN_VALUE,
+            0L
+        };
+        forEachSelectedDataset(snapshot, queryString, dataset -> {
+            long lastValueAt = dataset.getLastValueAt() != null
+                    ? dataset.getLastValueAt().getTime()
+                    : Long.MIN_VALUE;
+            lastValues[0] = Math.max(lastValues[0], lastValueAt);
+            // changes if any selected dataset moves, even behind the latest one
+            lastValues[1] = 31 * lastValues[1] + lastValueAt;
+        });
+        String version = "v" + toString(snapshot.getVersion()) + "-l" + toString(lastValues[1]);
+        return new Validators(tag(version, path, queryString, variants),
+                Math.max(lastValues[0], snapshot.getModified().getTime()));
+    }
+
+    private void forEachSelectedDataset(CatalogSnapshot snapshot, String queryString,
+            Consumer<DatasetEntry> consumer) {
+        DbQuery query = dbQueryFactory != null
+                ? dbQueryFactory.createFrom(toParameters(queryString))
+                : null;
+        if (query != null && CatalogFilter.isSupported(query)) {
+            snapshot.forEachDataset(CatalogFilter.of(query), consumer);
+        } else {
+            snapshot.getDatasets().forEach(consumer);
+        }
+    }
+
+    /**
+     * @param queryString
+     *        the query string, may be <code>null</code>
+     * @return the decoded parameters, repeated parameters joined like request parameters are
+     */
+    private static IoParameters toParameters(String queryString) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        if (queryString != null) {
+            for (String pair : queryString.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    values.computeIfAbsent(decode(pair.substring(0, separator)), k -> new ArrayList<>())
+                          .add(decode(pair.substring(separator + 1)));
+                }
+            }
+        }
+        IoParameters parameters = IoParameters.createDefaults();
+        for (Map.Entry<String, List<String>> parameter : values.entrySet()) {
+            parameters = parameters.extendWith(parameter.getKey(), parameter.getValue().toArray(new String[0]));
+        }
+        return parameters;
+    }
+
+    /**
+     * @param path
+     *        the request path
+     * @return the id of the dataset whose data is requested or <code>null</code> if the path does not address
+     *         data of a single dataset
+     */
+    static Long parseDatasetId(String path) {
+        String[] segments = path.split("/");
+        int length = segments.length;
+        if (length < 3 || !DATA_COLLECTIONS.contains(segments[length - 3])) {
+            return null;
+        }
+        String resource = segments[length - 1];
+        int extension = resource.indexOf('.');
+        if (extension > 0) {
+            resource = resource.substring(0, extension);
+        }
+        if (!DATA_RESOURCES.contains(resource.toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        try {
+            return Long.valueOf(segments[length - 2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param queryString
+     *        the query string, may be <code>null</code>
+     * @param name
+     *        the parameter name (case insensitive)
+     * @return the decoded value of the first occurrence or <code>null</code> if the parameter is missing
+     */
+    static String getParameter(String queryString, String name) {
+        if (queryString == null) {
+            return null;
+        }
+        for (String pair : queryString.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0
+                    ? pair
+                    : pair.substring(0, separator);
+            if (name.equalsIgnoreCase(decode(key))) {
+                return separator < 0
+                        ? ""
+                        : decode(pair.substring(separator + 1));
+            }
+        }
+        return null;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    /**
+     * @param timespan
+     *        the <code>timespan</code> parameter, may be <code>null</code>
+     * @return <code>true</code> if the timespan is an interval anchored at a fixed instant, i.e. it neither
+     *         refers to the current time nor is missing (the default timespan is relative to the current
+     *         time, too)
+     */
+    static boolean isAbsoluteTimespan(String timespan) {
+        if (timespan == null || timespan.toLowerCase(Locale.ROOT).contains(RELATIVE_TIME)) {
+            return false;
+        }
+        String[] parts = timespan.split("/");
+        if (parts.length != 2) {
+            return false;
+        }
+        return isInstant(parts[0]) || isInstant(parts[1]);
+    }
+
+    private static boolean isInstant(String part) {
+        String trimmed = part.trim();
+        return !trimmed.isEmpty() && Character.isDigit(trimmed.charAt(0));
+    }
+
+    private String tag(String version, String path, String queryString, String... variants) {
+        return "W/\"" + instance + "-" + version + "-" + digest(path, queryString, variants) + "\"";
+    }
+
+    /**
+     * @return a SHA-256 digest (base64url) of all given values, <code>null</code> values included
+     */
+    static String digest(String path, String queryString, String... variants) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, path);
+            update(digest, queryString);
+            for (String variant : variants) {
+                update(digest, variant);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        // length prefixed, so values with shifted boundaries do not collide
+        byte[] bytes = value != null
+                ? value.getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value != null ? bytes.length : -1).array());
+        digest.update(bytes);
+    }
+
+    private static String toString(long value) {
+        return Long.toString(value, Character.MAX_RADIX);
+    }
+
+    public void setMetadataCatalog(MetadataCatalog metadataCatalog) {
+        this.metadataCatalog = metadataCatalog;
+    }
+
+    public void setDbQueryFactory(DbQueryFactory dbQueryFactory) {
+        this.dbQueryFactory = dbQueryFactory;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static final class Validators {
+
+        private final String etag;
+
+        private final long lastModified;
+
+        Validators(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return the weak entity tag
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * @return the last modification in milliseconds or <code>-1</code> if unknown
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+
+/**
+ * Minimal {@link Metamodel} answering entities and their attribute names only.
+ */
+final class MetamodelStub {
+
+    private final Map<Class<?>, EntityType<?>> entities = new LinkedHashMap<>();
+
+    MetamodelStub add(Class<?> entity, String... attributes) {
+        entities.put(entity, entityType(entity, Arrays.asList(attributes)));
+        return this;
+    }
+
+    Metamodel build() {
+        Set<EntityType<?>> entityTypes = new LinkedHashSet<>(entities.values());
+        return proxy(Metamodel.class, (name, args) -> {
+            switch (name) {
+                case "getEntities":
+                    return entityTypes;
+                case "entity":
+                    EntityType<?> entityType = entities.get(args[0]);
+                    if (entityType == null) {
+                        throw new IllegalArgumentException("Not an entity: " + args[0]);
+                    }
+                    return entityType;
+                default:
+                    throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    private static EntityType<?> entityType(Class<?> entity, List<String> names) {
+        Set<Attribute<?, ?>> attributes = names.stream()
+                .map(MetamodelStub::attribute)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return proxy(EntityType.class, (name, args) -> {
+            switch (name) {
+                case "getJavaType":
+                    return entity;
+                case "getAttributes":
+                    return attributes;
+                default:
+                    throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    private static Attribute<?, ?> attribute(String attributeName) {
+        return proxy(Attribute.class, (name, args) -> {
+            if ("getName".equals(name)) {
+                return attributeName;
+            }
+            throw new UnsupportedOperationException(name);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> answers) {
+        return type.cast(Proxy.newProxyInstance(MetamodelStub.class.getClassLoader(), new Class<?>[] {type},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return type.getSimpleName() + "@" + System.identityHashCode(proxy);
+                    default:
+                        return answers.apply(method.getName(), args);
+                }
+            }));
+    }
+
+}
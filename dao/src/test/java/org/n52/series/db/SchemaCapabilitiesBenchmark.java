@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db;
+
+import java.util.stream.Collectors;
+
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+
+/**
+ * Microbenchmark comparing metamodel introspection per call (as done before {@link SchemaCapabilities}) with
+ * the lookups of {@link SchemaCapabilities}. Run via <code>main</code>, it is no unit test.
+ */
+public final class SchemaCapabilitiesBenchmark {
+
+    private static final Class<?>[] ENTITIES = {
+        String.class, Integer.class, Long.class, Short.class, Byte.class, Double.class, Float.class,
+        Character.class, Boolean.class, Number.class, Object.class, StringBuilder.class, Thread.class,
+        Runnable.class, Iterable.class, java.util.List.class, java.util.Set.class, java.util.Map.class,
+        java.util.ArrayList.class, java.util.HashMap.class, java.util.TreeMap.class, java.util.HashSet.class,
+        java.util.TreeSet.class, java.util.LinkedList.class, java.util.ArrayDeque.class, java.util.Date.class,
+        java.util.Optional.class, java.util.UUID.class, java.util.Locale.class, java.util.Random.class,
+        java.math.BigDecimal.class, java.math.BigInteger.class, java.time.Instant.class,
+        java.time.Duration.class, java.time.LocalDate.class, java.time.ZonedDateTime.class,
+        java.io.File.class, java.net.URI.class, java.net.URL.class, java.nio.ByteBuffer.class
+    };
+
+    // introspection calls of a typical dataset listing (counting, filters, fetch modes, hierarchy checks)
+    private static final int CHECKS_PER_REQUEST = 12;
+
+    private static final int ITERATIONS = 2_000_000;
+
+    private SchemaCapabilitiesBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        MetamodelStub stub = new MetamodelStub();
+        for (Class<?> entity : ENTITIES) {
+            stub.add(entity, "id", "identifier", "name", "description", "parents", "children", "translations",
+                    "service", "geometryEntity", "deleted", "published", "disabled", "staIdentifier");
+        }
+        Metamodel metamodel = stub.build();
+        SchemaCapabilities capabilities = SchemaCapabilities.of(metamodel, name -> false);
+
+        for (int round = 0; round < 3; round++) {
+            long legacy = measure(i -> legacyCheck(metamodel, ENTITIES[i % ENTITIES.length]));
+            long lookup = measure(i -> lookupCheck(capabilities, ENTITIES[i % ENTITIES.length]));
+            System.out.printf("round %d: introspection %.1f ns/check, lookup %.1f ns/check, "
+                    + "saving %.2f us per request (%d checks)%n",
+                    round,
+                    (double) legacy / ITERATIONS,
+                    (double) lookup / ITERATIONS,
+                    (double) (legacy - lookup) / ITERATIONS * CHECKS_PER_REQUEST / 1000,
+                    CHECKS_PER_REQUEST);
+        }
+    }
+
+    private static long measure(Check check) {
+        int hits = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (check.test(i)) {
+                hits++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (hits != ITERATIONS) {
+            throw new IllegalStateException("unexpected result");
+        }
+        return elapsed;
+    }
+
+    private static boolean legacyCheck(Metamodel metamodel, Class<?> clazz) {
+        boolean entity = metamodel.getEntities().stream().filter(e -> e.getJavaType().equals(clazz)).findFirst()
+                .isPresent();
+        EntityType<?> entityType = metamodel.entity(clazz);
+        return entity && entityType.getAttributes().stream().map(a -> a.getName()).collect(Collectors.toSet())
+                .contains("parents");
+    }
+
+    private static boolean lookupCheck(SchemaCapabilities capabilities, Class<?> clazz) {
+        return capabilities.isEntitySupported(clazz) && capabilities.isPropertyNameSupported("parents", clazz);
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        boolean test(int iteration);
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SchemaCapabilitiesTest {
+
+    @Test
+    public void when_checkingEntities_then_onlyMappedEntitiesSupported() {
+        SchemaCapabilities capabilities = SchemaCapabilities.of(new MetamodelStub()
+                .add(String.class, "value")
+                .build(), name -> false);
+        Assertions.assertTrue(capabilities.isEntitySupported(String.class));
+        Assertions.assertFalse(capabilities.isEntitySupported(Integer.class));
+        Assertions.assertFalse(capabilities.isEntitySupported(null));
+    }
+
+    @Test
+    public void when_checkingProperties_then_mappedAttributesSupported() {
+        SchemaCapabilities capabilities = SchemaCapabilities.of(new MetamodelStub()
+                .add(String.class, "parents", "children")
+                .build(), name -> false);
+        Assertions.assertTrue(capabilities.isPropertyNameSupported("parents", String.class));
+        Assertions.assertFalse(capabilities.isPropertyNameSupported("translations", String.class));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> capabilities.isPropertyNameSupported("parents", Integer.class));
+    }
+
+    @Test
+    public void when_checkingNamedQueriesRepeatedly_then_lookedUpOnce() {
+        AtomicInteger lookups = new AtomicInteger();
+        SchemaCapabilities capabilities = SchemaCapabilities.of(new MetamodelStub().build(), name -> {
+            lookups.incrementAndGet();
+            return "known".equals(name);
+        });
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(capabilities.isNamedQuerySupported("known"));
+            Assertions.assertFalse(capabilities.isNamedQuerySupported("unknown"));
+        }
+        Assertions.assertEquals(2, lookups.get());
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BlockCacheTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final long FIRST = (System.currentTimeMillis() / DAY - 20) * DAY;
+
+    private static final long LAST = FIRST + 10 * DAY;
+
+    @Test
+    public void when_requestedTwice_then_closedBlocksNotQueriedAgain() {
+        BlockCache cache = new BlockCache();
+        RecordingLoader loader = new RecordingLoader(FIRST, LAST, 0);
+        List<long[]> first = getObservations(cache, loader, FIRST + 2 * DAY + HOUR, FIRST + 5 * DAY);
+        List<long[]> second = getObservations(cache, loader, FIRST + 2 * DAY + HOUR, FIRST + 5 * DAY);
+        Assertions.assertEquals(times(loader.all(FIRST + 2 * DAY + HOUR, FIRST + 5 * DAY)), times(first));
+        Assertions.assertEquals(times(first), times(second));
+        Assertions.assertEquals(1, loader.queries);
+        Assertions.assertEquals(4, cache.getHits());
+    }
+
+    @Test
+    public void when_rangeReachesLastValue_then_tailAlwaysQueried() {
+        BlockCache cache = new BlockCache();
+        RecordingLoader loader = new RecordingLoader(FIRST, LAST, 0);
+        List<long[]> observations = getObservations(cache, loader, FIRST, LAST + DAY);
+        Assertions.assertEquals(times(loader.all(FIRST, LAST + DAY)), times(observations));
+        getObservations(cache, loader, FIRST, LAST + DAY);
+        Assertions.assertEquals(3, loader.queries);
+    }
+
+    @Test
+    public void when_rangeWithinOpenBlock_then_null() {
+        BlockCache cache = new BlockCache();
+        RecordingLoader loader = new RecordingLoader(FIRST, LAST, 0);
+        Assertions.assertNull(getObservations(cache, loader, LAST + HOUR, LAST + 2 * HOUR));
+        Assertions.assertEquals(0, loader.queries);
+    }
+
+    @Test
+    public void when_observationsNotEncodable_then_null() {
+        BlockCache cache = new BlockCache();
+        RecordingLoader loader = new RecordingLoader(FIRST, LAST, FIRST + 3 * DAY);
+        Assertions.assertNull(getObservations(cache, loader, FIRST, FIRST + 5 * DAY));
+        Assertions.assertNull(getObservations(cache, loader, FIRST, FIRST + 5 * DAY));
+        Assertions.assertEquals(1, loader.queries);
+    }
+
+    @Test
+    public void when_firstValueChanged_then_blocksReloaded() {
+        BlockCache cache = new BlockCache();
+        RecordingLoader loader = new RecordingLoader(FIRST, LAST, 0);
+        getObservations(cache, loader, FIRST, FIRST + 3 * DAY - 1);
+        List<long[]> observations = cache.getObservations(1L, new Date(FIRST - DAY), new Date(LAST), FIRST,
+                FIRST + 3 * DAY - 1, new PointCodec(), loader);
+        Assertions.assertEquals(times(loader.all(FIRST, FIRST + 3 * DAY - 1)), times(observations));
+        Assertions.assertEquals(2, loader.queries);
+        Assertions.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void when_observationAddedToClosedBlock_then_onlyThatBlockReloaded() {
+        BlockCache cache = new BlockCache();
+        RecordingLoader loader = new RecordingLoader(FIRST, LAST, 0);
+        getObservations(cache, loader, FIRST, FIRST + 3 * DAY - 1);
+        loader.add(FIRST + DAY + HOUR / 2);
+        List<long[]> observations = getObservations(cache, loader, FIRST, FIRST + 3 * DAY - 1);
+        Assertions.assertEquals(times(loader.all(FIRST, FIRST + 3 * DAY - 1)), times(observations));
+        Assertions.assertTrue(times(observations).contains(FIRST + DAY + HOUR / 2));
+        Assertions.assertEquals(2, loader.queries);
+        getObservations(cache, loader, FIRST, FIRST + 3 * DAY - 1);
+        Assertions.assertEquals(2, loader.queries);
+    }
+
+    @Test
+    public void when_maxWeightExceeded_then_blocksEvicted() {
+        BlockCache cache = new BlockCache();
+        cache.setMaxWeight(4 * 768);
+        RecordingLoader loader = new RecordingLoader(FIRST, LAST, 0);
+        for (int i = 0; i < 10; i++) {
+            getObservations(cache, loader, FIRST + i * DAY, FIRST + (i + 1) * DAY - 1);
+        }
+        Assertions.assertTrue(cache.getWeight() <= 4 * 768);
+        Assertions.assertTrue(cache.getEvictions() > 0);
+        List<long[]> observations = getObservations(cache, loader, FIRST, LAST - 1);
+        Assertions.assertEquals(times(loader.all(FIRST, LAST - 1)), times(observations));
+    }
+
+    @Test
+    public void when_storeAvailable_then_blocksReadFromStore() throws IOException {
+        Path directory = Files.createTempDirectory("blocks");
+        BlockStore store = new BlockStore();
+        store.setEnabled(true);
+        store.setDirectory(directory.toString());
+        store.init();
+        try {
+            RecordingLoader loader = new RecordingLoader(FIRST, LAST, 0);
+            BlockCache cache = new BlockCache();
+            cache.setStore(store);
+            getObservations(cache, loader, FIRST, FIRST + 5 * DAY - 1);
+            BlockCache restarted = new BlockCache();
+            restarted.setStore(store);
+            List<long[]> observations = getObservations(restarted, loader, FIRST, FIRST + 5 * DAY - 1);
+            Assertions.assertEquals(times(loader.all(FIRST, FIRST + 5 * DAY - 1)), times(observations));
+            Assertions.assertEquals(1, loader.queries);
+            Assertions.assertEquals(5, restarted.getStoreHits());
+        } finally {
+            store.invalidateAll();
+            store.shutdown();
+            Files.deleteIfExists(directory.resolve(".lock"));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private List<long[]> getObservations(BlockCache cache, RecordingLoader loader, long from, long to) {
+        return cache.getObservations(1L, new Date(FIRST), new Date(LAST), from, to, new PointCodec(), loader);
+    }
+
+    private static List<Long> times(List<long[]> points) {
+        return points.stream()
+                     .map(p -> p[0])
+                     .collect(Collectors.toList());
+    }
+
+    private static final class RecordingLoader implements BlockCache.RangeLoader<long[]> {
+
+        private final long first;
+
+        private final long last;
+
+        private final long unencodableAt;
+
+        private final List<long[]> added = new ArrayList<>();
+
+        private int queries;
+
+        RecordingLoader(long first, long last, long unencodableAt) {
+            this.first = first;
+            this.last = last;
+            this.unencodableAt = unencodableAt;
+        }
+
+        @Override
+        public List<long[]> load(long from, long to) {
+            queries++;
+            return all(from, to);
+        }
+
+        @Override
+        public long getChangeMarker() {
+            return (last - first) / HOUR + 1 + added.size();
+        }
+
+        @Override
+        public List<long[]> getChanges(long marker, long from, long to) {
+            List<long[]> changes = new ArrayList<>();
+            for (int i = 0; i < added.size(); i++) {
+                long t = added.get(i)[0];
+                long id = (last - first) / HOUR + 2 + i;
+                if (id > marker && t >= from && t <= to) {
+                    changes.add(new long[] {t, id});
+                }
+            }
+            return changes;
+        }
+
+        void add(long time) {
+            added.add(new long[] {time, time / HOUR});
+        }
+
+        List<long[]> all(long from, long to) {
+            List<long[]> points = new ArrayList<>();
+            for (long t = first; t <= last; t += HOUR) {
+                if (t >= from && t <= to) {
+                    points.add(new long[] {t, t == unencodableAt ? -1 : t / HOUR});
+                }
+            }
+            added.stream()
+                 .filter(p -> p[0] >= from && p[0] <= to)
+                 .forEach(points::add);
+            points.sort(Comparator.comparingLong(p -> p[0]));
+            return points;
+        }
+
+    }
+
+    private static final class PointCodec implements BlockCodec<long[]> {
+
+        @Override
+        public boolean isEncodable(long[] observation) {
+            return observation[1] >= 0;
+        }
+
+        @Override
+        public long getTimestamp(long[] observation) {
+            return observation[0];
+        }
+
+        @Override
+        public DataBlock encode(long start, List<long[]> observations, long firstValueAt, long changeMarker) {
+            int size = observations.size();
+            long[] timestamps = new long[size];
+            long[] resultTimes = new long[size];
+            long[] values = new long[size];
+            int[] scales = new int[size];
+            for (int i = 0; i < size; i++) {
+                timestamps[i] = observations.get(i)[0];
+                resultTimes[i] = DataBlock.NO_TIME;
+                values[i] = observations.get(i)[1];
+            }
+            return new DataBlock(start, timestamps, resultTimes, values, scales, firstValueAt, changeMarker);
+        }
+
+        @Override
+        public long[] decode(DataBlock block, int index) {
+            BigDecimal value = block.getValue(index);
+            return new long[] {block.getTimestamp(index), value.longValueExact()};
+        }
+
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BlockCompressionTest {
+
+    private static final long START = 1_600_000_000_000L;
+
+    @Test
+    public void when_regularSeries_then_fewBitsPerPoint() {
+        int size = 1440;
+        long[] timestamps = new long[size];
+        long[] values = new long[size];
+        int[] scales = new int[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = START + i * 60_000L;
+            values[i] = 1250 + i % 3;
+            scales[i] = 2;
+        }
+        DataBlock block = new DataBlock(START, timestamps, copy(timestamps), values, scales, 0L, 1L);
+        byte[] compressed = BlockCompression.compress(block);
+        Assertions.assertTrue(compressed.length < size * 2);
+        assertEquals(block, decompress(block, compressed));
+    }
+
+    @Test
+    public void when_irregularSeries_then_restoredExactly() {
+        Random random = new Random(42);
+        int size = 500;
+        long[] timestamps = new long[size];
+        long[] resultTimes = new long[size];
+        long[] values = new long[size];
+        int[] scales = new int[size];
+        long time = START;
+        for (int i = 0; i < size; i++) {
+            time += random.nextInt(5) == 0
+                    ? random.nextInt(Integer.MAX_VALUE)
+                    : random.nextInt(3000);
+            timestamps[i] = time;
+            resultTimes[i] = i % 3 == 0
+                    ? DataBlock.NO_TIME
+                    : i % 3 == 1
+                            ? time
+                            : time + random.nextInt(100000);
+            values[i] = i % 7 == 0
+                    ? Long.MIN_VALUE + random.nextInt(10)
+                    : random.nextLong() >> random.nextInt(64);
+            scales[i] = i % 11 == 0
+                    ? DataBlock.NO_VALUE
+                    : random.nextInt(5) - 2;
+        }
+        DataBlock block = new DataBlock(START, timestamps, resultTimes, values, scales, 3L, 4L);
+        assertEquals(block, decompress(block, BlockCompression.compress(block)));
+    }
+
+    @Test
+    public void when_emptyBlock_then_restoredEmpty() {
+        DataBlock block = new DataBlock(START, new long[0], new long[0], new long[0], new int[0], 0L, 1L);
+        Assertions.assertEquals(0, decompress(block, BlockCompression.compress(block)).size());
+    }
+
+    private static DataBlock decompress(DataBlock block, byte[] compressed) {
+        ByteBuffer buffer = ByteBuffer.allocate(compressed.length + 3);
+        buffer.position(3);
+        buffer.put(compressed);
+        return BlockCompression.decompress(buffer, 3, compressed.length, block.getStart(),
+                block.getFirstValueAt(), block.getChangeMarker());
+    }
+
+    private static long[] copy(long[] values) {
+        return values.clone();
+    }
+
+    private static void assertEquals(DataBlock expected, DataBlock actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        Assertions.assertEquals(expected.getFirstValueAt(), actual.getFirstValueAt());
+        Assertions.assertEquals(expected.getChangeMarker(), actual.getChangeMarker());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.getTimestamp(i), actual.getTimestamp(i));
+            Assertions.assertEquals(expected.getResultTime(i), actual.getResultTime(i));
+            Assertions.assertEquals(expected.getUnscaledValue(i), actual.getUnscaledValue(i));
+            Assertions.assertEquals(expected.getScale(i), actual.getScale(i));
+        }
+    }
+
+}
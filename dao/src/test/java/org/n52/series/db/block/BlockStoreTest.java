@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BlockStoreTest {
+
+    private static final long DAY = 86_400_000L;
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("blocks");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder())
+                 .forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void when_reopened_then_blocksRead() {
+        BlockStore store = createStore();
+        store.put(1L, createBlock(0L, 10), DAY);
+        store.put(1L, createBlock(DAY, 20), 2 * DAY);
+        store.put(2L, createBlock(0L, 30), DAY);
+        store.shutdown();
+
+        BlockStore reopened = createStore();
+        Assertions.assertEquals(20, reopened.get(1L, DAY, 2 * DAY).size());
+        Assertions.assertEquals(30, reopened.get(2L, 0L, DAY).size());
+        Assertions.assertEquals(25L, reopened.get(2L, 0L, DAY).getUnscaledValue(25));
+        Assertions.assertNull(reopened.get(2L, DAY, 2 * DAY));
+        reopened.shutdown();
+    }
+
+    @Test
+    public void when_blockBoundsDiffer_then_null() {
+        BlockStore store = createStore();
+        store.put(1L, createBlock(0L, 10), DAY);
+        Assertions.assertNull(store.get(1L, 0L, DAY / 2));
+        store.shutdown();
+    }
+
+    @Test
+    public void when_tornWriteAtEnd_then_truncated() throws IOException {
+        BlockStore store = createStore();
+        store.put(1L, createBlock(0L, 10), DAY);
+        store.shutdown();
+        Path file = directory.resolve("1.blocks");
+        long valid = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x42, 0x4C, 0x4B, 0x33, 0, 0, 0}));
+        }
+
+        BlockStore reopened = createStore();
+        Assertions.assertEquals(10, reopened.get(1L, 0L, DAY).size());
+        Assertions.assertEquals(valid, Files.size(file));
+        reopened.put(1L, createBlock(DAY, 5), 2 * DAY);
+        Assertions.assertEquals(5, reopened.get(1L, DAY, 2 * DAY).size());
+        reopened.shutdown();
+    }
+
+    @Test
+    public void when_headerCorrupt_then_recordDropped() throws IOException {
+        BlockStore store = createStore();
+        store.put(1L, createBlock(0L, 10), DAY);
+        store.shutdown();
+        Path file = directory.resolve("1.blocks");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // last byte of changeMarker
+            channel.write(ByteBuffer.wrap(new byte[] {0x7F}), Integer.BYTES + 4 * Long.BYTES - 1);
+        }
+
+        BlockStore reopened = createStore();
+        Assertions.assertNull(reopened.get(1L, 0L, DAY));
+        Assertions.assertEquals(0L, Files.size(file));
+        reopened.shutdown();
+    }
+
+    @Test
+    public void when_directoryInUse_then_secondStoreDisabled() {
+        BlockStore first = createStore();
+        BlockStore second = createStore();
+        first.put(1L, createBlock(0L, 10), DAY);
+        second.put(1L, createBlock(0L, 20), DAY);
+
+        Assertions.assertTrue(first.isEnabled());
+        Assertions.assertFalse(second.isEnabled());
+        Assertions.assertEquals(10, first.get(1L, 0L, DAY).size());
+        Assertions.assertNull(second.get(1L, 0L, DAY));
+        first.shutdown();
+        second.shutdown();
+
+        BlockStore reopened = createStore();
+        Assertions.assertTrue(reopened.isEnabled());
+        Assertions.assertEquals(10, reopened.get(1L, 0L, DAY).size());
+        reopened.shutdown();
+    }
+
+    @Test
+    public void when_noDirectoryConfigured_then_directoryInUserHome() {
+        BlockStore store = new BlockStore();
+        store.setDirectory("");
+        Assertions.assertEquals(Paths.get(System.getProperty("user.home"), ".series-api", "blocks"),
+                store.getDirectory());
+    }
+
+    @Test
+    public void when_maxSizeExceeded_then_leastRecentlyReadDropped() {
+        BlockStore store = createStore();
+        store.put(1L, createBlock(0L, 100), DAY);
+        store.put(2L, createBlock(0L, 100), DAY);
+        store.get(1L, 0L, DAY);
+        long maxSize = store.getSize() + 1;
+        store.setMaxSize(maxSize);
+        store.put(3L, createBlock(0L, 100), DAY);
+        Assertions.assertTrue(store.getSize() <= maxSize);
+        Assertions.assertNotNull(store.get(1L, 0L, DAY));
+        Assertions.assertNull(store.get(2L, 0L, DAY));
+        Assertions.assertNotNull(store.get(3L, 0L, DAY));
+        store.shutdown();
+    }
+
+    private BlockStore createStore() {
+        BlockStore store = new BlockStore();
+        store.setEnabled(true);
+        store.setDirectory(directory.toString());
+        store.init();
+        return store;
+    }
+
+    private static DataBlock createBlock(long start, int size) {
+        long[] timestamps = new long[size];
+        long[] values = new long[size];
+        long[] resultTimes = new long[size];
+        int[] scales = new int[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = start + i * 1000L;
+            resultTimes[i] = DataBlock.NO_TIME;
+            values[i] = i;
+        }
+        return new DataBlock(start, timestamps, resultTimes, values, scales, 0L, 1L);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.block;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RecentWindowTest {
+
+    @Test
+    public void when_appendedBeyondCapacity_then_grownAndOrdered() {
+        RecentWindow window = new RecentWindow(0L, 0L, 1L, 1000);
+        window.append(createBlock(0L, 10L, 100), 990L);
+        window.trim(200L);
+        window.append(createBlock(1000L, 10L, 50), 1490L);
+        DataBlock copy = window.copy(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(130, copy.size());
+        Assertions.assertEquals(200L, copy.getTimestamp(0));
+        Assertions.assertEquals(1490L, copy.getTimestamp(copy.size() - 1));
+        for (int i = 1; i < copy.size(); i++) {
+            Assertions.assertTrue(copy.getTimestamp(i) > copy.getTimestamp(i - 1));
+            Assertions.assertEquals(copy.getTimestamp(i), copy.getUnscaledValue(i));
+        }
+    }
+
+    @Test
+    public void when_appendingKnownPoints_then_skipped() {
+        RecentWindow window = new RecentWindow(0L, 0L, 1L, 1000);
+        window.append(createBlock(0L, 10L, 10), 90L);
+        window.append(createBlock(50L, 10L, 10), 140L);
+        Assertions.assertEquals(15, window.size());
+        Assertions.assertEquals(140L, window.getLastTimestamp());
+    }
+
+    @Test
+    public void when_maxPointsExceeded_then_oldestOverwritten() {
+        RecentWindow window = new RecentWindow(0L, 0L, 1L, 32);
+        window.append(createBlock(0L, 1L, 32), 31L);
+        window.append(createBlock(32L, 1L, 8), 39L);
+        DataBlock copy = window.copy(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(32, copy.size());
+        Assertions.assertEquals(8L, copy.getTimestamp(0));
+        Assertions.assertEquals(39L, copy.getTimestamp(31));
+        Assertions.assertTrue(window.covers(8L, 0L, 39L));
+        Assertions.assertFalse(window.covers(7L, 0L, 39L));
+    }
+
+    @Test
+    public void when_sameTimeWithOtherResultTime_then_held() {
+        RecentWindow window = new RecentWindow(0L, 0L, 1L, 1000);
+        window.append(createBlock(new long[] {10L, 20L, 20L}, new long[] {1L, 2L, 3L}), 20L);
+        window.append(createBlock(new long[] {20L, 20L, 30L}, new long[] {3L, 4L, 5L}), 30L);
+        DataBlock copy = window.copy(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(5, copy.size());
+        Assertions.assertEquals(4L, copy.getResultTime(3));
+        Assertions.assertEquals(30L, copy.getTimestamp(4));
+    }
+
+    @Test
+    public void when_rangeRequested_then_pointsWithinBoundsCopied() {
+        RecentWindow window = new RecentWindow(0L, 0L, 1L, 1000);
+        window.append(createBlock(0L, 10L, 100), 990L);
+        DataBlock copy = window.copy(105L, 200L);
+        Assertions.assertEquals(10, copy.size());
+        Assertions.assertEquals(110L, copy.getTimestamp(0));
+        Assertions.assertEquals(200L, copy.getTimestamp(9));
+    }
+
+    @Test
+    public void when_notInSyncOrTooShort_then_notCovered() {
+        RecentWindow window = new RecentWindow(100L, 7L, 1L, 1000);
+        window.append(createBlock(100L, 10L, 10), 190L);
+        Assertions.assertTrue(window.covers(100L, 7L, 190L));
+        Assertions.assertFalse(window.covers(99L, 7L, 190L));
+        Assertions.assertFalse(window.covers(100L, 8L, 190L));
+        Assertions.assertFalse(window.covers(100L, 7L, 200L));
+        window.trim(150L);
+        Assertions.assertFalse(window.covers(100L, 7L, 190L));
+    }
+
+    private static DataBlock createBlock(long[] timestamps, long[] resultTimes) {
+        return new DataBlock(timestamps[0], timestamps, resultTimes, resultTimes.clone(),
+                new int[timestamps.length], 0L, 1L);
+    }
+
+    private static DataBlock createBlock(long start, long step, int size) {
+        long[] timestamps = new long[size];
+        long[] resultTimes = new long[size];
+        long[] values = new long[size];
+        int[] scales = new int[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = start + i * step;
+            resultTimes[i] = DataBlock.NO_TIME;
+            values[i] = timestamps[i];
+        }
+        return new DataBlock(start, timestamps, resultTimes, values, scales, 0L, 1L);
+    }
+
+}
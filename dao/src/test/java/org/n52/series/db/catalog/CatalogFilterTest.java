@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.dao.DbQuery;
+
+public class CatalogFilterTest {
+
+    @Test
+    public void when_parametersFiltered_then_idsParsed() {
+        CatalogFilter filter = CatalogFilter.of(CatalogFixture.query(Parameters.PHENOMENA, "1,2"));
+        Assertions.assertTrue(filter.hasParameterFilter(ParameterType.PHENOMENON));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1L, 2L)),
+                filter.getParameterIds(ParameterType.PHENOMENON));
+        Assertions.assertFalse(filter.hasParameterFilter(ParameterType.PROCEDURE));
+        Assertions.assertTrue(filter.getParameterIds(ParameterType.PROCEDURE).isEmpty());
+    }
+
+    @Test
+    public void when_counting_then_idFiltersIgnored() {
+        DbQuery query = CatalogFixture.query(Parameters.PHENOMENA, "1", Parameters.DATASETS, "3");
+        CatalogFilter filter = CatalogFilter.forCounting(query);
+        Assertions.assertFalse(filter.hasParameterFilter(ParameterType.PHENOMENON));
+        Assertions.assertTrue(filter.getDatasetIds().isEmpty());
+    }
+
+    @Test
+    public void when_datasetsRequested_then_referenceDatasetsIncluded() {
+        Assertions.assertTrue(CatalogFilter.of(CatalogFixture.query()).isIgnoreReferenceDatasets());
+        CatalogFilter filter = CatalogFilter.of(CatalogFixture.query(Parameters.DATASETS, "3,4"));
+        Assertions.assertFalse(filter.isIgnoreReferenceDatasets());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(3L, 4L)), filter.getDatasetIds());
+    }
+
+    @Test
+    public void when_noLimit_then_allElementsPaged() {
+        List<Long> elements = elements(5);
+        Assertions.assertEquals(elements, CatalogFilter.of(CatalogFixture.query()).page(elements));
+    }
+
+    @Test
+    public void when_limitAndOffsetGiven_then_pageOfLimitSizeReturned() {
+        CatalogFilter filter = CatalogFilter.of(CatalogFixture.query(Parameters.LIMIT, "2", Parameters.OFFSET, "1"));
+        Assertions.assertEquals(Arrays.asList(2L, 3L), filter.page(elements(10)));
+        Assertions.assertTrue(filter.page(elements(2)).isEmpty());
+    }
+
+    @Test
+    public void when_matchingDomainIds_then_notSupported() {
+        Assertions.assertTrue(CatalogFilter.isSupported(CatalogFixture.query()));
+        Assertions.assertFalse(CatalogFilter.isSupported(CatalogFixture.query(Parameters.MATCH_DOMAIN_IDS, "true")));
+    }
+
+    private static List<Long> elements(int count) {
+        return LongStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+}
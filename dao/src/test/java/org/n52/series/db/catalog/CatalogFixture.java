@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.n52.io.request.IoParameters;
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.DefaultDbQueryFactory;
+
+/**
+ * Builds catalog snapshots of timeseries datasets referring to a phenomenon and a procedure each.
+ */
+public class CatalogFixture {
+
+    private final SortedMap<Long, DatasetEntry> datasets = new TreeMap<>();
+
+    private final Map<ParameterType, SortedMap<Long, ParameterEntry>> parameters =
+            new EnumMap<>(ParameterType.class);
+
+    public CatalogFixture add(long id, long phenomenon, long procedure, Date lastValueAt) {
+        EnumMap<ParameterType, Long> members = new EnumMap<>(ParameterType.class);
+        members.put(ParameterType.PHENOMENON, phenomenon);
+        members.put(ParameterType.PROCEDURE, procedure);
+        members.forEach(this::addParameter);
+        datasets.put(id, new DatasetEntry(id, "dataset-" + id, labels("dataset " + id), labels("m"),
+                DatasetType.timeseries, ObservationType.simple, ValueType.quantity, false, true, false, null,
+                null, lastValueAt, lastValueAt, members));
+        return this;
+    }
+
+    private void addParameter(ParameterType type, Long id) {
+        String name = type.name().toLowerCase() + " " + id;
+        parameters.computeIfAbsent(type, t -> new TreeMap<>())
+                  .put(id, new ParameterEntry(type, id, name, name, labels(name), Collections.emptySet(), null,
+                          false));
+    }
+
+    private static Map<String, String> labels(String label) {
+        Map<String, String> labels = new HashMap<>();
+        labels.put("en", label);
+        return labels;
+    }
+
+    public CatalogSnapshot build() {
+        return new CatalogSnapshot(1, 1, new Date(0), Collections.singleton("en"), datasets, parameters, null);
+    }
+
+    /**
+     * @return a catalog serving the built snapshot
+     */
+    public MetadataCatalog buildCatalog() {
+        MetadataCatalog catalog = new MetadataCatalog();
+        catalog.swap(build());
+        return catalog;
+    }
+
+    static DbQuery query(String... keyValues) {
+        IoParameters parameters = IoParameters.createDefaults();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            parameters = parameters.extendWith(keyValues[i], keyValues[i + 1].split(","));
+        }
+        return new DefaultDbQueryFactory().createFrom(parameters);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.Parameters;
+
+public class CatalogSnapshotTest {
+
+    private final CatalogSnapshot snapshot = new CatalogFixture()
+            .add(1, 10, 20, new Date(1000))
+            .add(2, 11, 20, new Date(2000))
+            .add(3, 10, 21, new Date(3000))
+            .build();
+
+    @Test
+    public void when_filteringByParameter_then_matchingDatasetsFound() {
+        CatalogFilter filter = CatalogFilter.of(CatalogFixture.query(Parameters.PHENOMENA, "10"));
+        Assertions.assertEquals(Arrays.asList(1L, 3L), ids(snapshot.findDatasets(filter)));
+        Assertions.assertEquals(2, snapshot.countDatasets(filter));
+        Assertions.assertTrue(snapshot.matchesDataset(3L, filter));
+        Assertions.assertFalse(snapshot.matchesDataset(2L, filter));
+    }
+
+    @Test
+    public void when_filteringByParameter_then_onlyReferredParametersFound() {
+        CatalogFilter filter = CatalogFilter.of(CatalogFixture.query(Parameters.PHENOMENA, "11"));
+        List<ParameterEntry> procedures = snapshot.findParameters(ParameterType.PROCEDURE, filter);
+        Assertions.assertEquals(1, procedures.size());
+        Assertions.assertEquals(Long.valueOf(20L), procedures.get(0).getId());
+        Assertions.assertEquals(1, snapshot.countParameters(ParameterType.PROCEDURE, filter));
+        Assertions.assertFalse(snapshot.matchesParameter(ParameterType.PROCEDURE, 21L, filter));
+    }
+
+    @Test
+    public void when_filteringByUnknownParameter_then_nothingFound() {
+        CatalogFilter filter = CatalogFilter.of(CatalogFixture.query(Parameters.PROCEDURES, "99"));
+        Assertions.assertTrue(snapshot.findDatasets(filter).isEmpty());
+        Assertions.assertEquals(0, snapshot.countParameters(ParameterType.PHENOMENON, filter));
+    }
+
+    @Test
+    public void when_limitAndOffsetGiven_then_datasetsPaged() {
+        CatalogFilter filter = CatalogFilter.of(CatalogFixture.query(Parameters.LIMIT, "1", Parameters.OFFSET, "1"));
+        Assertions.assertEquals(Arrays.asList(2L), ids(snapshot.findDatasets(filter)));
+        Assertions.assertEquals(3, snapshot.countDatasets(filter));
+    }
+
+    @Test
+    public void when_created_then_maxValuesResolved() {
+        Assertions.assertEquals(3, snapshot.size());
+        Assertions.assertEquals(3L, snapshot.getMaxDatasetId());
+        Assertions.assertEquals(new Date(3000), snapshot.getMaxLastValueAt());
+        Assertions.assertTrue(snapshot.getDatasetExistence().contains(2L));
+        Assertions.assertTrue(snapshot.getParameterExistence(ParameterType.PHENOMENON).contains(11L));
+    }
+
+    @Test
+    public void when_timestampsUnchanged_then_notChanged() {
+        Assertions.assertFalse(snapshot.isChanged(1L, new Date(1000), new Date(1000)));
+        Assertions.assertFalse(snapshot.isChanged(1L, new Timestamp(1000), new Timestamp(1000)));
+    }
+
+    @Test
+    public void when_timestampsDiffer_then_changed() {
+        Assertions.assertTrue(snapshot.isChanged(1L, new Date(1000), new Date(1500)));
+        Assertions.assertTrue(snapshot.isChanged(1L, new Date(500), new Date(1000)));
+        Assertions.assertTrue(snapshot.isChanged(1L, new Date(1000), null));
+        Assertions.assertTrue(snapshot.isChanged(4L, new Date(1000), new Date(1000)));
+    }
+
+    private static List<Long> ids(List<DatasetEntry> datasets) {
+        return datasets.stream().map(DatasetEntry::getId).collect(Collectors.toList());
+    }
+
+}
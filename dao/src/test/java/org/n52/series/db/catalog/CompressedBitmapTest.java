@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CompressedBitmapTest {
+
+    @Test
+    public void when_addingValues_then_containedInAscendingOrder() {
+        CompressedBitmap bitmap = CompressedBitmap.of(70000, 3, 1, 3, 65536);
+        Assertions.assertArrayEquals(new int[] {1, 3, 65536, 70000}, bitmap.toArray());
+        Assertions.assertTrue(bitmap.contains(65536));
+        Assertions.assertFalse(bitmap.contains(2));
+        Assertions.assertEquals(4, bitmap.cardinality());
+    }
+
+    @Test
+    public void when_creatingRange_then_allValuesContained() {
+        CompressedBitmap range = CompressedBitmap.range(70000);
+        Assertions.assertEquals(70000, range.cardinality());
+        Assertions.assertTrue(range.contains(0));
+        Assertions.assertTrue(range.contains(69999));
+        Assertions.assertFalse(range.contains(70000));
+        Assertions.assertTrue(CompressedBitmap.range(0).isEmpty());
+    }
+
+    @Test
+    public void when_denseChunk_then_sameResultsAsSparseChunk() {
+        CompressedBitmap dense = new CompressedBitmap();
+        for (int i = 0; i < 2 * CompressedBitmap.ARRAY_MAX; i += 2) {
+            dense.add(i);
+        }
+        CompressedBitmap odd = CompressedBitmap.of(1, 2, 3, 4);
+        Assertions.assertArrayEquals(new int[] {2, 4}, dense.and(odd).toArray());
+        Assertions.assertArrayEquals(new int[] {1, 3}, odd.andNot(dense).toArray());
+        Assertions.assertEquals(CompressedBitmap.ARRAY_MAX + 2, dense.or(odd).cardinality());
+        Assertions.assertEquals(CompressedBitmap.ARRAY_MAX - 2, dense.andNot(odd).cardinality());
+    }
+
+    @Test
+    public void when_combiningRandomBitmaps_then_matchesSetOperations() {
+        Random random = new Random(52);
+        for (int round = 0; round < 50; round++) {
+            int max = random.nextInt(200000) + 1;
+            TreeSet<Integer> left = new TreeSet<>();
+            TreeSet<Integer> right = new TreeSet<>();
+            CompressedBitmap leftBitmap = fill(random, max, random.nextDouble() * 0.2, left);
+            CompressedBitmap rightBitmap = fill(random, max, random.nextDouble() * 0.01, right);
+
+            TreeSet<Integer> and = new TreeSet<>(left);
+            and.retainAll(right);
+            TreeSet<Integer> or = new TreeSet<>(left);
+            or.addAll(right);
+            TreeSet<Integer> andNot = new TreeSet<>(left);
+            andNot.removeAll(right);
+
+            assertSame(and, leftBitmap.and(rightBitmap));
+            assertSame(or, leftBitmap.or(rightBitmap));
+            assertSame(or, CompressedBitmap.or(Arrays.asList(rightBitmap, leftBitmap)));
+            assertSame(andNot, leftBitmap.andNot(rightBitmap));
+            Assertions.assertEquals(!and.isEmpty(), leftBitmap.intersects(rightBitmap));
+        }
+    }
+
+    @Test
+    public void when_combining_then_operandsUnchanged() {
+        CompressedBitmap left = CompressedBitmap.of(1, 2, 3);
+        CompressedBitmap right = CompressedBitmap.of(2, 4);
+        left.or(right);
+        left.and(right);
+        left.andNot(right);
+        Assertions.assertArrayEquals(new int[] {1, 2, 3}, left.toArray());
+        Assertions.assertArrayEquals(new int[] {2, 4}, right.toArray());
+    }
+
+    private CompressedBitmap fill(Random random, int max, double density, TreeSet<Integer> values) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < max; i++) {
+            if (random.nextDouble() < density) {
+                values.add(i);
+                bitmap.add(i);
+            }
+        }
+        return bitmap;
+    }
+
+    private void assertSame(TreeSet<Integer> expected, CompressedBitmap actual) {
+        Assertions.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual.toArray());
+    }
+
+}
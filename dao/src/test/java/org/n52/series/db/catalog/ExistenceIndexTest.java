@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ExistenceIndexTest {
+
+    @Test
+    public void when_idKnown_then_contained() {
+        ExistenceIndex index = new ExistenceIndex(Arrays.asList(3L, 70000L, 1L, 5_000_000_000L));
+        Assertions.assertTrue(index.contains(3L));
+        Assertions.assertTrue(index.contains(70000L));
+        Assertions.assertTrue(index.contains(5_000_000_000L));
+        Assertions.assertEquals(4, index.size());
+    }
+
+    @Test
+    public void when_idUnknownBelowMax_then_coveredButNotContained() {
+        ExistenceIndex index = new ExistenceIndex(Arrays.asList(1L, 3L, 70000L));
+        Assertions.assertTrue(index.covers(2L));
+        Assertions.assertFalse(index.contains(2L));
+        Assertions.assertTrue(index.covers(-1L));
+        Assertions.assertFalse(index.contains(-1L));
+    }
+
+    @Test
+    public void when_idAboveMax_then_notCovered() {
+        Assertions.assertFalse(new ExistenceIndex(Arrays.asList(1L, 3L)).covers(4L));
+        Assertions.assertFalse(new ExistenceIndex(Collections.emptyList()).covers(1L));
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void when_offeringFewValues_then_countedExactly() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        Assertions.assertEquals(0, sketch.estimate());
+        for (long i = 1; i <= 20; i++) {
+            sketch.offer(i);
+            sketch.offer(i);
+        }
+        Assertions.assertEquals(20, sketch.estimate());
+    }
+
+    @Test
+    public void when_offeringManyValues_then_estimateWithinErrorBounds() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (long i = 0; i < 1000000; i++) {
+            sketch.offer(i);
+        }
+        // about four times the standard error
+        Assertions.assertEquals(1000000, sketch.estimate(), 1000000 * 0.065);
+    }
+
+    @Test
+    public void when_merging_then_estimatesUnion() {
+        HyperLogLog left = new HyperLogLog(12);
+        HyperLogLog right = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (long i = 0; i < 60000; i++) {
+            left.offer(i);
+            union.offer(i);
+        }
+        for (long i = 40000; i < 100000; i++) {
+            right.offer(i);
+            union.offer(i);
+        }
+        HyperLogLog merged = left.copy().merge(right);
+        Assertions.assertEquals(union.estimate(), merged.estimate());
+        Assertions.assertEquals(100000, merged.estimate(), 100000 * 0.065);
+        Assertions.assertNotEquals(left.estimate(), merged.estimate());
+    }
+
+    @Test
+    public void when_mergingDifferentPrecision_then_exception() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new HyperLogLog(12).merge(new HyperLogLog(10)));
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MetadataCatalogTest {
+
+    private final CatalogSnapshot snapshot = new CatalogFixture()
+            .add(1, 10, 20, new Date(1000))
+            .add(2, 10, 20, new Date(5000))
+            .add(3, 10, 20, new Date(3000))
+            .build();
+
+    @Test
+    public void when_datasetAdvancesBelowLatest_then_detectedAsChanged() {
+        List<Object[]> timespans = Arrays.asList(
+                timespan(1, 1000, 2000),
+                timespan(2, 5000, 5000),
+                timespan(3, 3000, 3000));
+        Assertions.assertTrue(MetadataCatalog.getAddedDatasets(snapshot, timespans).isEmpty());
+        Assertions.assertEquals(Collections.singletonList(1L), getIds(MetadataCatalog.getMovedTimespans(snapshot,
+                timespans)));
+        Assertions.assertFalse(MetadataCatalog.hasRemovedDatasets(snapshot, timespans));
+    }
+
+    @Test
+    public void when_datasetAddedWithLowerId_then_detectedAsChanged() {
+        List<Object[]> timespans = Arrays.asList(
+                timespan(0, 100, 100),
+                timespan(1, 1000, 1000),
+                timespan(2, 5000, 5000),
+                timespan(3, 3000, 3000));
+        Assertions.assertEquals(Collections.singleton(0L), MetadataCatalog.getAddedDatasets(snapshot, timespans));
+        Assertions.assertTrue(MetadataCatalog.getMovedTimespans(snapshot, timespans).isEmpty());
+        Assertions.assertFalse(MetadataCatalog.hasRemovedDatasets(snapshot, timespans));
+    }
+
+    @Test
+    public void when_datasetsUnchanged_then_nothingDetected() {
+        List<Object[]> timespans = Arrays.asList(
+                timespan(1, 1000, 1000),
+                timespan(2, 5000, 5000),
+                timespan(3, 3000, 3000));
+        Assertions.assertTrue(MetadataCatalog.getAddedDatasets(snapshot, timespans).isEmpty());
+        Assertions.assertTrue(MetadataCatalog.getMovedTimespans(snapshot, timespans).isEmpty());
+    }
+
+    @Test
+    public void when_datasetRemoved_then_detected() {
+        List<Object[]> timespans = Arrays.asList(
+                timespan(1, 1000, 1000),
+                timespan(3, 3000, 3000),
+                timespan(4, 4000, 4000));
+        Assertions.assertTrue(MetadataCatalog.hasRemovedDatasets(snapshot, timespans));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(4L)),
+                MetadataCatalog.getAddedDatasets(snapshot, timespans));
+    }
+
+    @Test
+    public void when_timespansMove_then_versionKept() {
+        CatalogSnapshot moved = MetadataCatalog.moveTimespans(snapshot,
+                Collections.singletonList(timespan(1, 1000, 9000)));
+        Assertions.assertEquals(snapshot.getVersion(), moved.getVersion());
+        Assertions.assertEquals(snapshot.getModified(), moved.getModified());
+        Assertions.assertEquals(snapshot.getRevision() + 1, moved.getRevision());
+        Assertions.assertEquals(new Date(9000), moved.getDataset(1L).getLastValueAt());
+        Assertions.assertEquals(new Date(9000), moved.getMaxLastValueAt());
+    }
+
+    @Test
+    public void when_onlyTimespansDiffer_then_sameMetadata() {
+        CatalogSnapshot later = new CatalogFixture()
+                .add(1, 10, 20, new Date(2000))
+                .add(2, 10, 20, new Date(6000))
+                .add(3, 10, 20, new Date(4000))
+                .build();
+        Assertions.assertTrue(new CatalogBuilder(later, feature -> null).hasSameMetadata(snapshot));
+    }
+
+    @Test
+    public void when_memberChanges_then_metadataDiffers() {
+        CatalogSnapshot changed = new CatalogFixture()
+                .add(1, 10, 20, new Date(1000))
+                .add(2, 10, 20, new Date(5000))
+                .add(3, 11, 20, new Date(3000))
+                .build();
+        Assertions.assertFalse(new CatalogBuilder(changed, feature -> null).hasSameMetadata(snapshot));
+    }
+
+    @Test
+    public void when_datasetAdded_then_metadataDiffers() {
+        CatalogSnapshot added = new CatalogFixture()
+                .add(1, 10, 20, new Date(1000))
+                .add(2, 10, 20, new Date(5000))
+                .add(3, 10, 20, new Date(3000))
+                .add(4, 10, 20, new Date(3000))
+                .build();
+        Assertions.assertFalse(new CatalogBuilder(added, feature -> null).hasSameMetadata(snapshot));
+        Assertions.assertFalse(new CatalogBuilder(snapshot, feature -> null).hasSameMetadata(null));
+    }
+
+    @Test
+    public void when_refreshedWithinTwoIntervals_then_current() {
+        MetadataCatalog catalog = new MetadataCatalog();
+        catalog.setRefreshIntervalSeconds(60);
+        Assertions.assertTrue(catalog.isCurrent(1000, 1000 + 120_000));
+        Assertions.assertFalse(catalog.isCurrent(1000, 1001 + 120_000));
+        Assertions.assertFalse(catalog.isCurrent());
+    }
+
+    private static List<Long> getIds(List<Object[]> timespans) {
+        return timespans.stream().map(timespan -> (Long) timespan[0]).collect(Collectors.toList());
+    }
+
+    private static Object[] timespan(long id, long firstValueAt, long lastValueAt) {
+        return new Object[] {
+            id,
+            new Date(firstValueAt),
+            new Date(lastValueAt)
+        };
+    }
+
+}
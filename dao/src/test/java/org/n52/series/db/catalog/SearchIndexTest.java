@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SearchIndexTest {
+
+    @Test
+    public void when_searching_then_caseInsensitiveInfixMatchesRanked() {
+        SearchIndex index = createIndex(entry(1L, "Water Temperature", "Wassertemperatur"),
+                                        entry(2L, "temperature", "Temperatur"),
+                                        entry(3L, "Air temperature", "Lufttemperatur"),
+                                        entry(4L, "Discharge", "Abfluss"));
+        Map<Long, Integer> hits = index.search(ParameterType.PHENOMENON, "TEMPERATURE", "en");
+        Assertions.assertEquals(Arrays.asList(2L, 3L, 1L), new ArrayList<>(hits.keySet()));
+        Assertions.assertEquals(SearchIndex.EXACT, hits.get(2L).intValue());
+        Assertions.assertEquals(SearchIndex.WORD_PREFIX, hits.get(3L).intValue());
+    }
+
+    @Test
+    public void when_searchingLocalizedLabel_then_matchesLocaleOnly() {
+        SearchIndex index = createIndex(entry(1L, "Discharge", "Abfluss"));
+        Assertions.assertTrue(index.search(ParameterType.PHENOMENON, "abfl", "de").containsKey(1L));
+        Assertions.assertTrue(index.search(ParameterType.PHENOMENON, "abfl", "en").isEmpty());
+        Assertions.assertTrue(index.search(ParameterType.PHENOMENON, "disch", "de").containsKey(1L));
+    }
+
+    @Test
+    public void when_searchingShortTerm_then_allEntitiesVerified() {
+        SearchIndex index = createIndex(entry(1L, "pH", "pH"), entry(2L, "Phosphate", "Phosphat"));
+        Assertions.assertEquals(2, index.search(ParameterType.PHENOMENON, "ph", "en").size());
+        Assertions.assertEquals(2, index.search(ParameterType.PHENOMENON, "", "en").size());
+    }
+
+    @Test
+    public void when_labelsUnchanged_then_previousIndexReused() {
+        ParameterEntry entry = entry(1L, "Discharge", "Abfluss");
+        SearchIndex previous = createIndex(entry);
+        SearchIndex next = new SearchIndex(parameters(entry(1L, "Discharge", "Abfluss")), previous);
+        Assertions.assertEquals(previous.search(ParameterType.PHENOMENON, "charge", "en"),
+                                next.search(ParameterType.PHENOMENON, "charge", "en"));
+        SearchIndex changed = new SearchIndex(parameters(entry(1L, "Runoff", "Abfluss")), previous);
+        Assertions.assertTrue(changed.search(ParameterType.PHENOMENON, "charge", "en").isEmpty());
+    }
+
+    private SearchIndex createIndex(ParameterEntry... entries) {
+        return new SearchIndex(parameters(entries), null);
+    }
+
+    private Map<ParameterType, SortedMap<Long, ParameterEntry>> parameters(ParameterEntry... entries) {
+        Map<ParameterType, SortedMap<Long, ParameterEntry>> parameters = new EnumMap<>(ParameterType.class);
+        for (ParameterType type : ParameterType.values()) {
+            parameters.put(type, new TreeMap<>());
+        }
+        for (ParameterEntry entry : entries) {
+            parameters.get(ParameterType.PHENOMENON).put(entry.getId(), entry);
+        }
+        return parameters;
+    }
+
+    private ParameterEntry entry(Long id, String english, String german) {
+        Map<String, String> labels = new HashMap<>();
+        labels.put("en", english);
+        labels.put("de", german);
+        return new ParameterEntry(ParameterType.PHENOMENON, id, "id-" + id, english, labels,
+                                  Collections.emptySet(), null, false);
+    }
+
+}
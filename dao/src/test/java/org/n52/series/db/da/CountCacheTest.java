@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CountCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void when_cached_then_notLoadedAgain() {
+        CountCache cache = new CountCache(60, 10);
+        Assertions.assertEquals(Long.valueOf(1), cache.get("features", 1, this::load));
+        Assertions.assertEquals(Long.valueOf(1), cache.get("features", 1, this::load));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(Long.valueOf(1), cache.<Long> getIfPresent("features", 1));
+    }
+
+    @Test
+    public void when_versionChanged_then_loadedAgain() {
+        CountCache cache = new CountCache(60, 10);
+        cache.get("features", 1, this::load);
+        Assertions.assertNull(cache.getIfPresent("features", 2));
+        Assertions.assertEquals(Long.valueOf(2), cache.get("features", 2, this::load));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void when_keysDiffer_then_loadedPerKey() {
+        CountCache cache = new CountCache(60, 10);
+        cache.get("features", 1, this::load);
+        cache.get("procedures", 1, this::load);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void when_noKey_then_notCached() {
+        CountCache cache = new CountCache(60, 10);
+        cache.get(null, 1, this::load);
+        cache.get(null, 1, this::load);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void when_ttlZero_then_notCached() {
+        CountCache cache = new CountCache(0, 10);
+        cache.get("features", 1, this::load);
+        cache.get("features", 1, this::load);
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertNull(cache.getIfPresent("features", 1));
+    }
+
+    private Long load() {
+        return (long) loads.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+
+public class DatasetRepositoryTest {
+
+    @Test
+    public void when_referenceValuesPublished_then_candidatesIncludeThem() {
+        DatasetEntity published = createDataset(3L);
+        DatasetEntity unpublished = createDataset(4L);
+        unpublished.setPublished(false);
+        DatasetEntity dataset = createDataset(1L);
+        dataset.setReferenceValues(Arrays.asList(published, unpublished, null));
+
+        Map<Long, DatasetEntity> candidates =
+                DatasetRepository.collectCandidates(Arrays.asList(dataset, createDataset(2L)));
+
+        Assertions.assertEquals(Arrays.asList(1L, 3L, 2L), Arrays.asList(candidates.keySet().toArray()));
+    }
+
+    @Test
+    public void when_observationKnown_then_timestampNotResolved() {
+        DatasetEntity resolved = createDataset(1L);
+        resolved.setFirstObservation(new QuantityDataEntity());
+        DatasetEntity cached = createDataset(2L);
+        cached.setFirstQuantityValue(BigDecimal.ONE);
+        DatasetEntity empty = new DatasetEntity();
+        empty.setId(3L);
+        DatasetEntity missing = createDataset(4L);
+
+        Map<Long, Date> first =
+                DatasetRepository.getMissingTimestamps(Arrays.asList(resolved, cached, empty, missing), true);
+        Map<Long, Date> last =
+                DatasetRepository.getMissingTimestamps(Arrays.asList(resolved, cached, empty, missing), false);
+
+        Assertions.assertEquals(Collections.singletonMap(4L, new Date(1000)), first);
+        Assertions.assertEquals(3, last.size());
+        Assertions.assertEquals(new Date(2000), last.get(1L));
+    }
+
+    private static DatasetEntity createDataset(long id) {
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setId(id);
+        dataset.setPublished(true);
+        dataset.setFirstValueAt(new Date(1000));
+        dataset.setLastValueAt(new Date(2000));
+        return dataset;
+    }
+}
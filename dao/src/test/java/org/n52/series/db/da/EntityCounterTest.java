@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ValueType;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.DbQueryFactory;
+import org.n52.series.db.dao.DefaultDbQueryFactory;
+
+public class EntityCounterTest {
+
+    private final DbQueryFactory dbQueryFactory = new DefaultDbQueryFactory();
+
+    private final EntityCounter counter = new EntityCounter(null, null, dbQueryFactory);
+
+    @Test
+    public void when_filterValuesReordered_then_sameCacheKey() {
+        String key = counter.createCacheKey(query(Parameters.PHENOMENA, "1", "2"), false);
+        Assertions.assertNotNull(key);
+        Assertions.assertEquals(key, counter.createCacheKey(query(Parameters.PHENOMENA, "2", "1"), false));
+    }
+
+    @Test
+    public void when_filterDiffers_then_otherCacheKey() {
+        String key = counter.createCacheKey(query(Parameters.PHENOMENA, "1"), false);
+        Assertions.assertNotEquals(key, counter.createCacheKey(query(Parameters.PHENOMENA, "2"), false));
+        Assertions.assertNotEquals(key, counter.createCacheKey(query(Parameters.PROCEDURES, "1"), false));
+        Assertions.assertNotEquals(key, counter.createCacheKey(query(Parameters.PHENOMENA, "1"), true));
+    }
+
+    @Test
+    public void when_matchingDomainIdsOrHierarchy_then_otherCacheKey() {
+        String key = counter.createCacheKey(query(Parameters.PHENOMENA, "1"), false);
+        Assertions.assertNotEquals(key, counter.createCacheKey(query(Parameters.PHENOMENA, "1")
+                .replaceWith(Parameters.MATCH_DOMAIN_IDS, "true"), false));
+        Assertions.assertNotEquals(key, counter.createCacheKey(query(Parameters.PHENOMENA, "1")
+                .setIncludeHierarchy(true), false));
+    }
+
+    @Test
+    public void when_groupsCounted_then_membersDistinctAndReferenceDatasetsSkipped() {
+        List<Object[]> groups = Arrays.asList(
+                group(DatasetType.timeseries, ValueType.quantity, false, 1L, 2, 10),
+                group(DatasetType.timeseries, ValueType.text, false, 1L, 3, 5),
+                group(DatasetType.profile, ValueType.quantity, true, 2L, null, 1));
+        EntityCounter.GroupFilter all = new EntityCounter.GroupFilter(query(Parameters.PHENOMENA, "1"));
+        EntityCounts counts = EntityCounter.countGroups(groups, all, all, all);
+        Assertions.assertEquals(2L, counts.getFeatures().longValue());
+        Assertions.assertEquals(2L, counts.getPhenomena().longValue());
+        Assertions.assertEquals(15L, counts.getDatasets().longValue());
+        Assertions.assertEquals(15L, counts.getTimeseries().longValue());
+        Assertions.assertEquals(0L, counts.getProfiles().longValue());
+    }
+
+    @Test
+    public void when_cachingDisabled_then_noCacheKey() {
+        counter.setCacheTtlSeconds(0);
+        Assertions.assertNull(counter.createCacheKey(query(Parameters.PHENOMENA, "1"), false));
+    }
+
+    private static Object[] group(DatasetType datasetType, ValueType valueType, boolean reference, Long feature,
+            Integer phenomenon, long count) {
+        return new Object[] {
+            datasetType,
+            valueType,
+            reference,
+            feature,
+            null,
+            null,
+            phenomenon != null ? Long.valueOf(phenomenon) : null,
+            null,
+            null,
+            count
+        };
+    }
+
+    private DbQuery query(String parameter, String... values) {
+        return dbQueryFactory.createFrom(IoParameters.createDefaults().extendWith(parameter, values));
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.series.db.beans.ServiceEntity;
+import org.n52.series.db.beans.dataset.ValueType;
+
+public class LatestValueRepositoryTest {
+
+    @Test
+    public void when_datasetsAdvanced_then_eachStartsAfterItsOwnCursor() {
+        Map<Long, Date> since = new HashMap<>();
+        since.put(1L, new Date(1000));
+        since.put(2L, new Date(5000));
+        since.put(3L, new Date(7000));
+        since.put(4L, null);
+        Map<Long, Date> lastValues = new HashMap<>();
+        lastValues.put(1L, new Date(2000));
+        lastValues.put(2L, new Date(9000));
+        lastValues.put(3L, new Date(7000));
+        lastValues.put(4L, new Date(9000));
+
+        Map<Long, Date> advanced = LatestValueRepository.getAdvanced(since, lastValues);
+
+        Assertions.assertEquals(2, advanced.size());
+        Assertions.assertEquals(new Date(1000), advanced.get(1L));
+        Assertions.assertEquals(new Date(5000), advanced.get(2L));
+    }
+
+    @Test
+    public void when_limitedResultEndsWithinTime_then_thatTimeLeftForNextCall() {
+        List<DataEntity<?>> observations = createObservations(1000, 2000, 3000, 3000);
+        Assertions.assertEquals(new Date(2999), LatestValueRepository.limitToCompleteTimes(observations));
+        Assertions.assertEquals(2, observations.size());
+    }
+
+    @Test
+    public void when_limitedResultHasSingleTime_then_consumed() {
+        List<DataEntity<?>> observations = createObservations(3000, 3000);
+        Assertions.assertEquals(new Date(3000), LatestValueRepository.limitToCompleteTimes(observations));
+        Assertions.assertEquals(2, observations.size());
+    }
+
+    @Test
+    public void when_lastQuantityValueIsNoDataValue_then_noValue() {
+        ServiceEntity service = new ServiceEntity();
+        service.setNoDataValues("-9999");
+        LatestValueRepository repository = new LatestValueRepository();
+        Assertions.assertNull(repository.getLastQuantityValue(createDataset("-9999"), service));
+        Assertions.assertEquals(new BigDecimal("12.5"),
+                repository.getLastQuantityValue(createDataset("12.5"), service));
+    }
+
+    private static List<DataEntity<?>> createObservations(long... times) {
+        List<DataEntity<?>> observations = new ArrayList<>();
+        for (long time : times) {
+            QuantityDataEntity observation = new QuantityDataEntity();
+            observation.setSamplingTimeEnd(new Date(time));
+            observations.add(observation);
+        }
+        return observations;
+    }
+
+    private static DatasetEntity createDataset(String lastQuantityValue) {
+        DatasetEntity dataset = new DatasetEntity();
+        dataset.setValueType(ValueType.quantity);
+        dataset.setLastQuantityValue(new BigDecimal(lastQuantityValue));
+        return dataset;
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.da;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MappingPipelineTest {
+
+    @Test
+    public void when_mappingInParallel_then_orderKeptAndPrefetchOnCallingThread() {
+        MappingPipeline pipeline = createPipeline(4, 10);
+        try {
+            List<Integer> entities = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+            Set<String> mappingThreads = ConcurrentHashMap.newKeySet();
+            List<String> prefetchThreads = new ArrayList<>();
+            List<Integer> result = pipeline.map(entities,
+                                                e -> prefetchThreads.add(Thread.currentThread().getName()),
+                                                e -> {
+                                                    mappingThreads.add(Thread.currentThread().getName());
+                                                    return e % 2 == 0 ? e : null;
+                                                });
+            Assertions.assertEquals(500, result.size());
+            Assertions.assertEquals(IntStream.range(0, 500).map(i -> i * 2).boxed().collect(Collectors.toList()),
+                                    result);
+            Assertions.assertEquals(Collections.singletonList(Thread.currentThread().getName()), prefetchThreads);
+            Assertions.assertFalse(mappingThreads.contains(Thread.currentThread().getName()));
+            MappingPipeline.Metrics metrics = MappingPipeline.getLastMetrics();
+            Assertions.assertEquals(1000, metrics.getEntities());
+            Assertions.assertEquals(500, metrics.getOutputs());
+            Assertions.assertEquals(4, metrics.getThreads());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void when_belowThresholdOrNested_then_mappedOnCallingThread() {
+        MappingPipeline pipeline = createPipeline(4, 10);
+        try {
+            String caller = Thread.currentThread().getName();
+            List<String> threads = pipeline.map(Arrays.asList(1, 2, 3), e -> {
+            }, e -> Thread.currentThread().getName());
+            Assertions.assertEquals(Arrays.asList(caller, caller, caller), threads);
+            Assertions.assertEquals(1, MappingPipeline.getLastMetrics().getThreads());
+
+            List<Integer> outer = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+            List<Boolean> nestedOnSameThread = pipeline.map(outer, e -> {
+            }, e -> {
+                String worker = Thread.currentThread().getName();
+                List<String> inner = pipeline.map(outer, i -> {
+                }, i -> Thread.currentThread().getName());
+                return inner.stream().allMatch(worker::equals);
+            });
+            Assertions.assertTrue(nestedOnSameThread.stream().allMatch(Boolean::booleanValue));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void when_mappingFails_then_exceptionPropagated() {
+        MappingPipeline pipeline = createPipeline(2, 1);
+        try {
+            List<Integer> entities = Arrays.asList(1, 2, 3, 4);
+            IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                    () -> pipeline.map(entities, p -> {
+                    }, i -> {
+                        if (i == 3) {
+                            throw new IllegalStateException("failed");
+                        }
+                        return i;
+                    }));
+            Assertions.assertEquals("failed", e.getMessage());
+            Assertions.assertTrue(new MappingPipeline().map(null, p -> {
+            }, i -> i).isEmpty());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private MappingPipeline createPipeline(int threads, int threshold) {
+        MappingPipeline pipeline = new MappingPipeline();
+        pipeline.setThreads(threads);
+        pipeline.setParallelThreshold(threshold);
+        pipeline.init();
+        return pipeline;
+    }
+
+}
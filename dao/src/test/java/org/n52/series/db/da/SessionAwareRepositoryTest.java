@@ -28,13 +28,30 @@
  */
 package org.n52.series.db.da;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.joda.time.DateTime;
 import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.io.response.FeatureOutput;
+import org.n52.io.response.ParameterOutput;
+import org.n52.io.response.dataset.DatasetOutput;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.FeatureEntity;
 import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.DefaultDbQueryFactory;
+import org.n52.web.exception.ResourceNotFoundException;
 
 
 public class SessionAwareRepositoryTest {
@@ -95,6 +112,81 @@ public class SessionAwareRepositoryTest {
         assertTrue(testRepo.getOriginTimeZone("-05:00").getOffset(DateTime.now().getMillis()) == getOffsetFor(-5));
     }
 
+    @Test
+    public void when_instancesFound_then_orderedAsRequested() {
+        SessionAwareRepository repository = new SessionAwareRepository() {
+        };
+        List<FeatureEntity> ordered = repository.orderAsRequested(Arrays.asList("3", "1", "3"),
+                Arrays.asList(createFeature(1L), createFeature(3L)));
+        assertEquals(Arrays.asList(3L, 1L, 3L), Arrays.asList(ordered.get(0).getId(), ordered.get(1).getId(),
+                ordered.get(2).getId()));
+    }
+
+    @Test
+    public void when_instancesMissing_then_allMissingIdsReported() {
+        SessionAwareRepository repository = new SessionAwareRepository() {
+        };
+        ResourceNotFoundException e = assertThrows(ResourceNotFoundException.class,
+            () -> repository.orderAsRequested(Arrays.asList("1", "2", "x", "3"), Arrays.asList(createFeature(1L))));
+        assertEquals("Resources with ids '2', 'x', '3' could not be found.", e.getMessage());
+    }
+
+    @Test
+    public void when_memberNotSelected_then_supplierNotEvaluated() {
+        SessionAwareRepository repository = new SessionAwareRepository() {
+        };
+        DbQuery query = createQuery("id", ParameterOutput.LABEL);
+        AtomicInteger evaluations = new AtomicInteger();
+        List<String> values = new ArrayList<>();
+        repository.setLazily(new FeatureOutput(), DatasetOutput.REFERENCE_VALUES, () -> {
+            evaluations.incrementAndGet();
+            return "references";
+        }, query, values::add);
+        assertEquals(0, evaluations.get());
+        assertEquals(Collections.emptyList(), values);
+    }
+
+    @Test
+    public void when_memberSelected_then_supplierEvaluatedOnceWhileSessionOpen() {
+        SessionAwareRepository repository = new SessionAwareRepository() {
+        };
+        DbQuery query = createQuery("id", DatasetOutput.REFERENCE_VALUES);
+        AtomicBoolean sessionOpen = new AtomicBoolean(true);
+        AtomicInteger evaluations = new AtomicInteger();
+        List<String> values = new ArrayList<>();
+        repository.setLazily(new FeatureOutput(), DatasetOutput.REFERENCE_VALUES, () -> {
+            assertTrue(sessionOpen.get(), "supplier evaluated after the session was closed");
+            evaluations.incrementAndGet();
+            return "references";
+        }, query, values::add);
+        sessionOpen.set(false);
+        assertEquals(1, evaluations.get());
+        assertEquals(Collections.singletonList("references"), values);
+    }
+
+    @Test
+    public void when_noFieldsFilter_then_everySupplierEvaluated() {
+        SessionAwareRepository repository = new SessionAwareRepository() {
+        };
+        DbQuery query = new DefaultDbQueryFactory().createFrom(IoParameters.createDefaults());
+        List<String> values = new ArrayList<>();
+        FeatureOutput result = new FeatureOutput();
+        repository.setLazily(result, DatasetOutput.REFERENCE_VALUES, () -> "references", query, values::add);
+        repository.setLazily(result, DatasetOutput.LAST_VALUE, () -> "last", query, values::add);
+        assertEquals(Arrays.asList("references", "last"), values);
+    }
+
+    private static DbQuery createQuery(String... fields) {
+        IoParameters parameters = IoParameters.createDefaults().extendWith(Parameters.FILTER_FIELDS, fields);
+        return new DefaultDbQueryFactory().createFrom(parameters);
+    }
+
+    private static FeatureEntity createFeature(long id) {
+        FeatureEntity feature = new FeatureEntity();
+        feature.setId(id);
+        return feature;
+    }
+
     private int getOffsetFor(int hours) {
         return 60*60*1000*hours;
     }
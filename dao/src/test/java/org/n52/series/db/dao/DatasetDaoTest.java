@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.beans.DatasetEntity;
+
+/**
+ * The associations expected to be joined are the ones the dataset outputs read, so the outputs can be mapped
+ * completely after the session has been closed.
+ */
+public class DatasetDaoTest {
+
+    private static final Set<String> LABEL_MEMBERS = new HashSet<>(Arrays.asList(
+            DatasetEntity.PROPERTY_FEATURE,
+            DatasetEntity.PROPERTY_PHENOMENON,
+            DatasetEntity.PROPERTY_PROCEDURE,
+            DatasetEntity.PROPERTY_OFFERING,
+            "feature.translations",
+            "phenomenon.translations",
+            "procedure.translations",
+            "offering.translations"));
+
+    private final DbQueryFactory dbQueryFactory = new DefaultDbQueryFactory();
+
+    @Test
+    public void when_onlyIdSelected_then_nothingJoined() {
+        Set<String> joined = plan(IoParameters.createDefaults().extendWith(Parameters.FILTER_FIELDS, "id"), false);
+        Assertions.assertEquals(Collections.emptySet(), joined);
+    }
+
+    @Test
+    public void when_idAndLabelSelected_then_labelMembersJoined() {
+        Set<String> joined = plan(IoParameters.createDefaults().extendWith(Parameters.FILTER_FIELDS, "id",
+                "label"), false);
+        Assertions.assertEquals(LABEL_MEMBERS, joined);
+    }
+
+    @Test
+    public void when_condensed_then_labelMembersAndUnitJoined() {
+        Set<String> joined = plan(IoParameters.createDefaults(), false);
+        Assertions.assertTrue(joined.containsAll(LABEL_MEMBERS), joined.toString());
+        Assertions.assertTrue(joined.contains(DatasetEntity.PROPERTY_UNIT), joined.toString());
+        Assertions.assertFalse(joined.contains("lastObservation"), joined.toString());
+    }
+
+    @Test
+    public void when_expanded_then_allOutputAssociationsJoined() {
+        Set<String> joined = plan(IoParameters.createDefaults().extendWith(Parameters.EXPANDED, "true"), false);
+        Assertions.assertTrue(joined.containsAll(LABEL_MEMBERS), joined.toString());
+        Assertions.assertTrue(joined.containsAll(Arrays.asList(
+                DatasetEntity.PROPERTY_UNIT,
+                DatasetEntity.PROPERTY_PLATFORM,
+                DatasetEntity.PROPERTY_CATEGORY,
+                "firstObservation",
+                "firstObservation.parameters",
+                "lastObservation",
+                "lastObservation.parameters",
+                "referenceValues")), joined.toString());
+    }
+
+    @Test
+    public void when_instanceRequestedWithOnlyId_then_plannedLikeExpanded() {
+        Set<String> instance = plan(IoParameters.createDefaults().extendWith(Parameters.FILTER_FIELDS, "id"), true);
+        Set<String> expanded = plan(IoParameters.createDefaults()
+                                                .extendWith(Parameters.FILTER_FIELDS, "id")
+                                                .extendWith(Parameters.EXPANDED, "true"), false);
+        Assertions.assertEquals(expanded, instance);
+        Assertions.assertTrue(instance.containsAll(LABEL_MEMBERS), instance.toString());
+    }
+
+    private Set<String> plan(IoParameters parameters, boolean instance) {
+        Set<String> joined = new HashSet<>();
+        new DatasetDao<>(FetchRecorder.createSession()).addFetchModes(FetchRecorder.createCriteria(joined),
+                dbQueryFactory.createFrom(parameters), instance);
+        return joined;
+    }
+
+}
@@ -28,8 +28,14 @@
  */
 package org.n52.series.db.dao;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.beans.DatasetEntity;
 
 public class DbQueryTest {
 
@@ -40,4 +46,41 @@ public class DbQueryTest {
         Assertions.assertNotNull(dbQueryFactory.createFrom(null));
     }
 
+    @Test
+    public void when_allDomainIdsResolved_then_idsReturned() {
+        DbQuery query = createQuery();
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1L, 2L)),
+                query.resolveIds(Arrays.asList("dataset-1", "Dataset-2"), DatasetEntity.class));
+    }
+
+    @Test
+    public void when_domainIdUnresolved_then_noIds() {
+        DbQuery query = createQuery();
+        Assertions.assertNull(query.resolveIds(Arrays.asList("dataset-1", "dataset-3"), DatasetEntity.class));
+    }
+
+    @Test
+    public void when_domainIdsPartlyResolved_then_onlyUnresolvedMatchedByLabel() {
+        DbQuery query = createQuery();
+        String filter = query.createDomainIdFilter(Arrays.asList("dataset-1", "dataset-3"), null,
+                DatasetEntity.class).toString();
+        Assertions.assertTrue(filter.contains("id in (1)"), filter);
+        Assertions.assertTrue(filter.contains("dataset-3"), filter);
+        Assertions.assertFalse(filter.contains("dataset-1"), filter);
+    }
+
+    @Test
+    public void when_noDomainIdsMatched_then_idsParsed() {
+        DbQuery query = dbQueryFactory.createFrom(IoParameters.createDefaults());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1L, 3L)),
+                query.resolveIds(Arrays.asList("1", "3"), DatasetEntity.class));
+    }
+
+    private DbQuery createQuery() {
+        IoParameters parameters = IoParameters.createDefaults().extendWith(Parameters.MATCH_DOMAIN_IDS, "true");
+        DbQuery query = dbQueryFactory.createFrom(parameters);
+        query.setDomainIdResolver(DomainIdResolverTest.createResolver());
+        return query;
+    }
+
 }
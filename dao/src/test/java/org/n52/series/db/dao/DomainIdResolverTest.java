@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.catalog.CatalogFixture;
+
+public class DomainIdResolverTest {
+
+    @Test
+    public void when_domainIdKnown_then_resolvedCaseInsensitive() {
+        DomainIdResolver resolver = createResolver();
+        Assertions.assertEquals(Collections.singleton(2L), resolver.resolve(DatasetEntity.class, "DATASET-2"));
+        Assertions.assertEquals(Collections.singleton(10L),
+                resolver.resolve(PhenomenonEntity.class, "Phenomenon 10"));
+    }
+
+    @Test
+    public void when_domainIdUnknown_then_unresolved() {
+        DomainIdResolver resolver = createResolver();
+        Assertions.assertNull(resolver.resolve(DatasetEntity.class, "dataset-3"));
+        Assertions.assertNull(resolver.resolve(PhenomenonEntity.class, "dataset-1"));
+        Assertions.assertNull(resolver.resolve(String.class, "dataset-1"));
+    }
+
+    @Test
+    public void when_disabled_then_unresolved() {
+        DomainIdResolver resolver = createResolver();
+        resolver.setEnabled(false);
+        Assertions.assertNull(resolver.resolve(DatasetEntity.class, "dataset-1"));
+    }
+
+    static DomainIdResolver createResolver() {
+        DomainIdResolver resolver = new DomainIdResolver();
+        resolver.setMetadataCatalog(new CatalogFixture()
+                .add(1, 10, 20, new Date(1000))
+                .add(2, 11, 20, new Date(1000))
+                .buildCatalog());
+        return resolver;
+    }
+
+}
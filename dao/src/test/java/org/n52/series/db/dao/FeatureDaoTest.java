@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+
+/**
+ * The associations expected to be joined are the ones the feature outputs read, so the outputs can be mapped
+ * completely after the session has been closed.
+ */
+public class FeatureDaoTest {
+
+    private final DbQueryFactory dbQueryFactory = new DefaultDbQueryFactory();
+
+    @Test
+    public void when_onlyIdSelected_then_nothingJoined() {
+        Set<String> joined = plan(IoParameters.createDefaults().extendWith(Parameters.FILTER_FIELDS, "id"));
+        Assertions.assertEquals(Collections.emptySet(), joined);
+    }
+
+    @Test
+    public void when_idAndLabelSelected_then_translationsJoined() {
+        Set<String> joined = plan(IoParameters.createDefaults().extendWith(Parameters.FILTER_FIELDS, "id",
+                "label"));
+        Assertions.assertEquals(Collections.singleton("translations"), joined);
+    }
+
+    @Test
+    public void when_expanded_then_hierarchyAndDatasetMembersJoined() {
+        Set<String> joined = plan(IoParameters.createDefaults().extendWith(Parameters.EXPANDED, "true"));
+        Assertions.assertTrue(joined.contains("translations"), joined.toString());
+        Assertions.assertTrue(joined.contains(AbstractFeatureEntity.PROPERTY_PARENTS), joined.toString());
+        Assertions.assertTrue(joined.contains(AbstractFeatureEntity.PROPERTY_CHILDREN), joined.toString());
+        Assertions.assertTrue(joined.contains(AbstractFeatureEntity.PROPERTY_DATASETS), joined.toString());
+        for (String member : new String[] {"phenomenon", "procedure", "offering", "platform", "category"}) {
+            Assertions.assertTrue(joined.contains("datasets." + member), joined.toString());
+            Assertions.assertTrue(joined.contains("datasets." + member + ".translations"), joined.toString());
+        }
+    }
+
+    private Set<String> plan(IoParameters parameters) {
+        Set<String> joined = new HashSet<>();
+        new FeatureDao(FetchRecorder.createSession()).addFetchModes(FetchRecorder.createCriteria(joined),
+                dbQueryFactory.createFrom(parameters));
+        return joined;
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.lang.reflect.Proxy;
+import java.util.Set;
+
+import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Session;
+
+/**
+ * Records the associations a DAO plans to join, so fetch plans can be checked without a database.
+ */
+final class FetchRecorder {
+
+    private FetchRecorder() {
+    }
+
+    /**
+     * @param joined
+     *        collects the paths set to {@link FetchMode#JOIN}
+     * @return a criteria returning itself from all builder methods
+     */
+    static Criteria createCriteria(Set<String> joined) {
+        return (Criteria) Proxy.newProxyInstance(Criteria.class.getClassLoader(), new Class<?>[] {Criteria.class},
+            (proxy, method, args) -> {
+                if ("setFetchMode".equals(method.getName()) && args[1] == FetchMode.JOIN) {
+                    joined.add((String) args[0]);
+                }
+                return method.getReturnType().isInstance(proxy)
+                        ? proxy
+                        : null;
+            });
+    }
+
+    /**
+     * @return a session which must not be used
+     */
+    static Session createSession() {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] {Session.class},
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.db.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HierarchyClosureTest {
+
+    @Test
+    public void when_limitingDepth_then_onlyCloseDescendantsIncluded() {
+        // 1 -> 2 -> 3 -> 4, 1 -> 5
+        HierarchyClosure closure = HierarchyClosure.fromParents(parents(2, 1, 3, 2, 4, 3, 5, 1));
+        Assertions.assertEquals(set(2, 5), closure.getDescendants(1L, 1));
+        Assertions.assertEquals(set(2, 3, 5), closure.getDescendants(1L, 2));
+        Assertions.assertEquals(set(2, 3, 4, 5), closure.getDescendants(1L, Integer.MAX_VALUE));
+        Assertions.assertEquals(set(4), closure.getDescendants(3L, 5));
+        Assertions.assertTrue(closure.getDescendants(4L, 5).isEmpty());
+        Assertions.assertEquals(3, closure.getDepth(1L, 4L));
+        Assertions.assertEquals(-1, closure.getDepth(4L, 1L));
+        Assertions.assertEquals(7, closure.size());
+    }
+
+    @Test
+    public void when_multipleParents_then_shortestDistanceKept() {
+        // 1 -> 2 -> 3 and 1 -> 3
+        HierarchyClosure closure = HierarchyClosure.fromParents(parents(2, 1, 3, 2, 3, 1));
+        Assertions.assertEquals(1, closure.getDepth(1L, 3L));
+        Assertions.assertEquals(set(2, 3), closure.getDescendants(1L, 1));
+        Assertions.assertEquals(set(2, 3), closure.getDescendants(Arrays.asList(1L, 2L), 1));
+    }
+
+    @Test
+    public void when_cyclic_then_terminates() {
+        // 1 -> 2 -> 3 -> 1
+        HierarchyClosure closure = HierarchyClosure.fromParents(parents(2, 1, 3, 2, 1, 3));
+        Assertions.assertEquals(set(2, 3), closure.getDescendants(1L, Integer.MAX_VALUE));
+        Assertions.assertEquals(6, closure.size());
+        Assertions.assertTrue(HierarchyClosure.empty().getDescendants(1L, 1).isEmpty());
+    }
+
+    private static Map<Long, List<Long>> parents(long... childParentPairs) {
+        Map<Long, List<Long>> parents = new HashMap<>();
+        for (int i = 0; i < childParentPairs.length; i += 2) {
+            parents.computeIfAbsent(childParentPairs[i], c -> new ArrayList<>())
+                   .add(childParentPairs[i + 1]);
+        }
+        return parents;
+    }
+
+    private static Set<Long> set(long... ids) {
+        Set<Long> set = new HashSet<>();
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+}
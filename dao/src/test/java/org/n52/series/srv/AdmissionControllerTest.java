@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.joda.time.Interval;
+import org.junit.jupiter.api.Test;
+import org.n52.io.request.IoParameters;
+import org.n52.io.request.Parameters;
+import org.n52.series.db.catalog.CatalogFixture;
+
+public class AdmissionControllerTest {
+
+    private static final long HOUR = 3600000L;
+
+    @Test
+    public void when_datasetsCoverPartsOfInterval_then_costSummedUpPerDataset() {
+        AdmissionController controller = new AdmissionController();
+        controller.setExpectedValuesPerHour(6);
+        controller.setMetadataCatalog(new CatalogFixture()
+                .add(1, 10, 20, new Date(0))
+                .add(2, 10, 20, new Date(4 * HOUR))
+                .buildCatalog());
+        IoParameters parameters = IoParameters.createDefaults()
+                .extendWith(Parameters.TIMESPAN, "1970-01-01T00:00:00Z/1970-01-01T10:00:00Z");
+        // dataset 1 has a single value (at least one hour), dataset 3 is unknown to the catalog
+        Assertions.assertEquals(66, controller.estimateDataCost(parameters, Arrays.asList("1", "3")));
+        Assertions.assertEquals(12, controller.estimateDataCost(parameters, Arrays.asList("1", "2")));
+        Assertions.assertEquals(60, controller.estimateDataCost(parameters, Arrays.asList("temp")));
+    }
+
+    @Test
+    public void when_intervalOverlapsValues_then_overlappingHoursCount() {
+        Interval interval = new Interval(0, 10 * HOUR);
+        Assertions.assertEquals(10d, AdmissionController.getOverlappingHours(interval, null, null));
+        Assertions.assertEquals(4d,
+                AdmissionController.getOverlappingHours(interval, new Date(6 * HOUR), new Date(20 * HOUR)));
+        Assertions.assertEquals(1d,
+                AdmissionController.getOverlappingHours(interval, new Date(HOUR), new Date(HOUR + 60000)));
+        Assertions.assertEquals(0d,
+                AdmissionController.getOverlappingHours(interval, new Date(11 * HOUR), new Date(20 * HOUR)));
+    }
+
+    @Test
+    public void when_listingWithoutLimit_then_costIsListingSize() {
+        AdmissionController controller = new AdmissionController();
+        IoParameters defaults = IoParameters.createDefaults();
+        Assertions.assertEquals(42, controller.estimateListingCost(defaults, () -> 42));
+        Assertions.assertEquals(0, controller.estimateListingCost(defaults, () -> -1));
+        Assertions.assertEquals(1000,
+                controller.estimateListingCost(defaults.extendWith(Parameters.LIMIT, "1000"), () -> 42));
+        Assertions.assertEquals(2,
+                controller.estimateListingCost(defaults.extendWith(Parameters.DATASETS, "1", "2"), () -> 42));
+    }
+
+    @Test
+    public void when_bulkheadSaturated_then_rejectedAsBusy() throws Exception {
+        AdmissionController controller = new AdmissionController();
+        controller.setMaxConcurrentHeavyRequests(1);
+        controller.setRetryAfterSeconds(7);
+        controller.setHeavyListingThreshold(0);
+        controller.init();
+        IoParameters parameters = IoParameters.createDefaults();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> heavy = executor.submit(() -> controller.admitListingRequest(parameters, () -> 10, () -> {
+                running.countDown();
+                await(release);
+                return "done";
+            }));
+            Assertions.assertTrue(running.await(5, TimeUnit.SECONDS));
+            ServiceBusyException e = Assertions.assertThrows(ServiceBusyException.class,
+                    () -> controller.admitListingRequest(parameters, () -> 10, () -> "rejected"));
+            Assertions.assertEquals(7, e.getRetryAfterSeconds());
+            Assertions.assertEquals("light", controller.admitListingRequest(parameters, () -> 0, () -> "light"));
+            release.countDown();
+            Assertions.assertEquals("done", heavy.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, controller.getRejectedRequests());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
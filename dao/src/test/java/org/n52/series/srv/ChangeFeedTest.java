@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.da.LatestValue;
+import org.n52.series.db.da.LatestValueRepository;
+import org.n52.series.db.dao.DbQuery;
+import org.n52.series.db.dao.DefaultDbQueryFactory;
+
+public class ChangeFeedTest {
+
+    private final FakeRepository repository = new FakeRepository();
+
+    private final ChangeFeed feed = createFeed(repository);
+
+    @AfterEach
+    public void shutdown() {
+        feed.shutdown();
+    }
+
+    @Test
+    public void when_datasetAdvances_then_newValuesPublishedToItsSubscribers() throws Exception {
+        CountDownLatch published = new CountDownLatch(1);
+        List<LatestValue> first = new CopyOnWriteArrayList<>();
+        List<LatestValue> second = new CopyOnWriteArrayList<>();
+        feed.subscribe(Collections.singleton(1L), values -> {
+            first.addAll(values);
+            published.countDown();
+        });
+        feed.subscribe(Collections.singleton(2L), second::addAll);
+
+        repository.lastValues.put(1L, new Date(1000));
+        repository.lastValues.put(2L, new Date(1000));
+        feed.poll();
+        Assertions.assertTrue(repository.since.get(0).values().stream().allMatch(d -> d == null));
+
+        repository.lastValues.put(1L, new Date(2000));
+        repository.newValues.add(new LatestValue("1", 2000, 42, "m"));
+        feed.poll();
+        Assertions.assertEquals(new Date(1000), repository.since.get(1).get(1L));
+        Assertions.assertEquals(new Date(1000), repository.since.get(1).get(2L));
+
+        Assertions.assertTrue(published.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, first.size());
+        Assertions.assertEquals(2000, first.get(0).getTimestamp());
+        Assertions.assertTrue(second.isEmpty());
+    }
+
+    @Test
+    public void when_subscriberIsSlow_then_otherSubscribersNotDelayed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch published = new CountDownLatch(1);
+        try {
+            feed.subscribe(Collections.singleton(1L), values -> await(release));
+            feed.subscribe(Collections.singleton(1L), values -> published.countDown());
+            publishNewValue(1L, 2000);
+            Assertions.assertTrue(published.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void when_subscriberFallsBehind_then_subscriptionClosed() {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            feed.setMaxPendingBatches(1);
+            feed.subscribe(Collections.singleton(1L), values -> await(release));
+            for (int i = 1; i <= 4; i++) {
+                publishNewValue(1L, i * 1000);
+            }
+            Assertions.assertEquals(0, feed.getSubscriptionCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void when_tooManySubscriptions_then_rejectedAsBusy() {
+        feed.setMaxSubscriptions(1);
+        feed.setRetryAfterSeconds(5);
+        feed.subscribe(Arrays.asList(1L, 2L), values -> {
+        });
+        ServiceBusyException e = Assertions.assertThrows(ServiceBusyException.class,
+                () -> feed.subscribe(Collections.singleton(3L), values -> {
+                }));
+        Assertions.assertEquals(5, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    public void when_subscriptionClosed_then_slotReleased() {
+        feed.setMaxSubscriptions(1);
+        feed.subscribe(Collections.singleton(1L), values -> {
+        }).close();
+        feed.subscribe(Collections.singleton(2L), values -> {
+        }).close();
+        Assertions.assertEquals(0, feed.getSubscriptionCount());
+    }
+
+    private void publishNewValue(Long dataset, long timestamp) {
+        repository.lastValues.put(dataset, new Date(timestamp));
+        repository.newValues.clear();
+        repository.newValues.add(new LatestValue(dataset.toString(), timestamp, 1, null));
+        feed.poll();
+    }
+
+    private static ChangeFeed createFeed(LatestValueRepository repository) {
+        ChangeFeed feed = new ChangeFeed(repository);
+        feed.setDbQueryFactory(new DefaultDbQueryFactory());
+        feed.setPollSeconds(3600);
+        feed.setPublisherThreads(2);
+        feed.init();
+        return feed;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class FakeRepository extends LatestValueRepository {
+
+        private final Map<Long, Date> lastValues = new HashMap<>();
+
+        private final List<LatestValue> newValues = new ArrayList<>();
+
+        private final List<Map<Long, Date>> since = new ArrayList<>();
+
+        @Override
+        public Map<Long, Date> getValuesAfter(Map<Long, Date> since, DbQuery query, int maxValues,
+                Consumer<LatestValue> consumer) {
+            this.since.add(new HashMap<>(since));
+            newValues.forEach(consumer);
+            return new HashMap<>(lastValues);
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void when_requestedTwice_then_loadedOnce() {
+        ResponseCache cache = createCache(60);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<String>> loader = () -> Arrays.asList("a", "b", Integer.toString(loads.incrementAndGet()));
+        Assertions.assertEquals(Arrays.asList("a", "b", "1"), cache.get("features", "features?", 60000, loader));
+        Assertions.assertEquals(Arrays.asList("a", "b", "1"), cache.get("features", "features?", 60000, loader));
+        Assertions.assertEquals(1, cache.getStatistics().get("features").getHits());
+        Assertions.assertEquals(1, cache.getStatistics().get("features").getMisses());
+    }
+
+    @Test
+    public void when_expiredWithinStaleWindow_then_staleServedAndRevalidated() throws InterruptedException {
+        ResponseCache cache = createCache(60);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Integer>> loader = () -> Arrays.asList(loads.incrementAndGet());
+        cache.get("datasets", "datasets?", 1, loader);
+        Thread.sleep(5);
+        Assertions.assertEquals(Arrays.asList(1), cache.get("datasets", "datasets?", 1, loader));
+        Assertions.assertEquals(1, cache.getStatistics().get("datasets").getStaleHits());
+        for (int i = 0; i < 100 && loads.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void when_expiredBeyondStaleWindow_then_reloaded() throws InterruptedException {
+        ResponseCache cache = createCache(0);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Integer>> loader = () -> Arrays.asList(loads.incrementAndGet());
+        cache.get("datasets", "datasets?", 1, loader);
+        Thread.sleep(5);
+        Assertions.assertEquals(Arrays.asList(2), cache.get("datasets", "datasets?", 1, loader));
+        Assertions.assertEquals(2, cache.getStatistics().get("datasets").getMisses());
+    }
+
+    @Test
+    public void when_invalidated_then_reloaded() {
+        ResponseCache cache = createCache(60);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Integer>> loader = () -> Arrays.asList(loads.incrementAndGet());
+        cache.get("features", "features/expanded?", 60000, loader);
+        cache.invalidate("features");
+        Assertions.assertEquals(Arrays.asList(2), cache.get("features", "features/expanded?", 60000, loader));
+    }
+
+    @Test
+    public void when_servedListingModified_then_cachedListingUnchanged() {
+        ResponseCache cache = createCache(60);
+        Supplier<List<String>> loader = () -> new ArrayList<>(Arrays.asList("a"));
+        cache.get("features", "features?", 60000, loader).add("b");
+        cache.get("features", "features?", 60000, loader).clear();
+        Assertions.assertEquals(Arrays.asList("a"), cache.get("features", "features?", 60000, loader));
+    }
+
+    private ResponseCache createCache(long staleSeconds) {
+        ResponseCache cache = new ResponseCache();
+        cache.setStaleSeconds(staleSeconds);
+        cache.init();
+        return cache;
+    }
+
+}
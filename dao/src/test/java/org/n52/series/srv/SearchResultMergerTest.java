@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.spi.search.FeatureSearchResult;
+import org.n52.series.spi.search.SearchResult;
+
+public class SearchResultMergerTest {
+
+    @Test
+    public void when_mergingSources_then_bestMatchesFirst() {
+        SearchResultMerger merger = new SearchResultMerger("Temp", 10);
+        merger.addAll(Arrays.asList(result("1", "Air temperature"), result("2", "Attempt")));
+        merger.addAll(Arrays.asList(result("3", "temperature"), result("4", "TEMP"), result("5", "Wind")));
+        Assertions.assertEquals(Arrays.asList("4", "3", "1", "2", "5"), ids(merger.getResults()));
+    }
+
+    @Test
+    public void when_exceedingLimit_then_worstMatchesDropped() {
+        SearchResultMerger merger = new SearchResultMerger("temp", 2);
+        merger.addAll(Arrays.asList(result("1", "attempt"), result("2", "air temp"), result("3", "temp"),
+                result("4", "temp sensor")));
+        Assertions.assertEquals(Arrays.asList("3", "4"), ids(merger.getResults()));
+    }
+
+    @Test
+    public void when_equallyRanked_then_addingOrderKept() {
+        SearchResultMerger merger = new SearchResultMerger("temp", 2);
+        merger.addAll(Arrays.asList(result("1", "temp a"), result("2", "temp b"), result("3", "temp c")));
+        Assertions.assertEquals(Arrays.asList("1", "2"), ids(merger.getResults()));
+    }
+
+    @Test
+    public void when_addingDuplicate_then_mergedOnce() {
+        SearchResult result = result("1", "temp");
+        SearchResultMerger merger = new SearchResultMerger("temp", 10);
+        merger.addAll(Arrays.asList(result, result));
+        Assertions.assertEquals(Arrays.asList("1"), ids(merger.getResults()));
+    }
+
+    private static SearchResult result(String id, String label) {
+        return new FeatureSearchResult().setId(id).setLabel(label);
+    }
+
+    private static List<String> ids(List<SearchResult> results) {
+        return results.stream().map(SearchResult::getId).collect(Collectors.toList());
+    }
+
+}
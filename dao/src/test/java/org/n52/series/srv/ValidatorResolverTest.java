@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.srv;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.series.db.catalog.CatalogFixture;
+import org.n52.series.srv.ValidatorResolver.Validators;
+
+public class ValidatorResolverTest {
+
+    private static final String TIMESPAN = "timespan=2020-01-01T00:00:00Z/2020-01-02T00:00:00Z";
+
+    @Test
+    public void when_requestingDatasetData_then_datasetIdParsed() {
+        Assertions.assertEquals(Long.valueOf(12), ValidatorResolver.parseDatasetId("/api/datasets/12/data"));
+        Assertions.assertEquals(Long.valueOf(12), ValidatorResolver.parseDatasetId("/api/timeseries/12/getData"));
+        Assertions.assertEquals(Long.valueOf(12),
+                ValidatorResolver.parseDatasetId("/api/timeseries/12/getData.png"));
+    }
+
+    @Test
+    public void when_requestingMetadata_then_noDatasetId() {
+        Assertions.assertNull(ValidatorResolver.parseDatasetId("/api/datasets/12"));
+        Assertions.assertNull(ValidatorResolver.parseDatasetId("/api/datasets"));
+        Assertions.assertNull(ValidatorResolver.parseDatasetId("/api/features/12/data"));
+        Assertions.assertNull(ValidatorResolver.parseDatasetId("/api/datasets/temperature/data"));
+    }
+
+    @Test
+    public void when_noCatalogAvailable_then_noValidators() {
+        Assertions.assertNull(new ValidatorResolver().resolve("/api/datasets/12/data", TIMESPAN));
+    }
+
+    @Test
+    public void when_timespanRelativeOrMissing_then_notAbsolute() {
+        Assertions.assertFalse(ValidatorResolver.isAbsoluteTimespan(null));
+        Assertions.assertFalse(ValidatorResolver.isAbsoluteTimespan("PT6H/now"));
+        Assertions.assertFalse(ValidatorResolver.isAbsoluteTimespan("2020-01-01T00:00:00Z/NOW"));
+        Assertions.assertFalse(ValidatorResolver.isAbsoluteTimespan("PT6H"));
+        Assertions.assertTrue(ValidatorResolver.isAbsoluteTimespan("2020-01-01T00:00:00Z/2020-01-02T00:00:00Z"));
+        Assertions.assertTrue(ValidatorResolver.isAbsoluteTimespan("PT6H/2020-01-02T00:00:00Z"));
+        Assertions.assertTrue(ValidatorResolver.isAbsoluteTimespan("2020-01-01T00:00:00Z/P1D"));
+    }
+
+    @Test
+    public void when_parameterEncoded_then_decoded() {
+        Assertions.assertEquals("PT6H/now", ValidatorResolver.getParameter("a=b&TimeSpan=PT6H%2Fnow", "timespan"));
+        Assertions.assertEquals("", ValidatorResolver.getParameter("expanded&timespan=", "expanded"));
+        Assertions.assertNull(ValidatorResolver.getParameter("timespans=x", "timespan"));
+        Assertions.assertNull(ValidatorResolver.getParameter(null, "timespan"));
+    }
+
+    @Test
+    public void when_dataTimespanAbsolute_then_validatorsFromCatalog() {
+        ValidatorResolver resolver = createResolver();
+        Validators validators = resolver.resolve("/api/datasets/2/data", TIMESPAN, "application/json");
+        Assertions.assertNotNull(validators);
+        Assertions.assertEquals(5000, validators.getLastModified());
+        Assertions.assertTrue(validators.getETag().startsWith("W/\""));
+        Assertions.assertEquals(validators.getETag(),
+                resolver.resolve("/api/datasets/2/data", TIMESPAN, "application/json").getETag());
+        Assertions.assertNotEquals(validators.getETag(),
+                resolver.resolve("/api/datasets/2/data", TIMESPAN, "image/png").getETag());
+        Assertions.assertNotEquals(validators.getETag(),
+                resolver.resolve("/api/datasets/2/data", TIMESPAN + "&format=flot", "application/json").getETag());
+    }
+
+    @Test
+    public void when_dataTimespanRelativeOrUnknownDataset_then_noValidators() {
+        ValidatorResolver resolver = createResolver();
+        Assertions.assertNull(resolver.resolve("/api/datasets/2/data", null));
+        Assertions.assertNull(resolver.resolve("/api/datasets/2/data", "timespan=PT6H/now"));
+        Assertions.assertNull(resolver.resolve("/api/datasets/9/data", TIMESPAN));
+    }
+
+    @Test
+    public void when_requestingMetadata_then_validatorsFromCatalogRevision() {
+        ValidatorResolver resolver = createResolver();
+        Validators validators = resolver.resolve("/api/datasets", "expanded=true");
+        Assertions.assertNotNull(validators);
+        Assertions.assertTrue(validators.getLastModified() > 0);
+        Assertions.assertNotEquals(validators.getETag(), resolver.resolve("/api/datasets", null).getETag());
+    }
+
+    @Test
+    public void when_datasetBehindLatestMoves_then_latestValuesTagChanges() {
+        ValidatorResolver resolver = createResolver();
+        Validators validators = resolver.resolve("/api/latest-values", null);
+        Assertions.assertNotNull(validators);
+        Assertions.assertEquals(5000, validators.getLastModified());
+        Assertions.assertEquals(validators.getETag(), resolver.resolve("/api/latest-values", null).getETag());
+        resolver.setMetadataCatalog(new CatalogFixture()
+                .add(1, 10, 20, new Date(2000))
+                .add(2, 10, 20, new Date(5000))
+                .buildCatalog());
+        Validators moved = resolver.resolve("/api/latest-values", null);
+        Assertions.assertEquals(5000, moved.getLastModified());
+        Assertions.assertNotEquals(validators.getETag(), moved.getETag());
+    }
+
+    @Test
+    public void when_valuesShiftBetweenParts_then_digestsDiffer() {
+        Assertions.assertNotEquals(ValidatorResolver.digest("/a", "b"), ValidatorResolver.digest("/ab", ""));
+        Assertions.assertNotEquals(ValidatorResolver.digest("/a", null), ValidatorResolver.digest("/a", ""));
+    }
+
+    private static ValidatorResolver createResolver() {
+        ValidatorResolver resolver = new ValidatorResolver();
+        resolver.setMetadataCatalog(new CatalogFixture()
+                .add(1, 10, 20, new Date(1000))
+                .add(2, 10, 20, new Date(5000))
+                .buildCatalog());
+        return resolver;
+    }
+
+}
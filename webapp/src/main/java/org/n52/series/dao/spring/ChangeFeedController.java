@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.dao.spring;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.n52.series.db.da.LatestValue;
+import org.n52.series.srv.ChangeFeed;
+import org.n52.web.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes new observations of the requested datasets as Server-Sent Events. Each <code>observations</code>
+ * event holds a JSON array of <code>{datasetId, timestamp, value, uom}</code> objects. The stream ends after
+ * the configured timeout, so clients are expected to reconnect like browsers' <code>EventSource</code> does.
+ */
+@Controller
+public class ChangeFeedController {
+
+    private static final String EVENT_NAME = "observations";
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @RequestMapping(value = "/changes", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam("datasets") String datasets) {
+        SseEmitter emitter = new SseEmitter(changeFeed.getTimeoutMillis());
+        ChangeFeed.Subscription subscription = changeFeed.subscribe(parseIds(datasets), v -> send(emitter, v));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        return emitter;
+    }
+
+    private Set<Long> parseIds(String datasets) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String id : datasets.split(",")) {
+            if (!id.trim().isEmpty()) {
+                try {
+                    ids.add(Long.valueOf(id.trim()));
+                } catch (NumberFormatException e) {
+                    throw new BadRequestException("Invalid dataset id: " + id, e);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void send(SseEmitter emitter, List<LatestValue> values) {
+        try {
+            emitter.send(SseEmitter.event()
+                                   .name(EVENT_NAME)
+                                   .data(values, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
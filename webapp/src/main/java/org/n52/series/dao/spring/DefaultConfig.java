@@ -28,13 +28,18 @@
  */
 package org.n52.series.dao.spring;
 
+import java.util.List;
+
+import org.n52.series.srv.ValidatorResolver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 import org.springframework.web.servlet.View;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ViewResolverRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
@@ -51,6 +56,9 @@ public class DefaultConfig implements WebMvcConfigurer {
     @Autowired(required = false)
     private ObjectMapper objectMapper;
 
+    @Autowired(required = false)
+    private ValidatorResolver validatorResolver;
+
     @Override
     public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
         configurer.defaultContentType(MediaType.APPLICATION_JSON)
@@ -58,6 +66,21 @@ public class DefaultConfig implements WebMvcConfigurer {
                   .useRegisteredExtensionsOnly(false);
     }
 
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (validatorResolver != null && validatorResolver.isEnabled()) {
+            // the change feed streams new observations and has no validators
+            registry.addInterceptor(new ConditionalRequestInterceptor(validatorResolver))
+                    .excludePathPatterns("/changes");
+        }
+    }
+
+    @Override
+    public void extendHandlerExceptionResolvers(List<HandlerExceptionResolver> resolvers) {
+        // ahead of the controllers' exception handlers
+        resolvers.add(0, new ServiceBusyExceptionResolver(getObjectMapper()));
+    }
+
     @Override
     public void configureViewResolvers(ViewResolverRegistry registry) {
         View jsonView = createJsonView();
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.dao.spring;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.n52.io.request.IoParameters;
+import org.n52.series.db.da.LatestValue;
+import org.n52.series.srv.LatestValueAccessService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams the latest values of all datasets matching the common dataset filters as a JSON array of
+ * <code>{datasetId, timestamp, value, uom}</code> objects. Conditional requests are answered by the
+ * {@link ConditionalRequestInterceptor} like for other catalog resources.
+ * <p>
+ * Failures before the response is committed are answered by the common error handling. Once streaming has
+ * begun, a failure leaves the array open and the connection is aborted, so clients cannot mistake a
+ * truncated array for a complete one.
+ */
+@Controller
+public class LatestValuesController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatestValuesController.class);
+
+    private static final int FLUSH_INTERVAL = 500;
+
+    @Autowired
+    private LatestValueAccessService latestValueService;
+
+    @Autowired(required = false)
+    private ObjectMapper objectMapper;
+
+    @RequestMapping(value = "/latest-values", method = RequestMethod.GET)
+    public void getLatestValues(@RequestParam MultiValueMap<String, String> query, HttpServletResponse response)
+            throws IOException {
+        IoParameters parameters = IoParameters.createDefaults();
+        for (Map.Entry<String, List<String>> parameter : query.entrySet()) {
+            parameters = parameters.extendWith(parameter.getKey(), parameter.getValue().toArray(new String[0]));
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        ObjectMapper mapper = objectMapper != null
+                ? objectMapper
+                : new ObjectMapper();
+        // never close the array or the stream implicitly, a failure must not end in a well-formed response
+        JsonGenerator generator = mapper.getFactory()
+                                        .createGenerator(response.getOutputStream())
+                                        .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            generator.writeStartArray();
+            int[] count = new int[1];
+            latestValueService.getLatestValues(parameters, value -> write(generator, value, ++count[0]));
+            generator.writeEndArray();
+            generator.close();
+        } catch (UncheckedIOException e) {
+            abort(response, e);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            abort(response, e);
+            throw e;
+        }
+    }
+
+    private void abort(HttpServletResponse response, Exception e) {
+        if (response.isCommitted()) {
+            // the servlet container aborts the connection on errors after the response has been committed
+            LOGGER.warn("Aborting latest values stream after it has been committed.", e);
+        } else {
+            response.reset();
+        }
+    }
+
+    private void write(JsonGenerator generator, LatestValue value, int count) {
+        try {
+            generator.writeObject(value);
+            if (count % FLUSH_INTERVAL == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
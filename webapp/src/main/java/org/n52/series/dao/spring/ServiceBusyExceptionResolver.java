@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015-2021 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public License
+ * version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.series.dao.spring;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.n52.series.srv.ServiceBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Answers requests rejected with a {@link ServiceBusyException} with <code>503 Service Unavailable</code> and
+ * a <code>Retry-After</code> header. It has to run ahead of the controllers' exception handlers, which
+ * answer any runtime exception with <code>500 Internal Server Error</code>.
+ */
+public class ServiceBusyExceptionResolver implements HandlerExceptionResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceBusyExceptionResolver.class);
+
+    private final ObjectMapper objectMapper;
+
+    public ServiceBusyExceptionResolver(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+            Object handler, Exception ex) {
+        ServiceBusyException busy = findServiceBusy(ex);
+        if (busy == null) {
+            return null;
+        }
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(busy.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("statusCode", status.value());
+        body.put("reason", status.getReasonPhrase());
+        body.put("userMessage", busy.getMessage());
+        try {
+            objectMapper.writeValue(response.getWriter(), body);
+        } catch (IOException e) {
+            LOGGER.debug("Could not write busy response: {}", e.getMessage());
+        }
+        return new ModelAndView();
+    }
+
+    private static ServiceBusyException findServiceBusy(Throwable ex) {
+        Throwable current = ex;
+        while (current != null) {
+            if (current instanceof ServiceBusyException) {
+                return (ServiceBusyException) current;
+            }
+            current = current.getCause() != current
+                    ? current.getCause()
+                    : null;
+        }
+        return null;
+    }
+
+}